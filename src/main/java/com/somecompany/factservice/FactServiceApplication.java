@@ -2,13 +2,16 @@ package com.somecompany.factservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 /**
  * Main entry point for the useful Fact Service Spring Boot Application.
  * This application exposes endpoints to fetch random facts from the Useless Fact API,
  * provides a shortened URL for each fetched fact, caches them, and also offers private area to consult access statistics.
+ * Configuration properties records under the config package are picked up via {@link ConfigurationPropertiesScan}.
  */
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class FactServiceApplication
 {
 	/**
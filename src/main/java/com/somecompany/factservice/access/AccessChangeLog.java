@@ -0,0 +1,192 @@
+package com.somecompany.factservice.access;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.springframework.stereotype.Service;
+
+import com.somecompany.factservice.config.StatisticsProperties;
+
+/**
+ * Versioned log of the short urls whose access counts changed, so that pollers fetch only what changed since their
+ * last poll.
+ * <p>
+ * Every change is stamped with the next value of a monotonically increasing version, and each short url is kept only
+ * under its latest version, so the log holds one entry per changed short url and reading changes since a version costs
+ * O(changes). A short url already changed after the last version handed out to a poller is not stamped again: every
+ * poller will see it anyway. Hot short urls therefore cost one map lookup per access between polls.
+ * </p>
+ * <p>
+ * At most {@code maxChanges} short urls are remembered. Forgetting the oldest raises the floor version; a poll from
+ * below the floor cannot be answered incrementally and has to reload the full statistics. Versions restart with the
+ * service, so a poll from a version above the current one is treated the same way.
+ * </p>
+ * <p>
+ * A version also identifies the statistics as an entity tag, which a random id of the run keeps apart from the same
+ * version of another run.
+ * </p>
+ */
+@Service
+public class AccessChangeLog
+{
+	private final StatisticsProperties properties;
+
+	/**
+	 * Stamps changes in their shared mode and hands out versions in its exclusive mode, so that every change stamped
+	 * with a version up to a handed out one is already in the log.
+	 */
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+	private final AtomicLong version = new AtomicLong();
+
+	/**
+	 * Highest version handed out to a poller.
+	 */
+	private volatile long issuedVersion;
+
+	/**
+	 * Highest version forgotten from the log.
+	 */
+	private final AtomicLong floorVersion = new AtomicLong();
+
+	private final Map<String, Long> versionsByShortUrl = new ConcurrentHashMap<>();
+	private final ConcurrentSkipListMap<Long, String> shortUrlsByVersion = new ConcurrentSkipListMap<>();
+	private final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * Random id of this run of the service, in hex.
+	 */
+	private final String runId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+	/**
+	 * Constructs an empty log.
+	 *
+	 * @param properties number of remembered changes
+	 */
+	public AccessChangeLog(StatisticsProperties properties)
+	{
+		this.properties = properties;
+	}
+
+	/**
+	 * Records that the access count of a short url changed or the short url was removed.
+	 * Called after the change was applied to the cache.
+	 *
+	 * @param shortUrl the changed short url
+	 */
+	public void recordChange(String shortUrl)
+	{
+		Long changed = versionsByShortUrl.get(shortUrl);
+		if (changed != null && changed > issuedVersion)
+		{
+			return;
+		}
+		lock.readLock().lock();
+		try
+		{
+			long stamp = version.incrementAndGet();
+			versionsByShortUrl.compute(shortUrl, (key, previous) -> {
+				if (previous != null)
+				{
+					if (previous > stamp)
+					{
+						return previous;
+					}
+					if (shortUrlsByVersion.remove(previous, key))
+					{
+						size.decrementAndGet();
+					}
+				}
+				shortUrlsByVersion.put(stamp, key);
+				size.incrementAndGet();
+				return stamp;
+			});
+		}
+		finally
+		{
+			lock.readLock().unlock();
+		}
+		while (size.get() > properties.maxChanges())
+		{
+			forgetOldest();
+		}
+	}
+
+	/**
+	 * Hands out the current version without reading changes, e.g. along with the full statistics.
+	 *
+	 * @return the version to poll changes since
+	 */
+	public long currentVersion()
+	{
+		lock.writeLock().lock();
+		try
+		{
+			long current = version.get();
+			issuedVersion = current;
+			return current;
+		}
+		finally
+		{
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the strong entity tag of a representation of the statistics at a version.
+	 *
+	 * @param representation the endpoint and parameters the statistics were read with, e.g. {@code top-10}
+	 * @param version        a version handed out by {@link #currentVersion()}
+	 * @return quoted entity tag, equal for equal representations and versions within this run only
+	 */
+	public String entityTag(String representation, long version)
+	{
+		return "\"" + runId + "-" + representation + "-" + version + "\"";
+	}
+
+	/**
+	 * Passes every short url changed after a version to the consumer, each once, oldest change first.
+	 *
+	 * @param since    version of the previous poll
+	 * @param consumer receives the changed short urls
+	 * @return the version to poll the next changes since, or -1 when changes since that version are no longer known
+	 * and the full statistics have to be reloaded
+	 */
+	public long changesSince(long since, Consumer<String> consumer)
+	{
+		long current = currentVersion();
+		if (since < floorVersion.get() || since > current)
+		{
+			return -1;
+		}
+		for (Map.Entry<Long, String> entry : shortUrlsByVersion.subMap(since, false, current, true).entrySet())
+		{
+			if (entry.getKey().equals(versionsByShortUrl.get(entry.getValue())))
+			{
+				consumer.accept(entry.getValue());
+			}
+		}
+		// changes forgotten while reading may have been skipped
+		return since < floorVersion.get() ? -1 : current;
+	}
+
+	/**
+	 * Forgets the oldest change and raises the floor version to it.
+	 */
+	private void forgetOldest()
+	{
+		Map.Entry<Long, String> oldest = shortUrlsByVersion.pollFirstEntry();
+		if (oldest == null)
+		{
+			return;
+		}
+		size.decrementAndGet();
+		floorVersion.accumulateAndGet(oldest.getKey(), Math::max);
+		versionsByShortUrl.remove(oldest.getValue(), oldest.getKey());
+	}
+}
@@ -0,0 +1,298 @@
+package com.somecompany.factservice.access;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.somecompany.factservice.cache.FactCacheService;
+import com.somecompany.factservice.config.AccessPipelineProperties;
+import com.somecompany.factservice.expiry.FactExpiryService;
+import com.somecompany.factservice.persistence.WriteAheadLog;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Counts redirects off the request path: a redirect publishes an access event into an {@link AccessRing} and returns,
+ * and a single {@code access-consumer} thread aggregates the events per short url and applies each batch to the access
+ * counters, the windowed, top and changed statistics, the write-ahead log and sliding expiry with one call per short url.
+ * <p>
+ * Access statistics therefore lag behind redirects. The consumer drains whatever is published and waits at most
+ * {@code flushInterval} when the ring is empty, so under light load an event is applied within about one flush interval;
+ * under load the lag is the time to apply the events ahead of it, at most a full ring. The lag of the oldest event of
+ * each batch is exported as {@code factservice.access.lag}.
+ * </p>
+ */
+@Service
+public class AccessEventPipeline
+{
+	private static final Logger logger = LoggerFactory.getLogger(AccessEventPipeline.class);
+
+	/**
+	 * Pause of a redirect waiting for a free slot with {@code block} back-pressure.
+	 */
+	private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+	private final AccessPipelineProperties properties;
+	private final FactCacheService factCacheService;
+	private final WriteAheadLog writeAheadLog;
+	private final FactExpiryService factExpiryService;
+	private final WindowedAccessStatistics windowedAccessStatistics;
+	private final TopAccessStatistics topAccessStatistics;
+	private final AccessChangeLog accessChangeLog;
+	private final LongSupplier nanoClock;
+	private final AccessRing ring;
+
+	/**
+	 * Accesses per short url of the batch being applied, only used by the consumer.
+	 */
+	private final Map<String, long[]> batch = new HashMap<>();
+	private long oldestNanos;
+
+	private final Counter droppedCounter;
+	private final Counter blockedCounter;
+	private final Counter appliedCounter;
+	private final Timer lagTimer;
+
+	private volatile boolean running;
+	private Thread consumer;
+
+	/**
+	 * Constructs the pipeline and registers its metrics.
+	 *
+	 * @param properties               ring, batch and back-pressure settings
+	 * @param factCacheService         cache whose access counters the events are applied to
+	 * @param writeAheadLog            log the aggregated accesses are persisted to
+	 * @param factExpiryService        expiry extended for accessed short urls
+	 * @param windowedAccessStatistics rolling windows the events are counted into
+	 * @param topAccessStatistics      most accessed short urls the events are counted into
+	 * @param accessChangeLog          log the short urls of the events are recorded as changed in
+	 * @param meterRegistry            registry exposing dropped, blocked and applied events and the lag
+	 */
+	@Autowired
+	public AccessEventPipeline(AccessPipelineProperties properties, FactCacheService factCacheService, WriteAheadLog writeAheadLog,
+		FactExpiryService factExpiryService, WindowedAccessStatistics windowedAccessStatistics, TopAccessStatistics topAccessStatistics,
+		AccessChangeLog accessChangeLog, MeterRegistry meterRegistry)
+	{
+		this(properties, factCacheService, writeAheadLog, factExpiryService, windowedAccessStatistics, topAccessStatistics, accessChangeLog,
+			meterRegistry, System::nanoTime);
+	}
+
+	/**
+	 * Constructs the pipeline with the given clock.
+	 *
+	 * @param properties               ring, batch and back-pressure settings
+	 * @param factCacheService         cache whose access counters the events are applied to
+	 * @param writeAheadLog            log the aggregated accesses are persisted to
+	 * @param factExpiryService        expiry extended for accessed short urls
+	 * @param windowedAccessStatistics rolling windows the events are counted into
+	 * @param topAccessStatistics      most accessed short urls the events are counted into
+	 * @param accessChangeLog          log the short urls of the events are recorded as changed in
+	 * @param meterRegistry            registry exposing dropped, blocked and applied events and the lag
+	 * @param nanoClock                nanosecond clock source
+	 */
+	AccessEventPipeline(AccessPipelineProperties properties, FactCacheService factCacheService, WriteAheadLog writeAheadLog,
+		FactExpiryService factExpiryService, WindowedAccessStatistics windowedAccessStatistics, TopAccessStatistics topAccessStatistics,
+		AccessChangeLog accessChangeLog, MeterRegistry meterRegistry, LongSupplier nanoClock)
+	{
+		this.properties = properties;
+		this.factCacheService = factCacheService;
+		this.writeAheadLog = writeAheadLog;
+		this.factExpiryService = factExpiryService;
+		this.windowedAccessStatistics = windowedAccessStatistics;
+		this.topAccessStatistics = topAccessStatistics;
+		this.accessChangeLog = accessChangeLog;
+		this.nanoClock = nanoClock;
+		this.ring = new AccessRing(properties.enabled() ? properties.ringCapacity() : 1);
+
+		this.droppedCounter = Counter.builder("factservice.access.dropped")
+			.description("Access events discarded because the ring was full")
+			.register(meterRegistry);
+		this.blockedCounter = Counter.builder("factservice.access.blocked")
+			.description("Redirects that waited for a free slot in the ring")
+			.register(meterRegistry);
+		this.appliedCounter = Counter.builder("factservice.access.applied")
+			.description("Access events applied to the access counters")
+			.register(meterRegistry);
+		this.lagTimer = Timer.builder("factservice.access.lag")
+			.description("Time from publishing the oldest event of a batch to applying the batch")
+			.register(meterRegistry);
+		Gauge.builder("factservice.access.pending", ring, AccessRing::size)
+			.description("Access events published but not yet applied")
+			.register(meterRegistry);
+	}
+
+	/**
+	 * Starts the consumer when the pipeline is enabled.
+	 */
+	@PostConstruct
+	void start()
+	{
+		if (!properties.enabled())
+		{
+			return;
+		}
+		running = true;
+		consumer = new Thread(this::consume, "access-consumer");
+		consumer.setDaemon(true);
+		consumer.start();
+		logger.info("Counting accesses asynchronously through a ring of %d events, %s when full"
+			.formatted(ring.capacity(), properties.backPressure().name().toLowerCase()));
+	}
+
+	/**
+	 * Stops the consumer and applies the events still in the ring.
+	 */
+	@PreDestroy
+	void stop()
+	{
+		running = false;
+		if (consumer == null)
+		{
+			return;
+		}
+		LockSupport.unpark(consumer);
+		try
+		{
+			consumer.join(TimeUnit.SECONDS.toMillis(5));
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return;
+		}
+		while (!consumer.isAlive() && drain() > 0)
+		{
+			// apply what redirects published until the consumer stopped
+		}
+	}
+
+	/**
+	 * Returns whether redirects are counted through the pipeline.
+	 *
+	 * @return true when enabled
+	 */
+	public boolean isEnabled()
+	{
+		return properties.enabled();
+	}
+
+	/**
+	 * Publishes an access of a short url the caller has already resolved. With {@code drop} back-pressure a full ring
+	 * discards the access, with {@code block} the caller waits for a free slot.
+	 *
+	 * @param shortUrl the accessed short url
+	 */
+	public void publish(String shortUrl)
+	{
+		if (ring.offer(shortUrl, nanoClock.getAsLong()))
+		{
+			return;
+		}
+		if (properties.backPressure() == AccessPipelineProperties.BackPressure.DROP)
+		{
+			droppedCounter.increment();
+			return;
+		}
+		blockedCounter.increment();
+		do
+		{
+			if (!running)
+			{
+				droppedCounter.increment();
+				return;
+			}
+			LockSupport.parkNanos(BLOCK_PARK_NANOS);
+		}
+		while (!ring.offer(shortUrl, nanoClock.getAsLong()));
+	}
+
+	/**
+	 * Takes up to one batch of events from the ring, aggregates them per short url and applies them.
+	 *
+	 * @return number of events taken
+	 */
+	int drain()
+	{
+		oldestNanos = Long.MAX_VALUE;
+		int count = ring.drain(properties.maxBatch(), this::aggregate);
+		if (count == 0)
+		{
+			return 0;
+		}
+		for (Map.Entry<String, long[]> entry : batch.entrySet())
+		{
+			apply(entry.getKey(), entry.getValue()[0]);
+		}
+		batch.clear();
+		appliedCounter.increment(count);
+		lagTimer.record(nanoClock.getAsLong() - oldestNanos, TimeUnit.NANOSECONDS);
+		return count;
+	}
+
+	/**
+	 * Drains the ring until stopped, waiting up to one flush interval whenever it is empty.
+	 */
+	private void consume()
+	{
+		long flushNanos = properties.flushInterval().toNanos();
+		while (running)
+		{
+			try
+			{
+				if (drain() == 0)
+				{
+					LockSupport.parkNanos(flushNanos);
+				}
+			}
+			catch (RuntimeException e)
+			{
+				batch.clear();
+				logger.error("Could not apply access events: %s".formatted(e.getMessage()), e);
+			}
+		}
+	}
+
+	/**
+	 * Adds an event to the current batch.
+	 *
+	 * @param shortUrl       the accessed short url
+	 * @param publishedNanos time the event was published
+	 */
+	private void aggregate(String shortUrl, long publishedNanos)
+	{
+		batch.computeIfAbsent(shortUrl, key -> new long[1])[0]++;
+		oldestNanos = Math.min(oldestNanos, publishedNanos);
+	}
+
+	/**
+	 * Applies the aggregated accesses of one short url.
+	 *
+	 * @param shortUrl the accessed short url
+	 * @param accesses number of accesses in the batch
+	 */
+	private void apply(String shortUrl, long accesses)
+	{
+		if (!factCacheService.recordAccesses(shortUrl, accesses))
+		{
+			// expired or removed since the redirect
+			return;
+		}
+		windowedAccessStatistics.record(shortUrl, accesses);
+		topAccessStatistics.record(shortUrl, accesses);
+		accessChangeLog.recordChange(shortUrl);
+		writeAheadLog.appendAccess(shortUrl, (int) accesses);
+		factExpiryService.touch(shortUrl);
+	}
+}
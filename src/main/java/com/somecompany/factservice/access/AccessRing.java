@@ -0,0 +1,140 @@
+package com.somecompany.factservice.access;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Bounded lock-free ring buffer of access events for many producers and a single consumer.
+ * <p>
+ * All slots are allocated up front; an event is the reference to the short url, which the redirect already holds, and
+ * the time it was published. Each slot carries a sequence number: a producer claims the next position with one
+ * compare-and-set on the tail, writes the slot and releases it by advancing the slot's sequence, and the consumer
+ * releases the slot for the next lap the same way. A full ring makes {@link #offer} fail instead of waiting.
+ * </p>
+ */
+class AccessRing
+{
+	private final int mask;
+
+	/**
+	 * Per slot, the position it may next be written at, or that position plus 1 once written.
+	 */
+	private final AtomicLongArray sequences;
+	private final String[] shortUrls;
+	private final long[] publishedNanos;
+
+	/**
+	 * Next position to be claimed by a producer.
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * Next position to be read, written only by the consumer.
+	 */
+	private volatile long head;
+
+	/**
+	 * Constructs an empty ring.
+	 *
+	 * @param capacity number of slots, a power of two
+	 */
+	AccessRing(int capacity)
+	{
+		this.mask = capacity - 1;
+		this.sequences = new AtomicLongArray(capacity);
+		this.shortUrls = new String[capacity];
+		this.publishedNanos = new long[capacity];
+		for (int i = 0; i < capacity; i++)
+		{
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * Publishes an access event. Lock-free and allocation-free.
+	 *
+	 * @param shortUrl       the accessed short url
+	 * @param publishedNanos time of the access
+	 * @return false when the ring is full
+	 */
+	boolean offer(String shortUrl, long publishedNanos)
+	{
+		long position = tail.get();
+		while (true)
+		{
+			int slot = (int) position & mask;
+			long difference = sequences.getAcquire(slot) - position;
+			if (difference == 0)
+			{
+				if (tail.compareAndSet(position, position + 1))
+				{
+					shortUrls[slot] = shortUrl;
+					this.publishedNanos[slot] = publishedNanos;
+					sequences.setRelease(slot, position + 1);
+					return true;
+				}
+				position = tail.get();
+			}
+			else if (difference < 0)
+			{
+				return false;
+			}
+			else
+			{
+				position = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * Takes up to {@code limit} published events in order. Must only be called by the consumer.
+	 *
+	 * @param limit    maximum number of events
+	 * @param consumer receives the short url and the publish time of each event
+	 * @return number of events taken
+	 */
+	int drain(int limit, ObjLongConsumer<String> consumer)
+	{
+		long position = head;
+		int count = 0;
+		while (count < limit)
+		{
+			int slot = (int) position & mask;
+			if (sequences.getAcquire(slot) != position + 1)
+			{
+				// empty, or a producer claimed the slot and has not written it yet
+				break;
+			}
+			String shortUrl = shortUrls[slot];
+			long nanos = publishedNanos[slot];
+			shortUrls[slot] = null;
+			sequences.setRelease(slot, position + mask + 1);
+			position++;
+			count++;
+			consumer.accept(shortUrl, nanos);
+		}
+		head = position;
+		return count;
+	}
+
+	/**
+	 * Returns the number of claimed events not yet taken by the consumer.
+	 *
+	 * @return pending events
+	 */
+	long size()
+	{
+		return Math.max(0, tail.get() - head);
+	}
+
+	/**
+	 * Returns the number of slots.
+	 *
+	 * @return capacity
+	 */
+	int capacity()
+	{
+		return mask + 1;
+	}
+}
@@ -0,0 +1,90 @@
+package com.somecompany.factservice.access;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolling windows access statistics are kept for, each a ring of equally sized buckets.
+ * A window covers the current, partly elapsed bucket and the buckets before it, so it spans up to one bucket less than
+ * its nominal length.
+ */
+public enum AccessWindow
+{
+	/**
+	 * Last minute in 60 buckets of one second.
+	 */
+	MINUTE(60, TimeUnit.SECONDS.toNanos(1), 0),
+	/**
+	 * Last hour in 60 buckets of one minute.
+	 */
+	HOUR(60, TimeUnit.MINUTES.toNanos(1), 60),
+	/**
+	 * Last day in 24 buckets of one hour.
+	 */
+	DAY(24, TimeUnit.HOURS.toNanos(1), 120);
+
+	/**
+	 * Buckets of all windows together, the size of the bucket array of one short url.
+	 */
+	static final int TOTAL_BUCKETS = 144;
+
+	private final int buckets;
+	private final long bucketNanos;
+	private final int offset;
+
+	/**
+	 * Constructs a window.
+	 *
+	 * @param buckets     number of buckets
+	 * @param bucketNanos length of a bucket
+	 * @param offset      position of the first bucket in the bucket array of a short url
+	 */
+	AccessWindow(int buckets, long bucketNanos, int offset)
+	{
+		this.buckets = buckets;
+		this.bucketNanos = bucketNanos;
+		this.offset = offset;
+	}
+
+	/**
+	 * Returns the number of buckets.
+	 *
+	 * @return buckets of the window
+	 */
+	int buckets()
+	{
+		return buckets;
+	}
+
+	/**
+	 * Returns the length of a bucket.
+	 *
+	 * @return bucket length in nanoseconds
+	 */
+	long bucketNanos()
+	{
+		return bucketNanos;
+	}
+
+	/**
+	 * Returns the position of the first bucket in the bucket array of a short url.
+	 *
+	 * @return index of the first bucket
+	 */
+	int offset()
+	{
+		return offset;
+	}
+
+	/**
+	 * Resolves a window by its name, ignoring case.
+	 *
+	 * @param name window name such as {@code minute}
+	 * @return the window
+	 * @throws IllegalArgumentException when no window has the name
+	 */
+	public static AccessWindow fromName(String name)
+	{
+		return valueOf(name.trim().toUpperCase(Locale.ROOT));
+	}
+}
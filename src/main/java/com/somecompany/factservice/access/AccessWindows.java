@@ -0,0 +1,95 @@
+package com.somecompany.factservice.access;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Minute, hour and day access windows of one short url in a single fixed array of {@link AccessWindow#TOTAL_BUCKETS}
+ * bucket counters, so every tracked short url costs the same bytes however often it is accessed.
+ * <p>
+ * Each bucket packs the index of the time bucket it counts into its upper 32 bits and the count into its lower 32 bits.
+ * An access whose time bucket differs from the one stored in its slot replaces the slot in the same compare-and-set that
+ * counts it, so the rings rotate without locks and without a thread clearing them. Reading a window sums the slots whose
+ * time bucket lies within the window and skips slots not overwritten since they fell out of it.
+ * </p>
+ */
+final class AccessWindows
+{
+	private static final long COUNT_MASK = 0xFFFF_FFFFL;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(AccessWindow.TOTAL_BUCKETS);
+
+	/**
+	 * Time of the last access, updated at most once per second.
+	 */
+	private volatile long lastAccessNanos;
+
+	/**
+	 * Constructs empty windows.
+	 *
+	 * @param nowNanos time the windows are created, relative to the statistics' origin
+	 */
+	AccessWindows(long nowNanos)
+	{
+		this.lastAccessNanos = nowNanos;
+	}
+
+	/**
+	 * Counts accesses into the current bucket of every window.
+	 *
+	 * @param nowNanos time of the accesses, relative to the statistics' origin
+	 * @param delta    number of accesses
+	 */
+	void record(long nowNanos, long delta)
+	{
+		for (AccessWindow window : AccessWindow.values())
+		{
+			long index = nowNanos / window.bucketNanos();
+			int slot = window.offset() + (int) (index % window.buckets());
+			long epoch = index & COUNT_MASK;
+			long bucket;
+			long count;
+			do
+			{
+				bucket = buckets.get(slot);
+				count = bucket >>> 32 == epoch ? (bucket & COUNT_MASK) + delta : delta;
+			}
+			while (!buckets.compareAndSet(slot, bucket, epoch << 32 | Math.min(count, COUNT_MASK)));
+		}
+		if (nowNanos - lastAccessNanos >= AccessWindow.MINUTE.bucketNanos())
+		{
+			lastAccessNanos = nowNanos;
+		}
+	}
+
+	/**
+	 * Sums the accesses of a window.
+	 *
+	 * @param window   the window
+	 * @param nowNanos current time, relative to the statistics' origin
+	 * @return accesses within the window
+	 */
+	long count(AccessWindow window, long nowNanos)
+	{
+		long index = nowNanos / window.bucketNanos();
+		long sum = 0;
+		for (int slot = window.offset(); slot < window.offset() + window.buckets(); slot++)
+		{
+			long bucket = buckets.get(slot);
+			if ((index - (bucket >>> 32) & COUNT_MASK) < window.buckets())
+			{
+				sum += bucket & COUNT_MASK;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns the time of the last access.
+	 *
+	 * @return last access, accurate to one second, relative to the statistics' origin
+	 */
+	long lastAccessNanos()
+	{
+		return lastAccessNanos;
+	}
+}
@@ -0,0 +1,196 @@
+package com.somecompany.factservice.access;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+/**
+ * Weighted Space-Saving summary of the most frequent keys of a stream, in a fixed number of counters.
+ * <p>
+ * A key with a counter adds to it. A new key takes a free counter or replaces the key of the smallest counter, taking
+ * over its count as error. With {@code total} the sum of all weights and {@code m} the number of counters, every
+ * counter overestimates its key by at most its error, every error is at most {@code total / m}, and every key whose
+ * true count exceeds {@code total / m} holds a counter. The counters are kept ordered by count, so the smallest counter
+ * is found in O(log m) and the largest k are read in O(k), plus the removed keys among them.
+ * </p>
+ * <p>
+ * Removing a key hides its counter instead of freeing it. Freeing it would let a new key start from zero while keys
+ * that lost their counter earlier were counted more often, so the smallest count would no longer bound the count of
+ * keys without a counter and the bounds above would break. A hidden counter is taken over like any other once it is
+ * the smallest.
+ * </p>
+ * Not thread-safe.
+ */
+final class SpaceSaving
+{
+	/**
+	 * Largest count first, the older counter first among equal counts.
+	 */
+	private static final Comparator<Entry> BY_COUNT = Comparator.comparingLong((Entry entry) -> entry.count)
+		.reversed()
+		.thenComparingLong(entry -> entry.sequence);
+
+	private final int capacity;
+	private final Map<String, Entry> entries;
+	private final TreeSet<Entry> byCount = new TreeSet<>(BY_COUNT);
+	private long sequence;
+	private long total;
+
+	/**
+	 * Constructs an empty summary.
+	 *
+	 * @param capacity number of counters
+	 */
+	SpaceSaving(int capacity)
+	{
+		this.capacity = capacity;
+		this.entries = new HashMap<>(capacity * 4 / 3 + 1);
+	}
+
+	/**
+	 * Adds a weight to a key.
+	 *
+	 * @param key    the key
+	 * @param weight positive weight
+	 */
+	void add(String key, long weight)
+	{
+		total += weight;
+		Entry entry = entries.get(key);
+		if (entry != null)
+		{
+			byCount.remove(entry);
+			entry.count += weight;
+			entry.removed = false;
+			byCount.add(entry);
+			return;
+		}
+		long error = 0;
+		if (entries.size() == capacity)
+		{
+			Entry smallest = byCount.pollLast();
+			entries.remove(smallest.key);
+			error = smallest.count;
+		}
+		entry = new Entry(key, error + weight, error, sequence++);
+		entries.put(key, entry);
+		byCount.add(entry);
+	}
+
+	/**
+	 * Hides the counter of a key, when it has one, until the key is added again or a new key takes the counter over.
+	 *
+	 * @param key the key
+	 */
+	void remove(String key)
+	{
+		Entry entry = entries.get(key);
+		if (entry != null)
+		{
+			entry.removed = true;
+		}
+	}
+
+	/**
+	 * Returns the largest counters that are not hidden.
+	 *
+	 * @param k maximum number of counters
+	 * @return iterator over at most k counters, largest first
+	 */
+	Iterator<Entry> top(int k)
+	{
+		Iterator<Entry> iterator = byCount.iterator();
+		return new Iterator<>()
+		{
+			private int remaining = k;
+			private Entry next = advance();
+
+			@Override
+			public boolean hasNext()
+			{
+				return remaining > 0 && next != null;
+			}
+
+			@Override
+			public Entry next()
+			{
+				if (!hasNext())
+				{
+					throw new NoSuchElementException();
+				}
+				Entry entry = next;
+				remaining--;
+				next = remaining > 0 ? advance() : null;
+				return entry;
+			}
+
+			private Entry advance()
+			{
+				while (iterator.hasNext())
+				{
+					Entry entry = iterator.next();
+					if (!entry.removed)
+					{
+						return entry;
+					}
+				}
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * Returns the sum of all weights added.
+	 *
+	 * @return total weight
+	 */
+	long total()
+	{
+		return total;
+	}
+
+	/**
+	 * Returns the number of counters.
+	 *
+	 * @return capacity
+	 */
+	int capacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * Counter of a key.
+	 */
+	static final class Entry
+	{
+		final String key;
+		long count;
+		final long error;
+		final long sequence;
+
+		/**
+		 * Whether the key was removed and the counter is only kept for the bounds.
+		 */
+		boolean removed;
+
+		/**
+		 * Constructs a counter.
+		 *
+		 * @param key      the key
+		 * @param count    estimated count, at least the true count
+		 * @param error    most the count exceeds the true count
+		 * @param sequence order of creation, breaking ties between equal counts
+		 */
+		Entry(String key, long count, long error, long sequence)
+		{
+			this.key = key;
+			this.count = count;
+			this.error = error;
+			this.sequence = sequence;
+		}
+	}
+}
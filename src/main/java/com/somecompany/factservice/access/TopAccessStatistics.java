@@ -0,0 +1,120 @@
+package com.somecompany.factservice.access;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.stereotype.Service;
+
+import com.somecompany.factservice.config.StatisticsProperties;
+import com.somecompany.factservice.model.TopAccessStat;
+
+/**
+ * The most accessed short urls since startup, kept in a {@link SpaceSaving} summary of {@code topCapacity} counters as
+ * accesses are counted, so reading the top k costs O(k) however many short urls exist.
+ * <p>
+ * Each reported count is an upper bound exceeding the true count by at most the reported max error, which is at most
+ * the accesses since startup divided by {@code topCapacity}. Every short url accessed more often than that is reported.
+ * </p>
+ * <p>
+ * With the {@link AccessEventPipeline} enabled, accesses are counted by its consumer, once per short url and batch, so
+ * redirects never touch the summary. Otherwise each redirect counts its access here, taking the lock for one O(1)
+ * update.
+ * </p>
+ */
+@Service
+public class TopAccessStatistics
+{
+	private final boolean enabled;
+	private final SpaceSaving summary;
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Constructs the statistics.
+	 *
+	 * @param properties whether the most accessed short urls are tracked and the number of counters
+	 */
+	public TopAccessStatistics(StatisticsProperties properties)
+	{
+		this.enabled = properties.topEnabled();
+		this.summary = new SpaceSaving(enabled ? properties.topCapacity() : 1);
+	}
+
+	/**
+	 * Returns whether the most accessed short urls are tracked.
+	 *
+	 * @return true when enabled
+	 */
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+
+	/**
+	 * Counts accesses of a short url, from a redirect or from the access event pipeline consumer.
+	 *
+	 * @param shortUrl the accessed short url
+	 * @param delta    number of accesses
+	 */
+	public void record(String shortUrl, long delta)
+	{
+		if (!enabled)
+		{
+			return;
+		}
+		lock.lock();
+		try
+		{
+			summary.add(shortUrl, delta);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Hides a short url removed from the cache. Its counter keeps counting towards the bounds until a new short url
+	 * replaces it, see {@link SpaceSaving#remove(String)}.
+	 *
+	 * @param shortUrl the removed short url
+	 */
+	public void release(String shortUrl)
+	{
+		lock.lock();
+		try
+		{
+			summary.remove(shortUrl);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the most accessed short urls.
+	 *
+	 * @param k maximum number of short urls, at most {@code topCapacity} are returned
+	 * @return at most k short urls, most accessed first
+	 */
+	public List<TopAccessStat> top(int k)
+	{
+		lock.lock();
+		try
+		{
+			List<TopAccessStat> topAccessStats = new ArrayList<>(Math.min(k, summary.capacity()));
+			for (Iterator<SpaceSaving.Entry> iterator = summary.top(k); iterator.hasNext(); )
+			{
+				SpaceSaving.Entry entry = iterator.next();
+				topAccessStats.add(new TopAccessStat(entry.key, entry.count, entry.error));
+			}
+			return topAccessStats;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,228 @@
+package com.somecompany.factservice.access;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.ObjLongConsumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.somecompany.factservice.config.StatisticsProperties;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Rolling minute, hour and day access counts per short url, next to the lifetime count held by the cache.
+ * <p>
+ * Windows are only allocated for short urls accessed within {@code idleAfter} and for at most {@code maxTrackedUrls} of
+ * them, each a fixed array of {@link AccessWindow#TOTAL_BUCKETS} counters, so the memory is bounded by the configuration
+ * and not by the number of short urls ever issued. Idle short urls are released when the bound is reached and whenever
+ * the statistics are read. While every tracked short url is still active, accesses of further short urls are counted
+ * in {@code factservice.statistics.untracked} only.
+ * </p>
+ */
+@Service
+public class WindowedAccessStatistics
+{
+	private final StatisticsProperties properties;
+	private final LongSupplier nanoClock;
+
+	/**
+	 * Clock reading the times of the windows are relative to, so they start at bucket 0.
+	 */
+	private final long originNanos;
+
+	private final Map<String, AccessWindows> tracked = new ConcurrentHashMap<>();
+	private final AtomicInteger trackedCount = new AtomicInteger();
+
+	/**
+	 * Earliest time the next release of idle short urls may run when the bound is reached.
+	 */
+	private final AtomicLong nextReleaseNanos = new AtomicLong();
+
+	private final Counter untrackedCounter;
+
+	/**
+	 * Constructs the statistics and registers their metrics.
+	 *
+	 * @param properties    bound and idle time of the tracked short urls
+	 * @param meterRegistry registry exposing the tracked short urls and the untracked accesses
+	 */
+	@Autowired
+	public WindowedAccessStatistics(StatisticsProperties properties, MeterRegistry meterRegistry)
+	{
+		this(properties, meterRegistry, System::nanoTime);
+	}
+
+	/**
+	 * Constructs the statistics with the given clock.
+	 *
+	 * @param properties    bound and idle time of the tracked short urls
+	 * @param meterRegistry registry exposing the tracked short urls and the untracked accesses
+	 * @param nanoClock     nanosecond clock source
+	 */
+	WindowedAccessStatistics(StatisticsProperties properties, MeterRegistry meterRegistry, LongSupplier nanoClock)
+	{
+		this.properties = properties;
+		this.nanoClock = nanoClock;
+		this.originNanos = nanoClock.getAsLong();
+
+		this.untrackedCounter = Counter.builder("factservice.statistics.untracked")
+			.description("Accesses not counted into windows because the tracked short urls were at their bound")
+			.register(meterRegistry);
+		Gauge.builder("factservice.statistics.tracked", trackedCount, AtomicInteger::get)
+			.description("Short urls with access windows")
+			.register(meterRegistry);
+	}
+
+	/**
+	 * Returns whether windows are kept.
+	 *
+	 * @return true when enabled
+	 */
+	public boolean isEnabled()
+	{
+		return properties.windowsEnabled();
+	}
+
+	/**
+	 * Counts accesses of a short url into its windows, allocating them on its first recent access.
+	 *
+	 * @param shortUrl the accessed short url
+	 * @param delta    number of accesses
+	 */
+	public void record(String shortUrl, long delta)
+	{
+		if (!properties.windowsEnabled())
+		{
+			return;
+		}
+		long now = now();
+		AccessWindows windows;
+		do
+		{
+			windows = tracked.get(shortUrl);
+			if (windows == null)
+			{
+				windows = track(shortUrl, now);
+				if (windows == null)
+				{
+					untrackedCounter.increment(delta);
+					return;
+				}
+			}
+			windows.record(now, delta);
+		}
+		// recount when the windows were released as idle at the same time
+		while (tracked.get(shortUrl) != windows);
+	}
+
+	/**
+	 * Releases the windows of a short url removed from the cache.
+	 *
+	 * @param shortUrl the removed short url
+	 */
+	public void release(String shortUrl)
+	{
+		if (tracked.remove(shortUrl) != null)
+		{
+			trackedCount.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Passes the accesses within a window of every tracked short url accessed in it to the consumer.
+	 * Idle short urls are released first.
+	 *
+	 * @param window   the window
+	 * @param consumer receives short url and access count
+	 */
+	public void forEach(AccessWindow window, ObjLongConsumer<String> consumer)
+	{
+		long now = now();
+		releaseIdle(now);
+		for (Map.Entry<String, AccessWindows> entry : tracked.entrySet())
+		{
+			long count = entry.getValue().count(window, now);
+			if (count > 0)
+			{
+				consumer.accept(entry.getKey(), count);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of short urls with windows.
+	 *
+	 * @return tracked short urls
+	 */
+	int trackedCount()
+	{
+		return trackedCount.get();
+	}
+
+	/**
+	 * Allocates the windows of a short url unless the bound is reached and no idle short url can be released.
+	 *
+	 * @param shortUrl the accessed short url
+	 * @param now      current time relative to the origin
+	 * @return the windows, or null when the short url cannot be tracked
+	 */
+	private AccessWindows track(String shortUrl, long now)
+	{
+		if (trackedCount.get() >= properties.maxTrackedUrls())
+		{
+			long next = nextReleaseNanos.get();
+			if (now < next || !nextReleaseNanos.compareAndSet(next, now + AccessWindow.MINUTE.bucketNanos()))
+			{
+				return null;
+			}
+			releaseIdle(now);
+		}
+		if (trackedCount.incrementAndGet() > properties.maxTrackedUrls())
+		{
+			trackedCount.decrementAndGet();
+			return null;
+		}
+		AccessWindows created = new AccessWindows(now);
+		AccessWindows existing = tracked.putIfAbsent(shortUrl, created);
+		if (existing != null)
+		{
+			trackedCount.decrementAndGet();
+			return existing;
+		}
+		return created;
+	}
+
+	/**
+	 * Releases the windows of short urls not accessed within the idle time.
+	 *
+	 * @param now current time relative to the origin
+	 */
+	private void releaseIdle(long now)
+	{
+		long idleNanos = properties.idleAfter().toNanos();
+		for (Map.Entry<String, AccessWindows> entry : tracked.entrySet())
+		{
+			if (now - entry.getValue().lastAccessNanos() >= idleNanos && tracked.remove(entry.getKey(), entry.getValue()))
+			{
+				trackedCount.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Reads the clock relative to the origin.
+	 *
+	 * @return nanoseconds since the statistics were constructed
+	 */
+	private long now()
+	{
+		return nanoClock.getAsLong() - originNanos;
+	}
+}
@@ -0,0 +1,330 @@
+package com.somecompany.factservice.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 64-bit access counter of a cached fact that stripes itself once it is contended.
+ * <p>
+ * A counter starts as a single {@code long} updated by compare-and-set, which is all a rarely accessed fact ever needs.
+ * When that compare-and-set fails because another thread incremented at the same time, the counter allocates cells and
+ * spreads the threads over them by a per-thread probe, doubling the cells on further collisions up to the number of
+ * processors, like {@link java.util.concurrent.atomic.LongAdder}. The count is the sum of the base and the cells, so
+ * reading it is weakly consistent with concurrent increments.
+ * </p>
+ * <p>
+ * A counter can be retired once, which returns its final count: every increment that happens before is included, and
+ * every increment after fails, so a caller can apply it elsewhere. This replaces the negative sentinel a single atomic
+ * integer allowed.
+ * </p>
+ */
+public final class AccessCounter
+{
+	private static final VarHandle BASE;
+	private static final VarHandle CELLS_BUSY;
+
+	static
+	{
+		try
+		{
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			BASE = lookup.findVarHandle(AccessCounter.class, "base", long.class);
+			CELLS_BUSY = lookup.findVarHandle(AccessCounter.class, "cellsBusy", int.class);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * Value of the base and every cell once the counter is retired.
+	 */
+	private static final long RETIRED = Long.MIN_VALUE;
+
+	/**
+	 * Longs per cell; the value sits in the middle, so cells of different threads never share a cache line.
+	 */
+	private static final int CELL_LONGS = 16;
+	private static final int VALUE = CELL_LONGS / 2;
+
+	/**
+	 * Upper bound of cells per counter, the number of processors rounded up to a power of two.
+	 */
+	private static final int MAX_CELLS = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+
+	/**
+	 * Per-thread hash selecting a cell, rehashed when the thread collides on its cell.
+	 */
+	private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(() -> new int[] { (int) (Thread.currentThread().getId() * 0x9E3779B9L) | 1 });
+
+	/**
+	 * Count of increments not taken by a cell.
+	 */
+	private volatile long base;
+
+	/**
+	 * Cells of a contended counter, null until the first contention. The length is a power of two.
+	 */
+	private volatile AtomicLongArray[] cells;
+
+	/**
+	 * Spin lock guarding the creation and growth of the cells and retiring.
+	 */
+	private volatile int cellsBusy;
+
+	/**
+	 * Constructs a counter at 0.
+	 */
+	public AccessCounter()
+	{
+	}
+
+	/**
+	 * Constructs a counter with an initial count.
+	 *
+	 * @param count initial count
+	 * @throws IllegalArgumentException when the count is negative
+	 */
+	public AccessCounter(long count)
+	{
+		if (count < 0)
+		{
+			throw new IllegalArgumentException("Access count must not be negative.");
+		}
+		this.base = count;
+	}
+
+	/**
+	 * Increments the count by 1.
+	 *
+	 * @return false when the counter was retired and the increment was not counted
+	 */
+	public boolean increment()
+	{
+		return add(1);
+	}
+
+	/**
+	 * Adds a number of accesses to the count.
+	 *
+	 * @param delta number of accesses
+	 * @return false when the counter was retired and the accesses were not counted
+	 */
+	public boolean add(long delta)
+	{
+		if (cells == null)
+		{
+			long count = base;
+			if (count == RETIRED)
+			{
+				return false;
+			}
+			if (BASE.compareAndSet(this, count, count + delta))
+			{
+				return true;
+			}
+		}
+		return addContended(delta);
+	}
+
+	/**
+	 * Returns the count.
+	 *
+	 * @return sum of the base and the cells, or -1 once the counter is retired
+	 */
+	public long get()
+	{
+		long sum = base;
+		if (sum == RETIRED)
+		{
+			return -1;
+		}
+		AtomicLongArray[] cs = cells;
+		if (cs != null)
+		{
+			for (AtomicLongArray cell : cs)
+			{
+				long value = cell.get(VALUE);
+				if (value == RETIRED)
+				{
+					return -1;
+				}
+				sum += value;
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * Returns whether the counter was retired.
+	 *
+	 * @return true once retired
+	 */
+	public boolean isRetired()
+	{
+		return base == RETIRED;
+	}
+
+	/**
+	 * Retires the counter: all later increments fail.
+	 *
+	 * @return the final count, or -1 when the counter was already retired
+	 */
+	public long retire()
+	{
+		lockCells();
+		try
+		{
+			long sum = (long) BASE.getAndSet(this, RETIRED);
+			if (sum == RETIRED)
+			{
+				return -1;
+			}
+			AtomicLongArray[] cs = cells;
+			if (cs != null)
+			{
+				for (AtomicLongArray cell : cs)
+				{
+					sum += cell.getAndSet(VALUE, RETIRED);
+				}
+			}
+			return sum;
+		}
+		finally
+		{
+			cellsBusy = 0;
+		}
+	}
+
+	/**
+	 * Returns the count as text.
+	 *
+	 * @return the count
+	 */
+	@Override
+	public String toString()
+	{
+		return Long.toString(get());
+	}
+
+	/**
+	 * Adds to a cell, creating the cells on first contention and doubling them when threads keep colliding.
+	 *
+	 * @param delta number of accesses
+	 * @return false when the counter was retired
+	 */
+	private boolean addContended(long delta)
+	{
+		int[] probe = PROBE.get();
+		boolean collided = false;
+		while (true)
+		{
+			AtomicLongArray[] cs = cells;
+			if (cs == null)
+			{
+				long count = base;
+				if (count == RETIRED)
+				{
+					return false;
+				}
+				if (BASE.compareAndSet(this, count, count + delta))
+				{
+					return true;
+				}
+				// a single processor gains nothing from cells, the base is just retried
+				if (MAX_CELLS > 1 && tryLockCells())
+				{
+					try
+					{
+						if (cells == null && base != RETIRED)
+						{
+							cells = newCells(new AtomicLongArray[0], 2);
+						}
+					}
+					finally
+					{
+						cellsBusy = 0;
+					}
+				}
+				continue;
+			}
+
+			AtomicLongArray cell = cs[probe[0] & (cs.length - 1)];
+			long value = cell.get(VALUE);
+			if (value == RETIRED)
+			{
+				return false;
+			}
+			if (cell.compareAndSet(VALUE, value, value + delta))
+			{
+				return true;
+			}
+			if (collided && cs.length < MAX_CELLS && tryLockCells())
+			{
+				try
+				{
+					if (cells == cs && base != RETIRED)
+					{
+						cells = newCells(cs, cs.length * 2);
+					}
+				}
+				finally
+				{
+					cellsBusy = 0;
+				}
+				collided = false;
+			}
+			else
+			{
+				collided = true;
+			}
+			// xorshift to another cell
+			int hash = probe[0];
+			hash ^= hash << 13;
+			hash ^= hash >>> 17;
+			hash ^= hash << 5;
+			probe[0] = hash;
+		}
+	}
+
+	/**
+	 * Copies the cells into a larger array and fills the rest with new cells.
+	 *
+	 * @param cs     current cells
+	 * @param length new length
+	 * @return the new cells
+	 */
+	private static AtomicLongArray[] newCells(AtomicLongArray[] cs, int length)
+	{
+		AtomicLongArray[] grown = Arrays.copyOf(cs, length);
+		for (int i = cs.length; i < length; i++)
+		{
+			grown[i] = new AtomicLongArray(CELL_LONGS);
+		}
+		return grown;
+	}
+
+	/**
+	 * Tries to take the cells lock once.
+	 *
+	 * @return true when taken
+	 */
+	private boolean tryLockCells()
+	{
+		return cellsBusy == 0 && CELLS_BUSY.compareAndSet(this, 0, 1);
+	}
+
+	/**
+	 * Takes the cells lock, spinning while it is held.
+	 */
+	private void lockCells()
+	{
+		while (!tryLockCells())
+		{
+			Thread.onSpinWait();
+		}
+	}
+}
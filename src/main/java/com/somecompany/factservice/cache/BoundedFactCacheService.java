@@ -0,0 +1,918 @@
+package com.somecompany.factservice.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.somecompany.factservice.config.CacheProperties;
+import com.somecompany.factservice.exception.ResourceNotFoundException;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Size-bounded FactCacheService with W-TinyLFU admission and eviction, spilling evicted facts to a file.
+ * Active when {@code factservice.cache.storage=bounded}.
+ * <p>
+ * The hot tier is bounded by {@code factservice.cache.maximum-entries}, or by the estimated bytes of the cached facts
+ * when {@code factservice.cache.maximum-weight} is set, counting one byte per character of Latin-1 strings and two of
+ * other strings, as compact strings store them. New facts enter a small LRU window (1% of the bound). Facts
+ * leaving the window compete with the least recently used fact of the main segmented LRU for its space: the one a
+ * {@link FrequencySketch} estimates as less frequently accessed is evicted. Within the main space, facts accessed again
+ * move from the probation segment to the protected segment (80% of the main space).
+ * </p>
+ * <p>
+ * Evicted facts are spilled to a {@link ColdFactStore} indexed by their decoded id, so cold short urls still resolve.
+ * A cold hit reads the record back and admits it into the window again. Lookups are lock-free; admission, eviction and
+ * reordering are serialized by a lock. A hit is recorded in one of several small read buffers picked by thread, and the
+ * buffered hits are replayed under the lock once a buffer fills up or a fact is admitted. Hits finding their buffer full
+ * or contended are dropped rather than waited for, so reordering is approximate under load.
+ * </p>
+ * <p>
+ * The hit ratio counts redirect lookups, {@link #resolveAndRecord(String, long)}, only. Other lookups, e.g. checking
+ * whether a fact is cached before shortening it again, and accesses applied later by the access event pipeline are not
+ * counted, and {@link #findOriginalUrl(String)} neither reorders nor promotes.
+ * </p>
+ */
+@Service
+@Qualifier("factCacheStorage")
+@ConditionalOnProperty(name = "factservice.cache.storage", havingValue = "bounded")
+public class BoundedFactCacheService implements FactCacheService
+{
+	/**
+	 * Estimated heap bytes of a cached fact besides its strings: map node, cache node, DTO and string headers.
+	 */
+	static final int ENTRY_OVERHEAD_BYTES = 240;
+
+	/**
+	 * Number of read buffers, a power of two.
+	 */
+	private static final int READ_BUFFERS = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4);
+
+	private final ShortCodeCodec shortCodeCodec;
+	private final boolean weighBytes;
+	private final long maximumWeight;
+	private final long windowMaximum;
+	private final long protectedMaximum;
+
+	private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final FrequencySketch sketch;
+	private final AccessOrderQueue window = new AccessOrderQueue(Node.WINDOW);
+	private final AccessOrderQueue probation = new AccessOrderQueue(Node.PROBATION);
+	private final AccessOrderQueue protectedQueue = new AccessOrderQueue(Node.PROTECTED);
+	private final ReadBuffer[] readBuffers = new ReadBuffer[READ_BUFFERS];
+
+	private final ColdFactStore coldStore;
+
+	/**
+	 * Cold store position per decoded short url id, 0 for facts never evicted.
+	 */
+	private final ChunkedLongArray coldPositions;
+
+	private final Counter hitCounter;
+	private final Counter missCounter;
+	private final Counter coldHitCounter;
+	private final Counter evictionCounter;
+	private final Timer coldReadTimer;
+
+	/**
+	 * Constructs the cache and registers its metrics.
+	 *
+	 * @param shortCodeCodec  codec decoding short urls to the ids the cold tier is indexed by
+	 * @param cacheProperties bound, cold tier directory and chunk size of the cold tier index
+	 * @param meterRegistry   registry exposing hit ratio, evictions and cold tier read latency
+	 */
+	public BoundedFactCacheService(ShortCodeCodec shortCodeCodec, CacheProperties cacheProperties, MeterRegistry meterRegistry)
+	{
+		this.shortCodeCodec = shortCodeCodec;
+		this.weighBytes = cacheProperties.maximumWeight().toBytes() > 0;
+		this.maximumWeight = weighBytes ? cacheProperties.maximumWeight().toBytes() : cacheProperties.maximumEntries();
+		this.windowMaximum = Math.max(1, maximumWeight / 100);
+		this.protectedMaximum = (maximumWeight - windowMaximum) * 4 / 5;
+		this.sketch = new FrequencySketch(weighBytes ? maximumWeight / (ENTRY_OVERHEAD_BYTES + 200) : maximumWeight);
+		this.coldStore = new ColdFactStore(cacheProperties.coldDirectory());
+		this.coldPositions = new ChunkedLongArray(cacheProperties.chunkSize());
+		for (int i = 0; i < READ_BUFFERS; i++)
+		{
+			readBuffers[i] = new ReadBuffer();
+		}
+
+		this.hitCounter = Counter.builder("factservice.cache.hits").description("Redirect lookups served by the hot tier").register(meterRegistry);
+		this.missCounter = Counter.builder("factservice.cache.misses").description("Redirect lookups not served by the hot tier").register(meterRegistry);
+		this.coldHitCounter = Counter.builder("factservice.cache.cold.hits").description("Misses served by the cold tier").register(meterRegistry);
+		this.evictionCounter = Counter.builder("factservice.cache.evictions").description("Facts evicted to the cold tier").register(meterRegistry);
+		this.coldReadTimer = Timer.builder("factservice.cache.cold.read").description("Latency of reading a fact from the cold tier")
+			.register(meterRegistry);
+		Gauge.builder("factservice.cache.hit.ratio", this, cache -> cache.hitRatio()).description("Share of redirect lookups served by the hot tier")
+			.register(meterRegistry);
+		Gauge.builder("factservice.cache.size", nodes, Map::size).description("Facts in the hot tier").register(meterRegistry);
+		Gauge.builder("factservice.cache.weight", this, cache -> cache.weight())
+			.description("Weight of the hot tier, in facts or estimated bytes").register(meterRegistry);
+		Gauge.builder("factservice.cache.cold.bytes", coldStore, ColdFactStore::sizeBytes).description("Size of the cold tier file")
+			.register(meterRegistry);
+	}
+
+	/**
+	 * Admits the fact into the window unless it is cached in either tier.
+	 *
+	 * @param factCacheDTO record with fact related data
+	 */
+	@Override
+	public void insertIfMissing(FactCacheDTO factCacheDTO)
+	{
+		if (nodes.containsKey(factCacheDTO.shortUrl()))
+		{
+			return;
+		}
+		lock.lock();
+		try
+		{
+			if (!nodes.containsKey(factCacheDTO.shortUrl()) && coldPosition(factCacheDTO.shortUrl()) == 0)
+			{
+				admit(factCacheDTO);
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the cached data of the short url, promoting it from the cold tier on a cold hit, without counting it in
+	 * the hit ratio.
+	 *
+	 * @param shortUrl the short url
+	 * @return the cached FactCacheDTO, or null when the short url is null or not cached
+	 */
+	@Override
+	public FactCacheDTO find(String shortUrl)
+	{
+		return find(shortUrl, false);
+	}
+
+	/**
+	 * Returns the original url of a fact in either tier without recording a hit or promoting it.
+	 *
+	 * @param shortUrl the short url
+	 * @return original long url, or null when the short url is null or cached in neither tier
+	 */
+	@Override
+	public String findOriginalUrl(String shortUrl)
+	{
+		if (shortUrl == null)
+		{
+			return null;
+		}
+		Node node = nodes.get(shortUrl);
+		if (node != null)
+		{
+			return node.value.originalUrl();
+		}
+		long position = coldPosition(shortUrl);
+		if (position != 0)
+		{
+			return coldStore.read(position, shortUrl).originalUrl();
+		}
+		lock.lock();
+		try
+		{
+			// a fact being evicted is in neither tier until the lock is released
+			node = nodes.get(shortUrl);
+			position = coldPosition(shortUrl);
+			return node != null ? node.value.originalUrl() : position != 0 ? coldStore.read(position, shortUrl).originalUrl() : null;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the access count of a fact in either tier without recording a hit or promoting it.
+	 *
+	 * @param shortUrl the short url
+	 * @return the access count, or -1 when the short url is cached in neither tier
+	 */
+	@Override
+	public long findAccessCount(String shortUrl)
+	{
+		if (shortUrl == null)
+		{
+			return -1;
+		}
+		Node node = nodes.get(shortUrl);
+		long accessCount = node == null ? -1 : node.value.accessCount().get();
+		if (accessCount >= 0)
+		{
+			return accessCount;
+		}
+		lock.lock();
+		try
+		{
+			// a retired counter was written to the cold tier under the lock
+			long position = coldPosition(shortUrl);
+			return position == 0 ? -1 : coldStore.readAccessCount(position);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Validates shortUrl and adds to the associated access counter when present.
+	 * An increment racing with the eviction of the fact is applied to the tier holding it afterwards.
+	 *
+	 * @param shortUrl the short url
+	 * @param delta    number of accesses
+	 * @throws IllegalArgumentException  when the short url is null or empty
+	 * @throws ResourceNotFoundException when the short url is cached in neither tier
+	 */
+	@Override
+	public void incrementAccessCount(String shortUrl, long delta)
+	{
+		addAccessCount(shortUrl, getValidated(shortUrl), delta);
+	}
+
+	/**
+	 * Validates shortUrl and returns the associated long url, promoting it from the cold tier on a cold hit.
+	 *
+	 * @param shortUrl the short url
+	 * @return original long url
+	 * @throws IllegalArgumentException  when the short url is null or empty
+	 * @throws ResourceNotFoundException when the short url is cached in neither tier
+	 */
+	@Override
+	public String getLongUrl(String shortUrl)
+	{
+		return getValidated(shortUrl).originalUrl();
+	}
+
+	/**
+	 * Adds to the access counter of the short url and returns its long url in a single lookup, promoting it from the
+	 * cold tier on a cold hit.
+	 *
+	 * @param shortUrl the short url
+	 * @param delta    number of accesses, 0 to only resolve the short url
+	 * @return original long url, or null when the short url is null or cached in neither tier
+	 */
+	@Override
+	public String resolveAndRecord(String shortUrl, long delta)
+	{
+		FactCacheDTO factCacheDTO = find(shortUrl, true);
+		if (factCacheDTO == null)
+		{
+			return null;
+		}
+		if (delta != 0)
+		{
+			addAccessCount(shortUrl, factCacheDTO, delta);
+		}
+		return factCacheDTO.originalUrl();
+	}
+
+	/**
+	 * Adds accesses of a short url resolved before to the tier holding it, without recording a hit or promoting it.
+	 *
+	 * @param shortUrl the short url
+	 * @param delta    number of accesses
+	 * @return true when the accesses were added, false when the short url is null or cached in neither tier
+	 */
+	@Override
+	public boolean recordAccesses(String shortUrl, long delta)
+	{
+		if (shortUrl == null)
+		{
+			return false;
+		}
+		Node node = nodes.get(shortUrl);
+		if (node != null && node.value.accessCount().add(delta))
+		{
+			return true;
+		}
+		lock.lock();
+		try
+		{
+			// counters of cached facts are only retired under the lock
+			node = nodes.get(shortUrl);
+			if (node != null)
+			{
+				return node.value.accessCount().add(delta);
+			}
+			long position = coldPosition(shortUrl);
+			if (position == 0)
+			{
+				return false;
+			}
+			coldStore.writeAccessCount(position, coldStore.readAccessCount(position) + delta);
+			return true;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the short url from both tiers. The record of a cold fact stays in the file but is no longer indexed.
+	 *
+	 * @param shortUrl the short url
+	 * @return the removed FactCacheDTO, or null when the short url is null or cached in neither tier
+	 */
+	@Override
+	public FactCacheDTO remove(String shortUrl)
+	{
+		if (shortUrl == null)
+		{
+			return null;
+		}
+		lock.lock();
+		try
+		{
+			FactCacheDTO removed = null;
+			Node node = nodes.remove(shortUrl);
+			if (node != null)
+			{
+				queueOf(node).remove(node);
+				node.queue = Node.EVICTED;
+				removed = node.value;
+			}
+			long id = shortCodeCodec.decode(shortUrl);
+			long position = id == ShortCodeCodec.INVALID ? 0 : coldPositions.remove(id);
+			return removed == null && position != 0 ? coldStore.read(position, shortUrl) : removed;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the facts of the hot tier followed by those only in the cold tier, without promoting them.
+	 * The result is weakly consistent with concurrent evictions.
+	 *
+	 * @return collection of all cached FactCacheDTOs
+	 */
+	@Override
+	public Collection<FactCacheDTO> getAll()
+	{
+		List<FactCacheDTO> all = new ArrayList<>(nodes.size());
+		for (Node node : nodes.values())
+		{
+			if (!node.value.accessCount().isRetired())
+			{
+				all.add(node.value);
+			}
+		}
+		coldPositions.forEach((id, position) -> {
+			String shortUrl = shortCodeCodec.encode(id);
+			if (!nodes.containsKey(shortUrl))
+			{
+				all.add(coldStore.read(position, shortUrl));
+			}
+		});
+		return all;
+	}
+
+	/**
+	 * Closes the cold tier file.
+	 *
+	 * @throws IOException when closing fails
+	 */
+	@PreDestroy
+	void close() throws IOException
+	{
+		coldStore.close();
+	}
+
+	/**
+	 * Returns the share of redirect lookups served by the hot tier.
+	 *
+	 * @return hit ratio, 1 before the first redirect lookup
+	 */
+	double hitRatio()
+	{
+		double hits = hitCounter.count();
+		double lookups = hits + missCounter.count();
+		return lookups == 0 ? 1 : hits / lookups;
+	}
+
+	/**
+	 * Returns the weight of the hot tier.
+	 *
+	 * @return number of facts, or their estimated bytes when bounded by weight
+	 */
+	long weight()
+	{
+		lock.lock();
+		try
+		{
+			return window.weight + probation.weight + protectedQueue.weight;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Validates the short url and returns its cached data.
+	 *
+	 * @param shortUrl the short url
+	 * @return the cached FactCacheDTO
+	 * @throws IllegalArgumentException  when the short url is null or empty
+	 * @throws ResourceNotFoundException when the short url is cached in neither tier
+	 */
+	private FactCacheDTO getValidated(String shortUrl)
+	{
+		if (shortUrl == null || shortUrl.isEmpty())
+		{
+			throw new IllegalArgumentException("Invalid shortUrl supplied.");
+		}
+		FactCacheDTO factCacheDTO = find(shortUrl);
+		if (factCacheDTO == null)
+		{
+			throw new ResourceNotFoundException("Missing cached data for short url: " + shortUrl);
+		}
+		return factCacheDTO;
+	}
+
+	/**
+	 * Returns the cached data of the short url, recording a hot tier hit for reordering and promoting it from the cold
+	 * tier on a cold hit.
+	 *
+	 * @param shortUrl     the short url
+	 * @param countLookup  whether the lookup counts towards the hit ratio
+	 * @return the cached FactCacheDTO, or null when the short url is null or not cached
+	 */
+	private FactCacheDTO find(String shortUrl, boolean countLookup)
+	{
+		if (shortUrl == null)
+		{
+			return null;
+		}
+		Node node = nodes.get(shortUrl);
+		if (node != null)
+		{
+			if (countLookup)
+			{
+				hitCounter.increment();
+			}
+			recordAccess(node);
+			return node.value;
+		}
+		if (countLookup)
+		{
+			missCounter.increment();
+		}
+		return promote(shortUrl);
+	}
+
+	/**
+	 * Adds to the access counter of a fact found in either tier.
+	 * An increment racing with the eviction of the fact is applied to the tier holding it afterwards.
+	 *
+	 * @param shortUrl     the short url
+	 * @param factCacheDTO the fact as found
+	 * @param delta        number of accesses
+	 */
+	private void addAccessCount(String shortUrl, FactCacheDTO factCacheDTO, long delta)
+	{
+		if (factCacheDTO.accessCount().add(delta))
+		{
+			return;
+		}
+		lock.lock();
+		try
+		{
+			Node node = nodes.get(shortUrl);
+			if (node != null)
+			{
+				node.value.accessCount().add(delta);
+			}
+			else
+			{
+				long position = coldPosition(shortUrl);
+				coldStore.writeAccessCount(position, coldStore.readAccessCount(position) + delta);
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Reads a fact from the cold tier and admits it into the window.
+	 *
+	 * @param shortUrl the short url
+	 * @return the promoted FactCacheDTO, or null when the short url is not in the cold tier
+	 */
+	private FactCacheDTO promote(String shortUrl)
+	{
+		long position = coldPosition(shortUrl);
+		if (position == 0)
+		{
+			return null;
+		}
+		long start = System.nanoTime();
+		FactCacheDTO cold = coldStore.read(position, shortUrl);
+		coldReadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		coldHitCounter.increment();
+
+		lock.lock();
+		try
+		{
+			Node node = nodes.get(shortUrl);
+			if (node != null)
+			{
+				return node.value;
+			}
+			// increments of the cold record are serialized by the lock, so this count is current
+			var promoted = new FactCacheDTO(cold.fact(), cold.originalUrl(), shortUrl, new AccessCounter(coldStore.readAccessCount(position)));
+			admit(promoted);
+			return promoted;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the cold tier position of a short url.
+	 *
+	 * @param shortUrl the short url
+	 * @return record position, 0 when the fact was never evicted
+	 */
+	private long coldPosition(String shortUrl)
+	{
+		long id = shortCodeCodec.decode(shortUrl);
+		return id == ShortCodeCodec.INVALID ? 0 : coldPositions.get(id);
+	}
+
+	/**
+	 * Adds a fact to the window and evicts until the bounds hold again. Called under the lock.
+	 *
+	 * @param factCacheDTO the fact
+	 */
+	private void admit(FactCacheDTO factCacheDTO)
+	{
+		drainReadBuffers();
+		long weight = weighBytes
+			? ENTRY_OVERHEAD_BYTES + bytes(factCacheDTO.fact()) + bytes(factCacheDTO.originalUrl()) + bytes(factCacheDTO.shortUrl())
+			: 1;
+		var node = new Node(factCacheDTO.shortUrl(), factCacheDTO, weight);
+		nodes.put(node.key, node);
+		window.addFirst(node);
+		sketch.increment(node.key.hashCode());
+		evict();
+	}
+
+	/**
+	 * Moves facts overflowing the window into probation, where each competes with the probation victim when the cache
+	 * is full, then evicts from the least valuable end until the total bound holds. Called under the lock.
+	 */
+	private void evict()
+	{
+		while (window.weight > windowMaximum)
+		{
+			Node candidate = window.last();
+			window.remove(candidate);
+			probation.addFirst(candidate);
+			if (weightLocked() > maximumWeight)
+			{
+				Node victim = probation.last() != candidate ? probation.last() : protectedQueue.last();
+				if (victim == null || sketch.frequency(candidate.key.hashCode()) <= sketch.frequency(victim.key.hashCode()))
+				{
+					victim = candidate;
+				}
+				evict(victim);
+			}
+		}
+		while (weightLocked() > maximumWeight)
+		{
+			Node victim = probation.last() != null ? probation.last() : protectedQueue.last() != null ? protectedQueue.last() : window.last();
+			evict(victim);
+		}
+	}
+
+	/**
+	 * Removes a fact from the hot tier and spills it to the cold tier. Called under the lock.
+	 *
+	 * @param node the fact to evict
+	 */
+	private void evict(Node node)
+	{
+		queueOf(node).remove(node);
+		node.queue = Node.EVICTED;
+		nodes.remove(node.key, node);
+		evictionCounter.increment();
+
+		long accessCount = node.value.accessCount().retire();
+		long id = shortCodeCodec.decode(node.key);
+		if (id == ShortCodeCodec.INVALID)
+		{
+			return;
+		}
+		long position = coldPositions.get(id);
+		if (position != 0)
+		{
+			coldStore.writeAccessCount(position, accessCount);
+		}
+		else
+		{
+			coldPositions.putIfAbsent(id, coldStore.append(node.value.fact(), node.value.originalUrl(), accessCount));
+		}
+	}
+
+	/**
+	 * Buffers a hit of the hot tier, replaying the buffered hits when the buffer is full and the lock is free.
+	 *
+	 * @param node the accessed fact
+	 */
+	private void recordAccess(Node node)
+	{
+		if (!readBuffers[readBufferIndex()].offer(node) || !lock.tryLock())
+		{
+			return;
+		}
+		try
+		{
+			drainReadBuffers();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Replays the buffered hits of all read buffers. Called under the lock.
+	 */
+	private void drainReadBuffers()
+	{
+		for (ReadBuffer readBuffer : readBuffers)
+		{
+			readBuffer.drain(this);
+		}
+	}
+
+	/**
+	 * Records a hit for admission and reorders the fact, unless it was evicted since. Called under the lock.
+	 *
+	 * @param node the accessed fact
+	 */
+	private void onAccess(Node node)
+	{
+		if (node.queue == Node.EVICTED)
+		{
+			return;
+		}
+		sketch.increment(node.key.hashCode());
+		if (node.queue == Node.PROBATION)
+		{
+			probation.remove(node);
+			protectedQueue.addFirst(node);
+			while (protectedQueue.weight > protectedMaximum)
+			{
+				Node demoted = protectedQueue.last();
+				protectedQueue.remove(demoted);
+				probation.addFirst(demoted);
+			}
+		}
+		else
+		{
+			AccessOrderQueue queue = queueOf(node);
+			queue.remove(node);
+			queue.addFirst(node);
+		}
+	}
+
+	/**
+	 * Returns the read buffer of the current thread.
+	 *
+	 * @return index of the read buffer
+	 */
+	private static int readBufferIndex()
+	{
+		int hash = System.identityHashCode(Thread.currentThread());
+		return (hash ^ hash >>> 16) & (READ_BUFFERS - 1);
+	}
+
+	/**
+	 * Estimates the heap bytes of the characters of a string, stored one byte each when all are Latin-1 and two bytes
+	 * each otherwise.
+	 *
+	 * @param string the string
+	 * @return bytes of its characters
+	 */
+	private static long bytes(String string)
+	{
+		for (int i = 0; i < string.length(); i++)
+		{
+			if (string.charAt(i) > 0xFF)
+			{
+				return 2L * string.length();
+			}
+		}
+		return string.length();
+	}
+
+	/**
+	 * Returns the hot tier weight. Called under the lock.
+	 *
+	 * @return total weight
+	 */
+	private long weightLocked()
+	{
+		return window.weight + probation.weight + protectedQueue.weight;
+	}
+
+	/**
+	 * Returns the queue currently holding a fact.
+	 *
+	 * @param node the fact
+	 * @return its queue
+	 */
+	private AccessOrderQueue queueOf(Node node)
+	{
+		return node.queue == Node.WINDOW ? window : node.queue == Node.PROBATION ? probation : protectedQueue;
+	}
+
+	/**
+	 * A cached fact linked into one of the access order queues.
+	 */
+	private static final class Node
+	{
+		static final byte WINDOW = 0;
+		static final byte PROBATION = 1;
+		static final byte PROTECTED = 2;
+		static final byte EVICTED = 3;
+
+		final String key;
+		final FactCacheDTO value;
+		final long weight;
+		Node previous;
+		Node next;
+
+		/**
+		 * Queue holding the node, written under the lock and read by lock-free lookups only under it.
+		 */
+		byte queue;
+
+		/**
+		 * Constructs an unlinked node.
+		 *
+		 * @param key    short url
+		 * @param value  cached fact
+		 * @param weight weight of the fact
+		 */
+		Node(String key, FactCacheDTO value, long weight)
+		{
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * Lossy ring of hot tier hits waiting to be replayed. Any thread claims a slot by compare-and-set and drops its hit
+	 * when the ring is full or another thread claimed the slot first; only the lock holder drains it.
+	 */
+	private static final class ReadBuffer
+	{
+		private static final int SIZE = 16;
+
+		private final AtomicReferenceArray<Node> slots = new AtomicReferenceArray<>(SIZE);
+		private final AtomicLong writes = new AtomicLong();
+
+		/**
+		 * Hits drained so far, written by the lock holder only.
+		 */
+		private volatile long reads;
+
+		/**
+		 * Buffers a hit unless the ring is full or contended.
+		 *
+		 * @param node the accessed fact
+		 * @return true when the ring is full and should be drained
+		 */
+		boolean offer(Node node)
+		{
+			long head = reads;
+			long tail = writes.get();
+			if (tail - head >= SIZE)
+			{
+				return true;
+			}
+			if (!writes.compareAndSet(tail, tail + 1))
+			{
+				return false;
+			}
+			slots.lazySet((int) (tail & (SIZE - 1)), node);
+			return tail + 1 - head >= SIZE;
+		}
+
+		/**
+		 * Replays the buffered hits, up to the first slot claimed but not written yet. Called under the lock.
+		 *
+		 * @param cache the cache the hits are replayed into
+		 */
+		void drain(BoundedFactCacheService cache)
+		{
+			long head = reads;
+			long tail = writes.get();
+			for (; head < tail; head++)
+			{
+				int index = (int) (head & (SIZE - 1));
+				Node node = slots.get(index);
+				if (node == null)
+				{
+					break;
+				}
+				slots.lazySet(index, null);
+				cache.onAccess(node);
+			}
+			reads = head;
+		}
+	}
+
+	/**
+	 * Doubly linked list of nodes from most to least recently used, with its total weight. Guarded by the lock.
+	 */
+	private static final class AccessOrderQueue
+	{
+		private final byte queue;
+		private final Node head = new Node(null, null, 0);
+		long weight;
+
+		/**
+		 * Constructs an empty queue.
+		 *
+		 * @param queue queue tag assigned to the nodes added
+		 */
+		AccessOrderQueue(byte queue)
+		{
+			this.queue = queue;
+			head.previous = head;
+			head.next = head;
+		}
+
+		/**
+		 * Links a node as most recently used.
+		 *
+		 * @param node the node
+		 */
+		void addFirst(Node node)
+		{
+			node.previous = head;
+			node.next = head.next;
+			head.next.previous = node;
+			head.next = node;
+			node.queue = queue;
+			weight += node.weight;
+		}
+
+		/**
+		 * Unlinks a node.
+		 *
+		 * @param node the node
+		 */
+		void remove(Node node)
+		{
+			node.previous.next = node.next;
+			node.next.previous = node.previous;
+			node.previous = null;
+			node.next = null;
+			weight -= node.weight;
+		}
+
+		/**
+		 * Returns the least recently used node.
+		 *
+		 * @return the node, or null when the queue is empty
+		 */
+		Node last()
+		{
+			return head.previous == head ? null : head.previous;
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package com.somecompany.factservice.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Growable array of non-zero {@code long} values indexed by non-negative {@code long} ids, zero marking an empty slot.
+ * <p>
+ * The primitive counterpart of {@link ChunkedReferenceArray}, with the same chunked layout and concurrency: reads and
+ * slot updates are lock-free, chunk allocation and directory growth are serialized on the array.
+ * </p>
+ */
+class ChunkedLongArray
+{
+	private final int chunkShift;
+	private final int chunkMask;
+
+	/**
+	 * Chunks by chunk index, replaced by a larger copy when it has to grow.
+	 */
+	private volatile AtomicReferenceArray<AtomicLongArray> directory;
+
+	/**
+	 * Constructs an empty array.
+	 *
+	 * @param chunkSize slots per chunk, a power of two
+	 */
+	ChunkedLongArray(int chunkSize)
+	{
+		this.chunkShift = Integer.numberOfTrailingZeros(chunkSize);
+		this.chunkMask = chunkSize - 1;
+		this.directory = new AtomicReferenceArray<>(16);
+	}
+
+	/**
+	 * Returns the value at the given index.
+	 *
+	 * @param index value index
+	 * @return the value, or 0 when the slot is empty or the index is negative or out of range
+	 */
+	long get(long index)
+	{
+		long chunkIndex = index >>> chunkShift;
+		AtomicReferenceArray<AtomicLongArray> dir = directory;
+		AtomicLongArray chunk = index < 0 || chunkIndex >= dir.length() ? null : dir.get((int) chunkIndex);
+		return chunk == null ? 0 : chunk.get((int) (index & chunkMask));
+	}
+
+	/**
+	 * Stores the value at the given index unless the slot is already taken.
+	 *
+	 * @param index value index
+	 * @param value non-zero value to store
+	 * @return true when the value was stored
+	 * @throws IllegalArgumentException when the index is negative or too large to address
+	 */
+	boolean putIfAbsent(long index, long value)
+	{
+		return chunk(index).compareAndSet((int) (index & chunkMask), 0, value);
+	}
+
+	/**
+	 * Replaces the value at the given index if it still holds the expected value.
+	 *
+	 * @param index    value index
+	 * @param expected value the slot must hold
+	 * @param value    new value
+	 * @return true when the value was replaced
+	 * @throws IllegalArgumentException when the index is negative or too large to address
+	 */
+	boolean compareAndSet(long index, long expected, long value)
+	{
+		return chunk(index).compareAndSet((int) (index & chunkMask), expected, value);
+	}
+
+	/**
+	 * Clears the slot at the given index.
+	 *
+	 * @param index value index
+	 * @return the removed value, or 0 when the slot was empty or the index is negative or out of range
+	 */
+	long remove(long index)
+	{
+		long chunkIndex = index >>> chunkShift;
+		AtomicReferenceArray<AtomicLongArray> dir = directory;
+		AtomicLongArray chunk = index < 0 || chunkIndex >= dir.length() ? null : dir.get((int) chunkIndex);
+		return chunk == null ? 0 : chunk.getAndSet((int) (index & chunkMask), 0);
+	}
+
+	/**
+	 * Passes every non-empty slot to the consumer in index order.
+	 *
+	 * @param consumer consumer of index and value
+	 */
+	void forEach(SlotConsumer consumer)
+	{
+		AtomicReferenceArray<AtomicLongArray> dir = directory;
+		for (int c = 0; c < dir.length(); c++)
+		{
+			AtomicLongArray chunk = dir.get(c);
+			if (chunk == null)
+			{
+				continue;
+			}
+			for (int s = 0; s < chunk.length(); s++)
+			{
+				long value = chunk.get(s);
+				if (value != 0)
+				{
+					consumer.accept(((long) c << chunkShift) | s, value);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the chunk holding the index, allocating it and growing the directory if needed.
+	 *
+	 * @param index value index
+	 * @return the chunk
+	 * @throws IllegalArgumentException when the index is negative or too large to address
+	 */
+	private AtomicLongArray chunk(long index)
+	{
+		long chunkIndex = index >>> chunkShift;
+		AtomicReferenceArray<AtomicLongArray> dir = directory;
+		if (index >= 0 && chunkIndex < dir.length())
+		{
+			AtomicLongArray chunk = dir.get((int) chunkIndex);
+			if (chunk != null)
+			{
+				return chunk;
+			}
+		}
+		return allocateChunk(index);
+	}
+
+	/**
+	 * Allocates the chunk holding the index, growing the directory if needed.
+	 *
+	 * @param index value index
+	 * @return the chunk, allocated by this or a concurrent call
+	 * @throws IllegalArgumentException when the index is negative or too large to address
+	 */
+	private synchronized AtomicLongArray allocateChunk(long index)
+	{
+		long chunkIndex = index >>> chunkShift;
+		if (index < 0 || chunkIndex >= Integer.MAX_VALUE - 8)
+		{
+			throw new IllegalArgumentException("Index out of addressable range: " + index);
+		}
+
+		AtomicReferenceArray<AtomicLongArray> dir = directory;
+		if (chunkIndex >= dir.length())
+		{
+			int length = dir.length();
+			while (length <= chunkIndex)
+			{
+				length = (int) Math.min((long) length << 1, Integer.MAX_VALUE - 8);
+			}
+			var grown = new AtomicReferenceArray<AtomicLongArray>(length);
+			for (int c = 0; c < dir.length(); c++)
+			{
+				grown.set(c, dir.get(c));
+			}
+			directory = grown;
+			dir = grown;
+		}
+
+		AtomicLongArray chunk = dir.get((int) chunkIndex);
+		if (chunk == null)
+		{
+			chunk = new AtomicLongArray(chunkMask + 1);
+			dir.set((int) chunkIndex, chunk);
+		}
+		return chunk;
+	}
+
+	/**
+	 * Consumer of the non-empty slots of the array.
+	 */
+	@FunctionalInterface
+	interface SlotConsumer
+	{
+		/**
+		 * Accepts one slot.
+		 *
+		 * @param index slot index
+		 * @param value slot value
+		 */
+		void accept(long index, long value);
+	}
+}
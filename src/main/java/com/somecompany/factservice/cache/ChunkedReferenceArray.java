@@ -0,0 +1,195 @@
+package com.somecompany.factservice.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Growable array of references indexed by non-negative {@code long} ids.
+ * <p>
+ * Slots live in fixed-size chunks referenced from a directory. Reads and writes of existing chunks are lock-free: a read
+ * is a volatile directory load and two array accesses, a write is a CAS on the slot. Allocating a chunk, and doubling the
+ * directory when an id lies beyond it, happens once per {@code chunkSize} ids and is serialized on the array itself, so
+ * a chunk is never allocated twice and no write is lost while the directory is copied.
+ * </p>
+ *
+ * @param <T> element type
+ */
+class ChunkedReferenceArray<T>
+{
+	private final int chunkShift;
+	private final int chunkMask;
+
+	/**
+	 * Chunk references by chunk index, replaced by a larger copy when it has to grow.
+	 */
+	private volatile AtomicReferenceArray<AtomicReferenceArray<T>> directory;
+
+	/**
+	 * Number of non-null slots.
+	 */
+	private final AtomicLong size = new AtomicLong();
+
+	/**
+	 * Constructs an empty array.
+	 *
+	 * @param chunkSize slots per chunk, a power of two
+	 */
+	ChunkedReferenceArray(int chunkSize)
+	{
+		this.chunkShift = Integer.numberOfTrailingZeros(chunkSize);
+		this.chunkMask = chunkSize - 1;
+		this.directory = new AtomicReferenceArray<>(16);
+	}
+
+	/**
+	 * Returns the element at the given index.
+	 *
+	 * @param index element index
+	 * @return the element, or null when the slot is empty or the index is negative or out of range
+	 */
+	T get(long index)
+	{
+		AtomicReferenceArray<T> chunk = chunkOrNull(index);
+		return chunk == null ? null : chunk.get((int) (index & chunkMask));
+	}
+
+	/**
+	 * Stores the element at the given index unless the slot is already taken.
+	 *
+	 * @param index   element index
+	 * @param element element to store
+	 * @return the element already present, or null when the given element was stored
+	 * @throws IllegalArgumentException when the index is negative or too large to address
+	 */
+	T putIfAbsent(long index, T element)
+	{
+		AtomicReferenceArray<T> chunk = chunkOrNull(index);
+		if (chunk == null)
+		{
+			chunk = allocateChunk(index);
+		}
+
+		int slot = (int) (index & chunkMask);
+		while (true)
+		{
+			if (chunk.compareAndSet(slot, null, element))
+			{
+				size.incrementAndGet();
+				return null;
+			}
+			T existing = chunk.get(slot);
+			if (existing != null)
+			{
+				return existing;
+			}
+		}
+	}
+
+	/**
+	 * Clears the slot at the given index.
+	 *
+	 * @param index element index
+	 * @return the removed element, or null when the slot was empty or the index is negative or out of range
+	 */
+	T remove(long index)
+	{
+		AtomicReferenceArray<T> chunk = chunkOrNull(index);
+		T removed = chunk == null ? null : chunk.getAndSet((int) (index & chunkMask), null);
+		if (removed != null)
+		{
+			size.decrementAndGet();
+		}
+		return removed;
+	}
+
+	/**
+	 * Passes every non-null element to the action in index order.
+	 *
+	 * @param action action to apply
+	 */
+	void forEach(Consumer<? super T> action)
+	{
+		AtomicReferenceArray<AtomicReferenceArray<T>> dir = directory;
+		for (int c = 0; c < dir.length(); c++)
+		{
+			AtomicReferenceArray<T> chunk = dir.get(c);
+			if (chunk == null)
+			{
+				continue;
+			}
+			for (int s = 0; s < chunk.length(); s++)
+			{
+				T element = chunk.get(s);
+				if (element != null)
+				{
+					action.accept(element);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of stored elements.
+	 *
+	 * @return number of non-null slots
+	 */
+	long size()
+	{
+		return size.get();
+	}
+
+	/**
+	 * Returns the chunk holding the index if it is allocated.
+	 *
+	 * @param index element index
+	 * @return the chunk or null
+	 */
+	private AtomicReferenceArray<T> chunkOrNull(long index)
+	{
+		long chunkIndex = index >>> chunkShift;
+		AtomicReferenceArray<AtomicReferenceArray<T>> dir = directory;
+		return index < 0 || chunkIndex >= dir.length() ? null : dir.get((int) chunkIndex);
+	}
+
+	/**
+	 * Allocates the chunk holding the index, growing the directory if needed.
+	 *
+	 * @param index element index
+	 * @return the chunk, allocated by this or a concurrent call
+	 * @throws IllegalArgumentException when the index is negative or too large to address
+	 */
+	private synchronized AtomicReferenceArray<T> allocateChunk(long index)
+	{
+		long chunkIndex = index >>> chunkShift;
+		if (index < 0 || chunkIndex >= Integer.MAX_VALUE - 8)
+		{
+			throw new IllegalArgumentException("Index out of addressable range: " + index);
+		}
+
+		AtomicReferenceArray<AtomicReferenceArray<T>> dir = directory;
+		if (chunkIndex >= dir.length())
+		{
+			int length = dir.length();
+			while (length <= chunkIndex)
+			{
+				length = (int) Math.min((long) length << 1, Integer.MAX_VALUE - 8);
+			}
+			var grown = new AtomicReferenceArray<AtomicReferenceArray<T>>(length);
+			for (int c = 0; c < dir.length(); c++)
+			{
+				grown.set(c, dir.get(c));
+			}
+			directory = grown;
+			dir = grown;
+		}
+
+		AtomicReferenceArray<T> chunk = dir.get((int) chunkIndex);
+		if (chunk == null)
+		{
+			chunk = new AtomicReferenceArray<>(chunkMask + 1);
+			dir.set((int) chunkIndex, chunk);
+		}
+		return chunk;
+	}
+}
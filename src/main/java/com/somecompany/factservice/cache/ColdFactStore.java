@@ -0,0 +1,188 @@
+package com.somecompany.factservice.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only file of facts evicted from the bounded cache, read back with positional reads.
+ * <p>
+ * A record is laid out as {@code [long accessCount][int factLength][int urlLength][fact UTF-8][url UTF-8]} and is
+ * addressed by its file position. Fact and url of a short url never change, so a fact evicted again only has its access
+ * count rewritten in place and the file grows only with distinct facts. The file starts with 8 unused bytes, so 0 is
+ * never a valid position. It is truncated on startup: durability across restarts is the write-ahead log's job.
+ * </p>
+ * <p>
+ * Appends and count updates must be serialized by the caller; reads may run concurrently with them.
+ * </p>
+ */
+class ColdFactStore implements AutoCloseable
+{
+	private static final int HEADER_BYTES = 16;
+	private static final int FILE_HEADER_BYTES = 8;
+
+	private final FileChannel channel;
+
+	/**
+	 * Next append position.
+	 */
+	private volatile long end = FILE_HEADER_BYTES;
+
+	/**
+	 * Creates an empty store file in the directory.
+	 *
+	 * @param directory directory of the store file
+	 * @throws UncheckedIOException when the file cannot be created
+	 */
+	ColdFactStore(Path directory)
+	{
+		try
+		{
+			Files.createDirectories(directory);
+			this.channel = FileChannel.open(directory.resolve("cold-facts.dat"), StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException("Could not create the cold fact store in " + directory, e);
+		}
+	}
+
+	/**
+	 * Appends a record.
+	 *
+	 * @param fact        fact text
+	 * @param originalUrl original long url
+	 * @param accessCount access count at eviction
+	 * @return position of the record
+	 */
+	long append(String fact, String originalUrl, long accessCount)
+	{
+		byte[] factBytes = fact.getBytes(StandardCharsets.UTF_8);
+		byte[] urlBytes = originalUrl.getBytes(StandardCharsets.UTF_8);
+		ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + factBytes.length + urlBytes.length)
+			.putLong(accessCount)
+			.putInt(factBytes.length)
+			.putInt(urlBytes.length)
+			.put(factBytes)
+			.put(urlBytes)
+			.flip();
+		long position = end;
+		write(record, position);
+		end = position + record.capacity();
+		return position;
+	}
+
+	/**
+	 * Overwrites the access count of a record.
+	 *
+	 * @param position    record position
+	 * @param accessCount new access count
+	 */
+	void writeAccessCount(long position, long accessCount)
+	{
+		write(ByteBuffer.allocate(Long.BYTES).putLong(0, accessCount), position);
+	}
+
+	/**
+	 * Reads the access count of a record.
+	 *
+	 * @param position record position
+	 * @return access count
+	 */
+	long readAccessCount(long position)
+	{
+		return read(position, Long.BYTES).getLong(0);
+	}
+
+	/**
+	 * Reads a record into a detached FactCacheDTO.
+	 *
+	 * @param position record position
+	 * @param shortUrl short url of the record
+	 * @return the FactCacheDTO
+	 */
+	FactCacheDTO read(long position, String shortUrl)
+	{
+		ByteBuffer header = read(position, HEADER_BYTES);
+		int factLength = header.getInt(8);
+		ByteBuffer strings = read(position + HEADER_BYTES, factLength + header.getInt(12));
+		String fact = new String(strings.array(), 0, factLength, StandardCharsets.UTF_8);
+		String originalUrl = new String(strings.array(), factLength, strings.capacity() - factLength, StandardCharsets.UTF_8);
+		return new FactCacheDTO(fact, originalUrl, shortUrl, new AccessCounter(header.getLong(0)));
+	}
+
+	/**
+	 * Returns the size of the store file.
+	 *
+	 * @return bytes written
+	 */
+	long sizeBytes()
+	{
+		return end;
+	}
+
+	/**
+	 * Closes the store file.
+	 *
+	 * @throws IOException when closing fails
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+
+	/**
+	 * Writes the whole buffer at a position.
+	 *
+	 * @param buffer   bytes to write
+	 * @param position file position
+	 */
+	private void write(ByteBuffer buffer, long position)
+	{
+		try
+		{
+			while (buffer.hasRemaining())
+			{
+				channel.write(buffer, position + buffer.position());
+			}
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException("Could not write to the cold fact store", e);
+		}
+	}
+
+	/**
+	 * Reads bytes at a position.
+	 *
+	 * @param position file position
+	 * @param length   number of bytes
+	 * @return buffer holding the bytes at index 0
+	 */
+	private ByteBuffer read(long position, int length)
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		try
+		{
+			while (buffer.hasRemaining())
+			{
+				if (channel.read(buffer, position + buffer.position()) < 0)
+				{
+					throw new IOException("Unexpected end of the cold fact store at " + position);
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException("Could not read from the cold fact store", e);
+		}
+		return buffer;
+	}
+}
@@ -0,0 +1,154 @@
+package com.somecompany.factservice.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.somecompany.factservice.config.CacheProperties;
+import com.somecompany.factservice.exception.ResourceNotFoundException;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+
+/**
+ * FactCacheService implementation indexing facts by the numeric id encoded in their short url.
+ * <p>
+ * Short urls are encoded sequential counter values, so decoding one yields a dense index into a
+ * {@link ChunkedReferenceArray}. Lookups cost one decode pass over the short url and an array access, without hashing
+ * the string or allocating a map node per entry. Short urls that do not decode under the configured
+ * {@link ShortCodeCodec} are treated as missing.
+ * </p>
+ */
+@Service
+@Qualifier("factCacheStorage")
+@ConditionalOnProperty(name = "factservice.cache.storage", havingValue = "dense")
+public class DenseFactCacheService implements FactCacheService
+{
+	/**
+	 * Codec the short urls were issued with.
+	 */
+	private final ShortCodeCodec shortCodeCodec;
+
+	/**
+	 * Cached facts indexed by the id of their short url.
+	 */
+	private final ChunkedReferenceArray<FactCacheDTO> factsById;
+
+	/**
+	 * Constructs the cache.
+	 *
+	 * @param shortCodeCodec  codec the short urls were issued with
+	 * @param cacheProperties cache settings holding the chunk size
+	 */
+	public DenseFactCacheService(ShortCodeCodec shortCodeCodec, CacheProperties cacheProperties)
+	{
+		this.shortCodeCodec = shortCodeCodec;
+		this.factsById = new ChunkedReferenceArray<>(cacheProperties.chunkSize());
+	}
+
+	/**
+	 * Inserts a FactCacheDTO at the id of its short url if that slot is empty.
+	 *
+	 * @param factCacheDTO record with fact related data
+	 * @throws IllegalArgumentException when the short url is not a code of the configured codec
+	 */
+	@Override
+	public void insertIfMissing(FactCacheDTO factCacheDTO)
+	{
+		long id = shortCodeCodec.decode(factCacheDTO.shortUrl());
+		if (id == ShortCodeCodec.INVALID)
+		{
+			throw new IllegalArgumentException("Invalid shortUrl supplied.");
+		}
+		factsById.putIfAbsent(id, factCacheDTO);
+	}
+
+	/**
+	 * Returns the FactCacheDTO stored at the id of the short url.
+	 *
+	 * @param shortUrl the short version of the original long url from the Useless Fact API
+	 * @return the cached FactCacheDTO, or null when the short url does not decode or is not cached
+	 */
+	@Override
+	public FactCacheDTO find(String shortUrl)
+	{
+		return factsById.get(shortCodeCodec.decode(shortUrl));
+	}
+
+	/**
+	 * Validates shortUrl and adds to the associated access counter when present.
+	 *
+	 * @param shortUrl the short version of the original long url from the Useless Fact API
+	 * @param delta    number of accesses
+	 * @throws IllegalArgumentException  when the short url is null or empty
+	 * @throws ResourceNotFoundException when there is no corresponding FactCacheDTO or associated data
+	 */
+	@Override
+	public void incrementAccessCount(String shortUrl, long delta)
+	{
+		getValidated(shortUrl).accessCount().add(delta);
+	}
+
+	/**
+	 * Validates shortUrl and returns the associated long url.
+	 *
+	 * @param shortUrl the short version of the original long url from the Useless Fact API
+	 * @throws IllegalArgumentException  when the short url is null or empty
+	 * @throws ResourceNotFoundException when there is no corresponding FactCacheDTO or associated data
+	 */
+	@Override
+	public String getLongUrl(String shortUrl)
+	{
+		return getValidated(shortUrl).originalUrl();
+	}
+
+	/**
+	 * Clears the slot at the id of the short url.
+	 *
+	 * @param shortUrl the short version of the original long url from the Useless Fact API
+	 * @return the removed FactCacheDTO, or null when the short url does not decode or is not cached
+	 */
+	@Override
+	public FactCacheDTO remove(String shortUrl)
+	{
+		return factsById.remove(shortCodeCodec.decode(shortUrl));
+	}
+
+	/**
+	 * Returns a snapshot of the cached FactCacheDTOs in id order.
+	 *
+	 * @return collection of FactCacheDTOs stored in the array
+	 */
+	@Override
+	public Collection<FactCacheDTO> getAll()
+	{
+		List<FactCacheDTO> all = new ArrayList<>((int) Math.min(factsById.size(), Integer.MAX_VALUE - 8));
+		factsById.forEach(all::add);
+		return all;
+	}
+
+	/**
+	 * Validates the shortUrl and returns its cached data.
+	 *
+	 * @param shortUrl the short version of the original long url from the Useless Fact API
+	 * @return the cached FactCacheDTO
+	 * @throws IllegalArgumentException  when the short url is null or empty
+	 * @throws ResourceNotFoundException when there is no corresponding FactCacheDTO or associated data
+	 */
+	private FactCacheDTO getValidated(String shortUrl)
+	{
+		if (shortUrl == null || shortUrl.isEmpty())
+		{
+			throw new IllegalArgumentException("Invalid shortUrl supplied.");
+		}
+
+		FactCacheDTO factCacheDTO = find(shortUrl);
+		if (factCacheDTO == null || factCacheDTO.originalUrl() == null || factCacheDTO.accessCount() == null)
+		{
+			throw new ResourceNotFoundException("Missing cached data for short url: " + shortUrl);
+		}
+		return factCacheDTO;
+	}
+}
@@ -1,6 +1,7 @@
 package com.somecompany.factservice.cache;
 
 import java.util.Collection;
+import java.util.function.ObjLongConsumer;
 
 /**
  * Interface for a simple cache to hold and manipulate FactCacheDTOs
@@ -14,12 +15,56 @@ public interface FactCacheService
 	 */
 	void insertIfMissing(FactCacheDTO factCacheDTO);
 
+	/**
+	 * Returns the cached data of the short url without validating it.
+	 *
+	 * @param shortUrl shorter form of the long url.
+	 * @return the cached FactCacheDTO, or null when the short url is not cached.
+	 */
+	FactCacheDTO find(String shortUrl);
+
+	/**
+	 * Returns the access count of the short url without counting the lookup as an access of the fact.
+	 *
+	 * @param shortUrl shorter form of the long url.
+	 * @return the access count, or -1 when the short url is not cached.
+	 */
+	default long findAccessCount(String shortUrl)
+	{
+		FactCacheDTO factCacheDTO = find(shortUrl);
+		return factCacheDTO == null ? -1 : factCacheDTO.accessCount().get();
+	}
+
+	/**
+	 * Returns the original url of the short url without counting the lookup as an access of the fact or moving it
+	 * between tiers.
+	 *
+	 * @param shortUrl shorter form of the long url.
+	 * @return original longer version of the shorter url, or null when the short url is not cached.
+	 */
+	default String findOriginalUrl(String shortUrl)
+	{
+		FactCacheDTO factCacheDTO = find(shortUrl);
+		return factCacheDTO == null ? null : factCacheDTO.originalUrl();
+	}
+
 	/**
 	 * Increments access count of the short url.
 	 *
 	 * @param shortUrl shorter form of the long url.
 	 */
-	void incrementAccessCount(String shortUrl);
+	default void incrementAccessCount(String shortUrl)
+	{
+		incrementAccessCount(shortUrl, 1);
+	}
+
+	/**
+	 * Adds a number of accesses to the access count of the short url at once.
+	 *
+	 * @param shortUrl shorter form of the long url.
+	 * @param delta    number of accesses.
+	 */
+	void incrementAccessCount(String shortUrl, long delta);
 
 	/**
 	 * Returns corresponding longer version of the shorter url stored in the cache.
@@ -29,10 +74,68 @@ public interface FactCacheService
 	 */
 	String getLongUrl(String shortUrl);
 
+	/**
+	 * Resolves the short url and adds a number of accesses to its access count in a single lookup.
+	 * Unlike {@link #incrementAccessCount(String, long)} and {@link #getLongUrl(String)}, a short url that is not cached
+	 * is reported by the result rather than by an exception, so that lookups of unknown short urls cost as much as hits.
+	 *
+	 * @param shortUrl shorter form of the long url.
+	 * @param delta    number of accesses, 0 to only resolve the short url.
+	 * @return original longer version of the shorter url, or null when the short url is null, empty or not cached.
+	 */
+	default String resolveAndRecord(String shortUrl, long delta)
+	{
+		FactCacheDTO factCacheDTO = find(shortUrl);
+		if (factCacheDTO == null || factCacheDTO.originalUrl() == null || factCacheDTO.accessCount() == null)
+		{
+			return null;
+		}
+		if (delta != 0)
+		{
+			factCacheDTO.accessCount().add(delta);
+		}
+		return factCacheDTO.originalUrl();
+	}
+
+	/**
+	 * Adds a number of accesses of a short url resolved before, e.g. by {@link #resolveAndRecord(String, long)} on the
+	 * request path, without counting another lookup of the fact.
+	 *
+	 * @param shortUrl shorter form of the long url.
+	 * @param delta    number of accesses.
+	 * @return true when the accesses were added, false when the short url is no longer cached.
+	 */
+	default boolean recordAccesses(String shortUrl, long delta)
+	{
+		return resolveAndRecord(shortUrl, delta) != null;
+	}
+
+	/**
+	 * Removes the cached data of the short url.
+	 *
+	 * @param shortUrl shorter form of the long url.
+	 * @return the removed FactCacheDTO, or null when the short url was not cached.
+	 */
+	FactCacheDTO remove(String shortUrl);
+
 	/**
 	 * Returns a {@link Collection} of all the FactCacheDTOs stored in the cache.
 	 *
 	 * @return collection of FactCacheDTO entries in the cache.
 	 */
 	Collection<FactCacheDTO> getAll();
+
+	/**
+	 * Passes the access count of every cached short url, for implementations that can do so without building a
+	 * FactCacheDTO for each.
+	 *
+	 * @param consumer receives each short url and its access count.
+	 */
+	default void forEachAccessCount(ObjLongConsumer<String> consumer)
+	{
+		for (FactCacheDTO factCacheDTO : getAll())
+		{
+			consumer.accept(factCacheDTO.shortUrl(), factCacheDTO.accessCount().get());
+		}
+	}
 }
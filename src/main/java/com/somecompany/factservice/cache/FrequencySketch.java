@@ -0,0 +1,123 @@
+package com.somecompany.factservice.cache;
+
+/**
+ * Count-min sketch of 4-bit counters estimating how often a key was accessed recently, as used by TinyLFU admission.
+ * <p>
+ * The table has one {@code long} of sixteen counters per expected key. A key increments one counter in each of four
+ * rows, selected by independent hashes, and its frequency is the minimum of the four. Once the number of increments
+ * reaches ten times the expected number of keys, every counter is halved, so the sketch ages old popularity out. Not
+ * thread-safe.
+ * </p>
+ */
+class FrequencySketch
+{
+	private static final long[] SEEDS = { 0x97cb3127c2b2f8d5L, 0xd6e8feb86659fd93L, 0xbf58476d1ce4e5b9L, 0x94d049bb133111ebL };
+	private static final long RESET_MASK = 0x7777777777777777L;
+	private static final int MAX_COUNT = 15;
+
+	private final long[] table;
+	private final int mask;
+	private final long sampleSize;
+
+	/**
+	 * Number of increments since the last halving.
+	 */
+	private long size;
+
+	/**
+	 * Constructs a sketch sized for the expected number of distinct hot keys.
+	 *
+	 * @param expectedKeys number of keys the cache holds
+	 */
+	FrequencySketch(long expectedKeys)
+	{
+		long keys = Math.min(1 << 30, Math.max(16, expectedKeys));
+		this.table = new long[(int) Long.highestOneBit(keys * 2 - 1)];
+		this.mask = table.length - 1;
+		this.sampleSize = 10 * keys;
+	}
+
+	/**
+	 * Returns the estimated recent frequency of a key.
+	 *
+	 * @param hash hash of the key
+	 * @return frequency between 0 and 15
+	 */
+	int frequency(int hash)
+	{
+		long spread = spread(hash);
+		int frequency = MAX_COUNT;
+		for (int row = 0; row < SEEDS.length; row++)
+		{
+			long rowHash = (spread + SEEDS[row]) * SEEDS[row];
+			int shift = counterShift(rowHash, row);
+			frequency = Math.min(frequency, (int) ((table[slot(rowHash)] >>> shift) & MAX_COUNT));
+		}
+		return frequency;
+	}
+
+	/**
+	 * Records an access of a key, halving all counters once the sample size is reached.
+	 *
+	 * @param hash hash of the key
+	 */
+	void increment(int hash)
+	{
+		long spread = spread(hash);
+		boolean added = false;
+		for (int row = 0; row < SEEDS.length; row++)
+		{
+			long rowHash = (spread + SEEDS[row]) * SEEDS[row];
+			int slot = slot(rowHash);
+			int shift = counterShift(rowHash, row);
+			if (((table[slot] >>> shift) & MAX_COUNT) < MAX_COUNT)
+			{
+				table[slot] += 1L << shift;
+				added = true;
+			}
+		}
+		if (added && ++size == sampleSize)
+		{
+			for (int i = 0; i < table.length; i++)
+			{
+				table[i] = (table[i] >>> 1) & RESET_MASK;
+			}
+			size /= 2;
+		}
+	}
+
+	/**
+	 * Selects the table word of a row hash.
+	 *
+	 * @param rowHash hash of the key for one row
+	 * @return index into the table
+	 */
+	private int slot(long rowHash)
+	{
+		return (int) (rowHash >>> 32) & mask;
+	}
+
+	/**
+	 * Selects the counter of a row within its word. Each row uses its own group of four counters.
+	 *
+	 * @param rowHash hash of the key for one row
+	 * @param row     row number
+	 * @return bit offset of the counter
+	 */
+	private static int counterShift(long rowHash, int row)
+	{
+		return ((row << 2) + (int) (rowHash & 3)) << 2;
+	}
+
+	/**
+	 * Spreads the bits of a key hash.
+	 *
+	 * @param hash key hash
+	 * @return mixed hash
+	 */
+	private static long spread(int hash)
+	{
+		long mixed = hash * 0x9e3779b97f4a7c15L;
+		return mixed ^ (mixed >>> 29);
+	}
+}
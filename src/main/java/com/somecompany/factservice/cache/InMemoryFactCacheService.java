@@ -4,14 +4,19 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import com.somecompany.factservice.exception.ResourceNotFoundException;
 
 /**
- * In-memory implementation of FactCacheService.
+ * In-memory implementation of FactCacheService keyed by short url.
+ * Active unless {@code factservice.cache.storage} selects another storage.
  */
 @Service
+@Qualifier("factCacheStorage")
+@ConditionalOnProperty(name = "factservice.cache.storage", havingValue = "hash", matchIfMissing = true)
 public class InMemoryFactCacheService implements FactCacheService
 {
 	/**
@@ -32,17 +37,29 @@ public class InMemoryFactCacheService implements FactCacheService
 	}
 
 	/**
-	 * Validates shortUrl and increments the associated access counter by 1 when present.
+	 * Returns the FactCacheDTO mapped to the short url.
 	 *
 	 * @param shortUrl the short version of the original long url from the Useless Fact API
+	 * @return the cached FactCacheDTO, or null when the short url is null or not cached
+	 */
+	@Override
+	public FactCacheDTO find(String shortUrl)
+	{
+		return shortUrl == null ? null : shortUrlToFactCacheDTO.get(shortUrl);
+	}
+
+	/**
+	 * Validates shortUrl and adds to the associated access counter when present.
+	 *
+	 * @param shortUrl the short version of the original long url from the Useless Fact API
+	 * @param delta    number of accesses
 	 * @throws IllegalArgumentException  when the short url is null or empty
 	 * @throws ResourceNotFoundException when there is no corresponding FactCacheDTO or associated data
 	 */
 	@Override
-	public void incrementAccessCount(String shortUrl)
+	public void incrementAccessCount(String shortUrl, long delta)
 	{
-		validate(shortUrl);
-		shortUrlToFactCacheDTO.get(shortUrl).accessCount().incrementAndGet();
+		getValidated(shortUrl).accessCount().add(delta);
 	}
 
 	/**
@@ -55,8 +72,19 @@ public class InMemoryFactCacheService implements FactCacheService
 	@Override
 	public String getLongUrl(String shortUrl)
 	{
-		validate(shortUrl);
-		return shortUrlToFactCacheDTO.get(shortUrl).originalUrl();
+		return getValidated(shortUrl).originalUrl();
+	}
+
+	/**
+	 * Removes the FactCacheDTO mapped to the short url.
+	 *
+	 * @param shortUrl the short version of the original long url from the Useless Fact API
+	 * @return the removed FactCacheDTO, or null when the short url is null or not cached
+	 */
+	@Override
+	public FactCacheDTO remove(String shortUrl)
+	{
+		return shortUrl == null ? null : shortUrlToFactCacheDTO.remove(shortUrl);
 	}
 
 	/**
@@ -71,13 +99,14 @@ public class InMemoryFactCacheService implements FactCacheService
 	}
 
 	/**
-	 * Validates the shortUrl.
+	 * Validates the shortUrl and returns its cached data, looking the short url up only once.
 	 *
 	 * @param shortUrl the short version of the original long url from the Useless Fact API
+	 * @return the cached FactCacheDTO
 	 * @throws IllegalArgumentException  when the short url is null or empty
 	 * @throws ResourceNotFoundException when there is no corresponding FactCacheDTO or associated data
 	 */
-	private void validate(String shortUrl)
+	private FactCacheDTO getValidated(String shortUrl)
 	{
 		if (shortUrl == null || shortUrl.isEmpty())
 		{
@@ -89,5 +118,6 @@ public class InMemoryFactCacheService implements FactCacheService
 		{
 			throw new ResourceNotFoundException("Missing cached data for short url: " + shortUrl);
 		}
+		return factCacheDTO;
 	}
 }
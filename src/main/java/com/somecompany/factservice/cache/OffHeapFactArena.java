@@ -0,0 +1,191 @@
+package com.somecompany.factservice.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Append-only store of fact records in direct {@link ByteBuffer} slabs outside the Java heap.
+ * <p>
+ * A record is laid out as {@code [long accessCount][int factLength][int urlLength][fact UTF-8][url UTF-8]} and starts at
+ * an 8-byte aligned offset, so the access count can be updated atomically in place. Records are addressed by
+ * {@code slab << 32 | offset}. Every slab starts with 8 unused bytes, so 0 is never a valid address. Space is reserved
+ * under the arena's lock and the bytes are written outside of it. Callers publish an address only after
+ * {@link #append(String, String, long)} returned.
+ * </p>
+ */
+class OffHeapFactArena
+{
+	private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+	private static final int HEADER_BYTES = 16;
+	private static final int ALIGNMENT = 8;
+
+	private final int slabSize;
+
+	/**
+	 * Allocated slabs, replaced by a larger copy when a slab is added.
+	 */
+	private volatile ByteBuffer[] slabs = new ByteBuffer[0];
+
+	/**
+	 * Next free offset in the last slab, guarded by the arena's lock.
+	 */
+	private int writeOffset;
+
+	/**
+	 * Bytes reserved for records so far.
+	 */
+	private volatile long usedBytes;
+
+	/**
+	 * Constructs an empty arena.
+	 *
+	 * @param slabSize bytes per slab
+	 */
+	OffHeapFactArena(int slabSize)
+	{
+		this.slabSize = slabSize;
+	}
+
+	/**
+	 * Appends a record holding the fact, its original url and its access count.
+	 *
+	 * @param fact        fact text
+	 * @param originalUrl original long url
+	 * @param accessCount initial access count
+	 * @return address of the record
+	 * @throws IllegalArgumentException when the record does not fit into a slab
+	 */
+	long append(String fact, String originalUrl, long accessCount)
+	{
+		byte[] factBytes = fact.getBytes(StandardCharsets.UTF_8);
+		byte[] urlBytes = originalUrl.getBytes(StandardCharsets.UTF_8);
+		int recordBytes = HEADER_BYTES + factBytes.length + urlBytes.length;
+		if (recordBytes > slabSize - ALIGNMENT)
+		{
+			throw new IllegalArgumentException("Fact of %d bytes does not fit into off-heap slabs of %d bytes.".formatted(recordBytes, slabSize));
+		}
+
+		long address = reserve(recordBytes);
+		ByteBuffer slab = slabs[(int) (address >>> 32)];
+		int offset = (int) address;
+		slab.putLong(offset, accessCount);
+		slab.putInt(offset + 8, factBytes.length);
+		slab.putInt(offset + 12, urlBytes.length);
+		slab.put(offset + HEADER_BYTES, factBytes);
+		slab.put(offset + HEADER_BYTES + factBytes.length, urlBytes);
+		return address;
+	}
+
+	/**
+	 * Decodes the fact text of a record.
+	 *
+	 * @param address record address
+	 * @return fact text
+	 */
+	String fact(long address)
+	{
+		ByteBuffer slab = slabs[(int) (address >>> 32)];
+		int offset = (int) address;
+		return decode(slab, offset + HEADER_BYTES, slab.getInt(offset + 8));
+	}
+
+	/**
+	 * Decodes the original url of a record.
+	 *
+	 * @param address record address
+	 * @return original long url
+	 */
+	String originalUrl(long address)
+	{
+		ByteBuffer slab = slabs[(int) (address >>> 32)];
+		int offset = (int) address;
+		return decode(slab, offset + HEADER_BYTES + slab.getInt(offset + 8), slab.getInt(offset + 12));
+	}
+
+	/**
+	 * Returns the access count of a record.
+	 *
+	 * @param address record address
+	 * @return access count
+	 */
+	long accessCount(long address)
+	{
+		return (long) LONG.getVolatile(slabs[(int) (address >>> 32)], (int) address);
+	}
+
+	/**
+	 * Atomically adds to the access count of a record.
+	 *
+	 * @param address record address
+	 * @param delta   number of accesses
+	 * @return the new access count
+	 */
+	long addAccessCount(long address, long delta)
+	{
+		return (long) LONG.getAndAdd(slabs[(int) (address >>> 32)], (int) address, delta) + delta;
+	}
+
+	/**
+	 * Returns the bytes taken by records.
+	 *
+	 * @return used bytes
+	 */
+	long usedBytes()
+	{
+		return usedBytes;
+	}
+
+	/**
+	 * Returns the bytes of direct memory allocated for slabs.
+	 *
+	 * @return allocated bytes
+	 */
+	long capacityBytes()
+	{
+		return (long) slabs.length * slabSize;
+	}
+
+	/**
+	 * Reserves aligned space for a record, adding a slab when the current one is full.
+	 *
+	 * @param recordBytes record size
+	 * @return address of the reserved space
+	 */
+	private synchronized long reserve(int recordBytes)
+	{
+		ByteBuffer[] current = slabs;
+		if (current.length == 0 || writeOffset + recordBytes > slabSize)
+		{
+			ByteBuffer[] grown = Arrays.copyOf(current, current.length + 1);
+			grown[current.length] = ByteBuffer.allocateDirect(slabSize).order(ByteOrder.nativeOrder());
+			slabs = grown;
+			current = grown;
+			writeOffset = ALIGNMENT;
+		}
+		long address = ((long) (current.length - 1) << 32) | writeOffset;
+		int alignedBytes = (recordBytes + ALIGNMENT - 1) & -ALIGNMENT;
+		writeOffset += alignedBytes;
+		usedBytes += alignedBytes;
+		return address;
+	}
+
+	/**
+	 * Decodes UTF-8 bytes of a slab into a String.
+	 *
+	 * @param slab   slab holding the bytes
+	 * @param offset position of the first byte
+	 * @param length number of bytes
+	 * @return decoded string
+	 */
+	private static String decode(ByteBuffer slab, int offset, int length)
+	{
+		byte[] bytes = new byte[length];
+		slab.get(offset, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
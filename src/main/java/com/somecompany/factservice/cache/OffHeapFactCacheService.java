@@ -0,0 +1,257 @@
+package com.somecompany.factservice.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.somecompany.factservice.config.CacheProperties;
+import com.somecompany.factservice.exception.ResourceNotFoundException;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * FactCacheService implementation keeping fact data outside the Java heap.
+ * <p>
+ * Fact text, original url and access count of every fact live in an {@link OffHeapFactArena}. The only on-heap state is
+ * a {@link ChunkedLongArray} from the id encoded in the short url to the record address, 8 bytes per fact, so heap usage
+ * and GC work do not grow with the text cached. Strings are decoded from the arena only when a redirect or a statistics
+ * call needs them. FactCacheDTOs returned by {@link #find(String)} and {@link #getAll()} are therefore snapshots: their
+ * access counters are detached from the arena.
+ * </p>
+ * <p>
+ * Slabs are allocated from direct memory, which is capped by {@code -XX:MaxDirectMemorySize} (by default the maximum heap
+ * size). Removing a fact only unindexes it; its record is not reused.
+ * </p>
+ */
+@Service
+@Qualifier("factCacheStorage")
+@ConditionalOnProperty(name = "factservice.cache.storage", havingValue = "off-heap")
+public class OffHeapFactCacheService implements FactCacheService
+{
+	/**
+	 * Slot value of an id whose record is being appended. Record addresses are never negative.
+	 */
+	private static final long CLAIMED = -1;
+
+	/**
+	 * Codec the short urls were issued with.
+	 */
+	private final ShortCodeCodec shortCodeCodec;
+
+	/**
+	 * Off-heap fact records.
+	 */
+	private final OffHeapFactArena arena;
+
+	/**
+	 * Record addresses indexed by the id of their short url.
+	 */
+	private final ChunkedLongArray addressesById;
+
+	/**
+	 * Constructs the cache and registers gauges of its direct memory usage.
+	 *
+	 * @param shortCodeCodec  codec the short urls were issued with
+	 * @param cacheProperties cache settings holding the chunk and slab sizes
+	 * @param meterRegistry   registry exposing the direct memory usage
+	 */
+	public OffHeapFactCacheService(ShortCodeCodec shortCodeCodec, CacheProperties cacheProperties, MeterRegistry meterRegistry)
+	{
+		this.shortCodeCodec = shortCodeCodec;
+		this.arena = new OffHeapFactArena((int) cacheProperties.slabSize().toBytes());
+		this.addressesById = new ChunkedLongArray(cacheProperties.chunkSize());
+
+		Gauge.builder("factservice.cache.offheap.used", arena, OffHeapFactArena::usedBytes)
+			.description("Direct memory taken by cached fact records")
+			.baseUnit("bytes")
+			.register(meterRegistry);
+		Gauge.builder("factservice.cache.offheap.allocated", arena, OffHeapFactArena::capacityBytes)
+			.description("Direct memory allocated for fact record slabs")
+			.baseUnit("bytes")
+			.register(meterRegistry);
+	}
+
+	/**
+	 * Appends the fact to the arena and indexes it at the id of its short url if that slot is empty.
+	 * <p>
+	 * The slot is claimed first, so that concurrent inserts of the same fact do not both append a record. The record is
+	 * then encoded and written outside any lock; only reserving its space in the arena is serialized.
+	 * </p>
+	 *
+	 * @param factCacheDTO record with fact related data
+	 * @throws IllegalArgumentException when the short url is not a code of the configured codec or the fact does not
+	 *                                  fit into a slab
+	 */
+	@Override
+	public void insertIfMissing(FactCacheDTO factCacheDTO)
+	{
+		long id = shortCodeCodec.decode(factCacheDTO.shortUrl());
+		if (id == ShortCodeCodec.INVALID)
+		{
+			throw new IllegalArgumentException("Invalid shortUrl supplied.");
+		}
+		if (addressesById.get(id) != 0 || !addressesById.putIfAbsent(id, CLAIMED))
+		{
+			return;
+		}
+
+		long address;
+		try
+		{
+			address = arena.append(factCacheDTO.fact(), factCacheDTO.originalUrl(), factCacheDTO.accessCount().get());
+		}
+		catch (RuntimeException e)
+		{
+			addressesById.compareAndSet(id, CLAIMED, 0);
+			throw e;
+		}
+		// fails only when the claimed slot was removed meanwhile; the record then stays unindexed
+		addressesById.compareAndSet(id, CLAIMED, address);
+	}
+
+	/**
+	 * Decodes the fact stored at the id of the short url.
+	 *
+	 * @param shortUrl the short version of the original long url from the Useless Fact API
+	 * @return snapshot of the cached fact, or null when the short url does not decode or is not cached
+	 */
+	@Override
+	public FactCacheDTO find(String shortUrl)
+	{
+		long address = address(shortUrl);
+		return address == 0 ? null : toFactCacheDTO(shortUrl, address);
+	}
+
+	/**
+	 * Validates shortUrl and adds to the associated access counter in place.
+	 *
+	 * @param shortUrl the short version of the original long url from the Useless Fact API
+	 * @param delta    number of accesses
+	 * @throws IllegalArgumentException  when the short url is null or empty
+	 * @throws ResourceNotFoundException when there is no corresponding cached fact
+	 */
+	@Override
+	public void incrementAccessCount(String shortUrl, long delta)
+	{
+		arena.addAccessCount(getValidatedAddress(shortUrl), delta);
+	}
+
+	/**
+	 * Validates shortUrl and decodes the associated long url.
+	 *
+	 * @param shortUrl the short version of the original long url from the Useless Fact API
+	 * @throws IllegalArgumentException  when the short url is null or empty
+	 * @throws ResourceNotFoundException when there is no corresponding cached fact
+	 */
+	@Override
+	public String getLongUrl(String shortUrl)
+	{
+		return arena.originalUrl(getValidatedAddress(shortUrl));
+	}
+
+	/**
+	 * Adds to the access counter of the short url in place and decodes its long url, looking its record up once.
+	 *
+	 * @param shortUrl the short version of the original long url from the Useless Fact API
+	 * @param delta    number of accesses, 0 to only resolve the short url
+	 * @return original long url, or null when the short url does not decode or is not cached
+	 */
+	@Override
+	public String resolveAndRecord(String shortUrl, long delta)
+	{
+		long address = address(shortUrl);
+		if (address == 0)
+		{
+			return null;
+		}
+		if (delta != 0)
+		{
+			arena.addAccessCount(address, delta);
+		}
+		return arena.originalUrl(address);
+	}
+
+	/**
+	 * Unindexes the fact of the short url. Its record stays in the slab, as slabs are append-only.
+	 *
+	 * @param shortUrl the short version of the original long url from the Useless Fact API
+	 * @return snapshot of the removed fact, or null when the short url does not decode or is not cached
+	 */
+	@Override
+	public FactCacheDTO remove(String shortUrl)
+	{
+		long address = addressesById.remove(shortCodeCodec.decode(shortUrl));
+		return address == 0 || address == CLAIMED ? null : toFactCacheDTO(shortUrl, address);
+	}
+
+	/**
+	 * Decodes snapshots of all cached facts in id order.
+	 *
+	 * @return collection of FactCacheDTO snapshots
+	 */
+	@Override
+	public Collection<FactCacheDTO> getAll()
+	{
+		List<FactCacheDTO> all = new ArrayList<>();
+		addressesById.forEach((id, address) -> {
+			if (address != CLAIMED)
+			{
+				all.add(toFactCacheDTO(shortCodeCodec.encode(id), address));
+			}
+		});
+		return all;
+	}
+
+	/**
+	 * Validates the shortUrl and returns the address of its record.
+	 *
+	 * @param shortUrl the short version of the original long url from the Useless Fact API
+	 * @return record address
+	 * @throws IllegalArgumentException  when the short url is null or empty
+	 * @throws ResourceNotFoundException when there is no corresponding cached fact
+	 */
+	private long getValidatedAddress(String shortUrl)
+	{
+		if (shortUrl == null || shortUrl.isEmpty())
+		{
+			throw new IllegalArgumentException("Invalid shortUrl supplied.");
+		}
+
+		long address = address(shortUrl);
+		if (address == 0)
+		{
+			throw new ResourceNotFoundException("Missing cached data for short url: " + shortUrl);
+		}
+		return address;
+	}
+
+	/**
+	 * Returns the address of the record indexed at the id of the short url.
+	 *
+	 * @param shortUrl the short url
+	 * @return record address, or 0 when the short url does not decode, is not cached or its record is still being appended
+	 */
+	private long address(String shortUrl)
+	{
+		long address = addressesById.get(shortCodeCodec.decode(shortUrl));
+		return address == CLAIMED ? 0 : address;
+	}
+
+	/**
+	 * Decodes a record into a FactCacheDTO snapshot.
+	 *
+	 * @param shortUrl short url of the record
+	 * @param address  record address
+	 * @return FactCacheDTO with a detached access counter
+	 */
+	private FactCacheDTO toFactCacheDTO(String shortUrl, long address)
+	{
+		return new FactCacheDTO(arena.fact(address), arena.originalUrl(address), shortUrl, new AccessCounter(arena.accessCount(address)));
+	}
+}
@@ -0,0 +1,221 @@
+package com.somecompany.factservice.client;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import io.github.resilience4j.core.functions.Either;
+import io.github.resilience4j.retry.RetryConfig;
+
+/**
+ * Non-blocking, deadline-aware retry of blocking upstream calls.
+ * <p>
+ * Each attempt runs on the upstream executor and backoff waits are timer-scheduled, so no thread sleeps between attempts.
+ * Attempts, backoff and retryable exceptions follow the shared {@link RetryConfig}. Retrying stops early once the time
+ * left until the deadline cannot fit the next backoff plus another attempt as long as the previous one, or the retry gate
+ * denies the retry; the last failure is then propagated. An attempt still running when the deadline passes completes the call with a {@link TimeoutException}
+ * and is interrupted; the call only counts as finished once that attempt has returned, since a blocking socket read may
+ * not react to the interrupt.
+ * </p>
+ */
+class AsyncRetryExecutor
+{
+	private final Executor upstreamExecutor;
+	private final ScheduledExecutorService backoffScheduler;
+
+	/**
+	 * Constructs an AsyncRetryExecutor.
+	 *
+	 * @param upstreamExecutor executor running the blocking upstream attempts
+	 * @param backoffScheduler scheduler triggering the next attempt once its backoff elapsed
+	 */
+	AsyncRetryExecutor(Executor upstreamExecutor, ScheduledExecutorService backoffScheduler)
+	{
+		this.upstreamExecutor = upstreamExecutor;
+		this.backoffScheduler = backoffScheduler;
+	}
+
+	/**
+	 * Executes the call with retries until it succeeds, fails with a non-retryable exception, runs out of attempts or
+	 * the deadline cuts retries off.
+	 *
+	 * @param call        the blocking call to execute
+	 * @param retryConfig attempts, backoff and retry predicate to apply
+	 * @param deadline    total time budget of the call including retries
+	 * @param mayRetry    asked once a retry is about to be scheduled, e.g. to withdraw it from a retry budget
+	 * @param <T>         type of the call result
+	 * @return the started call, whose result is completed with the value or the last failure and which has finished once
+	 * its last attempt returned
+	 */
+	<T> UpstreamCall<T> execute(Supplier<T> call, RetryConfig retryConfig, Duration deadline, BooleanSupplier mayRetry)
+	{
+		var execution = new Execution<>(call, retryConfig, System.nanoTime() + deadline.toNanos(), mayRetry);
+		execution.result.orTimeout(deadline.toNanos(), TimeUnit.NANOSECONDS).whenComplete((value, throwable) -> {
+			if (throwable instanceof TimeoutException)
+			{
+				execution.cancel();
+			}
+		});
+		execution.attempt(1);
+		return new UpstreamCall<>(execution.result, execution.finished);
+	}
+
+	/**
+	 * State of one executed call.
+	 *
+	 * @param <T> type of the call result
+	 */
+	private final class Execution<T>
+	{
+		private final Supplier<T> call;
+		private final RetryConfig retryConfig;
+		private final long deadlineNanos;
+		private final BooleanSupplier mayRetry;
+		private final CompletableFuture<T> result = new CompletableFuture<>();
+		private final CompletableFuture<Void> finished = new CompletableFuture<>();
+
+		/**
+		 * The attempt running or the backoff pending. Guarded by this.
+		 */
+		private Future<?> current;
+
+		/**
+		 * Constructs the state of a call.
+		 *
+		 * @param call          the blocking call to execute
+		 * @param retryConfig   attempts, backoff and retry predicate to apply
+		 * @param deadlineNanos {@link System#nanoTime()} based deadline
+		 * @param mayRetry      asked once a retry is about to be scheduled
+		 */
+		Execution(Supplier<T> call, RetryConfig retryConfig, long deadlineNanos, BooleanSupplier mayRetry)
+		{
+			this.call = call;
+			this.retryConfig = retryConfig;
+			this.deadlineNanos = deadlineNanos;
+			this.mayRetry = mayRetry;
+		}
+
+		/**
+		 * Starts an attempt on the upstream executor unless the call was already answered.
+		 *
+		 * @param attempt 1-based attempt number
+		 */
+		void attempt(int attempt)
+		{
+			long startNanos = System.nanoTime();
+			var task = new FutureTask<T>(call::get);
+			synchronized (this)
+			{
+				if (result.isDone())
+				{
+					finished.complete(null);
+					return;
+				}
+				current = task;
+			}
+			try
+			{
+				upstreamExecutor.execute(() -> {
+					task.run();
+					attempted(task, attempt, startNanos);
+				});
+			}
+			catch (RejectedExecutionException e)
+			{
+				result.completeExceptionally(e);
+				finished.complete(null);
+			}
+		}
+
+		/**
+		 * Decides whether and when to schedule the next attempt once an attempt returned.
+		 *
+		 * @param task       the returned attempt
+		 * @param attempt    1-based attempt number
+		 * @param startNanos {@link System#nanoTime()} the attempt started at
+		 */
+		private void attempted(FutureTask<T> task, int attempt, long startNanos)
+		{
+			Throwable cause;
+			try
+			{
+				result.complete(task.get());
+				finished.complete(null);
+				return;
+			}
+			catch (ExecutionException e)
+			{
+				cause = e.getCause();
+			}
+			catch (CancellationException | InterruptedException e)
+			{
+				finished.complete(null);
+				return;
+			}
+
+			if (attempt >= retryConfig.getMaxAttempts() || !retryConfig.getExceptionPredicate().test(cause))
+			{
+				fail(cause);
+				return;
+			}
+
+			long backoffMillis = retryConfig.<T>getIntervalBiFunction().apply(attempt, Either.left(cause));
+			long lastAttemptNanos = System.nanoTime() - startNanos;
+			long remainingNanos = deadlineNanos - System.nanoTime();
+			if (TimeUnit.MILLISECONDS.toNanos(backoffMillis) + lastAttemptNanos > remainingNanos || !mayRetry.getAsBoolean())
+			{
+				fail(cause);
+				return;
+			}
+			synchronized (this)
+			{
+				if (result.isDone())
+				{
+					finished.complete(null);
+					return;
+				}
+				current = backoffScheduler.schedule(() -> attempt(attempt + 1), backoffMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		/**
+		 * Completes the call with its last failure.
+		 *
+		 * @param cause the failure
+		 */
+		private void fail(Throwable cause)
+		{
+			result.completeExceptionally(cause);
+			finished.complete(null);
+		}
+
+		/**
+		 * Cancels a pending backoff, or interrupts the running attempt, once the call was answered at its deadline.
+		 */
+		synchronized void cancel()
+		{
+			if (current instanceof ScheduledFuture<?> backoff)
+			{
+				if (backoff.cancel(false))
+				{
+					finished.complete(null);
+				}
+			}
+			else if (current != null)
+			{
+				current.cancel(true);
+			}
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package com.somecompany.factservice.client;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight style coalescing of upstream fetches.
+ * <p>
+ * At most {@code maxOutstanding} fetches run at the same time. Callers arriving while that many are in flight do not
+ * issue a fetch of their own; they wait for the most recently started fetch still in flight and share its result, so one
+ * upstream result is fanned out to every waiter.
+ * </p>
+ * <p>
+ * Deciding between starting and joining a fetch, and publishing a started fetch, happen under one short lock, so a
+ * caller never finds all slots taken without an in-flight fetch to join and never has to spin.
+ * </p>
+ *
+ * @param <T> type of the fetched value
+ */
+class CoalescingFetcher<T>
+{
+	private final int maxOutstanding;
+
+	/**
+	 * Fetches in flight, oldest first. Guarded by itself.
+	 */
+	private final Deque<CompletableFuture<T>> inFlight = new ArrayDeque<>();
+
+	/**
+	 * Constructs a CoalescingFetcher with the given bound of concurrent fetches.
+	 *
+	 * @param maxOutstanding maximum number of fetches in flight
+	 */
+	CoalescingFetcher(int maxOutstanding)
+	{
+		this.maxOutstanding = maxOutstanding;
+	}
+
+	/**
+	 * Runs the fetch when fewer than the maximum are in flight, otherwise waits for and returns the result of the most
+	 * recently started in-flight fetch.
+	 *
+	 * @param fetch     the blocking fetch to run
+	 * @param onLeader  invoked when this caller runs the fetch itself
+	 * @param onJoined  invoked when this caller shares the result of an in-flight fetch
+	 * @return fetched or shared value
+	 */
+	T fetch(Supplier<T> fetch, Runnable onLeader, Runnable onJoined)
+	{
+		var started = new CompletableFuture<T>();
+		CompletableFuture<T> shared = startOrJoin(started);
+		if (shared != null)
+		{
+			onJoined.run();
+			return join(shared);
+		}
+
+		onLeader.run();
+		try
+		{
+			T value = fetch.get();
+			finish(started, value, null);
+			return value;
+		}
+		catch (RuntimeException e)
+		{
+			finish(started, null, e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Non-blocking variant of {@link #fetch(Supplier, Runnable, Runnable)}. The slot is held until the started call has
+	 * finished, not while the caller's thread is busy, and not only until its result is delivered: a call answered at its
+	 * deadline while an attempt still runs keeps its slot, and callers joining it meanwhile share the delivered failure.
+	 *
+	 * @param fetch    starts the asynchronous call
+	 * @param onLeader invoked when this caller starts the call itself
+	 * @param onJoined invoked when this caller shares the result of an in-flight call
+	 * @return future of the fetched or shared value
+	 */
+	CompletableFuture<T> fetchAsync(Supplier<UpstreamCall<T>> fetch, Runnable onLeader, Runnable onJoined)
+	{
+		var started = new CompletableFuture<T>();
+		CompletableFuture<T> shared = startOrJoin(started);
+		if (shared != null)
+		{
+			onJoined.run();
+			return shared;
+		}
+
+		onLeader.run();
+		UpstreamCall<T> call;
+		try
+		{
+			call = fetch.get();
+		}
+		catch (RuntimeException e)
+		{
+			call = UpstreamCall.of(CompletableFuture.failedFuture(e));
+		}
+		call.finished().whenComplete((value, throwable) -> release(started));
+		call.result().whenComplete((value, throwable) -> complete(started, value, throwable instanceof CompletionException && throwable.getCause() != null
+			? throwable.getCause()
+			: throwable));
+		return started;
+	}
+
+	/**
+	 * Publishes the caller's fetch when a slot is free, otherwise picks the fetch to join.
+	 *
+	 * @param started the caller's fetch, published when it may run
+	 * @return null when the caller runs its fetch, otherwise the most recently started fetch in flight
+	 */
+	private CompletableFuture<T> startOrJoin(CompletableFuture<T> started)
+	{
+		synchronized (inFlight)
+		{
+			if (inFlight.size() < maxOutstanding)
+			{
+				inFlight.addLast(started);
+				return null;
+			}
+			return inFlight.peekLast();
+		}
+	}
+
+	/**
+	 * Frees the slot of a fetch, then completes it for its caller and the callers that joined it.
+	 *
+	 * @param started   the fetch
+	 * @param value     fetched value, null on failure
+	 * @param throwable the failure, null on success
+	 */
+	private void finish(CompletableFuture<T> started, T value, Throwable throwable)
+	{
+		release(started);
+		complete(started, value, throwable);
+	}
+
+	/**
+	 * Frees the slot of a fetch.
+	 *
+	 * @param started the fetch
+	 */
+	private void release(CompletableFuture<T> started)
+	{
+		synchronized (inFlight)
+		{
+			inFlight.remove(started);
+		}
+	}
+
+	/**
+	 * Completes a fetch for its caller and the callers that joined it.
+	 *
+	 * @param started   the fetch
+	 * @param value     fetched value, null on failure
+	 * @param throwable the failure, null on success
+	 */
+	private static <T> void complete(CompletableFuture<T> started, T value, Throwable throwable)
+	{
+		if (throwable == null)
+		{
+			started.complete(value);
+		}
+		else
+		{
+			started.completeExceptionally(throwable);
+		}
+	}
+
+	/**
+	 * Waits for a shared fetch and rethrows its failure unwrapped.
+	 *
+	 * @param inFlight the shared fetch
+	 * @return the shared value
+	 */
+	private static <T> T join(CompletableFuture<T> inFlight)
+	{
+		try
+		{
+			return inFlight.join();
+		}
+		catch (CompletionException e)
+		{
+			if (e.getCause() instanceof RuntimeException cause)
+			{
+				throw cause;
+			}
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,184 @@
+package com.somecompany.factservice.client;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Global retry budget shared by every upstream call.
+ * <p>
+ * Retries within the sliding window are capped at {@code ratio} times the successful calls in that window plus a small
+ * floor of {@code minRetriesPerSecond}, so a failing upstream sees at most a bounded fraction of extra load instead of a
+ * multiple of it. The window is kept as per-second buckets that are recycled as time moves on.
+ * </p>
+ * <p>
+ * The buckets are rings of atomic counters, so calls and retries never take a lock. Each counter carries the second it
+ * counts in its upper half and the count in its lower half, which lets one compare-and-set both recycle a bucket left
+ * over from an older second and count into it. A retry is counted before the budget is checked and taken back when it
+ * did not fit, so concurrent retries never overdraw the budget; at worst one of them is refused that would just have
+ * fitted.
+ * </p>
+ */
+public class RetryBudget
+{
+	private static final long COUNT_MASK = 0xFFFF_FFFFL;
+
+	private final double ratio;
+	private final int minRetriesPerSecond;
+	private final LongSupplier nanoClock;
+
+	private final int buckets;
+	private final AtomicLongArray successes;
+	private final AtomicLongArray retries;
+
+	/**
+	 * Constructs a RetryBudget using the system clock.
+	 *
+	 * @param ratio               retries allowed per successful call within the window
+	 * @param minRetriesPerSecond retries always allowed per second of window, regardless of successes
+	 * @param window              length of the sliding window, rounded to whole seconds
+	 */
+	public RetryBudget(double ratio, int minRetriesPerSecond, Duration window)
+	{
+		this(ratio, minRetriesPerSecond, window, System::nanoTime);
+	}
+
+	/**
+	 * Constructs a RetryBudget with a custom clock.
+	 *
+	 * @param ratio               retries allowed per successful call within the window
+	 * @param minRetriesPerSecond retries always allowed per second of window, regardless of successes
+	 * @param window              length of the sliding window, rounded to whole seconds
+	 * @param nanoClock           nanosecond clock source
+	 */
+	RetryBudget(double ratio, int minRetriesPerSecond, Duration window, LongSupplier nanoClock)
+	{
+		this.ratio = ratio;
+		this.minRetriesPerSecond = minRetriesPerSecond;
+		this.nanoClock = nanoClock;
+		this.buckets = (int) Math.max(1, window.toSeconds());
+		this.successes = new AtomicLongArray(buckets);
+		this.retries = new AtomicLongArray(buckets);
+	}
+
+	/**
+	 * Records a successful upstream call, which earns retry budget.
+	 */
+	public void recordSuccess()
+	{
+		increment(successes, nowSecond());
+	}
+
+	/**
+	 * Withdraws one retry from the budget if any is left.
+	 *
+	 * @return true when the retry may proceed, false when the budget is exhausted
+	 */
+	public boolean tryAcquireRetry()
+	{
+		long nowSecond = nowSecond();
+		increment(retries, nowSecond);
+		if (remaining(nowSecond) >= 0)
+		{
+			return true;
+		}
+		decrement(retries, nowSecond);
+		return false;
+	}
+
+	/**
+	 * Returns the number of retries currently left in the budget.
+	 *
+	 * @return remaining retries, never negative
+	 */
+	public double available()
+	{
+		return Math.max(0, remaining(nowSecond()));
+	}
+
+	/**
+	 * Returns the retries allowed within the window minus the retries counted in it.
+	 *
+	 * @param nowSecond current second
+	 * @return remaining retries, negative when overdrawn
+	 */
+	private double remaining(long nowSecond)
+	{
+		long windowSuccesses = 0;
+		long windowRetries = 0;
+		for (int i = 0; i < buckets; i++)
+		{
+			windowSuccesses += count(successes.get(i), nowSecond);
+			windowRetries += count(retries.get(i), nowSecond);
+		}
+		double allowed = ratio * windowSuccesses + (double) minRetriesPerSecond * buckets;
+		return allowed - windowRetries;
+	}
+
+	/**
+	 * Returns the count of a bucket when its second lies within the window.
+	 *
+	 * @param bucket    stamped bucket value
+	 * @param nowSecond current second
+	 * @return count of the bucket, or 0 when it holds an older second
+	 */
+	private long count(long bucket, long nowSecond)
+	{
+		// seconds are compared on their lower 32 bits, which is exact for any window shorter than 2^31 seconds
+		int age = (int) nowSecond - (int) (bucket >>> 32);
+		return age >= 0 && age < buckets ? bucket & COUNT_MASK : 0;
+	}
+
+	/**
+	 * Counts one into the bucket of the current second, recycling it when it still holds an older second.
+	 *
+	 * @param ring      bucket ring to count into
+	 * @param nowSecond current second
+	 */
+	private void increment(AtomicLongArray ring, long nowSecond)
+	{
+		int index = (int) Math.floorMod(nowSecond, (long) buckets);
+		long stamp = nowSecond << 32;
+		long bucket;
+		long next;
+		do
+		{
+			bucket = ring.get(index);
+			next = (bucket & ~COUNT_MASK) == stamp ? bucket + 1 : stamp | 1;
+		}
+		while (!ring.compareAndSet(index, bucket, next));
+	}
+
+	/**
+	 * Takes back one count from the bucket of the current second, unless it has been recycled for a newer second since.
+	 *
+	 * @param ring      bucket ring to take the count from
+	 * @param nowSecond second the count was made in
+	 */
+	private void decrement(AtomicLongArray ring, long nowSecond)
+	{
+		int index = (int) Math.floorMod(nowSecond, (long) buckets);
+		long stamp = nowSecond << 32;
+		long bucket;
+		do
+		{
+			bucket = ring.get(index);
+			if ((bucket & ~COUNT_MASK) != stamp || (bucket & COUNT_MASK) == 0)
+			{
+				return;
+			}
+		}
+		while (!ring.compareAndSet(index, bucket, bucket - 1));
+	}
+
+	/**
+	 * Returns the current time in whole seconds of the clock.
+	 *
+	 * @return current second
+	 */
+	private long nowSecond()
+	{
+		return TimeUnit.NANOSECONDS.toSeconds(nanoClock.getAsLong());
+	}
+}
@@ -0,0 +1,26 @@
+package com.somecompany.factservice.client;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * An asynchronous upstream call whose result may be delivered before the call has really finished, e.g. when its
+ * deadline passed while an attempt was still running.
+ *
+ * @param result   future of the call's result
+ * @param finished future completed once no attempt of the call is running or scheduled any more
+ * @param <T>      type of the call result
+ */
+record UpstreamCall<T>(CompletableFuture<T> result, CompletableFuture<?> finished)
+{
+	/**
+	 * Creates a call that has finished as soon as its result is complete.
+	 *
+	 * @param result future of the call's result
+	 * @param <T>    type of the call result
+	 * @return the call
+	 */
+	static <T> UpstreamCall<T> of(CompletableFuture<T> result)
+	{
+		return new UpstreamCall<>(result, result);
+	}
+}
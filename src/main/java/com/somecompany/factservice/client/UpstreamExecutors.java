@@ -0,0 +1,157 @@
+package com.somecompany.factservice.client;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import com.somecompany.factservice.config.UpstreamProperties;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Holder of the executors used for asynchronous upstream calls.
+ * <p>
+ * When virtual threads are enabled ({@code spring.threads.virtual.enabled=true} on Java 21+) every upstream attempt runs on
+ * its own virtual thread, otherwise on a fixed pool of platform threads sized by the maximum of outstanding upstream calls
+ * whose queue is bounded by {@code factservice.upstream.queue-capacity}. Both modes accept at most
+ * {@code max-outstanding + queue-capacity} tasks at a time, the virtual one through a semaphore, and reject tasks beyond
+ * that with a {@link RejectedExecutionException}. In both cases the number of concurrent attempts is further bounded by
+ * the client's request coalescing. Backoff timers always
+ * run on a single platform thread since they only hand over to the upstream executor.
+ * </p>
+ * <p>
+ * The executors are deliberately not exposed as {@link Executor} beans so they do not replace Spring Boot's
+ * {@code applicationTaskExecutor} used for asynchronous MVC requests.
+ * </p>
+ */
+@Component
+public class UpstreamExecutors
+{
+	private final Executor upstreamExecutor;
+	private final ScheduledExecutorService backoffScheduler;
+	private final boolean virtualThreads;
+
+	/**
+	 * Constructs the executors according to the threading mode of the application.
+	 *
+	 * @param upstreamProperties upstream settings sizing the platform thread pool and its queue
+	 * @param environment        environment used to detect whether virtual threads are enabled
+	 */
+	public UpstreamExecutors(UpstreamProperties upstreamProperties, Environment environment)
+	{
+		this.virtualThreads = Threading.VIRTUAL.isActive(environment);
+		this.upstreamExecutor = virtualThreads
+			? boundedExecutor(new VirtualThreadTaskExecutor("upstream-fetch-"), upstreamProperties.maxOutstanding() + upstreamProperties.queueCapacity())
+			: new ThreadPoolExecutor(upstreamProperties.maxOutstanding(), upstreamProperties.maxOutstanding(), 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(upstreamProperties.queueCapacity()), daemonThreadFactory("upstream-fetch-"));
+		this.backoffScheduler = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("upstream-retry-backoff-"));
+	}
+
+	/**
+	 * Returns the executor running blocking upstream attempts.
+	 *
+	 * @return upstream executor
+	 */
+	public Executor upstreamExecutor()
+	{
+		return upstreamExecutor;
+	}
+
+	/**
+	 * Returns the scheduler triggering retry attempts after their backoff.
+	 *
+	 * @return backoff scheduler
+	 */
+	public ScheduledExecutorService backoffScheduler()
+	{
+		return backoffScheduler;
+	}
+
+	/**
+	 * Tells whether upstream attempts run on virtual threads.
+	 *
+	 * @return true in virtual thread mode
+	 */
+	public boolean isVirtualThreads()
+	{
+		return virtualThreads;
+	}
+
+	/**
+	 * Shuts down the platform thread executors.
+	 */
+	@PreDestroy
+	void shutdown()
+	{
+		if (upstreamExecutor instanceof ExecutorService executorService)
+		{
+			executorService.shutdownNow();
+		}
+		backoffScheduler.shutdownNow();
+	}
+
+	/**
+	 * Wraps an executor so that at most the given number of its tasks are queued or running at the same time.
+	 *
+	 * @param executor executor running the tasks
+	 * @param maxTasks maximum number of tasks accepted and not yet finished
+	 * @return bounded executor rejecting tasks beyond the bound with a {@link RejectedExecutionException}
+	 */
+	static Executor boundedExecutor(Executor executor, int maxTasks)
+	{
+		var permits = new Semaphore(maxTasks);
+		return task -> {
+			if (!permits.tryAcquire())
+			{
+				throw new RejectedExecutionException("More than %d upstream tasks pending".formatted(maxTasks));
+			}
+			try
+			{
+				executor.execute(() -> {
+					try
+					{
+						task.run();
+					}
+					finally
+					{
+						permits.release();
+					}
+				});
+			}
+			catch (RuntimeException e)
+			{
+				permits.release();
+				throw e;
+			}
+		};
+	}
+
+	/**
+	 * Creates a thread factory producing named daemon threads.
+	 *
+	 * @param prefix thread name prefix
+	 * @return thread factory
+	 */
+	private static ThreadFactory daemonThreadFactory(String prefix)
+	{
+		var counter = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
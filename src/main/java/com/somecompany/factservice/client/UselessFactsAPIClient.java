@@ -1,69 +1,228 @@
 package com.somecompany.factservice.client;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import com.somecompany.factservice.config.UpstreamProperties;
 import com.somecompany.factservice.exception.FactServiceClientException;
 import com.somecompany.factservice.exception.FactServiceServerException;
 import com.somecompany.factservice.exception.RateLimitedException;
 import com.somecompany.factservice.model.UselessFact;
 
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * Service class to interact with the Useless Facts API.
  * This class fetches random facts and applies retry logic in case of failures including rate limit issues.
+ * Concurrent callers are coalesced so that no more than the configured number of upstream fetches are outstanding.
+ * In asynchronous retry mode attempts run on a dedicated executor bounded by the outstanding limit and backoff waits are
+ * timer-scheduled, so request threads are released between attempts. An attempt outliving its deadline keeps its
+ * outstanding slot until it returns.
+ * Every attempt passes through a circuit breaker that fails fast while the upstream is unhealthy, and successful attempts
+ * earn budget for the global {@link RetryBudget} that every retry actually taking place draws on.
  */
 @Service
 public class UselessFactsAPIClient
 {
-	private static final String API_URL = "https://uselessfacts.jsph.pl/api/v2/facts/random?language=en";
-
 	private final RestTemplate restTemplate;
 	private final Retry retry;
+	private final CircuitBreaker circuitBreaker;
+	private final RetryBudget retryBudget;
+	private final UpstreamProperties upstreamProperties;
+	private final CoalescingFetcher<UselessFact> coalescingFetcher;
+	private final AsyncRetryExecutor asyncRetryExecutor;
+	private final Executor upstreamExecutor;
+
+	private final Counter upstreamFetchCounter;
+	private final Counter coalescedFetchCounter;
+	private final Counter budgetExhaustedCounter;
 
 	/**
 	 * Constructs a UselessFactsAPIClient with the provided RestTemplate and Retry instance.
 	 *
-	 * @param restTemplate the RestTemplate to use for HTTP requests
-	 * @param retry        the Retry instance to apply retry logic
+	 * @param restTemplate       the RestTemplate to use for HTTP requests
+	 * @param retry              the Retry instance to apply retry logic
+	 * @param circuitBreaker     the CircuitBreaker guarding each upstream attempt
+	 * @param retryBudget        the global retry budget credited by successful attempts and drawn on by retries
+	 * @param upstreamProperties upstream call settings such as the maximum outstanding fetches
+	 * @param upstreamExecutors  executors running asynchronous attempts and retry backoff
+	 * @param meterRegistry      registry exposing upstream, coalesced fetch and denied retry counts
 	 */
-	public UselessFactsAPIClient(RestTemplate restTemplate, Retry retry)
+	public UselessFactsAPIClient(RestTemplate restTemplate, Retry retry, CircuitBreaker circuitBreaker, RetryBudget retryBudget,
+		UpstreamProperties upstreamProperties, UpstreamExecutors upstreamExecutors, MeterRegistry meterRegistry)
 	{
 		this.restTemplate = restTemplate;
 		this.retry = retry;
+		this.circuitBreaker = circuitBreaker;
+		this.retryBudget = retryBudget;
+		this.upstreamProperties = upstreamProperties;
+		this.coalescingFetcher = new CoalescingFetcher<>(upstreamProperties.maxOutstanding());
+		this.asyncRetryExecutor = upstreamProperties.retryMode() == UpstreamProperties.RetryMode.ASYNC
+			? new AsyncRetryExecutor(upstreamExecutors.upstreamExecutor(), upstreamExecutors.backoffScheduler())
+			: null;
+		this.upstreamExecutor = upstreamExecutors.upstreamExecutor();
+		this.upstreamFetchCounter = Counter.builder("factservice.upstream.fetches")
+			.description("Fetches issued against the Useless Facts API, retries included once")
+			.register(meterRegistry);
+		this.coalescedFetchCounter = Counter.builder("factservice.upstream.coalesced")
+			.description("Callers served by sharing the result of an in-flight upstream fetch")
+			.register(meterRegistry);
+		this.budgetExhaustedCounter = Counter.builder("factservice.upstream.retry.budget.exhausted")
+			.description("Retries skipped because the global retry budget was exhausted")
+			.register(meterRegistry);
 	}
 
 	/**
 	 * Fetches a random useless fact from the Useless Facts API.
-	 * Applies retry logic in case of failures.
+	 * Applies retry logic in case of failures. When the maximum of outstanding fetches is reached the caller shares the result
+	 * of an in-flight fetch instead.
 	 *
 	 * @return a {@link UselessFact} record containing the random fact, permalink and id
 	 * @throws RateLimitedException       when encountered HttpClientErrorException.TooManyRequests
 	 * @throws FactServiceClientException when encountered HttpClientErrorException
 	 * @throws FactServiceServerException when encountered HttpServerErrorException
+	 * @throws io.github.resilience4j.circuitbreaker.CallNotPermittedException when the circuit is open
 	 */
 	public UselessFact fetchUselessFact()
 	{
-		return retry.executeSupplier(() -> {
+		return coalescingFetcher.fetch(this::fetchWithRetry, upstreamFetchCounter::increment, coalescedFetchCounter::increment);
+	}
+
+	/**
+	 * Fetches a random useless fact without holding the calling thread during upstream attempts or retry backoff.
+	 * In blocking retry mode the fetch runs on the calling thread and an already completed future is returned.
+	 * In asynchronous mode retries are cut off once the configured deadline cannot fit another attempt.
+	 *
+	 * @return future of a {@link UselessFact} completed exceptionally with the same exceptions as {@link #fetchUselessFact()}
+	 * or a {@link java.util.concurrent.TimeoutException} when the deadline passes during an attempt
+	 */
+	public CompletableFuture<UselessFact> fetchUselessFactAsync()
+	{
+		if (asyncRetryExecutor == null)
+		{
 			try
 			{
-				return restTemplate.getForObject(API_URL, UselessFact.class);
+				return CompletableFuture.completedFuture(fetchUselessFact());
 			}
-			catch (HttpClientErrorException.TooManyRequests e)
+			catch (RuntimeException e)
 			{
-				throw new RateLimitedException("Useless Fact API Rate limit exceeded. Try later please.", e);
+				return CompletableFuture.failedFuture(e);
 			}
-			catch (HttpClientErrorException e)
+		}
+		return coalescingFetcher.fetchAsync(() -> asyncRetryExecutor.execute(this::fetchGuarded, retry.getRetryConfig(), upstreamProperties.deadline(), this::acquireRetry),
+			upstreamFetchCounter::increment, coalescedFetchCounter::increment);
+	}
+
+	/**
+	 * Starts fetching a random useless fact on the upstream executor, so that fetches started one after another by a
+	 * single thread run in parallel in both retry modes.
+	 *
+	 * @return future of a {@link UselessFact} completed as by {@link #fetchUselessFactAsync()}, or exceptionally with a
+	 * {@link RejectedExecutionException} when the upstream executor is saturated
+	 */
+	public CompletableFuture<UselessFact> fetchUselessFactInBackground()
+	{
+		try
+		{
+			return CompletableFuture.supplyAsync(this::fetchUselessFactAsync, upstreamExecutor).thenCompose(Function.identity());
+		}
+		catch (RejectedExecutionException e)
+		{
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	/**
+	 * Fetches a random useless fact from the Useless Facts API applying retry logic.
+	 * A retry is withdrawn from the retry budget only once the failure is retryable and attempts are left, so the last
+	 * attempt and non-retryable failures cost no budget.
+	 *
+	 * @return a {@link UselessFact} record containing the random fact, permalink and id
+	 */
+	private UselessFact fetchWithRetry()
+	{
+		RetryConfig retryConfig = retry.getRetryConfig();
+		Retry.Context<UselessFact> context = retry.context();
+		for (int attempt = 1; ; attempt++)
+		{
+			try
 			{
-				throw new FactServiceClientException("Useless Fact API client error.", e.getStatusCode(), e);
+				UselessFact uselessFact = fetchGuarded();
+				context.onComplete();
+				return uselessFact;
 			}
-			catch (HttpServerErrorException e)
+			catch (RuntimeException e)
 			{
-				throw new FactServiceServerException("Useless Fact API server error", e.getStatusCode(), e);
+				if (attempt < retryConfig.getMaxAttempts() && retryConfig.getExceptionPredicate().test(e) && !acquireRetry())
+				{
+					throw e;
+				}
+				// rethrows when not retryable or out of attempts, otherwise waits for the backoff
+				context.onRuntimeError(e);
 			}
-		});
+		}
+	}
+
+	/**
+	 * Withdraws a retry that is about to happen from the retry budget.
+	 *
+	 * @return true when the retry may proceed, false when the budget is exhausted
+	 */
+	private boolean acquireRetry()
+	{
+		if (retryBudget.tryAcquireRetry())
+		{
+			return true;
+		}
+		budgetExhaustedCounter.increment();
+		return false;
+	}
+
+	/**
+	 * Performs a single fetch attempt through the circuit breaker and credits the retry budget on success.
+	 *
+	 * @return a {@link UselessFact} record containing the random fact, permalink and id
+	 */
+	private UselessFact fetchGuarded()
+	{
+		UselessFact uselessFact = circuitBreaker.executeSupplier(this::fetchOnce);
+		retryBudget.recordSuccess();
+		return uselessFact;
+	}
+
+	/**
+	 * Performs a single fetch attempt and translates http errors into the service's exceptions.
+	 *
+	 * @return a {@link UselessFact} record containing the random fact, permalink and id
+	 */
+	private UselessFact fetchOnce()
+	{
+		try
+		{
+			return restTemplate.getForObject(upstreamProperties.url(), UselessFact.class);
+		}
+		catch (HttpClientErrorException.TooManyRequests e)
+		{
+			throw new RateLimitedException("Useless Fact API Rate limit exceeded. Try later please.", e);
+		}
+		catch (HttpClientErrorException e)
+		{
+			throw new FactServiceClientException("Useless Fact API client error.", e.getStatusCode(), e);
+		}
+		catch (HttpServerErrorException e)
+		{
+			throw new FactServiceServerException("Useless Fact API server error", e.getStatusCode(), e);
+		}
 	}
 }
@@ -0,0 +1,58 @@
+package com.somecompany.factservice.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties of the asynchronous access event pipeline, bound from {@code factservice.access.*}.
+ *
+ * @param enabled       whether redirects publish access events instead of counting synchronously
+ * @param ringCapacity  number of access events the ring buffer holds, a power of two
+ * @param backPressure  {@code drop} discards and counts an event when the ring is full; {@code block} makes the
+ *                      redirect wait for a free slot
+ * @param maxBatch      maximum number of events aggregated and applied as one batch
+ * @param flushInterval time the consumer waits for new events when the ring is empty, bounding how long a single
+ *                      event stays unapplied under light load
+ */
+@ConfigurationProperties(prefix = "factservice.access")
+public record AccessPipelineProperties(@DefaultValue("false") boolean enabled,
+									   @DefaultValue("65536") int ringCapacity,
+									   @DefaultValue("drop") BackPressure backPressure,
+									   @DefaultValue("4096") int maxBatch,
+									   @DefaultValue("10ms") Duration flushInterval)
+{
+	/**
+	 * Validates the ring and batch sizes and the flush interval.
+	 *
+	 * @throws IllegalArgumentException when the ring capacity is not a positive power of two, the batch size is not
+	 *                                  positive or the flush interval is not positive
+	 */
+	public AccessPipelineProperties
+	{
+		if (ringCapacity <= 0 || Integer.bitCount(ringCapacity) != 1 || maxBatch <= 0)
+		{
+			throw new IllegalArgumentException("Access ring capacity must be a power of two and the batch size positive.");
+		}
+		if (flushInterval.isNegative() || flushInterval.isZero())
+		{
+			throw new IllegalArgumentException("Access flush interval must be positive.");
+		}
+	}
+
+	/**
+	 * What a redirect does when the ring is full.
+	 */
+	public enum BackPressure
+	{
+		/**
+		 * Discards the access event and counts it as dropped.
+		 */
+		DROP,
+		/**
+		 * Waits until the consumer frees a slot.
+		 */
+		BLOCK
+	}
+}
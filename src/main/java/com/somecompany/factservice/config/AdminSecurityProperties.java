@@ -0,0 +1,29 @@
+package com.somecompany.factservice.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties of the authentication of admin endpoints, bound from {@code factservice.admin.*}.
+ *
+ * @param credentialCacheTtl time a verified username and password are accepted again without verifying the password
+ *                           against the user store, or zero to verify every request
+ */
+@ConfigurationProperties(prefix = "factservice.admin")
+public record AdminSecurityProperties(@DefaultValue("5m") Duration credentialCacheTtl)
+{
+	/**
+	 * Validates the ttl.
+	 *
+	 * @throws IllegalArgumentException when the ttl is negative
+	 */
+	public AdminSecurityProperties
+	{
+		if (credentialCacheTtl.isNegative())
+		{
+			throw new IllegalArgumentException("Credential cache ttl must not be negative.");
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package com.somecompany.factservice.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties of batch fact requests, {@code POST /facts?count=}, bound from {@code factservice.batch.*}.
+ *
+ * @param maxCount    largest number of facts a single request may ask for
+ * @param parallelism upstream fetches a batch keeps in flight; beyond {@code factservice.upstream.max-outstanding}
+ *                    fetches share results and are repeated, so it should not exceed that
+ * @param timeout     time a batch may take from its start; facts still missing then are left out of the response
+ */
+@ConfigurationProperties(prefix = "factservice.batch")
+public record BatchProperties(@DefaultValue("100") int maxCount, @DefaultValue("4") int parallelism,
+	@DefaultValue("30s") Duration timeout)
+{
+	/**
+	 * Validates the batch settings.
+	 *
+	 * @throws IllegalArgumentException when the max count, the parallelism or the timeout is not positive
+	 */
+	public BatchProperties
+	{
+		if (maxCount <= 0)
+		{
+			throw new IllegalArgumentException("Batch max count must be positive.");
+		}
+		if (parallelism <= 0)
+		{
+			throw new IllegalArgumentException("Batch parallelism must be positive.");
+		}
+		if (timeout.isNegative() || timeout.isZero())
+		{
+			throw new IllegalArgumentException("Batch timeout must be positive.");
+		}
+	}
+}
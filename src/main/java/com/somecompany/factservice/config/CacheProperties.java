@@ -0,0 +1,74 @@
+package com.somecompany.factservice.config;
+
+import java.nio.file.Path;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Configuration properties of the fact cache, bound from {@code factservice.cache.*}.
+ *
+ * @param storage        {@code hash} keeps facts in a map keyed by short url; {@code dense} decodes the short url to its
+ *                       id and keeps facts in a chunked array indexed by that id; {@code off-heap} indexes like
+ *                       {@code dense} but keeps fact text, urls and access counts in direct memory slabs; {@code bounded}
+ *                       keeps a bounded number of facts in a map and spills evicted facts to a file
+ * @param chunkSize      number of slots per chunk of the dense, off-heap and cold tier index, a power of two
+ * @param slabSize       size of each direct memory slab of the off-heap storage, between 1KB and 1GB
+ * @param maximumEntries maximum number of facts the bounded storage keeps in memory
+ * @param maximumWeight  when positive, bounds the bounded storage by the estimated heap bytes of its facts instead
+ * @param coldDirectory  directory of the file the bounded storage spills evicted facts to
+ */
+@ConfigurationProperties(prefix = "factservice.cache")
+public record CacheProperties(@DefaultValue("hash") Storage storage,
+							  @DefaultValue("1024") int chunkSize,
+							  @DefaultValue("64MB") DataSize slabSize,
+							  @DefaultValue("1000000") long maximumEntries,
+							  @DefaultValue("0B") DataSize maximumWeight,
+							  @DefaultValue("data/cold") Path coldDirectory)
+{
+	/**
+	 * Validates the chunk and slab sizes and the bounds.
+	 *
+	 * @throws IllegalArgumentException when the chunk size is not a positive power of two, the slab size is out of range
+	 *                                  or a bound is not positive
+	 */
+	public CacheProperties
+	{
+		if (chunkSize <= 0 || Integer.bitCount(chunkSize) != 1)
+		{
+			throw new IllegalArgumentException("Cache chunk size must be a positive power of two.");
+		}
+		if (slabSize.toBytes() < DataSize.ofKilobytes(1).toBytes() || slabSize.toBytes() > DataSize.ofGigabytes(1).toBytes())
+		{
+			throw new IllegalArgumentException("Off-heap slab size must be between 1KB and 1GB.");
+		}
+		if (maximumEntries <= 0 || maximumWeight.isNegative())
+		{
+			throw new IllegalArgumentException("Cache maximum entries must be positive and maximum weight not negative.");
+		}
+	}
+
+	/**
+	 * Storage layout of the fact cache.
+	 */
+	public enum Storage
+	{
+		/**
+		 * Map keyed by short url.
+		 */
+		HASH,
+		/**
+		 * Chunked array indexed by the decoded short url id.
+		 */
+		DENSE,
+		/**
+		 * Chunked on-heap index of off-heap fact records.
+		 */
+		OFF_HEAP,
+		/**
+		 * Size-bounded map spilling evicted facts to a file.
+		 */
+		BOUNDED
+	}
+}
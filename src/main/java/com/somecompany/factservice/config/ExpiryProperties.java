@@ -0,0 +1,41 @@
+package com.somecompany.factservice.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties of short url expiry, bound from {@code factservice.expiry.*}.
+ *
+ * @param enabled          whether short urls expire
+ * @param ttl              time a short url lives after it was issued, or after its last access when {@code sliding}
+ * @param sliding          whether every redirect extends the short url by another {@code ttl}
+ * @param tick             resolution of the timing wheel and interval of removing expired short urls
+ * @param maxBatchRemovals maximum number of short urls removed per tick; the rest is removed on the following ticks
+ */
+@ConfigurationProperties(prefix = "factservice.expiry")
+public record ExpiryProperties(@DefaultValue("false") boolean enabled,
+							   @DefaultValue("7d") Duration ttl,
+							   @DefaultValue("false") boolean sliding,
+							   @DefaultValue("1s") Duration tick,
+							   @DefaultValue("10000") int maxBatchRemovals)
+{
+	/**
+	 * Validates the durations and the batch size.
+	 *
+	 * @throws IllegalArgumentException when the tick, the ttl or the batch size is not positive, or the ttl is shorter
+	 *                                  than one tick
+	 */
+	public ExpiryProperties
+	{
+		if (tick.isNegative() || tick.isZero() || ttl.compareTo(tick) < 0)
+		{
+			throw new IllegalArgumentException("Expiry tick must be positive and the ttl at least one tick.");
+		}
+		if (maxBatchRemovals <= 0)
+		{
+			throw new IllegalArgumentException("Expiry batch size must be positive.");
+		}
+	}
+}
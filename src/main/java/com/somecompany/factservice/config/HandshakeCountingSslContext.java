@@ -0,0 +1,329 @@
+package com.somecompany.factservice.config;
+
+import java.nio.ByteBuffer;
+import java.security.KeyManagementException;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLContextSpi;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+
+import io.micrometer.core.instrument.Counter;
+
+/**
+ * SSL context for the JDK HttpClient counting every completed handshake of a newly opened connection, the JDK counterpart
+ * of {@link RestTemplateConfig.HandshakeCountingTlsStrategy}. The JDK client drives TLS through {@link SSLEngine}s, so the
+ * context hands out engines that count the first handshake they finish; failed handshakes are not counted.
+ */
+class HandshakeCountingSslContext extends SSLContext
+{
+	/**
+	 * Constructs the context.
+	 *
+	 * @param delegate         initialised context creating the engines
+	 * @param handshakeCounter counter incremented per completed handshake
+	 */
+	HandshakeCountingSslContext(SSLContext delegate, Counter handshakeCounter)
+	{
+		super(new CountingSpi(delegate, handshakeCounter), delegate.getProvider(), delegate.getProtocol());
+	}
+
+	/**
+	 * Service provider delegating to the wrapped context and wrapping its engines.
+	 */
+	private static class CountingSpi extends SSLContextSpi
+	{
+		private final SSLContext delegate;
+		private final Counter handshakeCounter;
+
+		CountingSpi(SSLContext delegate, Counter handshakeCounter)
+		{
+			this.delegate = delegate;
+			this.handshakeCounter = handshakeCounter;
+		}
+
+		@Override
+		protected void engineInit(KeyManager[] keyManagers, TrustManager[] trustManagers, SecureRandom secureRandom) throws KeyManagementException
+		{
+			delegate.init(keyManagers, trustManagers, secureRandom);
+		}
+
+		@Override
+		protected SSLSocketFactory engineGetSocketFactory()
+		{
+			return delegate.getSocketFactory();
+		}
+
+		@Override
+		protected SSLServerSocketFactory engineGetServerSocketFactory()
+		{
+			return delegate.getServerSocketFactory();
+		}
+
+		@Override
+		protected SSLEngine engineCreateSSLEngine()
+		{
+			return new CountingEngine(delegate.createSSLEngine(), handshakeCounter);
+		}
+
+		@Override
+		protected SSLEngine engineCreateSSLEngine(String host, int port)
+		{
+			return new CountingEngine(delegate.createSSLEngine(host, port), handshakeCounter);
+		}
+
+		@Override
+		protected SSLSessionContext engineGetServerSessionContext()
+		{
+			return delegate.getServerSessionContext();
+		}
+
+		@Override
+		protected SSLSessionContext engineGetClientSessionContext()
+		{
+			return delegate.getClientSessionContext();
+		}
+
+		@Override
+		protected SSLParameters engineGetDefaultSSLParameters()
+		{
+			return delegate.getDefaultSSLParameters();
+		}
+
+		@Override
+		protected SSLParameters engineGetSupportedSSLParameters()
+		{
+			return delegate.getSupportedSSLParameters();
+		}
+	}
+
+	/**
+	 * Engine delegating to the wrapped engine and counting its handshake once wrap or unwrap reports it finished.
+	 */
+	private static class CountingEngine extends SSLEngine
+	{
+		private final SSLEngine delegate;
+		private final Counter handshakeCounter;
+		private final AtomicBoolean counted = new AtomicBoolean();
+
+		CountingEngine(SSLEngine delegate, Counter handshakeCounter)
+		{
+			super(delegate.getPeerHost(), delegate.getPeerPort());
+			this.delegate = delegate;
+			this.handshakeCounter = handshakeCounter;
+		}
+
+		/**
+		 * Counts the handshake the first time an operation reports it finished.
+		 *
+		 * @param result result of wrap or unwrap
+		 * @return the result
+		 */
+		private SSLEngineResult count(SSLEngineResult result)
+		{
+			if (result.getHandshakeStatus() == SSLEngineResult.HandshakeStatus.FINISHED && counted.compareAndSet(false, true))
+			{
+				handshakeCounter.increment();
+			}
+			return result;
+		}
+
+		@Override
+		public SSLEngineResult wrap(ByteBuffer[] sources, int offset, int length, ByteBuffer destination) throws SSLException
+		{
+			return count(delegate.wrap(sources, offset, length, destination));
+		}
+
+		@Override
+		public SSLEngineResult unwrap(ByteBuffer source, ByteBuffer[] destinations, int offset, int length) throws SSLException
+		{
+			return count(delegate.unwrap(source, destinations, offset, length));
+		}
+
+		@Override
+		public Runnable getDelegatedTask()
+		{
+			return delegate.getDelegatedTask();
+		}
+
+		@Override
+		public void closeInbound() throws SSLException
+		{
+			delegate.closeInbound();
+		}
+
+		@Override
+		public boolean isInboundDone()
+		{
+			return delegate.isInboundDone();
+		}
+
+		@Override
+		public void closeOutbound()
+		{
+			delegate.closeOutbound();
+		}
+
+		@Override
+		public boolean isOutboundDone()
+		{
+			return delegate.isOutboundDone();
+		}
+
+		@Override
+		public String[] getSupportedCipherSuites()
+		{
+			return delegate.getSupportedCipherSuites();
+		}
+
+		@Override
+		public String[] getEnabledCipherSuites()
+		{
+			return delegate.getEnabledCipherSuites();
+		}
+
+		@Override
+		public void setEnabledCipherSuites(String[] suites)
+		{
+			delegate.setEnabledCipherSuites(suites);
+		}
+
+		@Override
+		public String[] getSupportedProtocols()
+		{
+			return delegate.getSupportedProtocols();
+		}
+
+		@Override
+		public String[] getEnabledProtocols()
+		{
+			return delegate.getEnabledProtocols();
+		}
+
+		@Override
+		public void setEnabledProtocols(String[] protocols)
+		{
+			delegate.setEnabledProtocols(protocols);
+		}
+
+		@Override
+		public SSLSession getSession()
+		{
+			return delegate.getSession();
+		}
+
+		@Override
+		public SSLSession getHandshakeSession()
+		{
+			return delegate.getHandshakeSession();
+		}
+
+		@Override
+		public void beginHandshake() throws SSLException
+		{
+			delegate.beginHandshake();
+		}
+
+		@Override
+		public SSLEngineResult.HandshakeStatus getHandshakeStatus()
+		{
+			return delegate.getHandshakeStatus();
+		}
+
+		@Override
+		public void setUseClientMode(boolean mode)
+		{
+			delegate.setUseClientMode(mode);
+		}
+
+		@Override
+		public boolean getUseClientMode()
+		{
+			return delegate.getUseClientMode();
+		}
+
+		@Override
+		public void setNeedClientAuth(boolean need)
+		{
+			delegate.setNeedClientAuth(need);
+		}
+
+		@Override
+		public boolean getNeedClientAuth()
+		{
+			return delegate.getNeedClientAuth();
+		}
+
+		@Override
+		public void setWantClientAuth(boolean want)
+		{
+			delegate.setWantClientAuth(want);
+		}
+
+		@Override
+		public boolean getWantClientAuth()
+		{
+			return delegate.getWantClientAuth();
+		}
+
+		@Override
+		public void setEnableSessionCreation(boolean flag)
+		{
+			delegate.setEnableSessionCreation(flag);
+		}
+
+		@Override
+		public boolean getEnableSessionCreation()
+		{
+			return delegate.getEnableSessionCreation();
+		}
+
+		@Override
+		public SSLParameters getSSLParameters()
+		{
+			return delegate.getSSLParameters();
+		}
+
+		@Override
+		public void setSSLParameters(SSLParameters parameters)
+		{
+			delegate.setSSLParameters(parameters);
+		}
+
+		@Override
+		public String getApplicationProtocol()
+		{
+			return delegate.getApplicationProtocol();
+		}
+
+		@Override
+		public String getHandshakeApplicationProtocol()
+		{
+			return delegate.getHandshakeApplicationProtocol();
+		}
+
+		@Override
+		public void setHandshakeApplicationProtocolSelector(BiFunction<SSLEngine, List<String>, String> selector)
+		{
+			delegate.setHandshakeApplicationProtocolSelector(selector);
+		}
+
+		@Override
+		public BiFunction<SSLEngine, List<String>, String> getHandshakeApplicationProtocolSelector()
+		{
+			return delegate.getHandshakeApplicationProtocolSelector();
+		}
+	}
+}
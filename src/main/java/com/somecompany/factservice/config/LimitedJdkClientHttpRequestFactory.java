@@ -0,0 +1,218 @@
+package com.somecompany.factservice.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+/**
+ * JDK HttpClient request factory limiting the requests in flight, the JDK counterpart of the Apache pool limit. The JDK
+ * client manages its connections internally and multiplexes HTTP/2 streams, so the limit applies to exchanges rather than
+ * connections: a request takes a permit before it is sent, waits at most the acquire timeout for one, and returns it when
+ * its response is closed or the exchange fails.
+ */
+class LimitedJdkClientHttpRequestFactory extends JdkClientHttpRequestFactory
+{
+	private final int maxRequests;
+	private final Semaphore permits;
+	private final Duration acquireTimeout;
+
+	/**
+	 * Constructs the factory.
+	 *
+	 * @param httpClient     the JDK client sending the requests
+	 * @param maxRequests    maximum number of requests in flight
+	 * @param acquireTimeout time to wait for a free permit
+	 */
+	LimitedJdkClientHttpRequestFactory(HttpClient httpClient, int maxRequests, Duration acquireTimeout)
+	{
+		super(httpClient);
+		this.maxRequests = maxRequests;
+		this.permits = new Semaphore(maxRequests);
+		this.acquireTimeout = acquireTimeout;
+	}
+
+	/**
+	 * Creates a request taking a permit when it is executed.
+	 *
+	 * @param uri        the request URI
+	 * @param httpMethod the request method
+	 * @return the request
+	 * @throws IOException when creating the request fails
+	 */
+	@Override
+	public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException
+	{
+		return new LimitedRequest(super.createRequest(uri, httpMethod));
+	}
+
+	/**
+	 * @return number of requests in flight
+	 */
+	int getLeased()
+	{
+		return maxRequests - permits.availablePermits();
+	}
+
+	/**
+	 * @return number of free permits
+	 */
+	int getAvailable()
+	{
+		return permits.availablePermits();
+	}
+
+	/**
+	 * @return estimated number of requests waiting for a permit
+	 */
+	int getPending()
+	{
+		return permits.getQueueLength();
+	}
+
+	/**
+	 * @return maximum number of requests in flight
+	 */
+	int getMax()
+	{
+		return maxRequests;
+	}
+
+	/**
+	 * Request delegating to the JDK client request once it holds a permit.
+	 */
+	private class LimitedRequest implements ClientHttpRequest
+	{
+		private final ClientHttpRequest delegate;
+
+		LimitedRequest(ClientHttpRequest delegate)
+		{
+			this.delegate = delegate;
+		}
+
+		@Override
+		public HttpMethod getMethod()
+		{
+			return delegate.getMethod();
+		}
+
+		@Override
+		public URI getURI()
+		{
+			return delegate.getURI();
+		}
+
+		@Override
+		public HttpHeaders getHeaders()
+		{
+			return delegate.getHeaders();
+		}
+
+		@Override
+		public OutputStream getBody() throws IOException
+		{
+			return delegate.getBody();
+		}
+
+		/**
+		 * Takes a permit and executes the request; the permit is returned with the response or on failure.
+		 *
+		 * @return the response releasing the permit when closed
+		 * @throws IOException when no permit frees up within the acquire timeout or the exchange fails
+		 */
+		@Override
+		public ClientHttpResponse execute() throws IOException
+		{
+			try
+			{
+				if (!permits.tryAcquire(acquireTimeout.toNanos(), TimeUnit.NANOSECONDS))
+				{
+					throw new ConnectionRequestTimeoutException("Timeout waiting for a free request permit after %s".formatted(acquireTimeout));
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a free request permit");
+			}
+
+			try
+			{
+				return new PermitReleasingResponse(delegate.execute());
+			}
+			catch (IOException | RuntimeException e)
+			{
+				permits.release();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Response returning the permit of its request once, when it is closed.
+	 */
+	private class PermitReleasingResponse implements ClientHttpResponse
+	{
+		private final ClientHttpResponse delegate;
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		PermitReleasingResponse(ClientHttpResponse delegate)
+		{
+			this.delegate = delegate;
+		}
+
+		@Override
+		public HttpStatusCode getStatusCode() throws IOException
+		{
+			return delegate.getStatusCode();
+		}
+
+		@Override
+		public String getStatusText() throws IOException
+		{
+			return delegate.getStatusText();
+		}
+
+		@Override
+		public HttpHeaders getHeaders()
+		{
+			return delegate.getHeaders();
+		}
+
+		@Override
+		public InputStream getBody() throws IOException
+		{
+			return delegate.getBody();
+		}
+
+		@Override
+		public void close()
+		{
+			try
+			{
+				delegate.close();
+			}
+			finally
+			{
+				if (released.compareAndSet(false, true))
+				{
+					permits.release();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package com.somecompany.factservice.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties of the outbound HTTP client used for remote API calls, bound from {@code factservice.http-client.*}.
+ *
+ * @param type               client implementation backing the RestTemplate
+ * @param maxConnections     maximum number of pooled connections in total (apache) or of requests in flight (jdk)
+ * @param maxPerRoute        maximum number of pooled connections per route (apache only)
+ * @param connectTimeout     timeout for establishing a connection, TLS handshake included
+ * @param readTimeout        socket inactivity timeout while waiting for or reading the response (apache only)
+ * @param totalTimeout       timeout of a whole request, redirects and client retries included, until response headers are received
+ * @param poolAcquireTimeout time to wait for a free pooled connection (apache) or request permit (jdk)
+ * @param idleTimeout        time after which idle keep-alive connections are evicted (apache only)
+ */
+@ConfigurationProperties(prefix = "factservice.http-client")
+public record OutboundHttpProperties(@DefaultValue("apache") ClientType type,
+									 @DefaultValue("50") int maxConnections,
+									 @DefaultValue("20") int maxPerRoute,
+									 @DefaultValue("2s") Duration connectTimeout,
+									 @DefaultValue("5s") Duration readTimeout,
+									 @DefaultValue("8s") Duration totalTimeout,
+									 @DefaultValue("1s") Duration poolAcquireTimeout,
+									 @DefaultValue("30s") Duration idleTimeout)
+{
+	/**
+	 * Outbound HTTP client implementations.
+	 */
+	public enum ClientType
+	{
+		/**
+		 * Apache HttpClient 5 with a pool of HTTP/1.1 keep-alive connections, per-route limits and idle eviction.
+		 */
+		APACHE,
+		/**
+		 * JDK HttpClient negotiating HTTP/2 via ALPN where the server supports it, multiplexing requests over one connection.
+		 */
+		JDK
+	}
+}
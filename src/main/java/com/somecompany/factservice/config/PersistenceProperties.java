@@ -0,0 +1,63 @@
+package com.somecompany.factservice.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties of the write-ahead log and snapshots, bound from {@code factservice.persistence.*}.
+ *
+ * @param enabled          whether mappings and access counts are logged and recovered on startup
+ * @param directory        directory holding log segments and snapshots
+ * @param fsync            {@code batch} forces every group-committed batch to disk before new mappings are answered;
+ *                         {@code interval} forces at most once per {@code fsyncInterval} and may lose that much on a
+ *                         crash
+ * @param fsyncInterval    maximum time between forced writes in {@code interval} mode
+ * @param maxBatchRecords  maximum number of records written as one batch
+ * @param queueCapacity    records waiting for the log writer before access records are dropped and other
+ *                         appending callers block
+ * @param snapshotInterval interval of compacting the log into a snapshot
+ */
+@ConfigurationProperties(prefix = "factservice.persistence")
+public record PersistenceProperties(@DefaultValue("false") boolean enabled,
+									@DefaultValue("data") Path directory,
+									@DefaultValue("batch") Fsync fsync,
+									@DefaultValue("1s") Duration fsyncInterval,
+									@DefaultValue("1024") int maxBatchRecords,
+									@DefaultValue("65536") int queueCapacity,
+									@DefaultValue("5m") Duration snapshotInterval)
+{
+	/**
+	 * Validates the batching and timing settings.
+	 *
+	 * @throws IllegalArgumentException when batch size, queue capacity or one of the intervals is not positive
+	 */
+	public PersistenceProperties
+	{
+		if (maxBatchRecords <= 0 || queueCapacity <= 0)
+		{
+			throw new IllegalArgumentException("Persistence batch size and queue capacity must be positive.");
+		}
+		if (fsyncInterval.isNegative() || fsyncInterval.isZero() || snapshotInterval.isNegative() || snapshotInterval.isZero())
+		{
+			throw new IllegalArgumentException("Persistence fsync and snapshot intervals must be positive.");
+		}
+	}
+
+	/**
+	 * When the write-ahead log is forced to disk.
+	 */
+	public enum Fsync
+	{
+		/**
+		 * After every batch.
+		 */
+		BATCH,
+		/**
+		 * At most once per interval.
+		 */
+		INTERVAL
+	}
+}
@@ -0,0 +1,45 @@
+package com.somecompany.factservice.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties for the background fact prefetch pool, bound from {@code factservice.prefetch.*}.
+ * <p>
+ * The refiller tops the pool up to the high watermark whenever the depth drops below the low watermark.
+ * </p>
+ *
+ * @param enabled        whether the prefetch pool is active; when disabled every request fetches synchronously
+ * @param capacity       hard upper bound of prefetched entries held in memory
+ * @param lowWatermark   depth below which a refill is triggered
+ * @param highWatermark  depth the refiller tops the pool up to
+ * @param batchSize      number of upstream fetches performed per refill batch
+ * @param refillInterval interval of the periodic watermark check
+ */
+@ConfigurationProperties(prefix = "factservice.prefetch")
+public record PrefetchProperties(@DefaultValue("false") boolean enabled,
+								 @DefaultValue("64") int capacity,
+								 @DefaultValue("16") int lowWatermark,
+								 @DefaultValue("48") int highWatermark,
+								 @DefaultValue("8") int batchSize,
+								 @DefaultValue("500ms") Duration refillInterval)
+{
+	/**
+	 * Validates the watermark settings.
+	 *
+	 * @throws IllegalArgumentException when the watermarks do not satisfy {@code 0 <= low < high <= capacity}
+	 */
+	public PrefetchProperties
+	{
+		if (capacity <= 0 || lowWatermark < 0 || lowWatermark >= highWatermark || highWatermark > capacity)
+		{
+			throw new IllegalArgumentException("Invalid prefetch watermarks, expected 0 <= low < high <= capacity.");
+		}
+		if (batchSize <= 0)
+		{
+			throw new IllegalArgumentException("Prefetch batch size must be positive.");
+		}
+	}
+}
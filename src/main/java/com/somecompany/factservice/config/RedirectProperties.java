@@ -0,0 +1,49 @@
+package com.somecompany.factservice.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties of the redirects of short urls, bound from {@code factservice.redirect.*}.
+ *
+ * @param caching       {@code no_store} keeps browsers and shared caches from storing redirects, so that every access
+ *                      reaches the service and is counted; {@code max_age} lets them reuse a redirect for
+ *                      {@code max-age}, counting only the accesses that reach the service
+ * @param maxAge        time browsers and shared caches reuse a redirect with {@code max_age} caching
+ * @param beaconEnabled whether accesses served from caches can be reported to {@code POST /facts/{shortenedUrl}/beacon}
+ */
+@ConfigurationProperties(prefix = "factservice.redirect")
+public record RedirectProperties(@DefaultValue("no_store") Caching caching,
+								 @DefaultValue("1h") Duration maxAge,
+								 @DefaultValue("false") boolean beaconEnabled)
+{
+	/**
+	 * Validates the max age.
+	 *
+	 * @throws IllegalArgumentException when the max age is negative
+	 */
+	public RedirectProperties
+	{
+		if (maxAge.isNegative())
+		{
+			throw new IllegalArgumentException("Redirect max age must not be negative.");
+		}
+	}
+
+	/**
+	 * Caching of redirects by browsers and shared caches.
+	 */
+	public enum Caching
+	{
+		/**
+		 * Redirects are never stored, every access is counted.
+		 */
+		NO_STORE,
+		/**
+		 * Redirects are reused for the max age, accesses served from caches are not counted.
+		 */
+		MAX_AGE
+	}
+}
@@ -1,11 +1,39 @@
 package com.somecompany.factservice.config;
 
+import java.io.IOException;
+import java.net.Socket;
+import java.net.http.HttpClient;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.function.ToIntFunction;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.client5.http.ssl.TlsSocketStrategy;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
 /**
- * Configuration class that provides a bean of default RestTemplate for remote API calls.
+ * Configuration class that provides a bean of RestTemplate for remote API calls.
+ * The RestTemplate is backed by a pooled, keep-alive Apache HttpClient or by the HTTP/2 capable JDK HttpClient,
+ * both with connection limits, a total timeout and the same client metrics taken from {@link OutboundHttpProperties}.
  */
 @Configuration
 public class RestTemplateConfig
@@ -13,11 +41,187 @@ public class RestTemplateConfig
 	/**
 	 * Bean definition constructing RestTemplate.
 	 *
-	 * @return a RestTemplate instance with default configuration
+	 * @param properties    outbound client settings
+	 * @param meterRegistry registry exposing connection pool utilisation and TLS handshake counts
+	 * @return a RestTemplate instance backed by the configured client
 	 */
 	@Bean
-	public RestTemplate restTemplate()
+	public RestTemplate restTemplate(OutboundHttpProperties properties, MeterRegistry meterRegistry)
+	{
+		ClientHttpRequestFactory requestFactory = switch (properties.type())
+		{
+			case APACHE -> apacheRequestFactory(properties, meterRegistry);
+			case JDK -> jdkRequestFactory(properties, meterRegistry);
+		};
+		return new RestTemplate(requestFactory);
+	}
+
+	/**
+	 * Creates a request factory backed by Apache HttpClient 5 with a connection pool. The pool bounds each read by the read
+	 * timeout, and an exec chain handler bounds the whole request, retries and redirects included, by the total timeout.
+	 *
+	 * @param properties    outbound client settings
+	 * @param meterRegistry registry exposing pool and handshake metrics
+	 * @return request factory
+	 */
+	private static ClientHttpRequestFactory apacheRequestFactory(OutboundHttpProperties properties, MeterRegistry meterRegistry)
+	{
+		PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+			.setMaxConnTotal(properties.maxConnections())
+			.setMaxConnPerRoute(properties.maxPerRoute())
+			.setDefaultConnectionConfig(ConnectionConfig.custom()
+				.setConnectTimeout(Timeout.of(properties.connectTimeout()))
+				.setSocketTimeout(Timeout.of(properties.readTimeout()))
+				.setValidateAfterInactivity(TimeValue.ofSeconds(2))
+				.build())
+			.setTlsSocketStrategy(new HandshakeCountingTlsStrategy(handshakeCounter(meterRegistry)))
+			.build();
+		registerPoolGauges(meterRegistry, connectionManager, manager -> manager.getTotalStats().getLeased(),
+			manager -> manager.getTotalStats().getAvailable(), manager -> manager.getTotalStats().getPending(),
+			manager -> manager.getTotalStats().getMax());
+
+		var deadlineScheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "http-client-deadline");
+			thread.setDaemon(true);
+			return thread;
+		});
+		deadlineScheduler.setRemoveOnCancelPolicy(true);
+
+		var httpClient = HttpClients.custom()
+			.setConnectionManager(connectionManager)
+			.setDefaultRequestConfig(RequestConfig.custom()
+				.setConnectionRequestTimeout(Timeout.of(properties.poolAcquireTimeout()))
+				.setResponseTimeout(Timeout.of(properties.readTimeout()))
+				.build())
+			.addExecInterceptorFirst("total-timeout", new TotalTimeoutExecHandler(properties.totalTimeout(), deadlineScheduler))
+			.evictExpiredConnections()
+			.evictIdleConnections(TimeValue.of(properties.idleTimeout()))
+			.build();
+		return new HttpComponentsClientHttpRequestFactory(httpClient);
+	}
+
+	/**
+	 * Creates a request factory backed by the JDK HttpClient preferring HTTP/2. The JDK client pools its connections
+	 * internally, so {@code max-connections} bounds the requests in flight instead.
+	 *
+	 * @param properties    outbound client settings
+	 * @param meterRegistry registry exposing request limit and handshake metrics
+	 * @return request factory
+	 */
+	private static ClientHttpRequestFactory jdkRequestFactory(OutboundHttpProperties properties, MeterRegistry meterRegistry)
 	{
-		return new RestTemplate();
+		HttpClient httpClient = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_2)
+			.connectTimeout(properties.connectTimeout())
+			.sslContext(new HandshakeCountingSslContext(SSLContexts.createSystemDefault(), handshakeCounter(meterRegistry)))
+			.build();
+		var requestFactory = new LimitedJdkClientHttpRequestFactory(httpClient, properties.maxConnections(), properties.poolAcquireTimeout());
+		requestFactory.setReadTimeout(properties.totalTimeout());
+		registerPoolGauges(meterRegistry, requestFactory, LimitedJdkClientHttpRequestFactory::getLeased,
+			LimitedJdkClientHttpRequestFactory::getAvailable, LimitedJdkClientHttpRequestFactory::getPending,
+			LimitedJdkClientHttpRequestFactory::getMax);
+		return requestFactory;
+	}
+
+	/**
+	 * Registers the counter of completed TLS handshakes.
+	 *
+	 * @param meterRegistry registry to register with
+	 * @return the counter
+	 */
+	private static Counter handshakeCounter(MeterRegistry meterRegistry)
+	{
+		return Counter.builder("factservice.http.client.tls.handshakes")
+			.description("TLS handshakes completed for new outbound connections")
+			.register(meterRegistry);
+	}
+
+	/**
+	 * Registers the gauges reporting the utilisation of the client's connections, tagged by state.
+	 *
+	 * @param meterRegistry registry to register with
+	 * @param source        connection pool or request limit of the client
+	 * @param leased        connections or requests in use
+	 * @param available     idle connections or free permits
+	 * @param pending       requests waiting for a connection or permit
+	 * @param max           limit of connections or requests
+	 * @param <T>           type of the source
+	 */
+	private static <T> void registerPoolGauges(MeterRegistry meterRegistry, T source, ToIntFunction<T> leased, ToIntFunction<T> available,
+		ToIntFunction<T> pending, ToIntFunction<T> max)
+	{
+		registerPoolGauge(meterRegistry, source, "leased", leased);
+		registerPoolGauge(meterRegistry, source, "available", available);
+		registerPoolGauge(meterRegistry, source, "pending", pending);
+		registerPoolGauge(meterRegistry, source, "max", max);
+	}
+
+	/**
+	 * Registers a gauge reporting one figure of the client's connection utilisation.
+	 *
+	 * @param meterRegistry registry to register with
+	 * @param source        connection pool or request limit of the client
+	 * @param state         value of the state tag
+	 * @param function      extracts the figure from the source
+	 * @param <T>           type of the source
+	 */
+	private static <T> void registerPoolGauge(MeterRegistry meterRegistry, T source, String state, ToIntFunction<T> function)
+	{
+		Gauge.builder("factservice.http.client.pool.connections", source, function::applyAsInt)
+			.description("Outbound connection pool utilisation")
+			.tag("state", state)
+			.register(meterRegistry);
+	}
+
+	/**
+	 * TLS strategy counting every completed handshake of a newly opened connection; failed handshakes are not counted.
+	 * Reused keep-alive connections do not reach this strategy. The handshake itself, hostname verification included, is
+	 * left to {@link DefaultClientTlsStrategy}.
+	 */
+	static class HandshakeCountingTlsStrategy implements TlsSocketStrategy
+	{
+		private final TlsSocketStrategy delegate;
+		private final Counter handshakeCounter;
+
+		/**
+		 * Constructs the strategy with the system default SSL context.
+		 *
+		 * @param handshakeCounter counter incremented per completed handshake
+		 */
+		HandshakeCountingTlsStrategy(Counter handshakeCounter)
+		{
+			this(SSLContexts.createSystemDefault(), handshakeCounter);
+		}
+
+		/**
+		 * Constructs the strategy with the given SSL context and default hostname verification.
+		 *
+		 * @param sslContext       context creating the TLS sockets
+		 * @param handshakeCounter counter incremented per completed handshake
+		 */
+		HandshakeCountingTlsStrategy(SSLContext sslContext, Counter handshakeCounter)
+		{
+			this.delegate = new DefaultClientTlsStrategy(sslContext);
+			this.handshakeCounter = handshakeCounter;
+		}
+
+		/**
+		 * Upgrades the connection to TLS and counts the handshake once it completed.
+		 *
+		 * @param socket     the plain socket
+		 * @param target     the target host name
+		 * @param port       the target port
+		 * @param attachment the connection attachment
+		 * @param context    the http context
+		 * @return the TLS socket
+		 * @throws IOException when the handshake or hostname verification fails
+		 */
+		@Override
+		public SSLSocket upgrade(Socket socket, String target, int port, Object attachment, HttpContext context) throws IOException
+		{
+			SSLSocket sslSocket = delegate.upgrade(socket, target, port, attachment, context);
+			handshakeCounter.increment();
+			return sslSocket;
+		}
 	}
 }
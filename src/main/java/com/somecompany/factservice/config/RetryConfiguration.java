@@ -1,26 +1,67 @@
 package com.somecompany.factservice.config;
 
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.somecompany.factservice.client.RetryBudget;
+import com.somecompany.factservice.exception.FactServiceClientException;
+import com.somecompany.factservice.exception.FactServiceServerException;
+import com.somecompany.factservice.exception.RateLimitedException;
 
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
 import io.github.resilience4j.retry.Retry;
 import io.github.resilience4j.retry.RetryConfig;
 import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
- * Configuration class that provides a bean for wrapping and executing retry logic.
- * Resilience4j retry mechanism is configured.
+ * Configuration class that provides beans for wrapping and executing retry and circuit breaker logic.
+ * Resilience4j retry and circuit breaker mechanisms are configured, and retries are capped by a global {@link RetryBudget}
+ * the client withdraws from.
  */
 @Configuration
 public class RetryConfiguration
 {
+	private static final Logger logger = LoggerFactory.getLogger(RetryConfiguration.class);
+
 	private static final int MAX_ATTEMPTS = 5;
 	private static final int EXP_BACKOFF_MULTIPLIER = 2;
 	private static final int EXP_BACKOFF_INTERVAL_MILLIS = 2000;
 
+	/**
+	 * Global retry budget shared by all upstream calls.
+	 *
+	 * @param upstreamProperties upstream settings holding the budget ratio and window
+	 * @param meterRegistry      registry exposing the remaining budget
+	 * @return RetryBudget bean
+	 */
+	@Bean
+	public RetryBudget retryBudget(UpstreamProperties upstreamProperties, MeterRegistry meterRegistry)
+	{
+		UpstreamProperties.RetryBudgetSettings settings = upstreamProperties.retryBudget();
+		var retryBudget = new RetryBudget(settings.ratio(), settings.minRetriesPerSecond(), settings.window());
+		Gauge.builder("factservice.upstream.retry.budget.available", retryBudget, RetryBudget::available)
+			.description("Retries left in the global upstream retry budget")
+			.register(meterRegistry);
+		return retryBudget;
+	}
+
 	/**
 	 * RetryRegistry instance bean definition with exponential backoff strategy.
+	 * Client errors other than rate limiting and calls rejected by the open circuit are not retried. The predicate only
+	 * classifies failures; the client withdraws from the retry budget once a retry is actually going to happen.
 	 *
 	 * @return RetryRegistry bean with given configuration settings
 	 */
@@ -30,6 +71,7 @@ public class RetryConfiguration
 		RetryConfig retryConfig = RetryConfig.custom()
 			.maxAttempts(MAX_ATTEMPTS)
 			.intervalFunction(IntervalFunction.ofExponentialBackoff(EXP_BACKOFF_INTERVAL_MILLIS, EXP_BACKOFF_MULTIPLIER))
+			.retryOnException(throwable -> !(throwable instanceof CallNotPermittedException || throwable instanceof FactServiceClientException))
 			.build();
 		return RetryRegistry.of(retryConfig);
 	}
@@ -45,4 +87,60 @@ public class RetryConfiguration
 	{
 		return registry.retry("Backoff Retry");
 	}
+
+	/**
+	 * CircuitBreakerRegistry bean definition with a count based sliding window.
+	 * Upstream server errors, rate limiting, I/O errors and timeouts count as failures; other client errors are ignored.
+	 *
+	 * @param upstreamProperties upstream settings holding the circuit breaker thresholds
+	 * @param meterRegistry      registry the circuit breaker state and call metrics are bound to
+	 * @return CircuitBreakerRegistry bean with given configuration settings
+	 */
+	@Bean
+	public CircuitBreakerRegistry circuitBreakerRegistry(UpstreamProperties upstreamProperties, MeterRegistry meterRegistry)
+	{
+		UpstreamProperties.CircuitBreakerSettings settings = upstreamProperties.circuitBreaker();
+		CircuitBreakerConfig circuitBreakerConfig = CircuitBreakerConfig.custom()
+			.slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+			.slidingWindowSize(settings.slidingWindowSize())
+			.minimumNumberOfCalls(settings.minimumNumberOfCalls())
+			.failureRateThreshold(settings.failureRateThreshold())
+			.waitDurationInOpenState(settings.waitDurationInOpenState())
+			.permittedNumberOfCallsInHalfOpenState(settings.permittedCallsInHalfOpen())
+			.automaticTransitionFromOpenToHalfOpenEnabled(false)
+			.recordExceptions(FactServiceServerException.class, RateLimitedException.class, ResourceAccessException.class, TimeoutException.class)
+			.build();
+		CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(circuitBreakerConfig);
+		TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+		return registry;
+	}
+
+	/**
+	 * CircuitBreaker instance guarding the Useless Facts API.
+	 * State transitions and rejected calls are logged and counted.
+	 *
+	 * @param registry      CircuitBreakerRegistry instance pre-configured with settings
+	 * @param meterRegistry registry exposing state transitions and rejected calls
+	 * @return CircuitBreaker instance for wrapping upstream calls
+	 */
+	@Bean
+	public CircuitBreaker circuitBreaker(CircuitBreakerRegistry registry, MeterRegistry meterRegistry)
+	{
+		CircuitBreaker circuitBreaker = registry.circuitBreaker("uselessFactsApi");
+		Counter rejectedCounter = Counter.builder("factservice.upstream.circuitbreaker.rejected")
+			.description("Upstream calls rejected because the circuit was open")
+			.register(meterRegistry);
+		circuitBreaker.getEventPublisher()
+			.onStateTransition(event -> {
+				logger.warn("Upstream circuit breaker transition: %s".formatted(event.getStateTransition()));
+				Counter.builder("factservice.upstream.circuitbreaker.transitions")
+					.description("Upstream circuit breaker state transitions")
+					.tag("from", event.getStateTransition().getFromState().name())
+					.tag("to", event.getStateTransition().getToState().name())
+					.register(meterRegistry)
+					.increment();
+			})
+			.onCallNotPermitted(event -> rejectedCounter.increment());
+		return circuitBreaker;
+	}
 }
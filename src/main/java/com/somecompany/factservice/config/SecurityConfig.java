@@ -2,36 +2,93 @@ package com.somecompany.factservice.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.SecurityFilterChain;
 
+import com.somecompany.factservice.security.CachingAuthenticationProvider;
+
 /**
  * Security configuration for the application.
  * Spring Security's web security support and integration with Spring MVC is enabled.
+ * <p>
+ * Public endpoints get their own filter chain without authentication, authorization, security context or session
+ * handling, so that redirects and fact requests only pay for writing one security header. All other requests go
+ * through the chain protecting the admin and actuator endpoints.
+ * </p>
  */
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig
 {
 	/**
-	 * Configures the security filter chain for the application.
+	 * Configures the minimal filter chain of the public endpoints, /facts and /facts/{shortenedUrl}.
 	 *
-	 * <p>This configuration ensures that the "/admin/statistics" endpoint is protected and requires authentication,
-	 * while all other endpoints are publicly accessible. Basic HTTP authentication is enabled, and CSRF protection is disabled.</p>
-	 * UserDetails for authentication is passed via application properties.
+	 * <p>Everything is permitted, so the chain holds no authorization, and nothing is authenticated, so it holds no
+	 * security context, session, request cache, anonymous or exception translation handling. Of the security headers,
+	 * only X-Content-Type-Options is written. CSRF protection is disabled as before.</p>
 	 *
 	 * @param http the {@link HttpSecurity} to configure
 	 * @return the configured {@link SecurityFilterChain}
 	 * @throws Exception if an error occurs while configuring the security filter chain
 	 */
 	@Bean
-	public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception
+	@Order(1)
+	public SecurityFilterChain publicSecurityFilterChain(HttpSecurity http) throws Exception
 	{
-		http.authorizeHttpRequests(authorize -> authorize.requestMatchers("/admin/statistics").authenticated().anyRequest().permitAll())
+		http.securityMatcher("/facts", "/facts/**")
+			.headers(headers -> headers.defaultsDisabled().contentTypeOptions(Customizer.withDefaults()))
+			.csrf(AbstractHttpConfigurer::disable)
+			.securityContext(AbstractHttpConfigurer::disable)
+			.sessionManagement(AbstractHttpConfigurer::disable)
+			.requestCache(AbstractHttpConfigurer::disable)
+			.anonymous(AbstractHttpConfigurer::disable)
+			.exceptionHandling(AbstractHttpConfigurer::disable)
+			.servletApi(AbstractHttpConfigurer::disable)
+			.logout(AbstractHttpConfigurer::disable);
+		return http.build();
+	}
+
+	/**
+	 * Configures the security filter chain of all other endpoints.
+	 *
+	 * <p>This configuration ensures that the "/admin/**" endpoints and actuator endpoints other than health are protected
+	 * and require authentication, while all other endpoints are publicly accessible. Basic HTTP authentication is enabled
+	 * without sessions, and CSRF protection is disabled. Verified credentials are accepted again for
+	 * {@code factservice.admin.credential-cache-ttl} without verifying the password.</p>
+	 * UserDetails for authentication is passed via application properties.
+	 *
+	 * @param http                    the {@link HttpSecurity} to configure
+	 * @param userDetailsService      the users credentials are verified against
+	 * @param adminSecurityProperties the credential cache settings
+	 * @return the configured {@link SecurityFilterChain}
+	 * @throws Exception if an error occurs while configuring the security filter chain
+	 */
+	@Bean
+	@Order(2)
+	public SecurityFilterChain securityFilterChain(HttpSecurity http, UserDetailsService userDetailsService,
+		AdminSecurityProperties adminSecurityProperties) throws Exception
+	{
+		var daoAuthenticationProvider = new DaoAuthenticationProvider();
+		daoAuthenticationProvider.setUserDetailsService(userDetailsService);
+		var authenticationProvider = new CachingAuthenticationProvider(daoAuthenticationProvider, adminSecurityProperties.credentialCacheTtl());
+
+		http.authorizeHttpRequests(authorize -> authorize.requestMatchers("/actuator/health")
+				.permitAll()
+				.requestMatchers("/admin/**", "/actuator/**")
+				.authenticated()
+				.anyRequest()
+				.permitAll())
 			.httpBasic(Customizer.withDefaults())
+			.authenticationManager(new ProviderManager(authenticationProvider))
+			.sessionManagement(sessions -> sessions.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
 			.csrf(AbstractHttpConfigurer::disable);
 		return http.build();
 	}
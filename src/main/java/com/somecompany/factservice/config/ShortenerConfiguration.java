@@ -0,0 +1,54 @@
+package com.somecompany.factservice.config;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.somecompany.factservice.controller.UnissuedShortUrlFilter;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+import com.somecompany.factservice.service.urlshortener.URLShortenerService;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Configuration class that provides the codec translating between numeric ids and short codes, and the filter
+ * rejecting redirects of short codes that were never issued.
+ */
+@Configuration
+public class ShortenerConfiguration
+{
+	/**
+	 * Bean definition of the short code codec over the configured alphabet.
+	 *
+	 * @param shortenerProperties shortener settings holding the alphabet
+	 * @return ShortCodeCodec shared by the shortener and the fact cache
+	 */
+	@Bean
+	public ShortCodeCodec shortCodeCodec(ShortenerProperties shortenerProperties)
+	{
+		return ShortCodeCodec.of(shortenerProperties.alphabet());
+	}
+
+	/**
+	 * Registers the filter rejecting redirects of unissued short urls for the redirect endpoint only, ahead of all other
+	 * filters including the security filter chain.
+	 *
+	 * @param shortenerProperties shortener settings enabling the filter
+	 * @param urlShortenerService shortener knowing the issued short urls
+	 * @param objectMapper        mapper writing the error body
+	 * @param meterRegistry       registry of the rejected requests counter
+	 * @return registration of the filter, disabled unless {@code factservice.shortener.reject-unissued} is set
+	 */
+	@Bean
+	public FilterRegistrationBean<UnissuedShortUrlFilter> unissuedShortUrlFilter(ShortenerProperties shortenerProperties,
+		URLShortenerService urlShortenerService, ObjectMapper objectMapper, MeterRegistry meterRegistry)
+	{
+		var registration = new FilterRegistrationBean<>(new UnissuedShortUrlFilter(urlShortenerService, objectMapper, meterRegistry));
+		registration.addUrlPatterns("/facts/*");
+		registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+		registration.setEnabled(shortenerProperties.rejectUnissued());
+		return registration;
+	}
+}
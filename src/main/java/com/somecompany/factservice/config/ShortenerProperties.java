@@ -0,0 +1,17 @@
+package com.somecompany.factservice.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties of the url shortener, bound from {@code factservice.shortener.*}.
+ *
+ * @param alphabet       {@code base26}, {@code base62} or a custom alphabet whose first character is the zero digit.
+ *                       Changing it invalidates previously issued short urls.
+ * @param rejectUnissued whether redirects of short urls that were never issued are answered with not found by a
+ *                       servlet filter, ahead of the security filter chain and MVC dispatch
+ */
+@ConfigurationProperties(prefix = "factservice.shortener")
+public record ShortenerProperties(@DefaultValue("base26") String alphabet, @DefaultValue("true") boolean rejectUnissued)
+{
+}
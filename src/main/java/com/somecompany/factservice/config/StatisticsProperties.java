@@ -0,0 +1,62 @@
+package com.somecompany.factservice.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties of the windowed, top and changed access statistics and of the statistics export, bound from
+ * {@code factservice.statistics.*}.
+ *
+ * @param windowsEnabled whether minute, hour and day windows are kept for recently accessed short urls
+ * @param maxTrackedUrls maximum number of short urls with windows; accesses of further short urls only count towards
+ *                       the lifetime total until an idle short url is released
+ * @param idleAfter      time without an access after which the windows of a short url are released
+ * @param topEnabled     whether the most accessed short urls are tracked, counted by each redirect or by the access
+ *                       event pipeline when it is enabled
+ * @param topCapacity    number of counters of the most accessed short urls, the largest {@code k} served; more
+ *                       counters tighten the error bound
+ * @param maxChanges     number of changed short urls remembered for polling changes; older changes are forgotten and
+ *                       polls from before them have to reload the full statistics
+ * @param exportScanLimit maximum number of short url ids a page of the streamed statistics visits, so a page costs
+ *                       at most that many lookups however few of the ids are still cached
+ */
+@ConfigurationProperties(prefix = "factservice.statistics")
+public record StatisticsProperties(@DefaultValue("true") boolean windowsEnabled,
+								   @DefaultValue("10000") int maxTrackedUrls,
+								   @DefaultValue("1d") Duration idleAfter,
+								   @DefaultValue("true") boolean topEnabled,
+								   @DefaultValue("1000") int topCapacity,
+								   @DefaultValue("100000") int maxChanges,
+								   @DefaultValue("100000") int exportScanLimit)
+{
+	/**
+	 * Validates the bounds and the idle time.
+	 *
+	 * @throws IllegalArgumentException when a bound or the idle time is not positive
+	 */
+	public StatisticsProperties
+	{
+		if (maxTrackedUrls <= 0)
+		{
+			throw new IllegalArgumentException("Maximum number of tracked short urls must be positive.");
+		}
+		if (idleAfter.isNegative() || idleAfter.isZero())
+		{
+			throw new IllegalArgumentException("Statistics idle time must be positive.");
+		}
+		if (topCapacity <= 0)
+		{
+			throw new IllegalArgumentException("Number of top access counters must be positive.");
+		}
+		if (maxChanges <= 0)
+		{
+			throw new IllegalArgumentException("Number of remembered access changes must be positive.");
+		}
+		if (exportScanLimit <= 0)
+		{
+			throw new IllegalArgumentException("Number of ids scanned per statistics page must be positive.");
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.somecompany.factservice.config;
+
+import java.io.IOException;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+
+/**
+ * Apache HttpClient exec chain handler bounding a whole request, from waiting for a pooled connection through redirects
+ * and retries until the response headers are received, by a total timeout. A request still running at its deadline is
+ * cancelled, which releases a pending connection lease or shuts down the connection it blocks on, and fails with a
+ * {@link HttpTimeoutException} like the JDK client does.
+ */
+class TotalTimeoutExecHandler implements ExecChainHandler
+{
+	private static final int RUNNING = 0;
+	private static final int COMPLETED = 1;
+	private static final int TIMED_OUT = 2;
+
+	private final Duration totalTimeout;
+	private final ScheduledExecutorService scheduler;
+
+	/**
+	 * Constructs the handler.
+	 *
+	 * @param totalTimeout timeout of a whole request until response headers are received
+	 * @param scheduler    scheduler running the deadlines
+	 */
+	TotalTimeoutExecHandler(Duration totalTimeout, ScheduledExecutorService scheduler)
+	{
+		this.totalTimeout = totalTimeout;
+		this.scheduler = scheduler;
+	}
+
+	/**
+	 * Proceeds with the request and cancels it once the total timeout passes before the response headers arrived.
+	 *
+	 * @param request the request
+	 * @param scope   the execution scope
+	 * @param chain   the rest of the exec chain
+	 * @return the response
+	 * @throws IOException   when the request fails, or a {@link HttpTimeoutException} when it passed the total timeout
+	 * @throws HttpException when the request violates the HTTP protocol
+	 */
+	@Override
+	public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain) throws IOException, HttpException
+	{
+		var state = new AtomicInteger(RUNNING);
+		ScheduledFuture<?> deadline = scheduler.schedule(() -> {
+			if (state.compareAndSet(RUNNING, TIMED_OUT))
+			{
+				cancel(scope);
+			}
+		}, totalTimeout.toNanos(), TimeUnit.NANOSECONDS);
+
+		ClassicHttpResponse response;
+		try
+		{
+			response = chain.proceed(request, scope);
+		}
+		catch (IOException | HttpException | RuntimeException e)
+		{
+			deadline.cancel(false);
+			if (!state.compareAndSet(RUNNING, COMPLETED))
+			{
+				throw timeoutException(e);
+			}
+			throw e;
+		}
+
+		deadline.cancel(false);
+		if (!state.compareAndSet(RUNNING, COMPLETED))
+		{
+			// the deadline passed just as the response arrived and may already have shut down its connection
+			response.close();
+			throw timeoutException(null);
+		}
+		return response;
+	}
+
+	/**
+	 * Cancels the running request: a pending connection lease is cancelled, a leased connection is shut down.
+	 *
+	 * @param scope the execution scope of the request
+	 */
+	private static void cancel(ExecChain.Scope scope)
+	{
+		if (scope.originalRequest instanceof Cancellable cancellable)
+		{
+			cancellable.cancel();
+		}
+		else
+		{
+			scope.execRuntime.discardEndpoint();
+		}
+	}
+
+	/**
+	 * Creates the exception failing a request that passed the total timeout.
+	 *
+	 * @param cause failure caused by cancelling the request, or null when it completed regardless
+	 * @return the timeout exception
+	 */
+	private HttpTimeoutException timeoutException(Exception cause)
+	{
+		var exception = new HttpTimeoutException("Request exceeded the total timeout of %s".formatted(totalTimeout));
+		if (cause != null)
+		{
+			exception.initCause(cause);
+		}
+		return exception;
+	}
+}
@@ -0,0 +1,95 @@
+package com.somecompany.factservice.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Configuration properties for calls to the Useless Facts API, bound from {@code factservice.upstream.*}.
+ *
+ * @param url            endpoint returning a random fact, configurable to point load tests at a stub
+ * @param maxOutstanding maximum number of upstream fetches in flight at the same time; further callers share the result
+ *                       of an in-flight fetch instead of issuing their own
+ * @param retryMode      whether request threads block through retries or are released between attempts
+ * @param queueCapacity  upstream tasks the platform thread pool queues while all its threads are busy; further tasks are
+ *                       rejected and answered with {@code 503 Service Unavailable}
+ * @param deadline       per-request time budget of an asynchronous fetch including all retries
+ * @param circuitBreaker circuit breaker settings guarding the upstream
+ * @param retryBudget    global retry budget settings
+ */
+@ConfigurationProperties(prefix = "factservice.upstream")
+public record UpstreamProperties(@DefaultValue("https://uselessfacts.jsph.pl/api/v2/facts/random?language=en") String url,
+								 @DefaultValue("4") int maxOutstanding,
+								 @DefaultValue("async") RetryMode retryMode,
+								 @DefaultValue("100") int queueCapacity,
+								 @DefaultValue("10s") Duration deadline,
+								 @DefaultValue CircuitBreakerSettings circuitBreaker,
+								 @DefaultValue RetryBudgetSettings retryBudget)
+{
+	/**
+	 * Validates the upstream settings.
+	 *
+	 * @throws IllegalArgumentException when max outstanding, the queue capacity or the deadline is not positive
+	 */
+	public UpstreamProperties
+	{
+		if (maxOutstanding <= 0)
+		{
+			throw new IllegalArgumentException("Max outstanding upstream calls must be positive.");
+		}
+		if (queueCapacity <= 0)
+		{
+			throw new IllegalArgumentException("Upstream executor queue capacity must be positive.");
+		}
+		if (deadline.isNegative() || deadline.isZero())
+		{
+			throw new IllegalArgumentException("Upstream deadline must be positive.");
+		}
+	}
+
+	/**
+	 * Circuit breaker settings, bound from {@code factservice.upstream.circuit-breaker.*}.
+	 *
+	 * @param failureRateThreshold     failure percentage of the sliding window that opens the circuit
+	 * @param slidingWindowSize        number of recent calls the failure rate is computed over
+	 * @param minimumNumberOfCalls     calls required before the failure rate is evaluated
+	 * @param waitDurationInOpenState  time the circuit stays open before allowing half-open probes
+	 * @param permittedCallsInHalfOpen probe calls allowed while half-open
+	 */
+	public record CircuitBreakerSettings(@DefaultValue("50") float failureRateThreshold,
+										 @DefaultValue("20") int slidingWindowSize,
+										 @DefaultValue("10") int minimumNumberOfCalls,
+										 @DefaultValue("30s") Duration waitDurationInOpenState,
+										 @DefaultValue("3") int permittedCallsInHalfOpen)
+	{
+	}
+
+	/**
+	 * Retry budget settings, bound from {@code factservice.upstream.retry-budget.*}.
+	 *
+	 * @param ratio               retries allowed per successful call within the window
+	 * @param minRetriesPerSecond retries always allowed per second of the window
+	 * @param window              sliding window successes and retries are counted over
+	 */
+	public record RetryBudgetSettings(@DefaultValue("0.2") double ratio,
+									  @DefaultValue("1") int minRetriesPerSecond,
+									  @DefaultValue("10s") Duration window)
+	{
+	}
+
+	/**
+	 * Execution modes of upstream retries.
+	 */
+	public enum RetryMode
+	{
+		/**
+		 * Retries run on the calling thread, which sleeps during backoff.
+		 */
+		BLOCKING,
+		/**
+		 * Attempts run on a dedicated upstream executor and backoff is timer-scheduled, releasing the request thread.
+		 */
+		ASYNC
+	}
+}
@@ -1,7 +1,9 @@
 package com.somecompany.factservice.controller;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -10,11 +12,21 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.view.RedirectView;
 
+import com.somecompany.factservice.access.AccessWindow;
+import com.somecompany.factservice.config.BatchProperties;
+import com.somecompany.factservice.config.RedirectProperties;
 import com.somecompany.factservice.model.AccessStat;
+import com.somecompany.factservice.model.AccessStatChanges;
 import com.somecompany.factservice.model.FactResponse;
+import com.somecompany.factservice.model.TopAccessStat;
+import com.somecompany.factservice.service.AccessStatisticsExporter;
+import com.somecompany.factservice.service.FactBatchExporter;
 import com.somecompany.factservice.service.FactService;
 
 /**
@@ -26,28 +38,87 @@ import com.somecompany.factservice.service.FactService;
 @RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
 public class FactServiceController
 {
+	/**
+	 * Response header carrying the version to poll changed access statistics since.
+	 */
+	static final String STATISTICS_VERSION_HEADER = "X-Statistics-Version";
+
+	/**
+	 * Response header carrying the cursor of the next page of streamed access statistics.
+	 */
+	static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	/**
+	 * Lets clients keep statistics with an entity tag, but only reuse them after revalidating the tag.
+	 */
+	private static final CacheControl STATISTICS_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
 	private final FactService factService;
+	private final AccessStatisticsExporter accessStatisticsExporter;
+	private final RedirectProperties redirectProperties;
+	private final FactBatchExporter factBatchExporter;
+	private final BatchProperties batchProperties;
+
+	/**
+	 * Cache-Control of redirects, built once from the redirect properties.
+	 */
+	private final CacheControl redirectCacheControl;
 
 	/**
-	 * Constructs a new FactServiceController with the given FactService.
+	 * Constructs a new FactServiceController with the given FactService, AccessStatisticsExporter, redirect settings,
+	 * FactBatchExporter and batch settings.
 	 *
-	 * @param uselessFactService the service to handle fact-related operations
+	 * @param uselessFactService       the service to handle fact-related operations
+	 * @param accessStatisticsExporter the exporter streaming access statistics
+	 * @param redirectProperties       the caching of redirects and whether beacons are accepted
+	 * @param factBatchExporter        the exporter streaming batches of facts
+	 * @param batchProperties          the batch settings holding the largest count of a batch
 	 */
-	public FactServiceController(FactService uselessFactService)
+	public FactServiceController(FactService uselessFactService, AccessStatisticsExporter accessStatisticsExporter,
+		RedirectProperties redirectProperties, FactBatchExporter factBatchExporter, BatchProperties batchProperties)
 	{
 		this.factService = uselessFactService;
+		this.accessStatisticsExporter = accessStatisticsExporter;
+		this.redirectProperties = redirectProperties;
+		this.factBatchExporter = factBatchExporter;
+		this.batchProperties = batchProperties;
+		this.redirectCacheControl = redirectProperties.caching() == RedirectProperties.Caching.MAX_AGE
+			? CacheControl.maxAge(redirectProperties.maxAge()).cachePublic()
+			: CacheControl.noStore();
 	}
 
 	/**
 	 * Fetches a random useless fact and processes it to provide a shortened URL.
 	 * This endpoint is mapped to POST requests at /facts.
+	 * The request is processed asynchronously so the servlet thread is released while the upstream API is being called.
 	 *
-	 * @return a ResponseEntity containing the FactResponse with the original fact and shortened URL as json
+	 * @return a future of the ResponseEntity containing the FactResponse with the original fact and shortened URL as json
 	 */
 	@PostMapping(value = "/facts", consumes = MediaType.ALL_VALUE)
-	public ResponseEntity<FactResponse> uselessFact()
+	public CompletableFuture<ResponseEntity<FactResponse>> uselessFact()
 	{
-		return ResponseEntity.ok(factService.fetchAndProcessUselessFact());
+		return factService.fetchAndProcessUselessFactAsync().thenApply(ResponseEntity::ok);
+	}
+
+	/**
+	 * Fetches a batch of distinct useless facts and streams them with their shortened URLs as a JSON array.
+	 * This endpoint is mapped to POST requests at /facts with a count parameter.
+	 * The response starts once the first fact is cached, so a batch failing before is answered like a single fact
+	 * request. Facts are written in the order they complete; a batch failing later ends the array early.
+	 *
+	 * @param count number of facts, at most {@code factservice.batch.max-count}
+	 * @return a future of the ResponseEntity streaming the FactResponse objects, or bad request when count is not
+	 * positive or above the maximum
+	 */
+	@PostMapping(value = "/facts", params = "count", consumes = MediaType.ALL_VALUE)
+	public CompletableFuture<ResponseEntity<StreamingResponseBody>> uselessFacts(@RequestParam int count)
+	{
+		if (count <= 0 || count > batchProperties.maxCount())
+		{
+			return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+		}
+		FactBatchExporter.Export export = factBatchExporter.start(count);
+		return export.firstFact().thenApply(ready -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(export::write));
 	}
 
 	/**
@@ -55,26 +126,177 @@ public class FactServiceController
 	 * Increments the access count for the given shortened URL.
 	 * This endpoint is mapped to GET requests at /facts/{shortenedUrl}.
 	 *
+	 * An unknown shortened URL is answered with not found directly rather than through an exception, so that scans of
+	 * random shortened URLs cost as much as redirects.
+	 * The redirect carries the Cache-Control of {@code factservice.redirect.caching}.
+	 *
 	 * @param shortenedUrl the shortened URL of the fact
-	 * @return a ResponseEntity with empty body, permanent redirect status code and redirect to original long url
+	 * @param webRequest   the WebRequest instance described in the error details
+	 * @return a ResponseEntity with empty body, permanent redirect status code and redirect to original long url, or
+	 * with not found status code and error details when the shortened URL is unknown
 	 */
 	@GetMapping(value = "/facts/{shortenedUrl}")
-	public ResponseEntity<Void> redirectToOriginalFact(@PathVariable String shortenedUrl)
+	public ResponseEntity<?> redirectToOriginalFact(@PathVariable String shortenedUrl, WebRequest webRequest)
 	{
 		String originalLongUrl = factService.incrementAccessAndGetLongUrl(shortenedUrl);
-		return ResponseEntity.status(HttpStatus.PERMANENT_REDIRECT).header(HttpHeaders.LOCATION, originalLongUrl).build();
+		if (originalLongUrl == null)
+		{
+			return new ResponseEntity<>(GlobalExceptionHandler.shortUrlNotFound(shortenedUrl, webRequest), HttpStatus.NOT_FOUND);
+		}
+		// the cached original url is the pre-built Location value: it is stored per entry and added to the headers as
+		// is, without parsing it into a URI or encoding it
+		return ResponseEntity.status(HttpStatus.PERMANENT_REDIRECT)
+			.header(HttpHeaders.LOCATION, originalLongUrl)
+			.cacheControl(redirectCacheControl)
+			.build();
 	}
 
 	/**
-	 * Retrieves access statistics for all shortened URLs.
+	 * Counts an access of the given shortened URL that was served from a cached redirect, e.g. reported by
+	 * {@code navigator.sendBeacon} from the page linking to it.
+	 * This endpoint is mapped to POST requests at /facts/{shortenedUrl}/beacon and accepts any body, which is ignored.
+	 *
+	 * @param shortenedUrl the shortened URL of the fact
+	 * @return a ResponseEntity with no content when the access was counted, or not found when the shortened URL is unknown
+	 * or beacons are disabled
+	 */
+	@PostMapping(value = "/facts/{shortenedUrl}/beacon", consumes = MediaType.ALL_VALUE)
+	public ResponseEntity<Void> beacon(@PathVariable String shortenedUrl)
+	{
+		if (!redirectProperties.beaconEnabled() || factService.incrementAccessAndGetLongUrl(shortenedUrl) == null)
+		{
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.noContent().build();
+	}
+
+	/**
+	 * Retrieves access statistics for all shortened URLs, or for the shortened URLs accessed within a rolling window.
 	 * This endpoint is private and is mapped to GET requests at /admin/statistics.
 	 * Basic Authentication with username and password is required to access this endpoint.
+	 * Lifetime counts come with the version to poll changes since in the X-Statistics-Version header, and with a strong
+	 * ETag derived from that version. A request whose If-None-Match holds the current ETag is answered with not modified
+	 * before the statistics are read.
 	 *
-	 * @return a ResponseEntity containing a list of AccessStat objects with access statistics
+	 * @param window     optional window, {@code minute}, {@code hour} or {@code day}; lifetime counts when absent
+	 * @param webRequest the request, checked for a matching ETag
+	 * @return a ResponseEntity containing a list of AccessStat objects with access statistics, null when answered with
+	 * not modified, or bad request for an unknown window
 	 */
 	@GetMapping(value = "/admin/statistics")
-	public ResponseEntity<List<AccessStat>> adminStatistics()
+	public ResponseEntity<List<AccessStat>> adminStatistics(@RequestParam(required = false) String window, WebRequest webRequest)
+	{
+		if (window == null)
+		{
+			long version = factService.getAccessStatisticsVersion();
+			if (webRequest.checkNotModified(factService.getAccessStatisticsETag("statistics", version)))
+			{
+				return null;
+			}
+			return ResponseEntity.ok()
+				.cacheControl(STATISTICS_CACHE_CONTROL)
+				.header(STATISTICS_VERSION_HEADER, Long.toString(version))
+				.body(factService.getAllAccessStatistics());
+		}
+		AccessWindow accessWindow;
+		try
+		{
+			accessWindow = AccessWindow.fromName(window);
+		}
+		catch (IllegalArgumentException e)
+		{
+			return ResponseEntity.badRequest().build();
+		}
+		return ResponseEntity.ok(factService.getAccessStatistics(accessWindow));
+	}
+
+	/**
+	 * Retrieves the lifetime access statistics of the shortened URLs whose counts changed after a version, so that
+	 * polling costs the number of changes rather than the number of shortened URLs.
+	 * This endpoint is private and is mapped to GET requests at /admin/statistics with a since parameter.
+	 * Basic Authentication with username and password is required to access this endpoint.
+	 *
+	 * @param since version from the X-Statistics-Version header of the full statistics or from the previous poll
+	 * @return a ResponseEntity containing the changed AccessStat objects and the version to poll next, or gone when
+	 * changes since that version are no longer known and the full statistics have to be reloaded
+	 */
+	@GetMapping(value = "/admin/statistics", params = "since")
+	public ResponseEntity<AccessStatChanges> adminStatisticsSince(@RequestParam long since)
+	{
+		AccessStatChanges accessStatChanges = factService.getAccessStatisticsSince(since);
+		if (accessStatChanges == null)
+		{
+			return ResponseEntity.status(HttpStatus.GONE).build();
+		}
+		return ResponseEntity.ok().header(STATISTICS_VERSION_HEADER, Long.toString(accessStatChanges.version())).body(accessStatChanges);
+	}
+
+	/**
+	 * Streams the access statistics of all shortened URLs as newline-delimited JSON, one page at a time.
+	 * This endpoint is private and is mapped to GET requests at /admin/statistics accepting application/x-ndjson.
+	 * Basic Authentication with username and password is required to access this endpoint.
+	 *
+	 * A page visits a bounded number of ids. Unless it is the last page, the cursor of the next one is returned in the
+	 * X-Next-Cursor header.
+	 *
+	 * @param cursor optional X-Next-Cursor header of the previous page
+	 * @param limit  maximum number of lines, all shortened URLs among the ids the page visits when 0 or absent
+	 * @return a ResponseEntity streaming one AccessStat object per line, or bad request for an invalid cursor or limit
+	 */
+	@GetMapping(value = "/admin/statistics", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> adminStatisticsStream(@RequestParam(required = false) String cursor,
+		@RequestParam(defaultValue = "0") long limit)
+	{
+		long afterId;
+		try
+		{
+			afterId = accessStatisticsExporter.afterId(cursor);
+		}
+		catch (IllegalArgumentException e)
+		{
+			return ResponseEntity.badRequest().build();
+		}
+		if (limit < 0)
+		{
+			return ResponseEntity.badRequest().build();
+		}
+		AccessStatisticsExporter.Page page = accessStatisticsExporter.read(afterId, limit);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON);
+		if (page.nextCursor() != null)
+		{
+			response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+		}
+		return response.body(page::write);
+	}
+
+	/**
+	 * Retrieves the most accessed shortened URLs since startup with the error bound of each access count.
+	 * This endpoint is private and is mapped to GET requests at /admin/statistics/top.
+	 * Basic Authentication with username and password is required to access this endpoint.
+	 *
+	 * The result comes with a strong ETag that differs per k, and a request whose If-None-Match holds it is answered
+	 * with not modified before the summary is read.
+	 *
+	 * @param k          maximum number of shortened URLs, 100 when absent
+	 * @param webRequest the request, checked for a matching ETag
+	 * @return a ResponseEntity containing a list of TopAccessStat objects, most accessed first, null when answered with
+	 * not modified, bad request when k is not positive, or not found when the most accessed short urls are not tracked
+	 */
+	@GetMapping(value = "/admin/statistics/top")
+	public ResponseEntity<List<TopAccessStat>> adminTopStatistics(@RequestParam(defaultValue = "100") int k, WebRequest webRequest)
 	{
-		return ResponseEntity.ok(factService.getAllAccessStatistics());
+		if (k <= 0)
+		{
+			return ResponseEntity.badRequest().build();
+		}
+		if (!factService.isTopAccessStatisticsEnabled())
+		{
+			return ResponseEntity.notFound().build();
+		}
+		if (webRequest.checkNotModified(factService.getAccessStatisticsETag("top-" + k, factService.getAccessStatisticsVersion())))
+		{
+			return null;
+		}
+		return ResponseEntity.ok().cacheControl(STATISTICS_CACHE_CONTROL).body(factService.getTopAccessStatistics(k));
 	}
 }
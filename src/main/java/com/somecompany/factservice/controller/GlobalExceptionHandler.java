@@ -1,5 +1,8 @@
 package com.somecompany.factservice.controller;
 
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -14,6 +17,8 @@ import com.somecompany.factservice.exception.FactServiceServerException;
 import com.somecompany.factservice.exception.RateLimitedException;
 import com.somecompany.factservice.exception.ResourceNotFoundException;
 
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+
 /**
  * General exception handling controller advice.
  * Makes sure proper error codes and error messages are propagated back to the clients.
@@ -75,6 +80,45 @@ public class GlobalExceptionHandler
 		return getErrorDetailsResponseEntity(ex.getMessage(), webRequest, ex.getStatusCode());
 	}
 
+	/**
+	 * Handles CallNotPermittedException raised while the upstream circuit breaker is open.
+	 *
+	 * @param ex         the instance of CallNotPermittedException
+	 * @param webRequest the WebRequest instance
+	 * @return A ResponseEntity with status HttpStatus.SERVICE_UNAVAILABLE and detailed message in the body
+	 */
+	@ExceptionHandler(CallNotPermittedException.class)
+	public ResponseEntity<?> handleCallNotPermittedException(CallNotPermittedException ex, WebRequest webRequest)
+	{
+		return getErrorDetailsResponseEntity("Useless Fact API is currently unavailable. Try later please.", webRequest, HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
+	/**
+	 * Handles TimeoutException raised when an upstream fetch exceeds its deadline.
+	 *
+	 * @param ex         the instance of TimeoutException
+	 * @param webRequest the WebRequest instance
+	 * @return A ResponseEntity with status HttpStatus.GATEWAY_TIMEOUT and detailed message in the body
+	 */
+	@ExceptionHandler(TimeoutException.class)
+	public ResponseEntity<?> handleTimeoutException(TimeoutException ex, WebRequest webRequest)
+	{
+		return getErrorDetailsResponseEntity("Useless Fact API did not respond within the deadline.", webRequest, HttpStatus.GATEWAY_TIMEOUT);
+	}
+
+	/**
+	 * Handles RejectedExecutionException raised when the upstream executor's queue is full.
+	 *
+	 * @param ex         the instance of RejectedExecutionException
+	 * @param webRequest the WebRequest instance
+	 * @return A ResponseEntity with status HttpStatus.SERVICE_UNAVAILABLE and detailed message in the body
+	 */
+	@ExceptionHandler(RejectedExecutionException.class)
+	public ResponseEntity<?> handleRejectedExecutionException(RejectedExecutionException ex, WebRequest webRequest)
+	{
+		return getErrorDetailsResponseEntity("Too many pending Useless Fact API calls. Try later please.", webRequest, HttpStatus.SERVICE_UNAVAILABLE);
+	}
+
 	/**
 	 * Handles general exceptions when no other fine-grained exception handlers get invoked.
 	 *
@@ -100,8 +144,33 @@ public class GlobalExceptionHandler
 	private ResponseEntity<ErrorDetails> getErrorDetailsResponseEntity(String msg, WebRequest webRequest, HttpStatusCode statusCode)
 	{
 		logger.error(msg);
-		var errorDetails = new ErrorDetails(statusCode.value(), msg, webRequest.getDescription(false));
-		return new ResponseEntity<>(errorDetails, statusCode);
+		return new ResponseEntity<>(errorDetails(statusCode, msg, webRequest), statusCode);
+	}
+
+	/**
+	 * Constructs the error details answering a redirect of an unknown short url with not found, shared by the controller
+	 * and {@link UnissuedShortUrlFilter}, which answer it without an exception.
+	 *
+	 * @param shortUrl   the unknown short url
+	 * @param webRequest the WebRequest instance holding RequestAttributes
+	 * @return ErrorDetails with status code 404
+	 */
+	static ErrorDetails shortUrlNotFound(String shortUrl, WebRequest webRequest)
+	{
+		return errorDetails(HttpStatus.NOT_FOUND, "Missing cached data for short url: " + shortUrl, webRequest);
+	}
+
+	/**
+	 * Constructs the error details of a request.
+	 *
+	 * @param statusCode HttpStatusCode of the response
+	 * @param msg        the message
+	 * @param webRequest the WebRequest instance holding RequestAttributes
+	 * @return ErrorDetails describing the request
+	 */
+	private static ErrorDetails errorDetails(HttpStatusCode statusCode, String msg, WebRequest webRequest)
+	{
+		return new ErrorDetails(statusCode.value(), msg, webRequest.getDescription(false));
 	}
 
 	/**
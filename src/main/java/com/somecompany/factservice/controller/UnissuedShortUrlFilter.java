@@ -0,0 +1,97 @@
+package com.somecompany.factservice.controller;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.somecompany.factservice.service.urlshortener.URLShortenerService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Servlet filter answering redirects of short urls that were never issued with not found, before the security filter
+ * chain, MVC dispatch and the cache lookup run.
+ * <p>
+ * Scans of random short urls then cost one decode and one comparison each. Short urls that were issued, but are no
+ * longer cached, pass through and are answered by the controller. The error body is the one the controller answers
+ * unknown short urls with. Rejected requests are counted in {@code factservice.shortener.rejected}.
+ * </p>
+ */
+public class UnissuedShortUrlFilter extends OncePerRequestFilter
+{
+	/**
+	 * Path prefix of the redirect endpoint.
+	 */
+	static final String REDIRECT_PATH = "/facts/";
+
+	private final URLShortenerService urlShortenerService;
+	private final ObjectMapper objectMapper;
+	private final Counter rejectedCounter;
+
+	/**
+	 * Constructs the filter.
+	 *
+	 * @param urlShortenerService shortener knowing the issued short urls
+	 * @param objectMapper        mapper writing the error body
+	 * @param meterRegistry       registry of the rejected requests counter
+	 */
+	public UnissuedShortUrlFilter(URLShortenerService urlShortenerService, ObjectMapper objectMapper, MeterRegistry meterRegistry)
+	{
+		this.urlShortenerService = urlShortenerService;
+		this.objectMapper = objectMapper;
+		this.rejectedCounter = Counter.builder("factservice.shortener.rejected")
+			.description("Redirects of short urls that were never issued, answered before the security filter chain")
+			.register(meterRegistry);
+	}
+
+	/**
+	 * Filters only GET and HEAD requests of the redirect endpoint.
+	 *
+	 * @param request the request
+	 * @return true when the request is not a redirect
+	 */
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request)
+	{
+		String method = request.getMethod();
+		return !HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method);
+	}
+
+	/**
+	 * Answers the request with not found when its short url was never issued, passes it on otherwise.
+	 *
+	 * @param request     the request
+	 * @param response    the response
+	 * @param filterChain the remaining filters
+	 * @throws ServletException when a later filter fails
+	 * @throws IOException      when writing the response fails
+	 */
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+		throws ServletException, IOException
+	{
+		String path = request.getRequestURI().substring(request.getContextPath().length());
+		String shortUrl = path.startsWith(REDIRECT_PATH) ? path.substring(REDIRECT_PATH.length()) : null;
+		// encoded or further path segments are left to MVC, which decodes and matches them
+		if (shortUrl == null || shortUrl.indexOf('/') >= 0 || shortUrl.indexOf('%') >= 0 || shortUrl.indexOf(';') >= 0
+			|| urlShortenerService.isIssued(shortUrl))
+		{
+			filterChain.doFilter(request, response);
+			return;
+		}
+		rejectedCounter.increment();
+		response.setStatus(HttpStatus.NOT_FOUND.value());
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		objectMapper.writeValue(response.getOutputStream(), GlobalExceptionHandler.shortUrlNotFound(shortUrl, new ServletWebRequest(request)));
+	}
+}
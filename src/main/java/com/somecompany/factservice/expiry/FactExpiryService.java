@@ -0,0 +1,356 @@
+package com.somecompany.factservice.expiry;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.somecompany.factservice.access.AccessChangeLog;
+import com.somecompany.factservice.access.TopAccessStatistics;
+import com.somecompany.factservice.access.WindowedAccessStatistics;
+import com.somecompany.factservice.cache.FactCacheDTO;
+import com.somecompany.factservice.cache.FactCacheService;
+import com.somecompany.factservice.config.ExpiryProperties;
+import com.somecompany.factservice.persistence.WriteAheadLog;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+import com.somecompany.factservice.service.urlshortener.URLShortenerService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Expires short urls a configurable time after they were issued, or after their last access when sliding.
+ * <p>
+ * Deadlines are kept in a {@link TimingWheel} keyed by the id of the short url, so scheduling, extending and cancelling
+ * cost O(1) and nothing ever scans the cache. A single {@code fact-expiry} thread advances the wheel once per tick and
+ * removes the expired facts from the cache, their long urls from the shortener's dedupe index and their access
+ * statistics, at most {@code maxBatchRemovals} per tick, so memory is reclaimed in small steady steps. Removals are logged to the
+ * write-ahead log and dropped from the next snapshot.
+ * </p>
+ * <p>
+ * The log does not record when a fact was issued. Facts recovered on startup, whose ids are contiguous up to the
+ * highest recovered id, therefore live one more ttl from startup; they are swept in id order in the same batches
+ * unless an access scheduled them individually.
+ * </p>
+ */
+@Service
+public class FactExpiryService
+{
+	private static final Logger logger = LoggerFactory.getLogger(FactExpiryService.class);
+
+	private final ExpiryProperties properties;
+	private final FactCacheService factCacheService;
+	private final URLShortenerService urlShortenerService;
+	private final WriteAheadLog writeAheadLog;
+	private final WindowedAccessStatistics windowedAccessStatistics;
+	private final TopAccessStatistics topAccessStatistics;
+	private final AccessChangeLog accessChangeLog;
+	private final ShortCodeCodec shortCodeCodec;
+	private final LongSupplier nanoClock;
+	private final long originNanos;
+	private final long tickNanos;
+	private final long ttlTicks;
+
+	/**
+	 * Serializes all wheel operations except {@link TimingWheel#extend}.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+	private final TimingWheel wheel = new TimingWheel();
+
+	/**
+	 * Ids expired by the current step, only used by the expiring thread.
+	 */
+	private final long[] batch;
+	private int batchSize;
+
+	/**
+	 * Highest id recovered on startup and the next recovered id to sweep; ids in between that are not scheduled
+	 * individually expire one ttl after startup.
+	 */
+	private volatile long lastRecoveredId;
+	private volatile long nextRecoveredId = 1;
+
+	private final Counter expiredCounter;
+	private ScheduledExecutorService expirer;
+
+	/**
+	 * Constructs the service and registers its metrics.
+	 *
+	 * @param properties               ttl, sliding and tick settings
+	 * @param factCacheService         cache expired facts are removed from
+	 * @param urlShortenerService      shortener expired long urls are removed from
+	 * @param writeAheadLog            log the removals are persisted to and the recovered ids are taken from
+	 * @param windowedAccessStatistics statistics the access windows of expired short urls are released from
+	 * @param topAccessStatistics      statistics expired short urls are dropped from
+	 * @param accessChangeLog          log expired short urls are recorded as changed in
+	 * @param shortCodeCodec           codec translating between short urls and the ids the wheel is keyed by
+	 * @param meterRegistry            registry exposing expired and scheduled short urls
+	 */
+	@Autowired
+	public FactExpiryService(ExpiryProperties properties, FactCacheService factCacheService, URLShortenerService urlShortenerService,
+		WriteAheadLog writeAheadLog, WindowedAccessStatistics windowedAccessStatistics, TopAccessStatistics topAccessStatistics,
+		AccessChangeLog accessChangeLog, ShortCodeCodec shortCodeCodec, MeterRegistry meterRegistry)
+	{
+		this(properties, factCacheService, urlShortenerService, writeAheadLog, windowedAccessStatistics, topAccessStatistics, accessChangeLog,
+			shortCodeCodec, meterRegistry, System::nanoTime);
+	}
+
+	/**
+	 * Constructs the service with the given clock.
+	 *
+	 * @param properties               ttl, sliding and tick settings
+	 * @param factCacheService         cache expired facts are removed from
+	 * @param urlShortenerService      shortener expired long urls are removed from
+	 * @param writeAheadLog            log the removals are persisted to and the recovered ids are taken from
+	 * @param windowedAccessStatistics statistics the access windows of expired short urls are released from
+	 * @param topAccessStatistics      statistics expired short urls are dropped from
+	 * @param accessChangeLog          log expired short urls are recorded as changed in
+	 * @param shortCodeCodec           codec translating between short urls and the ids the wheel is keyed by
+	 * @param meterRegistry            registry exposing expired and scheduled short urls
+	 * @param nanoClock                nanosecond clock source
+	 */
+	FactExpiryService(ExpiryProperties properties, FactCacheService factCacheService, URLShortenerService urlShortenerService,
+		WriteAheadLog writeAheadLog, WindowedAccessStatistics windowedAccessStatistics, TopAccessStatistics topAccessStatistics,
+		AccessChangeLog accessChangeLog, ShortCodeCodec shortCodeCodec, MeterRegistry meterRegistry, LongSupplier nanoClock)
+	{
+		this.properties = properties;
+		this.factCacheService = factCacheService;
+		this.urlShortenerService = urlShortenerService;
+		this.writeAheadLog = writeAheadLog;
+		this.windowedAccessStatistics = windowedAccessStatistics;
+		this.topAccessStatistics = topAccessStatistics;
+		this.accessChangeLog = accessChangeLog;
+		this.shortCodeCodec = shortCodeCodec;
+		this.nanoClock = nanoClock;
+		this.originNanos = nanoClock.getAsLong();
+		this.tickNanos = properties.tick().toNanos();
+		this.ttlTicks = (properties.ttl().toNanos() + tickNanos - 1) / tickNanos;
+		this.batch = new long[properties.maxBatchRemovals()];
+
+		this.expiredCounter = Counter.builder("factservice.expiry.expired")
+			.description("Short urls removed after their ttl")
+			.register(meterRegistry);
+		Gauge.builder("factservice.expiry.scheduled", wheel, TimingWheel::size)
+			.description("Short urls scheduled to expire")
+			.register(meterRegistry);
+	}
+
+	/**
+	 * Takes over the facts recovered on startup and starts expiring when expiry is enabled.
+	 */
+	@PostConstruct
+	void start()
+	{
+		if (!properties.enabled())
+		{
+			return;
+		}
+		lastRecoveredId = writeAheadLog.lastRecoveredId();
+		expirer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "fact-expiry");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long tickMillis = Math.max(1, properties.tick().toMillis());
+		expirer.scheduleWithFixedDelay(this::expireQuietly, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+		logger.info("Expiring short urls after %s%s".formatted(properties.ttl(), properties.sliding() ? " without access" : ""));
+	}
+
+	/**
+	 * Stops expiring.
+	 */
+	@PreDestroy
+	void stop()
+	{
+		if (expirer != null)
+		{
+			expirer.shutdownNow();
+		}
+	}
+
+	/**
+	 * Schedules a newly issued short url to expire one ttl from now.
+	 *
+	 * @param shortUrl the short url
+	 */
+	public void schedule(String shortUrl)
+	{
+		long id = properties.enabled() ? shortCodeCodec.decode(shortUrl) : ShortCodeCodec.INVALID;
+		if (id == ShortCodeCodec.INVALID)
+		{
+			return;
+		}
+		lock.lock();
+		try
+		{
+			wheel.schedule(id, nowTick() + ttlTicks);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Cancels the expiry of a short url that is no longer cached, e.g. because its mapping could not be persisted.
+	 *
+	 * @param shortUrl the short url
+	 */
+	public void cancel(String shortUrl)
+	{
+		long id = properties.enabled() ? shortCodeCodec.decode(shortUrl) : ShortCodeCodec.INVALID;
+		if (id == ShortCodeCodec.INVALID)
+		{
+			return;
+		}
+		lock.lock();
+		try
+		{
+			wheel.cancel(id);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Extends an accessed short url to one ttl from now when expiry is sliding. Lock-free unless the short url was
+	 * recovered on startup and is accessed for the first time since.
+	 *
+	 * @param shortUrl the accessed short url
+	 */
+	public void touch(String shortUrl)
+	{
+		long id = properties.enabled() && properties.sliding() ? shortCodeCodec.decode(shortUrl) : ShortCodeCodec.INVALID;
+		if (id == ShortCodeCodec.INVALID)
+		{
+			return;
+		}
+		long deadline = nowTick() + ttlTicks;
+		if (wheel.extend(id, deadline) || id < nextRecoveredId || id > lastRecoveredId)
+		{
+			return;
+		}
+		lock.lock();
+		try
+		{
+			if (id >= nextRecoveredId && !wheel.isScheduled(id))
+			{
+				wheel.schedule(id, deadline);
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Advances the wheel to the current tick and removes up to one batch of expired short urls.
+	 *
+	 * @return number of expired short urls
+	 */
+	int expire()
+	{
+		long now = nowTick();
+		batchSize = 0;
+		lock.lock();
+		try
+		{
+			wheel.advance(now, batch.length, this::collect);
+			if (now >= ttlTicks)
+			{
+				// recovered facts not scheduled individually expire one ttl after startup
+				while (nextRecoveredId <= lastRecoveredId && batchSize < batch.length)
+				{
+					long id = nextRecoveredId++;
+					if (!wheel.isScheduled(id))
+					{
+						collect(id);
+					}
+				}
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+
+		int expired = 0;
+		for (int i = 0; i < batchSize; i++)
+		{
+			if (remove(shortCodeCodec.encode(batch[i])))
+			{
+				expired++;
+			}
+		}
+		expiredCounter.increment(expired);
+		return expired;
+	}
+
+	/**
+	 * Runs one expiry step from the scheduler, logging instead of propagating failures.
+	 */
+	private void expireQuietly()
+	{
+		try
+		{
+			expire();
+		}
+		catch (RuntimeException e)
+		{
+			logger.error("Could not expire short urls: %s".formatted(e.getMessage()), e);
+		}
+	}
+
+	/**
+	 * Removes an expired short url from the cache, the shortener, the access statistics and the persisted state.
+	 *
+	 * @param shortUrl the short url
+	 * @return true when the short url was cached
+	 */
+	private boolean remove(String shortUrl)
+	{
+		FactCacheDTO removed = factCacheService.remove(shortUrl);
+		if (removed == null)
+		{
+			return false;
+		}
+		urlShortenerService.remove(removed.originalUrl(), shortUrl);
+		windowedAccessStatistics.release(shortUrl);
+		topAccessStatistics.release(shortUrl);
+		accessChangeLog.recordChange(shortUrl);
+		writeAheadLog.appendRemoval(shortUrl);
+		return true;
+	}
+
+	/**
+	 * Adds an expired id to the current batch.
+	 *
+	 * @param id the id
+	 */
+	private void collect(long id)
+	{
+		batch[batchSize++] = id;
+	}
+
+	/**
+	 * Returns the current tick since the service was constructed.
+	 *
+	 * @return tick
+	 */
+	private long nowTick()
+	{
+		return (nanoClock.getAsLong() - originNanos) / tickNanos;
+	}
+}
@@ -0,0 +1,345 @@
+package com.somecompany.factservice.expiry;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongConsumer;
+
+/**
+ * Hierarchical timing wheel of positive ids with deadlines in ticks, supporting O(1) schedule and cancel.
+ * <p>
+ * Four levels of 64 buckets cover deadlines up to 64<sup>4</sup> ticks ahead; level {@code n} buckets span
+ * 64<sup>n</sup> ticks. A deadline goes into the lowest level whose range covers it, and the bucket of a higher level is
+ * cascaded into the levels below when the wheel reaches its start. Each bucket is a doubly linked list threaded through
+ * primitive arrays indexed by id, so scheduling allocates no node object and costs about 24 bytes per scheduled id. The
+ * first id of a bucket stores the negated bucket number in place of its predecessor.
+ * </p>
+ * <p>
+ * A deadline may be raised without moving the id: the id stays in its bucket and is put back into the wheel when that
+ * bucket expires. {@link #extend} is therefore lock-free and may run concurrently with the other methods, which must be
+ * serialized by the caller.
+ * </p>
+ */
+class TimingWheel
+{
+	static final int LEVELS = 4;
+	private static final int SLOT_BITS = 6;
+	private static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+	private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+	private static final int CHUNK_BITS = 14;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+	/**
+	 * First id per bucket, 0 for an empty bucket.
+	 */
+	private final long[] heads = new long[LEVELS * SLOTS];
+
+	/**
+	 * Deadline tick per id, 0 while the id is not scheduled. Replaced by a larger copy when a chunk is added.
+	 */
+	private volatile AtomicLongArray[] deadlines = new AtomicLongArray[0];
+	private long[][] next = new long[0][];
+	private long[][] previous = new long[0][];
+
+	/**
+	 * Last tick the wheel has been advanced to.
+	 */
+	private long currentTick;
+
+	/**
+	 * Number of scheduled ids.
+	 */
+	private long size;
+
+	/**
+	 * Schedules an id, replacing its previous deadline. A deadline not after the current tick expires on the next one.
+	 *
+	 * @param id           positive id
+	 * @param deadlineTick tick at which the id expires
+	 */
+	void schedule(long id, long deadlineTick)
+	{
+		ensureCapacity(id);
+		if (deadlines(id).get(slot(id)) != 0)
+		{
+			unlink(id);
+			size--;
+		}
+		long deadline = Math.max(deadlineTick, currentTick + 1);
+		deadlines(id).set(slot(id), deadline);
+		link(id, deadline);
+		size++;
+	}
+
+	/**
+	 * Cancels a scheduled id.
+	 *
+	 * @param id the id
+	 * @return true when the id was scheduled
+	 */
+	boolean cancel(long id)
+	{
+		if (!isScheduled(id))
+		{
+			return false;
+		}
+		unlink(id);
+		deadlines(id).set(slot(id), 0);
+		size--;
+		return true;
+	}
+
+	/**
+	 * Returns whether an id is scheduled.
+	 *
+	 * @param id the id
+	 * @return true when scheduled
+	 */
+	boolean isScheduled(long id)
+	{
+		AtomicLongArray chunk = deadlineChunk(id);
+		return chunk != null && chunk.get(slot(id)) != 0;
+	}
+
+	/**
+	 * Raises the deadline of a scheduled id without taking it out of its bucket. Lock-free.
+	 *
+	 * @param id           the id
+	 * @param deadlineTick new deadline, ignored when it is not later than the current one
+	 * @return false when the id is not scheduled
+	 */
+	boolean extend(long id, long deadlineTick)
+	{
+		AtomicLongArray chunk = deadlineChunk(id);
+		if (chunk == null)
+		{
+			return false;
+		}
+		int slot = slot(id);
+		while (true)
+		{
+			long deadline = chunk.get(slot);
+			if (deadline == 0)
+			{
+				return false;
+			}
+			if (deadlineTick <= deadline || chunk.compareAndSet(slot, deadline, deadlineTick))
+			{
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Advances the wheel tick by tick and passes each id whose deadline has passed to the consumer, unscheduled.
+	 * Stops early once {@code limit} ids expired; the next call first drains the rest of the current tick.
+	 *
+	 * @param nowTick tick to advance to
+	 * @param limit   maximum number of ids to expire
+	 * @param expired consumer of the expired ids
+	 * @return number of expired ids
+	 */
+	int advance(long nowTick, int limit, LongConsumer expired)
+	{
+		int count = 0;
+		while (true)
+		{
+			int bucket = (int) currentTick & SLOT_MASK;
+			while (heads[bucket] != 0)
+			{
+				if (count == limit)
+				{
+					return count;
+				}
+				long id = heads[bucket];
+				unlink(id);
+				long deadline = deadlines(id).get(slot(id));
+				if (deadline > currentTick)
+				{
+					link(id, deadline);
+				}
+				else if (deadlines(id).compareAndSet(slot(id), deadline, 0))
+				{
+					size--;
+					count++;
+					expired.accept(id);
+				}
+				else
+				{
+					// extended concurrently
+					link(id, deadlines(id).get(slot(id)));
+				}
+			}
+			if (currentTick >= nowTick)
+			{
+				return count;
+			}
+			currentTick++;
+			for (int level = 1; level < LEVELS && (currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0; level++)
+			{
+				cascade(level, (int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+			}
+		}
+	}
+
+	/**
+	 * Returns the last tick the wheel has been advanced to.
+	 *
+	 * @return current tick
+	 */
+	long currentTick()
+	{
+		return currentTick;
+	}
+
+	/**
+	 * Returns the number of scheduled ids.
+	 *
+	 * @return size
+	 */
+	long size()
+	{
+		return size;
+	}
+
+	/**
+	 * Moves the ids of a higher level bucket into the levels below.
+	 *
+	 * @param level level of the bucket
+	 * @param slot  slot of the bucket within its level
+	 */
+	private void cascade(int level, int slot)
+	{
+		int bucket = level * SLOTS + slot;
+		while (heads[bucket] != 0)
+		{
+			long id = heads[bucket];
+			unlink(id);
+			link(id, deadlines(id).get(slot(id)));
+		}
+	}
+
+	/**
+	 * Links an id at the head of the bucket covering its deadline relative to the current tick. A deadline of the current
+	 * tick goes into the bucket being drained.
+	 *
+	 * @param id       the id
+	 * @param deadline its deadline
+	 */
+	private void link(long id, long deadline)
+	{
+		long delta = Math.min(Math.max(deadline - currentTick, 0), MAX_DELTA);
+		long target = currentTick + delta;
+		int level = (63 - Long.numberOfLeadingZeros(delta)) / SLOT_BITS;
+		int bucket = level * SLOTS + ((int) (target >>> (SLOT_BITS * level)) & SLOT_MASK);
+
+		long head = heads[bucket];
+		next[chunk(id)][slot(id)] = head;
+		previous[chunk(id)][slot(id)] = -bucket - 1;
+		if (head != 0)
+		{
+			previous[chunk(head)][slot(head)] = id;
+		}
+		heads[bucket] = id;
+	}
+
+	/**
+	 * Unlinks an id from its bucket.
+	 *
+	 * @param id the id
+	 */
+	private void unlink(long id)
+	{
+		long before = previous[chunk(id)][slot(id)];
+		long after = next[chunk(id)][slot(id)];
+		if (before < 0)
+		{
+			heads[(int) (-before - 1)] = after;
+		}
+		else
+		{
+			next[chunk(before)][slot(before)] = after;
+		}
+		if (after != 0)
+		{
+			previous[chunk(after)][slot(after)] = before;
+		}
+	}
+
+	/**
+	 * Allocates the chunk holding an id, growing the chunk directories if needed.
+	 *
+	 * @param id the id
+	 * @throws IllegalArgumentException when the id is not positive or too large to address
+	 */
+	private void ensureCapacity(long id)
+	{
+		if (id <= 0 || (id >>> CHUNK_BITS) >= Integer.MAX_VALUE - 8)
+		{
+			throw new IllegalArgumentException("Id out of range: " + id);
+		}
+		int chunk = chunk(id);
+		if (chunk >= next.length)
+		{
+			int length = Math.max(chunk + 1, next.length * 2);
+			next = Arrays.copyOf(next, length);
+			previous = Arrays.copyOf(previous, length);
+		}
+		if (next[chunk] == null)
+		{
+			next[chunk] = new long[CHUNK_SIZE];
+			previous[chunk] = new long[CHUNK_SIZE];
+			AtomicLongArray[] published = Arrays.copyOf(deadlines, next.length);
+			published[chunk] = new AtomicLongArray(CHUNK_SIZE);
+			deadlines = published;
+		}
+	}
+
+	/**
+	 * Returns the deadline chunk of an id, which must be allocated.
+	 *
+	 * @param id the id
+	 * @return deadline chunk
+	 */
+	private AtomicLongArray deadlines(long id)
+	{
+		return deadlines[chunk(id)];
+	}
+
+	/**
+	 * Returns the allocated deadline chunk of an id.
+	 *
+	 * @param id the id
+	 * @return deadline chunk, null when not allocated
+	 */
+	private AtomicLongArray deadlineChunk(long id)
+	{
+		AtomicLongArray[] chunks = deadlines;
+		long chunk = id >>> CHUNK_BITS;
+		return id <= 0 || chunk >= chunks.length ? null : chunks[(int) chunk];
+	}
+
+	/**
+	 * Returns the chunk number of an id.
+	 *
+	 * @param id the id
+	 * @return chunk number
+	 */
+	private static int chunk(long id)
+	{
+		return (int) (id >>> CHUNK_BITS);
+	}
+
+	/**
+	 * Returns the slot of an id within its chunk.
+	 *
+	 * @param id the id
+	 * @return slot
+	 */
+	private static int slot(long id)
+	{
+		return (int) id & CHUNK_MASK;
+	}
+}
@@ -9,7 +9,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
  * @param shortenedUrl The shortened URL for the fact.
  * @param accessCount  The number of times the shortened URL has been accessed.
  */
-public record AccessStat(@JsonProperty("shortened_url") String shortenedUrl, @JsonProperty("access_count") Integer accessCount)
+public record AccessStat(@JsonProperty("shortened_url") String shortenedUrl, @JsonProperty("access_count") Long accessCount)
 {
 
 }
@@ -0,0 +1,17 @@
+package com.somecompany.factservice.model;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Record representing the access statistics that changed since a version.
+ * Contains the changed statistics and the version to ask for the next changes since.
+ *
+ * @param version The statistics version the changes are complete up to.
+ * @param changes The access statistics of the changed shortened URLs; a null access count means the URL was removed.
+ */
+public record AccessStatChanges(@JsonProperty("version") long version, @JsonProperty("changes") List<AccessStat> changes)
+{
+
+}
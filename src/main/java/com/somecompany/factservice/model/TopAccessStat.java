@@ -0,0 +1,17 @@
+package com.somecompany.factservice.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Record representing one of the most accessed shortened URLs.
+ * The access count is an upper bound that overestimates the true count by at most the max error.
+ *
+ * @param shortenedUrl The shortened URL for the fact.
+ * @param accessCount  The estimated number of times the shortened URL has been accessed.
+ * @param maxError     The most the estimate may exceed the true number of accesses.
+ */
+public record TopAccessStat(@JsonProperty("shortened_url") String shortenedUrl, @JsonProperty("access_count") Long accessCount,
+							@JsonProperty("max_error") Long maxError)
+{
+
+}
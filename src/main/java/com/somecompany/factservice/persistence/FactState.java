@@ -0,0 +1,183 @@
+package com.somecompany.factservice.persistence;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+import java.util.function.LongFunction;
+
+/**
+ * Changes to the fact state replayed from log segments on top of a base snapshot, ordered by id.
+ * <p>
+ * Only facts touched by the replayed records are held. A fact accessed for the first time since the base snapshot is
+ * copied from it before the delta is added. Access records of facts whose mapping is unknown or removed are ignored; a
+ * repeated mapping keeps the first one unless the fact was removed in between.
+ * </p>
+ */
+class FactState
+{
+	/**
+	 * Changed facts by id: the {@link WalRecord.Entry} of a fact, or a {@link WalRecord.Removal} once it was removed.
+	 */
+	private final TreeMap<Long, WalRecord> changes = new TreeMap<>();
+
+	/**
+	 * State of the base snapshot per id, null for ids it does not contain.
+	 */
+	private final LongFunction<WalRecord.Entry> base;
+
+	/**
+	 * Constructs an empty state without a base snapshot.
+	 */
+	FactState()
+	{
+		this(id -> null);
+	}
+
+	/**
+	 * Constructs an empty state on top of a base snapshot.
+	 *
+	 * @param base state of the base snapshot per id, null for ids it does not contain
+	 */
+	FactState(LongFunction<WalRecord.Entry> base)
+	{
+		this.base = base;
+	}
+
+	/**
+	 * Applies a record read from a log segment.
+	 *
+	 * @param record record to apply
+	 */
+	void apply(WalRecord record)
+	{
+		if (record instanceof WalRecord.Entry || record instanceof WalRecord.Removal)
+		{
+			changes.put(record.id(), record);
+		}
+		else if (record instanceof WalRecord.Mapping mapping)
+		{
+			WalRecord changed = changes.get(mapping.id());
+			if (changed instanceof WalRecord.Removal)
+			{
+				changes.put(mapping.id(), new WalRecord.Entry(mapping.id(), mapping.fact(), mapping.originalUrl(), 0));
+			}
+			else if (changed == null)
+			{
+				WalRecord.Entry known = base.apply(mapping.id());
+				changes.put(mapping.id(), known != null ? known : new WalRecord.Entry(mapping.id(), mapping.fact(), mapping.originalUrl(), 0));
+			}
+		}
+		else if (record instanceof WalRecord.Access access)
+		{
+			WalRecord changed = changes.get(access.id());
+			WalRecord.Entry entry = changed == null ? base.apply(access.id()) : changed instanceof WalRecord.Entry known ? known : null;
+			if (entry != null)
+			{
+				changes.put(access.id(), new WalRecord.Entry(access.id(), entry.fact(), entry.originalUrl(), entry.accessCount() + access.delta()));
+			}
+		}
+	}
+
+	/**
+	 * Returns the state of all facts changed and not removed since the base snapshot in id order.
+	 *
+	 * @return entries
+	 */
+	Collection<WalRecord.Entry> entries()
+	{
+		return changes.values().stream()
+			.filter(WalRecord.Entry.class::isInstance)
+			.map(WalRecord.Entry.class::cast)
+			.toList();
+	}
+
+	/**
+	 * Returns the ids of all facts removed since the base snapshot in id order.
+	 *
+	 * @return removed ids
+	 */
+	List<Long> removedIds()
+	{
+		return changes.values().stream()
+			.filter(WalRecord.Removal.class::isInstance)
+			.map(WalRecord::id)
+			.toList();
+	}
+
+	/**
+	 * Returns the highest id mapped or removed since the base snapshot.
+	 *
+	 * @return highest changed id, 0 when nothing changed
+	 */
+	long lastId()
+	{
+		return changes.isEmpty() ? 0 : changes.lastKey();
+	}
+
+	/**
+	 * Merges the changes into the entries of the base snapshot.
+	 *
+	 * @param baseEntries all entries of the base snapshot in id order
+	 * @return the merged entries in id order, changed entries replacing and removals dropping base entries with the same
+	 * id
+	 */
+	Iterator<WalRecord.Entry> mergeInto(Iterator<WalRecord.Entry> baseEntries)
+	{
+		Iterator<WalRecord> changed = changes.values().iterator();
+		return new Iterator<>()
+		{
+			private WalRecord.Entry nextBase = baseEntries.hasNext() ? baseEntries.next() : null;
+			private WalRecord nextChange = changed.hasNext() ? changed.next() : null;
+			private WalRecord.Entry next = advance();
+
+			@Override
+			public boolean hasNext()
+			{
+				return next != null;
+			}
+
+			@Override
+			public WalRecord.Entry next()
+			{
+				if (next == null)
+				{
+					throw new NoSuchElementException();
+				}
+				WalRecord.Entry current = next;
+				next = advance();
+				return current;
+			}
+
+			/**
+			 * Finds the next merged entry.
+			 *
+			 * @return the entry, or null when both sides are exhausted
+			 */
+			private WalRecord.Entry advance()
+			{
+				while (nextBase != null || nextChange != null)
+				{
+					if (nextChange == null || (nextBase != null && nextBase.id() < nextChange.id()))
+					{
+						WalRecord.Entry entry = nextBase;
+						nextBase = baseEntries.hasNext() ? baseEntries.next() : null;
+						return entry;
+					}
+					if (nextBase != null && nextBase.id() == nextChange.id())
+					{
+						nextBase = baseEntries.hasNext() ? baseEntries.next() : null;
+					}
+					WalRecord change = nextChange;
+					nextChange = changed.hasNext() ? changed.next() : null;
+					if (change instanceof WalRecord.Entry entry)
+					{
+						return entry;
+					}
+				}
+				return null;
+			}
+		};
+	}
+}
@@ -0,0 +1,225 @@
+package com.somecompany.factservice.persistence;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary format shared by log segments and snapshots.
+ * <p>
+ * A file is a sequence of batches {@code [int payloadLength][int crc32c][payload]}; the payload is a sequence of records,
+ * each a type byte followed by its fields, with strings as length-prefixed UTF-8. A batch is written with a single
+ * write, so after a crash a file ends at most with one incomplete or corrupt batch, which reading detects and stops at.
+ * A record of an unknown type ends reading the same way instead of failing startup.
+ * </p>
+ */
+final class LogFormat
+{
+	private static final byte MAPPING = 1;
+	private static final byte ACCESS = 2;
+	private static final byte ENTRY = 3;
+	private static final byte REMOVAL = 4;
+
+	private static final int HEADER_BYTES = 8;
+	private static final int MAX_BATCH_BYTES = 1 << 30;
+
+	/**
+	 * Not instantiable.
+	 */
+	private LogFormat()
+	{
+	}
+
+	/**
+	 * Encodes records into one framed batch.
+	 *
+	 * @param records records of the batch
+	 * @return buffer ready to be written
+	 */
+	static ByteBuffer encodeBatch(Collection<? extends WalRecord> records)
+	{
+		var payload = new ByteArrayOutputStream(64 * records.size() + HEADER_BYTES);
+		try
+		{
+			var out = new DataOutputStream(payload);
+			out.writeLong(0);
+			for (WalRecord record : records)
+			{
+				writeRecord(out, record);
+			}
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+
+		ByteBuffer batch = ByteBuffer.wrap(payload.toByteArray());
+		var crc = new CRC32C();
+		crc.update(batch.array(), HEADER_BYTES, batch.capacity() - HEADER_BYTES);
+		batch.putInt(0, batch.capacity() - HEADER_BYTES);
+		batch.putInt(4, (int) crc.getValue());
+		return batch;
+	}
+
+	/**
+	 * Reads all intact batches of a file.
+	 *
+	 * @param file     segment or snapshot file
+	 * @param consumer consumer of the records in file order
+	 * @return true when the file was read to its end, false when it ended with an incomplete or corrupt batch
+	 * @throws IOException when the file cannot be read
+	 */
+	static boolean read(Path file, Consumer<WalRecord> consumer) throws IOException
+	{
+		try (InputStream stream = new BufferedInputStream(Files.newInputStream(file), 1 << 16))
+		{
+			var in = new DataInputStream(stream);
+			while (true)
+			{
+				int length;
+				try
+				{
+					length = in.readInt();
+				}
+				catch (EOFException e)
+				{
+					return true;
+				}
+
+				byte[] payload;
+				int expectedCrc;
+				try
+				{
+					expectedCrc = in.readInt();
+					if (length < 0 || length > MAX_BATCH_BYTES)
+					{
+						return false;
+					}
+					payload = in.readNBytes(length);
+				}
+				catch (EOFException e)
+				{
+					return false;
+				}
+				var crc = new CRC32C();
+				crc.update(payload);
+				if (payload.length != length || (int) crc.getValue() != expectedCrc)
+				{
+					return false;
+				}
+
+				var records = new DataInputStream(new ByteArrayInputStream(payload));
+				while (records.available() > 0)
+				{
+					WalRecord record = readRecord(records);
+					if (record == null)
+					{
+						return false;
+					}
+					consumer.accept(record);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes one record.
+	 *
+	 * @param out    destination
+	 * @param record record to write
+	 * @throws IOException when writing fails
+	 */
+	private static void writeRecord(DataOutputStream out, WalRecord record) throws IOException
+	{
+		if (record instanceof WalRecord.Mapping mapping)
+		{
+			out.writeByte(MAPPING);
+			out.writeLong(mapping.id());
+			writeString(out, mapping.fact());
+			writeString(out, mapping.originalUrl());
+		}
+		else if (record instanceof WalRecord.Access access)
+		{
+			out.writeByte(ACCESS);
+			out.writeLong(access.id());
+			out.writeInt(access.delta());
+		}
+		else if (record instanceof WalRecord.Entry entry)
+		{
+			out.writeByte(ENTRY);
+			out.writeLong(entry.id());
+			out.writeLong(entry.accessCount());
+			writeString(out, entry.fact());
+			writeString(out, entry.originalUrl());
+		}
+		else if (record instanceof WalRecord.Removal removal)
+		{
+			out.writeByte(REMOVAL);
+			out.writeLong(removal.id());
+		}
+	}
+
+	/**
+	 * Reads one record.
+	 *
+	 * @param in source positioned at a type byte
+	 * @return the record, null when its type is unknown, which reading treats like a corrupt batch
+	 * @throws IOException when the record is malformed
+	 */
+	private static WalRecord readRecord(DataInputStream in) throws IOException
+	{
+		byte type = in.readByte();
+		return switch (type)
+		{
+			case MAPPING -> new WalRecord.Mapping(in.readLong(), readString(in), readString(in));
+			case ACCESS -> new WalRecord.Access(in.readLong(), in.readInt());
+			case ENTRY ->
+			{
+				long id = in.readLong();
+				long accessCount = in.readLong();
+				yield new WalRecord.Entry(id, readString(in), readString(in), accessCount);
+			}
+			case REMOVAL -> new WalRecord.Removal(in.readLong());
+			default -> null;
+		};
+	}
+
+	/**
+	 * Writes a length-prefixed UTF-8 string.
+	 *
+	 * @param out   destination
+	 * @param value string to write
+	 * @throws IOException when writing fails
+	 */
+	private static void writeString(DataOutputStream out, String value) throws IOException
+	{
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a length-prefixed UTF-8 string.
+	 *
+	 * @param in source
+	 * @return the string
+	 * @throws IOException when reading fails
+	 */
+	private static String readString(DataInputStream in) throws IOException
+	{
+		return new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+	}
+}
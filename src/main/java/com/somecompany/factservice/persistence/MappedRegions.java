@@ -0,0 +1,100 @@
+package com.somecompany.factservice.persistence;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A file range mapped as consecutive fixed-size regions, addressed by {@code long} file positions.
+ * <p>
+ * A single {@link MappedByteBuffer} cannot exceed 2 GB, so the range is split into regions of {@code 2^regionShift}
+ * bytes. Callers lay out their data so that no value crosses a region boundary; the mapping itself stays valid after the
+ * channel is closed, until the buffers are garbage collected.
+ * </p>
+ */
+final class MappedRegions
+{
+	private final MappedByteBuffer[] regions;
+	private final int regionShift;
+	private final long regionMask;
+
+	/**
+	 * Maps the first {@code size} bytes of the channel.
+	 *
+	 * @param channel     channel to map
+	 * @param mode        read-only or read-write
+	 * @param size        number of bytes to map
+	 * @param regionShift log2 of the region size
+	 * @throws IOException when mapping fails
+	 */
+	MappedRegions(FileChannel channel, FileChannel.MapMode mode, long size, int regionShift) throws IOException
+	{
+		this.regionShift = regionShift;
+		this.regionMask = (1L << regionShift) - 1;
+		int count = (int) ((size + regionMask) >>> regionShift);
+		this.regions = new MappedByteBuffer[count];
+		for (int i = 0; i < count; i++)
+		{
+			long start = (long) i << regionShift;
+			regions[i] = channel.map(mode, start, Math.min(regionMask + 1, size - start));
+		}
+	}
+
+	/**
+	 * Reads a {@code long}.
+	 *
+	 * @param position file position
+	 * @return the value
+	 */
+	long getLong(long position)
+	{
+		return regions[(int) (position >>> regionShift)].getLong((int) (position & regionMask));
+	}
+
+	/**
+	 * Writes a {@code long}.
+	 *
+	 * @param position file position
+	 * @param value    the value
+	 */
+	void putLong(long position, long value)
+	{
+		regions[(int) (position >>> regionShift)].putLong((int) (position & regionMask), value);
+	}
+
+	/**
+	 * Reads an {@code int}.
+	 *
+	 * @param position file position
+	 * @return the value
+	 */
+	int getInt(long position)
+	{
+		return regions[(int) (position >>> regionShift)].getInt((int) (position & regionMask));
+	}
+
+	/**
+	 * Reads bytes.
+	 *
+	 * @param position file position of the first byte
+	 * @param length   number of bytes
+	 * @return the bytes
+	 */
+	byte[] getBytes(long position, int length)
+	{
+		byte[] bytes = new byte[length];
+		regions[(int) (position >>> regionShift)].get((int) (position & regionMask), bytes);
+		return bytes;
+	}
+
+	/**
+	 * Writes changes of a read-write mapping to the file.
+	 */
+	void force()
+	{
+		for (MappedByteBuffer region : regions)
+		{
+			region.force();
+		}
+	}
+}
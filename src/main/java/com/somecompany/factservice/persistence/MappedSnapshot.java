@@ -0,0 +1,479 @@
+package com.somecompany.factservice.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+
+import com.somecompany.factservice.service.urlshortener.LongUrlLookup;
+
+/**
+ * Read-optimized snapshot file that is served through a memory mapping instead of being loaded.
+ * <p>
+ * Layout, all values big-endian:
+ * </p>
+ * <ul>
+ *     <li>64 byte header: magic, version, region shift, entry count, last id, url table capacity and section offsets</li>
+ *     <li>id index: {@code [long id][long record position]} per entry, sorted by id and binary searched</li>
+ *     <li>url table: {@code [long url hash][long id]} slots, open addressing with linear probing, at most half full</li>
+ *     <li>string heap: {@code [long accessCount][int factLength][int urlLength][fact UTF-8][url UTF-8]} per entry, 8-byte
+ *     aligned and never crossing a region boundary</li>
+ * </ul>
+ * <p>
+ * Opening only maps the file, so the time to the first lookup does not depend on the number of entries. Pages are
+ * loaded by the operating system as lookups touch them. Instances are immutable and thread-safe. Once the owner and every
+ * lookup that {@link #retain() retained} it have released it, a snapshot cannot be retained again. The mapping is not
+ * unmapped eagerly, which takes internal API before Java 22 and turns a missed reference into a crash; it is reclaimed
+ * when the buffers are garbage collected.
+ * </p>
+ */
+final class MappedSnapshot implements LongUrlLookup
+{
+	/**
+	 * Value returned by {@link #position(long)} for ids that are not in the snapshot.
+	 */
+	static final long MISSING = -1;
+
+	private static final long MAGIC = 0x464143545350414eL;
+	private static final int VERSION = 2;
+	private static final int HEADER_BYTES = 64;
+	private static final int SLOT_BYTES = 16;
+	private static final int RECORD_HEADER_BYTES = 16;
+	private static final int ALIGNMENT = 8;
+	private static final int MIN_URL_CAPACITY = 16;
+	private static final int REGION_SHIFT = 30;
+
+	private final MappedRegions regions;
+
+	/**
+	 * Lookups reading the mapping plus one for its owner; no lookup retains it any more once it dropped to 0.
+	 */
+	private final AtomicLong references = new AtomicLong(1);
+
+	private final long count;
+	private final long lastId;
+	private final long urlTableOffset;
+	private final long urlMask;
+
+	/**
+	 * Constructs a snapshot over a mapped file.
+	 *
+	 * @param regions        the mapped file
+	 * @param count          number of entries
+	 * @param lastId         highest id
+	 * @param urlTableOffset position of the url table
+	 * @param urlCapacity    number of url table slots
+	 */
+	private MappedSnapshot(MappedRegions regions, long count, long lastId, long urlTableOffset, long urlCapacity)
+	{
+		this.regions = regions;
+		this.count = count;
+		this.lastId = lastId;
+		this.urlTableOffset = urlTableOffset;
+		this.urlMask = urlCapacity - 1;
+	}
+
+	/**
+	 * Maps a snapshot file.
+	 *
+	 * @param file snapshot file
+	 * @return the snapshot
+	 * @throws IOException when the file cannot be mapped or is not a snapshot
+	 */
+	static MappedSnapshot open(Path file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			while (header.hasRemaining())
+			{
+				if (channel.read(header, header.position()) < 0)
+				{
+					throw new EOFException("Truncated snapshot " + file);
+				}
+			}
+			int regionShift = header.getInt(12);
+			if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION || regionShift < 6 || regionShift > REGION_SHIFT)
+			{
+				throw new IOException("Not a fact snapshot: " + file);
+			}
+			var regions = new MappedRegions(channel, FileChannel.MapMode.READ_ONLY, channel.size(), regionShift);
+			return new MappedSnapshot(regions, header.getLong(16), header.getLong(24), header.getLong(40), header.getLong(32));
+		}
+	}
+
+	/**
+	 * Writes a snapshot file.
+	 *
+	 * @param file    file to write
+	 * @param count   number of entries
+	 * @param entries exactly {@code count} entries in ascending id order
+	 * @throws IOException when writing fails
+	 */
+	static void write(Path file, long count, Iterator<WalRecord.Entry> entries) throws IOException
+	{
+		write(file, count, 0, entries, REGION_SHIFT);
+	}
+
+	/**
+	 * Writes a snapshot file that records a highest id beyond its last entry, so that the ids of removed facts are not
+	 * issued again.
+	 *
+	 * @param file     file to write
+	 * @param count    number of entries
+	 * @param issuedId highest id issued so far; the id of the last entry is used when it is higher
+	 * @param entries  exactly {@code count} entries in ascending id order
+	 * @throws IOException when writing fails
+	 */
+	static void write(Path file, long count, long issuedId, Iterator<WalRecord.Entry> entries) throws IOException
+	{
+		write(file, count, issuedId, entries, REGION_SHIFT);
+	}
+
+	/**
+	 * Writes a snapshot file with the given region size.
+	 *
+	 * @param file        file to write
+	 * @param count       number of entries
+	 * @param entries     exactly {@code count} entries in ascending id order
+	 * @param regionShift log2 of the region size records must not cross
+	 * @throws IOException              when writing fails
+	 * @throws IllegalArgumentException when the entries are not in ascending id order or a record exceeds a region
+	 */
+	static void write(Path file, long count, Iterator<WalRecord.Entry> entries, int regionShift) throws IOException
+	{
+		write(file, count, 0, entries, regionShift);
+	}
+
+	/**
+	 * Writes a snapshot file with the given highest id and region size.
+	 *
+	 * @param file        file to write
+	 * @param count       number of entries
+	 * @param issuedId    highest id issued so far; the id of the last entry is used when it is higher
+	 * @param entries     exactly {@code count} entries in ascending id order
+	 * @param regionShift log2 of the region size records must not cross
+	 * @throws IOException              when writing fails
+	 * @throws IllegalArgumentException when the entries are not in ascending id order or a record exceeds a region
+	 */
+	private static void write(Path file, long count, long issuedId, Iterator<WalRecord.Entry> entries, int regionShift) throws IOException
+	{
+		long urlCapacity = Math.max(MIN_URL_CAPACITY, count == 0 ? 0 : Long.highestOneBit(count * 2 - 1) << 1);
+		long urlTableOffset = HEADER_BYTES + count * SLOT_BYTES;
+		long heapOffset = urlTableOffset + urlCapacity * SLOT_BYTES;
+		long urlMask = urlCapacity - 1;
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			var index = new MappedRegions(channel, FileChannel.MapMode.READ_WRITE, heapOffset, regionShift);
+			var heap = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel.position(heapOffset)), 1 << 16));
+			long position = heapOffset;
+			long written = 0;
+			long lastId = 0;
+			while (entries.hasNext())
+			{
+				WalRecord.Entry entry = entries.next();
+				if (entry.id() <= lastId || written == count)
+				{
+					throw new IllegalArgumentException("Snapshot entries must be %d entries in ascending id order.".formatted(count));
+				}
+				byte[] fact = entry.fact().getBytes(StandardCharsets.UTF_8);
+				byte[] url = entry.originalUrl().getBytes(StandardCharsets.UTF_8);
+				int recordBytes = RECORD_HEADER_BYTES + fact.length + url.length;
+				if (recordBytes > 1L << regionShift)
+				{
+					throw new IllegalArgumentException("Fact of %d bytes exceeds the snapshot region size.".formatted(recordBytes));
+				}
+
+				long start = (position + ALIGNMENT - 1) & -ALIGNMENT;
+				if (start >>> regionShift != (start + recordBytes - 1) >>> regionShift)
+				{
+					start = ((start >>> regionShift) + 1) << regionShift;
+				}
+				for (; position < start; position++)
+				{
+					heap.write(0);
+				}
+				heap.writeLong(entry.accessCount());
+				heap.writeInt(fact.length);
+				heap.writeInt(url.length);
+				heap.write(fact);
+				heap.write(url);
+				position += recordBytes;
+
+				index.putLong(HEADER_BYTES + written * SLOT_BYTES, entry.id());
+				index.putLong(HEADER_BYTES + written * SLOT_BYTES + 8, start);
+				long hash = LongUrlLookup.hash(entry.originalUrl());
+				long slot = hash & urlMask;
+				while (index.getLong(urlTableOffset + slot * SLOT_BYTES + 8) != 0)
+				{
+					slot = (slot + 1) & urlMask;
+				}
+				index.putLong(urlTableOffset + slot * SLOT_BYTES, hash);
+				index.putLong(urlTableOffset + slot * SLOT_BYTES + 8, entry.id());
+
+				written++;
+				lastId = entry.id();
+			}
+			if (written != count)
+			{
+				throw new IllegalArgumentException("Snapshot announced %d entries but got %d.".formatted(count, written));
+			}
+			heap.flush();
+
+			index.putLong(0, MAGIC);
+			index.putLong(8, (long) VERSION << 32 | regionShift);
+			index.putLong(16, count);
+			index.putLong(24, Math.max(lastId, issuedId));
+			index.putLong(32, urlCapacity);
+			index.putLong(40, urlTableOffset);
+			index.putLong(48, heapOffset);
+			index.putLong(56, position);
+			index.force();
+			channel.force(true);
+		}
+	}
+
+	/**
+	 * Returns the number of entries.
+	 *
+	 * @return entry count
+	 */
+	long count()
+	{
+		return count;
+	}
+
+	/**
+	 * Returns the highest id issued when the snapshot was written, at least the id of its last entry.
+	 *
+	 * @return last id, 0 for an empty snapshot of a fresh log
+	 */
+	long lastId()
+	{
+		return lastId;
+	}
+
+	/**
+	 * Takes a reference that keeps the mapping alive until it is released.
+	 *
+	 * @return true when taken, false when the snapshot was already released by its owner and every reader
+	 */
+	boolean retain()
+	{
+		long current;
+		do
+		{
+			current = references.get();
+			if (current == 0)
+			{
+				return false;
+			}
+		}
+		while (!references.compareAndSet(current, current + 1));
+		return true;
+	}
+
+	/**
+	 * Drops a reference taken by {@link #retain()}, or the owner's; after the last one the snapshot cannot be retained.
+	 */
+	void release()
+	{
+		references.decrementAndGet();
+	}
+
+	/**
+	 * Returns the id at a place of the id index.
+	 *
+	 * @param ordinal place in ascending id order, below {@link #count()}
+	 * @return the id
+	 */
+	long idAt(long ordinal)
+	{
+		return regions.getLong(HEADER_BYTES + ordinal * SLOT_BYTES);
+	}
+
+	/**
+	 * Returns the record position at a place of the id index.
+	 *
+	 * @param ordinal place in ascending id order, below {@link #count()}
+	 * @return the record position
+	 */
+	long positionAt(long ordinal)
+	{
+		return regions.getLong(HEADER_BYTES + ordinal * SLOT_BYTES + 8);
+	}
+
+	/**
+	 * Finds the place of the first id greater than the given one by binary search over the id index.
+	 *
+	 * @param id fact id, 0 for the first place
+	 * @return the place, {@link #count()} when there is no greater id
+	 */
+	long ordinalAfter(long id)
+	{
+		long low = 0;
+		long high = count;
+		while (low < high)
+		{
+			long middle = (low + high) >>> 1;
+			if (idAt(middle) <= id)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Looks up the record of an id by binary search over the id index.
+	 *
+	 * @param id fact id
+	 * @return position of the record, or {@link #MISSING}
+	 */
+	long position(long id)
+	{
+		if (id <= 0 || id > lastId)
+		{
+			return MISSING;
+		}
+		long low = 0;
+		long high = count - 1;
+		while (low <= high)
+		{
+			long middle = (low + high) >>> 1;
+			long middleId = regions.getLong(HEADER_BYTES + middle * SLOT_BYTES);
+			if (middleId < id)
+			{
+				low = middle + 1;
+			}
+			else if (middleId > id)
+			{
+				high = middle - 1;
+			}
+			else
+			{
+				return regions.getLong(HEADER_BYTES + middle * SLOT_BYTES + 8);
+			}
+		}
+		return MISSING;
+	}
+
+	/**
+	 * Returns the access count stored in a record.
+	 *
+	 * @param position record position
+	 * @return access count at the time of the snapshot
+	 */
+	long accessCount(long position)
+	{
+		return regions.getLong(position);
+	}
+
+	/**
+	 * Decodes the fact text of a record.
+	 *
+	 * @param position record position
+	 * @return fact text
+	 */
+	String fact(long position)
+	{
+		return new String(regions.getBytes(position + RECORD_HEADER_BYTES, regions.getInt(position + 8)), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Decodes the original url of a record.
+	 *
+	 * @param position record position
+	 * @return original url
+	 */
+	String originalUrl(long position)
+	{
+		int factLength = regions.getInt(position + 8);
+		return new String(regions.getBytes(position + RECORD_HEADER_BYTES + factLength, regions.getInt(position + 12)), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns the state of a fact.
+	 *
+	 * @param id fact id
+	 * @return the entry, or null when the id is not in the snapshot
+	 */
+	WalRecord.Entry entry(long id)
+	{
+		long position = position(id);
+		return position == MISSING ? null : new WalRecord.Entry(id, fact(position), originalUrl(position), accessCount(position));
+	}
+
+	/**
+	 * Returns all entries in id order, decoding them one at a time.
+	 *
+	 * @return iterator over the entries
+	 */
+	Iterator<WalRecord.Entry> entries()
+	{
+		return new Iterator<>()
+		{
+			private long next;
+
+			@Override
+			public boolean hasNext()
+			{
+				return next < count;
+			}
+
+			@Override
+			public WalRecord.Entry next()
+			{
+				if (next >= count)
+				{
+					throw new NoSuchElementException();
+				}
+				long id = idAt(next);
+				long position = positionAt(next);
+				next++;
+				return new WalRecord.Entry(id, fact(position), originalUrl(position), accessCount(position));
+			}
+		};
+	}
+
+	/**
+	 * Looks up the id of a long url in the url table.
+	 *
+	 * @param hash    hash of the url
+	 * @param matches verifies that a candidate id with the same hash belongs to the url
+	 * @return the id, or {@link #NOT_FOUND}
+	 */
+	@Override
+	public long find(long hash, LongPredicate matches)
+	{
+		for (long slot = hash & urlMask, probes = 0; probes <= urlMask; slot = (slot + 1) & urlMask, probes++)
+		{
+			long id = regions.getLong(urlTableOffset + slot * SLOT_BYTES + 8);
+			if (id == 0)
+			{
+				return NOT_FOUND;
+			}
+			if (regions.getLong(urlTableOffset + slot * SLOT_BYTES) == hash && matches.test(id))
+			{
+				return id;
+			}
+		}
+		return NOT_FOUND;
+	}
+}
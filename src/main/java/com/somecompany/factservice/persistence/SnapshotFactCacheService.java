@@ -0,0 +1,565 @@
+package com.somecompany.factservice.persistence;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+import java.util.function.ObjLongConsumer;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import com.somecompany.factservice.cache.AccessCounter;
+import com.somecompany.factservice.cache.FactCacheDTO;
+import com.somecompany.factservice.cache.FactCacheService;
+import com.somecompany.factservice.exception.ResourceNotFoundException;
+import com.somecompany.factservice.service.urlshortener.LongUrlLookup;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+
+/**
+ * FactCacheService that serves facts missing from the configured cache storage out of a memory-mapped snapshot.
+ * <p>
+ * After a restart the snapshot is attached as soon as it is mapped, so redirects are served without loading it first.
+ * A fact is promoted into the mutable storage only when it is counted; lookups and redirects read it from the snapshot.
+ * Facts in the storage take precedence. Without an attached snapshot every call is delegated to the storage. Removed
+ * facts are hidden from the snapshot by their id until a snapshot without them is attached.
+ * </p>
+ * <p>
+ * Only created when persistence is enabled; otherwise the storage is the only FactCacheService. Every lookup retains the
+ * snapshot it reads, so that a snapshot replaced by a newer one is handed to no further lookup once the last one reading
+ * it is done, and its mapping is left to the garbage collector.
+ * </p>
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "factservice.persistence.enabled", havingValue = "true")
+public class SnapshotFactCacheService implements FactCacheService
+{
+	private final FactCacheService storage;
+	private final ShortCodeCodec shortCodeCodec;
+
+	/**
+	 * Snapshot facts missing from the storage are served from, null until one is attached.
+	 */
+	private volatile MappedSnapshot snapshot;
+
+	/**
+	 * Ids of removed facts that the attached snapshot still contains.
+	 */
+	private final Set<Long> removedIds = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Constructs the service over the configured storage.
+	 *
+	 * @param storage        mutable cache storage selected by {@code factservice.cache.storage}
+	 * @param shortCodeCodec codec decoding short urls to the ids the snapshot is keyed by
+	 */
+	public SnapshotFactCacheService(@Qualifier("factCacheStorage") FactCacheService storage, ShortCodeCodec shortCodeCodec)
+	{
+		this.storage = storage;
+		this.shortCodeCodec = shortCodeCodec;
+	}
+
+	/**
+	 * Inserts the fact into the storage unless it is cached there or in the snapshot.
+	 *
+	 * @param factCacheDTO record with fact related data
+	 */
+	@Override
+	public void insertIfMissing(FactCacheDTO factCacheDTO)
+	{
+		MappedSnapshot current = retain();
+		try
+		{
+			if (position(current, factCacheDTO.shortUrl()) != MappedSnapshot.MISSING)
+			{
+				return;
+			}
+		}
+		finally
+		{
+			release(current);
+		}
+		storage.insertIfMissing(factCacheDTO);
+	}
+
+	/**
+	 * Returns the cached data of the short url from the storage or, as a detached copy, from the snapshot.
+	 *
+	 * @param shortUrl shorter form of the long url
+	 * @return the cached FactCacheDTO, or null when the short url is not cached
+	 */
+	@Override
+	public FactCacheDTO find(String shortUrl)
+	{
+		FactCacheDTO factCacheDTO = storage.find(shortUrl);
+		if (factCacheDTO != null || snapshot == null)
+		{
+			return factCacheDTO;
+		}
+		MappedSnapshot current = retain();
+		try
+		{
+			long position = position(current, shortUrl);
+			return position == MappedSnapshot.MISSING ? null : toDTO(current, position, shortUrl);
+		}
+		finally
+		{
+			release(current);
+		}
+	}
+
+	/**
+	 * Returns the access count from the storage or, without promoting the fact, from the snapshot.
+	 *
+	 * @param shortUrl shorter form of the long url
+	 * @return the access count, or -1 when the short url is not cached
+	 */
+	@Override
+	public long findAccessCount(String shortUrl)
+	{
+		long accessCount = storage.findAccessCount(shortUrl);
+		if (accessCount >= 0 || snapshot == null)
+		{
+			return accessCount;
+		}
+		MappedSnapshot current = retain();
+		try
+		{
+			long position = position(current, shortUrl);
+			return position == MappedSnapshot.MISSING ? -1 : current.accessCount(position);
+		}
+		finally
+		{
+			release(current);
+		}
+	}
+
+	/**
+	 * Returns the original url from the storage or, without promoting the fact, from the snapshot.
+	 *
+	 * @param shortUrl shorter form of the long url
+	 * @return original longer version of the shorter url, or null when the short url is not cached
+	 */
+	@Override
+	public String findOriginalUrl(String shortUrl)
+	{
+		String originalUrl = storage.findOriginalUrl(shortUrl);
+		if (originalUrl != null || snapshot == null)
+		{
+			return originalUrl;
+		}
+		MappedSnapshot current = retain();
+		try
+		{
+			long position = position(current, shortUrl);
+			return position == MappedSnapshot.MISSING ? null : current.originalUrl(position);
+		}
+		finally
+		{
+			release(current);
+		}
+	}
+
+	/**
+	 * Adds to the access count, promoting a fact that is only in the snapshot into the storage first. The fallback to
+	 * the snapshot is taken on a null lookup, only a short url missing from both is reported by the storage's exception.
+	 *
+	 * @param shortUrl shorter form of the long url
+	 * @param delta    number of accesses
+	 * @throws IllegalArgumentException  when the short url is null or empty
+	 * @throws ResourceNotFoundException when the short url is neither in the storage nor in the snapshot
+	 */
+	@Override
+	public void incrementAccessCount(String shortUrl, long delta)
+	{
+		if (resolveAndRecord(shortUrl, delta) == null)
+		{
+			storage.incrementAccessCount(shortUrl, delta);
+		}
+	}
+
+	/**
+	 * Returns the original url from the storage or the snapshot, decoding only the url of a snapshot record. The
+	 * fallback to the snapshot is taken on a null lookup, only a short url missing from both is reported by the storage's
+	 * exception.
+	 *
+	 * @param shortUrl shorter form of the long url
+	 * @return original longer version of the shorter url
+	 * @throws IllegalArgumentException  when the short url is null or empty
+	 * @throws ResourceNotFoundException when the short url is neither in the storage nor in the snapshot
+	 */
+	@Override
+	public String getLongUrl(String shortUrl)
+	{
+		String longUrl = resolveAndRecord(shortUrl, 0);
+		return longUrl != null ? longUrl : storage.getLongUrl(shortUrl);
+	}
+
+	/**
+	 * Adds to the access count and returns the original url from the storage, or from the snapshot when the fact is only
+	 * in the snapshot, promoting it into the storage first unless it is only resolved.
+	 *
+	 * @param shortUrl shorter form of the long url
+	 * @param delta    number of accesses, 0 to only resolve the short url
+	 * @return original longer version of the shorter url, or null when the short url is neither in the storage nor in
+	 * the snapshot
+	 */
+	@Override
+	public String resolveAndRecord(String shortUrl, long delta)
+	{
+		String longUrl = storage.resolveAndRecord(shortUrl, delta);
+		if (longUrl != null || snapshot == null)
+		{
+			return longUrl;
+		}
+		MappedSnapshot current = retain();
+		try
+		{
+			long position = position(current, shortUrl);
+			if (position == MappedSnapshot.MISSING)
+			{
+				return null;
+			}
+			if (delta == 0)
+			{
+				return current.originalUrl(position);
+			}
+			// concurrent promotions of the same fact insert only once and all increment the promoted counter
+			storage.insertIfMissing(toDTO(current, position, shortUrl));
+		}
+		finally
+		{
+			release(current);
+		}
+		return storage.resolveAndRecord(shortUrl, delta);
+	}
+
+	/**
+	 * Adds accesses of a short url resolved before to the storage, promoting a fact that is only in the snapshot into
+	 * the storage first.
+	 *
+	 * @param shortUrl shorter form of the long url
+	 * @param delta    number of accesses
+	 * @return true when the accesses were added, false when the short url is neither in the storage nor in the snapshot
+	 */
+	@Override
+	public boolean recordAccesses(String shortUrl, long delta)
+	{
+		if (storage.recordAccesses(shortUrl, delta))
+		{
+			return true;
+		}
+		if (snapshot == null)
+		{
+			return false;
+		}
+		MappedSnapshot current = retain();
+		try
+		{
+			long position = position(current, shortUrl);
+			if (position == MappedSnapshot.MISSING)
+			{
+				return false;
+			}
+			storage.insertIfMissing(toDTO(current, position, shortUrl));
+		}
+		finally
+		{
+			release(current);
+		}
+		return storage.recordAccesses(shortUrl, delta);
+	}
+
+	/**
+	 * Removes the fact from the storage and hides it in the snapshot.
+	 *
+	 * @param shortUrl shorter form of the long url
+	 * @return the removed FactCacheDTO, or null when the short url was neither in the storage nor in the snapshot
+	 */
+	@Override
+	public FactCacheDTO remove(String shortUrl)
+	{
+		FactCacheDTO removed = storage.remove(shortUrl);
+		MappedSnapshot current = retain();
+		try
+		{
+			long position = position(current, shortUrl);
+			if (position == MappedSnapshot.MISSING)
+			{
+				return removed;
+			}
+			removedIds.add(shortCodeCodec.decode(shortUrl));
+			return removed != null ? removed : toDTO(current, position, shortUrl);
+		}
+		finally
+		{
+			release(current);
+		}
+	}
+
+	/**
+	 * Returns a view of the facts of the storage followed by the snapshot facts that were not promoted. Snapshot facts
+	 * are decoded one at a time while the view is iterated, in id order and weakly consistent with snapshots attached in
+	 * the meantime, instead of being loaded up front.
+	 *
+	 * @return collection of all cached FactCacheDTOs
+	 */
+	@Override
+	public Collection<FactCacheDTO> getAll()
+	{
+		Collection<FactCacheDTO> stored = storage.getAll();
+		if (snapshot == null)
+		{
+			return stored;
+		}
+		return new AbstractCollection<>()
+		{
+			@Override
+			public Iterator<FactCacheDTO> iterator()
+			{
+				return new SnapshotIterator(stored.iterator());
+			}
+
+			@Override
+			public int size()
+			{
+				long[] size = { stored.size() };
+				forEachSnapshotAccessCount((shortUrl, accessCount) -> size[0]++);
+				return (int) Math.min(size[0], Integer.MAX_VALUE);
+			}
+		};
+	}
+
+	/**
+	 * Passes the access counts of the storage and of the snapshot facts that were not promoted, reading only ids and
+	 * counts of the snapshot records.
+	 *
+	 * @param consumer receives each short url and its access count
+	 */
+	@Override
+	public void forEachAccessCount(ObjLongConsumer<String> consumer)
+	{
+		storage.forEachAccessCount(consumer);
+		forEachSnapshotAccessCount(consumer);
+	}
+
+	/**
+	 * Attaches a snapshot, taking over the caller's reference, and releases the previous one, which is reclaimed once the
+	 * last lookup still reading it is done. Facts promoted so far stay in the storage and take precedence, removed facts
+	 * stay hidden.
+	 *
+	 * @param snapshot the snapshot
+	 */
+	void attach(MappedSnapshot snapshot)
+	{
+		MappedSnapshot previous = this.snapshot;
+		this.snapshot = snapshot;
+		removedIds.removeIf(id -> snapshot.position(id) == MappedSnapshot.MISSING);
+		if (previous != null && previous != snapshot)
+		{
+			previous.release();
+		}
+	}
+
+	/**
+	 * Looks up the id of a long url in the attached snapshot, the read-only index the shortener falls back to after a
+	 * restart.
+	 *
+	 * @param hash    hash of the url
+	 * @param matches verifies that a candidate id with the same hash belongs to the url
+	 * @return the id, or {@link LongUrlLookup#NOT_FOUND}
+	 */
+	long findId(long hash, LongPredicate matches)
+	{
+		MappedSnapshot current = retain();
+		try
+		{
+			return current == null ? LongUrlLookup.NOT_FOUND : current.find(hash, matches);
+		}
+		finally
+		{
+			release(current);
+		}
+	}
+
+	/**
+	 * Inserts a recovered fact into the storage regardless of the snapshot.
+	 *
+	 * @param factCacheDTO the recovered fact
+	 */
+	void restore(FactCacheDTO factCacheDTO)
+	{
+		storage.insertIfMissing(factCacheDTO);
+	}
+
+	/**
+	 * Passes the access counts of the snapshot facts that are neither promoted nor removed.
+	 *
+	 * @param consumer receives each short url and its access count
+	 */
+	private void forEachSnapshotAccessCount(ObjLongConsumer<String> consumer)
+	{
+		MappedSnapshot current = retain();
+		if (current == null)
+		{
+			return;
+		}
+		try
+		{
+			for (long ordinal = 0; ordinal < current.count(); ordinal++)
+			{
+				long id = current.idAt(ordinal);
+				String shortUrl = shortCodeCodec.encode(id);
+				if (!removedIds.contains(id) && storage.findAccessCount(shortUrl) < 0)
+				{
+					consumer.accept(shortUrl, current.accessCount(current.positionAt(ordinal)));
+				}
+			}
+		}
+		finally
+		{
+			current.release();
+		}
+	}
+
+	/**
+	 * Retains the attached snapshot. A snapshot replaced and released concurrently cannot be retained any more, in which
+	 * case the one replacing it, already attached by then, is retained instead.
+	 *
+	 * @return the retained snapshot, null when none is attached
+	 */
+	private MappedSnapshot retain()
+	{
+		while (true)
+		{
+			MappedSnapshot current = snapshot;
+			if (current == null || current.retain())
+			{
+				return current;
+			}
+		}
+	}
+
+	/**
+	 * Releases a snapshot retained by {@link #retain()}.
+	 *
+	 * @param current the snapshot, may be null
+	 */
+	private static void release(MappedSnapshot current)
+	{
+		if (current != null)
+		{
+			current.release();
+		}
+	}
+
+	/**
+	 * Returns the snapshot position of a short url that was not removed.
+	 *
+	 * @param snapshot snapshot to look in, may be null
+	 * @param shortUrl the short url
+	 * @return record position, or {@link MappedSnapshot#MISSING}
+	 */
+	private long position(MappedSnapshot snapshot, String shortUrl)
+	{
+		if (snapshot == null)
+		{
+			return MappedSnapshot.MISSING;
+		}
+		long id = shortCodeCodec.decode(shortUrl);
+		return !removedIds.isEmpty() && removedIds.contains(id) ? MappedSnapshot.MISSING : snapshot.position(id);
+	}
+
+	/**
+	 * Decodes a snapshot record into a detached FactCacheDTO.
+	 *
+	 * @param snapshot snapshot holding the record
+	 * @param position record position
+	 * @param shortUrl short url of the record
+	 * @return the FactCacheDTO
+	 */
+	private static FactCacheDTO toDTO(MappedSnapshot snapshot, long position, String shortUrl)
+	{
+		return new FactCacheDTO(snapshot.fact(position), snapshot.originalUrl(position), shortUrl, new AccessCounter(snapshot.accessCount(position)));
+	}
+
+	/**
+	 * Iterates the stored facts, then the snapshot facts that were not promoted in id order. Each step retains the
+	 * snapshot attached at that time and continues after the id returned last, so no mapping is held between steps.
+	 */
+	private final class SnapshotIterator implements Iterator<FactCacheDTO>
+	{
+		private final Iterator<FactCacheDTO> stored;
+		private long lastId;
+		private FactCacheDTO next;
+
+		/**
+		 * Constructs the iterator.
+		 *
+		 * @param stored iterator over the facts of the storage
+		 */
+		private SnapshotIterator(Iterator<FactCacheDTO> stored)
+		{
+			this.stored = stored;
+		}
+
+		@Override
+		public boolean hasNext()
+		{
+			if (next == null)
+			{
+				next = stored.hasNext() ? stored.next() : nextFromSnapshot();
+			}
+			return next != null;
+		}
+
+		@Override
+		public FactCacheDTO next()
+		{
+			if (!hasNext())
+			{
+				throw new NoSuchElementException();
+			}
+			FactCacheDTO factCacheDTO = next;
+			next = null;
+			return factCacheDTO;
+		}
+
+		/**
+		 * Decodes the next snapshot fact after the id returned last that is neither promoted nor removed.
+		 *
+		 * @return the fact, null when there is none
+		 */
+		private FactCacheDTO nextFromSnapshot()
+		{
+			MappedSnapshot current = retain();
+			if (current == null)
+			{
+				return null;
+			}
+			try
+			{
+				for (long ordinal = current.ordinalAfter(lastId); ordinal < current.count(); ordinal++)
+				{
+					lastId = current.idAt(ordinal);
+					String shortUrl = shortCodeCodec.encode(lastId);
+					if (!removedIds.contains(lastId) && storage.findAccessCount(shortUrl) < 0)
+					{
+						return toDTO(current, current.positionAt(ordinal), shortUrl);
+					}
+				}
+				return null;
+			}
+			finally
+			{
+				current.release();
+			}
+		}
+	}
+}
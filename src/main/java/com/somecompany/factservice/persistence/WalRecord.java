@@ -0,0 +1,56 @@
+package com.somecompany.factservice.persistence;
+
+/**
+ * Record of the write-ahead log. Facts are identified by the id encoded in their short url.
+ */
+sealed interface WalRecord
+{
+	/**
+	 * Id of the fact the record refers to.
+	 *
+	 * @return fact id
+	 */
+	long id();
+
+	/**
+	 * A new short url mapping.
+	 *
+	 * @param id          fact id
+	 * @param fact        fact text
+	 * @param originalUrl original long url
+	 */
+	record Mapping(long id, String fact, String originalUrl) implements WalRecord
+	{
+	}
+
+	/**
+	 * Accesses of a short url since the previous record for it.
+	 *
+	 * @param id    fact id
+	 * @param delta number of accesses
+	 */
+	record Access(long id, int delta) implements WalRecord
+	{
+	}
+
+	/**
+	 * Removal of an expired short url.
+	 *
+	 * @param id fact id
+	 */
+	record Removal(long id) implements WalRecord
+	{
+	}
+
+	/**
+	 * Complete state of a fact, as rebuilt from the log and held in snapshots.
+	 *
+	 * @param id          fact id
+	 * @param fact        fact text
+	 * @param originalUrl original long url
+	 * @param accessCount access count
+	 */
+	record Entry(long id, String fact, String originalUrl, long accessCount) implements WalRecord
+	{
+	}
+}
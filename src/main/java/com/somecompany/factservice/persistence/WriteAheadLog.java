@@ -0,0 +1,695 @@
+package com.somecompany.factservice.persistence;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.somecompany.factservice.cache.AccessCounter;
+import com.somecompany.factservice.cache.FactCacheDTO;
+import com.somecompany.factservice.config.PersistenceProperties;
+import com.somecompany.factservice.service.urlshortener.LongUrlLookup;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+import com.somecompany.factservice.service.urlshortener.URLShortenerService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Append-only write-ahead log of new short url mappings, access count deltas and removals, with periodic snapshots.
+ * <p>
+ * Callers enqueue records; a single writer thread drains the queue and group-commits everything pending as one batch,
+ * summing access deltas per fact. In {@code batch} fsync mode each batch is forced to disk before the callers waiting on
+ * their mappings are released, in {@code interval} mode once it is written and forcing happens at most once per interval.
+ * </p>
+ * <p>
+ * The log is split into numbered segments. A snapshot merges the previous snapshot with the changes of all closed
+ * segments into the complete state at a segment boundary, after which those files are deleted. Snapshots are built from
+ * the files only, never from the live caches, so they are exact and replaying later segments never counts an access
+ * twice. They use the read-optimized {@link MappedSnapshot} format.
+ * </p>
+ * <p>
+ * On startup the latest snapshot is memory-mapped and attached to the fact cache and the shortener without loading it.
+ * Only the facts changed by the segments after it are replayed into the mutable cache. This restores the short url
+ * mappings, the access counts and the shortener's counter before any request is served, in a time that depends on the
+ * log written since the last snapshot rather than on the number of facts. A segment ending with a torn batch, as left by
+ * a crash, is replayed up to that batch.
+ * </p>
+ */
+@Service
+public class WriteAheadLog
+{
+	private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+	private static final Pattern SEGMENT = Pattern.compile("wal-(\\d{20})\\.log");
+	private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\d{20})\\.dat");
+	private static final CompletableFuture<Void> COMMITTED = CompletableFuture.completedFuture(null);
+	private static final long IDLE_POLL_MILLIS = 100;
+	private static final long ROTATION_TIMEOUT_SECONDS = 30;
+
+	private final PersistenceProperties properties;
+	private final SnapshotFactCacheService factCacheService;
+	private final URLShortenerService urlShortenerService;
+	private final ShortCodeCodec shortCodeCodec;
+
+	/**
+	 * Records waiting for the writer thread.
+	 */
+	private final BlockingQueue<Pending> queue;
+
+	/**
+	 * Pending request of the snapshotter to close the current segment, completed with the number of the next one.
+	 */
+	private final AtomicReference<CompletableFuture<Long>> rotationRequest = new AtomicReference<>();
+
+	/**
+	 * Records written since the last snapshot.
+	 */
+	private final AtomicLong recordsSinceSnapshot = new AtomicLong();
+
+	private final Counter recordCounter;
+	private final Counter droppedCounter;
+	private final DistributionSummary batchSizeSummary;
+	private final Timer fsyncTimer;
+
+	private volatile boolean running;
+	private Thread writer;
+	private ScheduledExecutorService snapshotter;
+
+	/**
+	 * Current segment, only accessed by the writer thread after startup.
+	 */
+	private FileChannel segment;
+	private long segmentNumber;
+	private long lastForceNanos;
+
+	/**
+	 * Latest snapshot and its number, only accessed by the snapshotter after startup.
+	 */
+	private MappedSnapshot snapshot;
+	private long snapshotNumber;
+
+	/**
+	 * Highest id issued before startup, including the ids of removed facts.
+	 */
+	private volatile long lastRecoveredId;
+
+	/**
+	 * Constructs the log and registers its metrics.
+	 *
+	 * @param properties          log directory, fsync and snapshot settings
+	 * @param factCacheService    cache the latest snapshot is attached to and changes are restored into on startup, empty
+	 *                            when persistence is disabled
+	 * @param urlShortenerService shortener restored on startup
+	 * @param shortCodeCodec      codec translating between short urls and the ids logged
+	 * @param meterRegistry       registry exposing written records, batch sizes and fsync latency
+	 */
+	public WriteAheadLog(PersistenceProperties properties, Optional<SnapshotFactCacheService> factCacheService, URLShortenerService urlShortenerService,
+		ShortCodeCodec shortCodeCodec, MeterRegistry meterRegistry)
+	{
+		this.properties = properties;
+		this.factCacheService = factCacheService.orElse(null);
+		this.urlShortenerService = urlShortenerService;
+		this.shortCodeCodec = shortCodeCodec;
+		this.queue = new ArrayBlockingQueue<>(properties.queueCapacity());
+
+		Gauge.builder("factservice.persistence.queue.depth", queue, BlockingQueue::size)
+			.description("Records waiting for the write-ahead log writer")
+			.register(meterRegistry);
+		this.recordCounter = Counter.builder("factservice.persistence.records")
+			.description("Records written to the write-ahead log after coalescing access deltas")
+			.register(meterRegistry);
+		this.droppedCounter = Counter.builder("factservice.persistence.dropped")
+			.description("Access records dropped because the write-ahead log queue was full")
+			.register(meterRegistry);
+		this.batchSizeSummary = DistributionSummary.builder("factservice.persistence.batch.size")
+			.description("Records per group-committed batch")
+			.register(meterRegistry);
+		this.fsyncTimer = Timer.builder("factservice.persistence.fsync")
+			.description("Time spent forcing the write-ahead log to disk")
+			.register(meterRegistry);
+	}
+
+	/**
+	 * Recovers the persisted state and starts the writer and snapshotter when persistence is enabled.
+	 *
+	 * @throws UncheckedIOException when the log directory cannot be read or written
+	 */
+	@PostConstruct
+	void start()
+	{
+		if (!properties.enabled())
+		{
+			return;
+		}
+		try
+		{
+			Files.createDirectories(properties.directory());
+			recover();
+			segmentNumber = Math.max(lastNumber(SEGMENT), lastNumber(SNAPSHOT)) + 1;
+			segment = openSegment(segmentNumber);
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException("Could not open the write-ahead log in " + properties.directory(), e);
+		}
+
+		running = true;
+		lastForceNanos = System.nanoTime();
+		writer = new Thread(this::writeLoop, "wal-writer");
+		writer.setDaemon(true);
+		writer.start();
+
+		snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "wal-snapshotter");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long intervalMillis = properties.snapshotInterval().toMillis();
+		snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the snapshotter and lets the writer drain the queue and force the log before returning.
+	 */
+	@PreDestroy
+	void stop()
+	{
+		if (!running)
+		{
+			return;
+		}
+		snapshotter.shutdownNow();
+		running = false;
+		try
+		{
+			writer.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Logs a new short url mapping.
+	 *
+	 * @param factCacheDTO the newly cached fact
+	 * @return future completed once the mapping is durable according to the fsync mode, immediately when persistence is
+	 * disabled
+	 */
+	public CompletableFuture<Void> appendMapping(FactCacheDTO factCacheDTO)
+	{
+		long id = running ? shortCodeCodec.decode(factCacheDTO.shortUrl()) : ShortCodeCodec.INVALID;
+		if (id == ShortCodeCodec.INVALID)
+		{
+			return COMMITTED;
+		}
+		var committed = new CompletableFuture<Void>();
+		enqueue(new Pending(new WalRecord.Mapping(id, factCacheDTO.fact(), factCacheDTO.originalUrl()), committed));
+		return committed;
+	}
+
+	/**
+	 * Logs one access of a short url without waiting for it to be written.
+	 *
+	 * @param shortUrl the accessed short url
+	 */
+	public void appendAccess(String shortUrl)
+	{
+		appendAccess(shortUrl, 1);
+	}
+
+	/**
+	 * Logs a number of accesses of a short url as one record without waiting for it to be written. Never blocks: when
+	 * the queue is full the record is dropped and counted, so a stalled disk costs access counts, not redirects.
+	 *
+	 * @param shortUrl the accessed short url
+	 * @param delta    number of accesses
+	 */
+	public void appendAccess(String shortUrl, int delta)
+	{
+		long id = running ? shortCodeCodec.decode(shortUrl) : ShortCodeCodec.INVALID;
+		if (id != ShortCodeCodec.INVALID && !queue.offer(new Pending(new WalRecord.Access(id, delta), null)))
+		{
+			droppedCounter.increment();
+		}
+	}
+
+	/**
+	 * Logs the removal of an expired short url without waiting for it to be written.
+	 *
+	 * @param shortUrl the removed short url
+	 */
+	public void appendRemoval(String shortUrl)
+	{
+		long id = running ? shortCodeCodec.decode(shortUrl) : ShortCodeCodec.INVALID;
+		if (id != ShortCodeCodec.INVALID)
+		{
+			enqueue(new Pending(new WalRecord.Removal(id), null));
+		}
+	}
+
+	/**
+	 * Returns the highest id issued before startup, so that recovered facts can be tracked without listing them.
+	 *
+	 * @return highest issued id, 0 when nothing was recovered or persistence is disabled
+	 */
+	public long lastRecoveredId()
+	{
+		return lastRecoveredId;
+	}
+
+	/**
+	 * Compacts the latest snapshot and all closed segments into a new snapshot and deletes the files it replaces.
+	 * Does nothing when no record was written since the last snapshot. The records counted so far are only deducted once
+	 * the snapshot has been written, so a failed snapshot is retried on the next run.
+	 *
+	 * @throws IOException when the writer does not close its segment in time or reading or writing the files fails
+	 */
+	void snapshot() throws IOException
+	{
+		long records = recordsSinceSnapshot.get();
+		if (records == 0)
+		{
+			return;
+		}
+		long boundary = rotate();
+
+		FactState changes = readSegments(snapshot, snapshotNumber, boundary);
+		MappedSnapshot base = snapshot;
+		long added = changes.entries().stream().filter(entry -> base == null || base.position(entry.id()) == MappedSnapshot.MISSING).count();
+		long removed = base == null ? 0 : changes.removedIds().stream().filter(id -> base.position(id) != MappedSnapshot.MISSING).count();
+		long count = (base == null ? 0 : base.count()) + added - removed;
+		Path target = snapshotPath(boundary);
+		Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+		long lastId = Math.max(base == null ? 0 : base.lastId(), changes.lastId());
+		MappedSnapshot.write(temporary, count, lastId, changes.mergeInto(base == null ? Collections.emptyIterator() : base.entries()));
+		Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+		snapshot = MappedSnapshot.open(target);
+		snapshotNumber = boundary;
+		attach(snapshot);
+		recordsSinceSnapshot.addAndGet(-records);
+
+		for (Path file : list())
+		{
+			long number = Math.max(number(file, SEGMENT), number(file, SNAPSHOT));
+			if (number >= 0 && number < boundary)
+			{
+				Files.deleteIfExists(file);
+			}
+		}
+		logger.info("Wrote snapshot %s with %d facts".formatted(target.getFileName(), count));
+	}
+
+	/**
+	 * Asks the writer to close its current segment and waits a bounded time for it.
+	 *
+	 * @return number of the segment opened by the writer, the boundary of the next snapshot
+	 * @throws IOException when the writer fails to rotate or does not rotate in time
+	 */
+	private long rotate() throws IOException
+	{
+		var rotation = new CompletableFuture<Long>();
+		rotationRequest.set(rotation);
+		try
+		{
+			return rotation.get(ROTATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		}
+		catch (TimeoutException e)
+		{
+			rotationRequest.compareAndSet(rotation, null);
+			throw new IOException("Write-ahead log writer did not close its segment within %d s".formatted(ROTATION_TIMEOUT_SECONDS), e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IOException("Write-ahead log writer could not close its segment", e.getCause());
+		}
+		catch (InterruptedException e)
+		{
+			rotationRequest.compareAndSet(rotation, null);
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for the write-ahead log writer", e);
+		}
+	}
+
+	/**
+	 * Attaches the latest snapshot and replays the facts changed or removed by the segments after it into the cache and
+	 * the shortener.
+	 *
+	 * @throws IOException when reading the files fails
+	 */
+	private void recover() throws IOException
+	{
+		snapshotNumber = lastNumber(SNAPSHOT);
+		snapshot = snapshotNumber > 0 ? MappedSnapshot.open(snapshotPath(snapshotNumber)) : null;
+		FactState changes = readSegments(snapshot, snapshotNumber, Long.MAX_VALUE);
+		if (snapshot != null)
+		{
+			attach(snapshot);
+		}
+		Collection<WalRecord.Entry> changed = changes.entries();
+		for (WalRecord.Entry entry : changed)
+		{
+			String shortUrl = shortCodeCodec.encode(entry.id());
+			factCacheService.restore(new FactCacheDTO(entry.fact(), entry.originalUrl(), shortUrl, new AccessCounter(entry.accessCount())));
+			urlShortenerService.restore(entry.originalUrl(), shortUrl);
+		}
+		List<Long> removed = changes.removedIds();
+		for (long id : removed)
+		{
+			factCacheService.remove(shortCodeCodec.encode(id));
+		}
+		// removed short urls must not be issued again, even when they were the last ones
+		lastRecoveredId = Math.max(snapshot == null ? 0 : snapshot.lastId(), changes.lastId());
+		urlShortenerService.restore(snapshot == null ? (hash, matches) -> LongUrlLookup.NOT_FOUND : factCacheService::findId, lastRecoveredId);
+		logger.info("Recovered %d facts from the snapshot and %d changed and %d removed facts from the log in %s"
+			.formatted(snapshot == null ? 0 : snapshot.count(), changed.size(), removed.size(), properties.directory()));
+	}
+
+	/**
+	 * Makes a snapshot the fallback of the fact cache and the shortener.
+	 *
+	 * @param snapshot the snapshot
+	 */
+	private void attach(MappedSnapshot snapshot)
+	{
+		factCacheService.attach(snapshot);
+		urlShortenerService.restore(factCacheService::findId, snapshot.lastId());
+	}
+
+	/**
+	 * Replays the segments from a snapshot number up to a boundary on top of that snapshot.
+	 *
+	 * @param base           snapshot the segments follow, null for none
+	 * @param snapshotNumber number of that snapshot, 0 for none
+	 * @param boundary       number of the first segment not to read
+	 * @return the facts changed by the segments
+	 * @throws IOException when reading the files fails
+	 */
+	private FactState readSegments(MappedSnapshot base, long snapshotNumber, long boundary) throws IOException
+	{
+		var state = base == null ? new FactState() : new FactState(base::entry);
+		List<Path> segments = list().stream()
+			.filter(file -> number(file, SEGMENT) >= snapshotNumber && number(file, SEGMENT) < boundary)
+			.sorted()
+			.toList();
+		for (Path file : segments)
+		{
+			if (!LogFormat.read(file, state::apply))
+			{
+				logger.warn("Ignoring torn batch at the end of %s".formatted(file.getFileName()));
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * Writer thread: group-commits queued records until stopped and the queue is drained.
+	 */
+	private void writeLoop()
+	{
+		List<Pending> batch = new ArrayList<>(properties.maxBatchRecords());
+		long pollMillis = Math.min(IDLE_POLL_MILLIS, Math.max(1, properties.fsyncInterval().toMillis()));
+		while (true)
+		{
+			try
+			{
+				Pending first = queue.poll(pollMillis, TimeUnit.MILLISECONDS);
+				if (first != null)
+				{
+					batch.add(first);
+					queue.drainTo(batch, properties.maxBatchRecords() - 1);
+					commit(batch);
+					batch.clear();
+				}
+				else if (!running)
+				{
+					break;
+				}
+				if (properties.fsync() == PersistenceProperties.Fsync.INTERVAL
+					&& System.nanoTime() - lastForceNanos >= properties.fsyncInterval().toNanos())
+				{
+					force();
+				}
+				CompletableFuture<Long> rotation = rotationRequest.getAndSet(null);
+				if (rotation != null)
+				{
+					rotate(rotation);
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				break;
+			}
+			catch (IOException | RuntimeException e)
+			{
+				logger.error("Write-ahead log writer failed: %s".formatted(e.getMessage()), e);
+			}
+		}
+		try
+		{
+			force();
+			segment.close();
+		}
+		catch (IOException e)
+		{
+			logger.error("Could not close write-ahead log segment: %s".formatted(e.getMessage()), e);
+		}
+	}
+
+	/**
+	 * Writes one batch and releases the callers waiting on its mappings.
+	 * Mappings and removals keep their order and precede the access deltas, which are summed per fact.
+	 *
+	 * @param batch records to commit
+	 */
+	private void commit(List<Pending> batch)
+	{
+		List<WalRecord> records = new ArrayList<>(batch.size());
+		Map<Long, Integer> accessDeltas = new LinkedHashMap<>();
+		for (Pending pending : batch)
+		{
+			if (pending.record() instanceof WalRecord.Access access)
+			{
+				accessDeltas.merge(access.id(), access.delta(), Integer::sum);
+			}
+			else
+			{
+				records.add(pending.record());
+			}
+		}
+		accessDeltas.forEach((id, delta) -> records.add(new WalRecord.Access(id, delta)));
+
+		try
+		{
+			writeFully(segment, LogFormat.encodeBatch(records));
+			if (properties.fsync() == PersistenceProperties.Fsync.BATCH)
+			{
+				force();
+			}
+			recordCounter.increment(records.size());
+			batchSizeSummary.record(records.size());
+			recordsSinceSnapshot.addAndGet(records.size());
+			batch.stream().filter(pending -> pending.committed() != null).forEach(pending -> pending.committed().complete(null));
+		}
+		catch (IOException e)
+		{
+			logger.error("Could not write to the write-ahead log: %s".formatted(e.getMessage()), e);
+			batch.stream().filter(pending -> pending.committed() != null).forEach(pending -> pending.committed().completeExceptionally(e));
+		}
+	}
+
+	/**
+	 * Forces the current segment to disk.
+	 *
+	 * @throws IOException when forcing fails
+	 */
+	private void force() throws IOException
+	{
+		long start = System.nanoTime();
+		segment.force(false);
+		lastForceNanos = System.nanoTime();
+		fsyncTimer.record(lastForceNanos - start, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Closes the current segment and opens the next one.
+	 *
+	 * @param rotation request to complete with the number of the new segment
+	 * @throws IOException when closing or opening fails
+	 */
+	private void rotate(CompletableFuture<Long> rotation) throws IOException
+	{
+		try
+		{
+			force();
+			segment.close();
+			segment = openSegment(++segmentNumber);
+			rotation.complete(segmentNumber);
+		}
+		catch (IOException e)
+		{
+			rotation.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Hands a mapping or removal record to the writer, blocking while the queue is full.
+	 *
+	 * @param pending record to enqueue
+	 */
+	private void enqueue(Pending pending)
+	{
+		try
+		{
+			queue.put(pending);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			if (pending.committed() != null)
+			{
+				pending.committed().completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * Runs a snapshot from the scheduler, logging instead of propagating failures.
+	 */
+	private void snapshotQuietly()
+	{
+		try
+		{
+			snapshot();
+		}
+		catch (IOException | RuntimeException e)
+		{
+			logger.error("Could not write snapshot: %s".formatted(e.getMessage()), e);
+		}
+	}
+
+	/**
+	 * Opens a new segment for appending.
+	 *
+	 * @param number segment number
+	 * @return the channel
+	 * @throws IOException when the file cannot be created
+	 */
+	private FileChannel openSegment(long number) throws IOException
+	{
+		return FileChannel.open(properties.directory().resolve("wal-%020d.log".formatted(number)),
+			StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * Returns the path of the snapshot with the given number.
+	 *
+	 * @param number snapshot number
+	 * @return snapshot path
+	 */
+	private Path snapshotPath(long number)
+	{
+		return properties.directory().resolve("snapshot-%020d.dat".formatted(number));
+	}
+
+	/**
+	 * Returns the highest number of the files matching the pattern.
+	 *
+	 * @param pattern segment or snapshot file pattern
+	 * @return highest number, 0 when there is no such file
+	 * @throws IOException when the directory cannot be listed
+	 */
+	private long lastNumber(Pattern pattern) throws IOException
+	{
+		return list().stream().mapToLong(file -> number(file, pattern)).filter(number -> number >= 0).max().orElse(0);
+	}
+
+	/**
+	 * Lists the files of the log directory.
+	 *
+	 * @return files
+	 * @throws IOException when the directory cannot be listed
+	 */
+	private List<Path> list() throws IOException
+	{
+		try (Stream<Path> files = Files.list(properties.directory()))
+		{
+			return files.toList();
+		}
+	}
+
+	/**
+	 * Extracts the number of a segment or snapshot file.
+	 *
+	 * @param file    file to inspect
+	 * @param pattern segment or snapshot file pattern
+	 * @return the number, or -1 when the file does not match
+	 */
+	private static long number(Path file, Pattern pattern)
+	{
+		Matcher matcher = pattern.matcher(file.getFileName().toString());
+		return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+	}
+
+	/**
+	 * Writes the whole buffer to the channel.
+	 *
+	 * @param channel destination
+	 * @param buffer  bytes to write
+	 * @throws IOException when writing fails
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * A record waiting for the writer.
+	 *
+	 * @param record    the record
+	 * @param committed future to complete once the record is committed, null when nobody waits for it
+	 */
+	private record Pending(WalRecord record, CompletableFuture<Void> committed)
+	{
+	}
+}
@@ -0,0 +1,139 @@
+package com.somecompany.factservice.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ * Authentication provider remembering verified usernames and passwords for a while, so that clients sending the same
+ * Basic credentials on every request, like polling dashboards, pay for password verification once per ttl.
+ * <p>
+ * Per username, only a salted SHA-256 digest of the last verified password is kept, next to the authentication it
+ * produced. A request presenting the same password within the ttl gets that authentication back after one digest and
+ * a constant-time comparison. Any other request is verified by the delegate; failures are never cached, so guessing
+ * passwords still pays the full verification, and only successful verifications add entries. Changes in the user
+ * store take effect at the latest one ttl later.
+ * </p>
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider
+{
+	private final AuthenticationProvider delegate;
+	private final long ttlNanos;
+	private final LongSupplier nanoClock;
+
+	/**
+	 * Random salt of the digests, so that they cannot be looked up in precomputed tables.
+	 */
+	private final byte[] salt = new byte[16];
+
+	private final Map<String, VerifiedCredentials> verifiedByUsername = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs the provider.
+	 *
+	 * @param delegate provider verifying credentials against the user store
+	 * @param ttl      time verified credentials are accepted again, or zero to always delegate
+	 */
+	public CachingAuthenticationProvider(AuthenticationProvider delegate, Duration ttl)
+	{
+		this(delegate, ttl, System::nanoTime);
+	}
+
+	/**
+	 * Constructs the provider with the given clock.
+	 *
+	 * @param delegate  provider verifying credentials against the user store
+	 * @param ttl       time verified credentials are accepted again, or zero to always delegate
+	 * @param nanoClock source of monotonic nanoseconds
+	 */
+	CachingAuthenticationProvider(AuthenticationProvider delegate, Duration ttl, LongSupplier nanoClock)
+	{
+		this.delegate = delegate;
+		this.ttlNanos = ttl.toNanos();
+		this.nanoClock = nanoClock;
+		new SecureRandom().nextBytes(salt);
+	}
+
+	/**
+	 * Returns the authentication of recently verified credentials, or verifies them through the delegate.
+	 *
+	 * @param authentication the authentication request
+	 * @return the authenticated principal, or null when the delegate cannot decide
+	 * @throws AuthenticationException when the delegate rejects the credentials
+	 */
+	@Override
+	public Authentication authenticate(Authentication authentication) throws AuthenticationException
+	{
+		if (ttlNanos == 0 || !(authentication instanceof UsernamePasswordAuthenticationToken) || authentication.getCredentials() == null)
+		{
+			return delegate.authenticate(authentication);
+		}
+		String username = authentication.getName();
+		byte[] digest = digest(authentication.getCredentials().toString());
+		long now = nanoClock.getAsLong();
+		VerifiedCredentials verified = verifiedByUsername.get(username);
+		if (verified != null && now - verified.verifiedAt() < ttlNanos && MessageDigest.isEqual(verified.digest(), digest))
+		{
+			return verified.authentication();
+		}
+		Authentication result = delegate.authenticate(authentication);
+		if (result != null && result.isAuthenticated())
+		{
+			verifiedByUsername.put(username, new VerifiedCredentials(digest, now, result));
+		}
+		return result;
+	}
+
+	/**
+	 * Supports what the delegate supports.
+	 *
+	 * @param authentication the authentication request type
+	 * @return true when the delegate supports it
+	 */
+	@Override
+	public boolean supports(Class<?> authentication)
+	{
+		return delegate.supports(authentication);
+	}
+
+	/**
+	 * Computes the salted digest of a password.
+	 *
+	 * @param password the password
+	 * @return SHA-256 digest of the salt and the password
+	 */
+	private byte[] digest(String password)
+	{
+		try
+		{
+			MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+			messageDigest.update(salt);
+			return messageDigest.digest(password.getBytes(StandardCharsets.UTF_8));
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException("SHA-256 is not available.", e);
+		}
+	}
+
+	/**
+	 * Credentials verified by the delegate.
+	 *
+	 * @param digest         salted digest of the verified password
+	 * @param verifiedAt     time of the verification in monotonic nanoseconds
+	 * @param authentication the authentication the delegate returned
+	 */
+	private record VerifiedCredentials(byte[] digest, long verifiedAt, Authentication authentication)
+	{
+	}
+}
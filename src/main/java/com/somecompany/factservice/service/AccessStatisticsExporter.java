@@ -0,0 +1,175 @@
+package com.somecompany.factservice.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.somecompany.factservice.cache.FactCacheService;
+import com.somecompany.factservice.config.StatisticsProperties;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+import com.somecompany.factservice.service.urlshortener.URLShortenerService;
+
+/**
+ * Streams the access statistics of all cached facts as newline-delimited JSON, one {@code AccessStat} object per line.
+ * <p>
+ * Facts are visited in the order of the ids of their short urls, from the id after the cursor, and a page visits at most
+ * {@code factservice.statistics.export-scan-limit} ids, so its cost is bounded however sparse the cached facts are. The
+ * counts of a page are read before its first line is written, into buffers bounded by its limit and the scan limit, so
+ * the heap used does not grow with the number of facts cached.
+ * </p>
+ * <p>
+ * A page that stopped before the last issued id has a next cursor: the short url of the last id it visited, cached or
+ * not. A page without one is the last. Since ids only grow and every id up to the cursor was visited, paging with the
+ * next cursor never skips or repeats a fact that stays cached. Facts issued after the last page was read are not part
+ * of the export.
+ * </p>
+ */
+@Service
+public class AccessStatisticsExporter
+{
+	private final FactCacheService factCacheService;
+	private final URLShortenerService urlShortenerService;
+	private final ShortCodeCodec shortCodeCodec;
+	private final ObjectMapper objectMapper;
+	private final int scanLimit;
+
+	/**
+	 * Constructs the exporter.
+	 *
+	 * @param factCacheService     cache the access counts are read from
+	 * @param urlShortenerService  shortener providing the last issued id
+	 * @param shortCodeCodec       codec translating between short urls and ids
+	 * @param objectMapper         mapper whose factory creates the streaming generators
+	 * @param statisticsProperties maximum number of ids a page visits
+	 */
+	public AccessStatisticsExporter(FactCacheService factCacheService, URLShortenerService urlShortenerService, ShortCodeCodec shortCodeCodec,
+		ObjectMapper objectMapper, StatisticsProperties statisticsProperties)
+	{
+		this.factCacheService = factCacheService;
+		this.urlShortenerService = urlShortenerService;
+		this.shortCodeCodec = shortCodeCodec;
+		this.objectMapper = objectMapper;
+		this.scanLimit = statisticsProperties.exportScanLimit();
+	}
+
+	/**
+	 * Resolves a cursor into the id the next page starts after.
+	 *
+	 * @param cursor next cursor of the previous page, or null for the first page
+	 * @return id the page starts after
+	 * @throws IllegalArgumentException when the cursor is not a short url
+	 */
+	public long afterId(String cursor)
+	{
+		if (cursor == null)
+		{
+			return 0;
+		}
+		long id = shortCodeCodec.decode(cursor);
+		if (id == ShortCodeCodec.INVALID)
+		{
+			throw new IllegalArgumentException("Invalid cursor: %s".formatted(cursor));
+		}
+		return id;
+	}
+
+	/**
+	 * Reads one page of access statistics, visiting at most the scan limit of ids.
+	 *
+	 * @param afterId id the page starts after, see {@link #afterId(String)}
+	 * @param limit   maximum number of lines, or 0 for all cached facts among the ids visited
+	 * @return the page, ready to be written
+	 */
+	public Page read(long afterId, long limit)
+	{
+		long lastId = urlShortenerService.lastIssuedId();
+		long endId = lastId - afterId > scanLimit ? afterId + scanLimit : lastId;
+		int capacity = (int) Math.max(0, limit == 0 ? endId - afterId : Math.min(limit, endId - afterId));
+		var page = new Page(capacity);
+		long id = afterId;
+		while (id < endId && page.size < capacity)
+		{
+			id++;
+			long accessCount = factCacheService.findAccessCount(shortCodeCodec.encode(id));
+			if (accessCount >= 0)
+			{
+				page.add(id, accessCount);
+			}
+		}
+		page.nextCursor = id < lastId ? shortCodeCodec.encode(id) : null;
+		return page;
+	}
+
+	/**
+	 * A page of access statistics read but not written yet.
+	 */
+	public final class Page
+	{
+		private final long[] ids;
+		private final long[] accessCounts;
+		private int size;
+		private String nextCursor;
+
+		/**
+		 * Constructs an empty page.
+		 *
+		 * @param capacity maximum number of lines
+		 */
+		private Page(int capacity)
+		{
+			this.ids = new long[capacity];
+			this.accessCounts = new long[capacity];
+		}
+
+		/**
+		 * Returns the cursor of the next page.
+		 *
+		 * @return short url of the last id visited, or null when this is the last page
+		 */
+		public String nextCursor()
+		{
+			return nextCursor;
+		}
+
+		/**
+		 * Writes the lines of the page.
+		 *
+		 * @param outputStream stream the lines are written to; it is flushed but not closed
+		 * @return number of lines written
+		 * @throws IOException when writing fails, e.g. because the client disconnected
+		 */
+		public long write(OutputStream outputStream) throws IOException
+		{
+			try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream))
+			{
+				generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+				generator.setRootValueSeparator(null);
+				for (int i = 0; i < size; i++)
+				{
+					generator.writeStartObject();
+					generator.writeStringField("shortened_url", shortCodeCodec.encode(ids[i]));
+					generator.writeNumberField("access_count", accessCounts[i]);
+					generator.writeEndObject();
+					generator.writeRaw('\n');
+				}
+			}
+			return size;
+		}
+
+		/**
+		 * Adds a line.
+		 *
+		 * @param id          id of the short url
+		 * @param accessCount its access count
+		 */
+		private void add(long id, long accessCount)
+		{
+			ids[size] = id;
+			accessCounts[size] = accessCount;
+			size++;
+		}
+	}
+}
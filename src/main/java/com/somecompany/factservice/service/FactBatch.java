@@ -0,0 +1,236 @@
+package com.somecompany.factservice.service;
+
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.somecompany.factservice.model.FactResponse;
+
+/**
+ * Collects a number of distinct facts from fetches running with bounded parallelism.
+ * <p>
+ * At most {@code parallelism} fetches are in flight, and a new one is started whenever one completes until enough facts
+ * are in flight or passed on. A fact whose short url was already passed on, e.g. shared by coalesced upstream fetches,
+ * is dropped and fetched again, up to twice the requested number of fetches in total. The first failure ends the batch;
+ * facts completing after it are not passed on.
+ * </p>
+ * <p>
+ * Facts are passed on one at a time, in the order they complete. Completions are queued and handled by whichever thread
+ * finds no other one handling them, so the consumer is called without holding a lock and a fetch completing right away
+ * is handled by the loop already running rather than by a nested call.
+ * </p>
+ */
+class FactBatch
+{
+	/**
+	 * Queued by {@link #add(CompletableFuture)} ahead of the completion of the added fact.
+	 */
+	private static final Event ADDED = new Event(null, null, false);
+
+	/**
+	 * Queued by {@link #start()}.
+	 */
+	private static final Event STARTED = new Event(null, null, false);
+
+	private final int count;
+	private final int parallelism;
+	private final int maxFetches;
+	private final Supplier<CompletableFuture<FactResponse>> fetch;
+	private final Consumer<FactResponse> consumer;
+	private final CompletableFuture<Void> done = new CompletableFuture<>();
+	private final Queue<Event> events = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Events queued but not handled yet; only the thread raising it from zero handles events.
+	 */
+	private final AtomicInteger wip = new AtomicInteger();
+
+	/**
+	 * Short urls of the facts passed on. Only touched by the thread handling events, as are the fields below.
+	 */
+	private final Set<String> shortUrls = new HashSet<>();
+
+	/**
+	 * Facts in flight, added or fetched.
+	 */
+	private int pending;
+
+	/**
+	 * Fetches in flight.
+	 */
+	private int fetching;
+
+	/**
+	 * Fetches started so far.
+	 */
+	private int fetches;
+
+	private boolean started;
+
+	/**
+	 * Constructs a batch.
+	 *
+	 * @param count       number of distinct facts to pass on
+	 * @param parallelism maximum number of fetches in flight
+	 * @param fetch       starts fetching one fact
+	 * @param consumer    receives the facts
+	 */
+	FactBatch(int count, int parallelism, Supplier<CompletableFuture<FactResponse>> fetch, Consumer<FactResponse> consumer)
+	{
+		this.count = count;
+		this.parallelism = parallelism;
+		this.maxFetches = 2 * count;
+		this.fetch = fetch;
+		this.consumer = consumer;
+	}
+
+	/**
+	 * Adds a fact that is already being processed, e.g. taken from the prefetch pool. It counts towards the batch
+	 * without taking a fetch slot.
+	 *
+	 * @param fact future of the fact
+	 */
+	void add(CompletableFuture<FactResponse> fact)
+	{
+		signal(ADDED);
+		fact.whenComplete((factResponse, throwable) -> signal(new Event(factResponse, throwable, false)));
+	}
+
+	/**
+	 * Starts fetching the facts that were not added.
+	 *
+	 * @return future completed once the requested number of facts, or fewer when fetches kept repeating facts, were
+	 * passed on, or exceptionally with the first failure; completing it from outside stops further fetches
+	 */
+	CompletableFuture<Void> start()
+	{
+		signal(STARTED);
+		return done;
+	}
+
+	/**
+	 * Queues an event and handles the queued events unless another thread already does.
+	 *
+	 * @param event the event
+	 */
+	private void signal(Event event)
+	{
+		events.add(event);
+		if (wip.getAndIncrement() != 0)
+		{
+			return;
+		}
+		int missed = 1;
+		do
+		{
+			for (Event next = events.poll(); next != null; next = events.poll())
+			{
+				handle(next);
+			}
+			missed = wip.addAndGet(-missed);
+		}
+		while (missed != 0);
+	}
+
+	/**
+	 * Handles one event.
+	 *
+	 * @param event the event
+	 */
+	private void handle(Event event)
+	{
+		if (event == ADDED)
+		{
+			pending++;
+		}
+		else if (event == STARTED)
+		{
+			started = true;
+			fetchMissing();
+		}
+		else
+		{
+			complete(event);
+		}
+	}
+
+	/**
+	 * Passes a completed fact on unless it is a repeat, and starts the fetches still missing.
+	 *
+	 * @param completion the completed fact or its failure
+	 */
+	private void complete(Event completion)
+	{
+		pending--;
+		if (completion.fetched())
+		{
+			fetching--;
+		}
+		if (done.isDone())
+		{
+			return;
+		}
+		Throwable throwable = completion.throwable();
+		if (throwable != null)
+		{
+			done.completeExceptionally(throwable instanceof CompletionException && throwable.getCause() != null
+				? throwable.getCause()
+				: throwable);
+			return;
+		}
+		if (shortUrls.add(completion.factResponse().shortenedUrl()))
+		{
+			consumer.accept(completion.factResponse());
+		}
+		fetchMissing();
+	}
+
+	/**
+	 * Starts fetches while a slot is free and fewer facts than requested are in flight or passed on, and completes the
+	 * batch once nothing is in flight any more. A fetch completing right away only queues its completion.
+	 */
+	private void fetchMissing()
+	{
+		if (!started)
+		{
+			return;
+		}
+		while (!done.isDone() && fetching < parallelism && shortUrls.size() + pending < count && fetches < maxFetches)
+		{
+			fetches++;
+			fetching++;
+			pending++;
+			CompletableFuture<FactResponse> fact;
+			try
+			{
+				fact = fetch.get();
+			}
+			catch (RuntimeException e)
+			{
+				fact = CompletableFuture.failedFuture(e);
+			}
+			fact.whenComplete((factResponse, throwable) -> signal(new Event(factResponse, throwable, true)));
+		}
+		if (pending == 0)
+		{
+			done.complete(null);
+		}
+	}
+
+	/**
+	 * A completed fact or failure, or one of the markers {@link #ADDED} and {@link #STARTED}.
+	 *
+	 * @param factResponse the fact, null on failure
+	 * @param throwable    the failure, null on success
+	 * @param fetched      whether the fact took a fetch slot
+	 */
+	private record Event(FactResponse factResponse, Throwable throwable, boolean fetched)
+	{
+	}
+}
@@ -0,0 +1,181 @@
+package com.somecompany.factservice.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.somecompany.factservice.config.BatchProperties;
+import com.somecompany.factservice.model.FactResponse;
+
+/**
+ * Streams a batch of new facts as a JSON array of {@code FactResponse} objects, each written as soon as it is cached.
+ * <p>
+ * A batch is started before the response is, so that a batch failing before its first fact is answered like a single
+ * fact request. A batch failing later, or still missing facts at its deadline, ends the array with the facts written so
+ * far followed by an error object, {@code {"error": ..., "missing": n}}; every fact written is cached and can be
+ * redirected to. A batch past its deadline starts no further fetches.
+ * </p>
+ */
+@Service
+public class FactBatchExporter
+{
+	private static final Logger logger = LoggerFactory.getLogger(FactBatchExporter.class);
+
+	/**
+	 * Marks the end of a batch in the queue of completed facts.
+	 */
+	private static final FactResponse END = new FactResponse(null, null);
+
+	private final FactService factService;
+	private final ObjectMapper objectMapper;
+	private final BatchProperties batchProperties;
+
+	/**
+	 * Constructs the exporter.
+	 *
+	 * @param factService     service fetching, shortening and caching the facts
+	 * @param objectMapper    mapper whose factory creates the streaming generators
+	 * @param batchProperties batch settings, of which the timeout applies here
+	 */
+	public FactBatchExporter(FactService factService, ObjectMapper objectMapper, BatchProperties batchProperties)
+	{
+		this.factService = factService;
+		this.objectMapper = objectMapper;
+		this.batchProperties = batchProperties;
+	}
+
+	/**
+	 * Starts fetching a batch of facts.
+	 *
+	 * @param count number of facts
+	 * @return the started batch
+	 */
+	public Export start(int count)
+	{
+		return new Export(count);
+	}
+
+	/**
+	 * A started batch, buffering the facts completed but not written yet.
+	 */
+	public final class Export
+	{
+		private final int count;
+		private final long deadline;
+		private final BlockingQueue<FactResponse> completed = new LinkedBlockingQueue<>();
+		private final CompletableFuture<Void> firstFact = new CompletableFuture<>();
+		private final CompletableFuture<Void> done;
+
+		/**
+		 * Starts the batch.
+		 *
+		 * @param count number of facts
+		 */
+		private Export(int count)
+		{
+			this.count = count;
+			this.deadline = System.nanoTime() + batchProperties.timeout().toNanos();
+			this.done = factService.fetchAndProcessUselessFacts(count, factResponse -> {
+				completed.add(factResponse);
+				firstFact.complete(null);
+			});
+			done.whenComplete((finished, throwable) -> {
+				if (throwable != null)
+				{
+					firstFact.completeExceptionally(throwable);
+				}
+				else
+				{
+					firstFact.complete(null);
+				}
+				completed.add(END);
+			});
+		}
+
+		/**
+		 * Returns a future completed once the first fact is cached or the batch ended without facts.
+		 *
+		 * @return future completed exceptionally when the batch failed before its first fact
+		 */
+		public CompletableFuture<Void> firstFact()
+		{
+			return firstFact;
+		}
+
+		/**
+		 * Writes the facts as a JSON array while they complete, until the batch ends or its deadline passes. A batch
+		 * ending early is followed by an error object counting the facts missing.
+		 *
+		 * @param outputStream stream the array is written to; it is flushed after every fact but not closed
+		 * @return number of facts written
+		 * @throws IOException when writing fails, e.g. because the client disconnected, or the thread was interrupted
+		 */
+		public long write(OutputStream outputStream) throws IOException
+		{
+			long written = 0;
+			try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream))
+			{
+				generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+				generator.writeStartArray();
+				FactResponse factResponse;
+				while ((factResponse = poll()) != null && factResponse != END)
+				{
+					generator.writeObject(factResponse);
+					generator.flush();
+					written++;
+				}
+				String error = null;
+				if (factResponse == null)
+				{
+					// stops the fetches still to start; facts completing meanwhile are cached but not written
+					done.completeExceptionally(new TimeoutException("Fact batch timed out"));
+					error = "Fact batch timed out after %s".formatted(batchProperties.timeout());
+				}
+				else if (done.isCompletedExceptionally())
+				{
+					error = "Fact batch failed";
+				}
+				if (error != null)
+				{
+					logger.warn("%s, wrote %d of %d facts".formatted(error, written, count));
+					generator.writeStartObject();
+					generator.writeStringField("error", error);
+					generator.writeNumberField("missing", count - written);
+					generator.writeEndObject();
+				}
+				generator.writeEndArray();
+			}
+			return written;
+		}
+
+		/**
+		 * Waits for the next completed fact until the deadline of the batch.
+		 *
+		 * @return the fact, {@link #END} once the batch ended, or null when the deadline passed
+		 * @throws InterruptedIOException when the thread was interrupted
+		 */
+		private FactResponse poll() throws InterruptedIOException
+		{
+			try
+			{
+				return completed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the next fact of the batch");
+			}
+		}
+	}
+}
@@ -0,0 +1,285 @@
+package com.somecompany.factservice.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import com.somecompany.factservice.client.UselessFactsAPIClient;
+import com.somecompany.factservice.config.PrefetchProperties;
+import com.somecompany.factservice.model.UselessFact;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Bounded pool of facts that have already been fetched from the Useless Facts API.
+ * <p>
+ * A single background refiller keeps the pool between the configured low and high watermarks, so the request path only
+ * pops an entry and upstream calls happen off the request thread in batches. The fetches of a batch run in parallel on
+ * the upstream executor. When the pool is empty callers fall back to the synchronous fetch and the fallback is counted.
+ * </p>
+ * <p>
+ * Facts are shortened when they are handed out rather than when they are fetched, so that a short url is issued right
+ * before its fact is cached and prefetched facts never hold issued ids that are not cached.
+ * </p>
+ * <p>
+ * At most one refill is queued or running at a time: it is claimed before it is handed to the refiller, so the
+ * refiller's queue holds no more than that refill and the periodic check however often the pool is polled.
+ * </p>
+ */
+@Service
+public class FactPrefetchPool
+{
+	private static final Logger logger = LoggerFactory.getLogger(FactPrefetchPool.class);
+
+	private final UselessFactsAPIClient uselessFactsAPIClient;
+	private final PrefetchProperties properties;
+
+	/**
+	 * Prefetched entries ready to be handed out. Bounded by the configured capacity.
+	 */
+	private final BlockingQueue<UselessFact> pool;
+
+	/**
+	 * Permalinks of the entries in the pool, so that a fact fetched again while it is still pooled is not pooled twice.
+	 * Added by the refiller before it offers an entry and removed when the entry is handed out.
+	 */
+	private final Set<String> pooledPermalinks = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Claimed by a refill from before it is queued until it finished, so that at most one is queued or running.
+	 */
+	private final AtomicBoolean refilling = new AtomicBoolean();
+
+	private final Counter refilledCounter;
+	private final Counter fallbackCounter;
+	private final Counter refillFailureCounter;
+
+	private ScheduledExecutorService refiller;
+
+	/**
+	 * Constructs the pool and registers its metrics.
+	 *
+	 * @param uselessFactsAPIClient client used by the refiller to fetch facts
+	 * @param properties            pool sizing and watermark settings
+	 * @param meterRegistry         registry exposing pool depth, refill and fallback counts
+	 */
+	public FactPrefetchPool(UselessFactsAPIClient uselessFactsAPIClient, PrefetchProperties properties, MeterRegistry meterRegistry)
+	{
+		this.uselessFactsAPIClient = uselessFactsAPIClient;
+		this.properties = properties;
+		this.pool = new ArrayBlockingQueue<>(properties.capacity());
+
+		Gauge.builder("factservice.prefetch.depth", pool, BlockingQueue::size)
+			.description("Number of prefetched facts ready to be served")
+			.register(meterRegistry);
+		this.refilledCounter = Counter.builder("factservice.prefetch.refilled")
+			.description("Facts fetched into the pool by the background refiller")
+			.register(meterRegistry);
+		this.fallbackCounter = Counter.builder("factservice.prefetch.fallback")
+			.description("Requests that found the pool empty and fell back to a synchronous fetch")
+			.register(meterRegistry);
+		this.refillFailureCounter = Counter.builder("factservice.prefetch.refill.failures")
+			.description("Refill cycles aborted due to upstream failures")
+			.register(meterRegistry);
+	}
+
+	/**
+	 * Starts the background refiller when the pool is enabled.
+	 */
+	@PostConstruct
+	void start()
+	{
+		if (!properties.enabled())
+		{
+			return;
+		}
+		refiller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "fact-prefetch-refiller");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long intervalMillis = properties.refillInterval().toMillis();
+		refiller.scheduleWithFixedDelay(this::refillIfBelowLowWatermark, 0, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops the background refiller.
+	 */
+	@PreDestroy
+	void stop()
+	{
+		if (refiller != null)
+		{
+			refiller.shutdownNow();
+		}
+	}
+
+	/**
+	 * Pops a prefetched fact if one is available and wakes up the refiller when the low watermark is crossed.
+	 *
+	 * @return a prefetched fact or {@code null} when the pool is disabled or empty
+	 */
+	public UselessFact poll()
+	{
+		if (!properties.enabled())
+		{
+			return null;
+		}
+
+		UselessFact prefetchedFact = pool.poll();
+		if (prefetchedFact == null)
+		{
+			fallbackCounter.increment();
+		}
+		else
+		{
+			pooledPermalinks.remove(prefetchedFact.permalink());
+		}
+		wakeRefillerIfBelowLowWatermark();
+		return prefetchedFact;
+	}
+
+	/**
+	 * Pops up to the given number of prefetched facts in one pass and wakes up the refiller when the low watermark is
+	 * crossed. Every fact missing from the pool is counted as a fallback.
+	 *
+	 * @param max maximum number of facts
+	 * @return the prefetched facts, empty when the pool is disabled or empty
+	 */
+	public List<UselessFact> poll(int max)
+	{
+		if (!properties.enabled())
+		{
+			return List.of();
+		}
+
+		List<UselessFact> prefetchedFacts = new ArrayList<>(Math.min(max, properties.capacity()));
+		pool.drainTo(prefetchedFacts, max);
+		for (UselessFact prefetchedFact : prefetchedFacts)
+		{
+			pooledPermalinks.remove(prefetchedFact.permalink());
+		}
+		if (prefetchedFacts.size() < max)
+		{
+			fallbackCounter.increment(max - prefetchedFacts.size());
+		}
+		wakeRefillerIfBelowLowWatermark();
+		return prefetchedFacts;
+	}
+
+	/**
+	 * Returns the current number of prefetched facts.
+	 *
+	 * @return depth of the pool
+	 */
+	public int depth()
+	{
+		return pool.size();
+	}
+
+	/**
+	 * Claims a refill and hands it to the refiller when the depth is below the low watermark and no refill is queued or
+	 * running.
+	 */
+	private void wakeRefillerIfBelowLowWatermark()
+	{
+		if (refiller == null || pool.size() >= properties.lowWatermark() || !refilling.compareAndSet(false, true))
+		{
+			return;
+		}
+		try
+		{
+			refiller.execute(this::refill);
+		}
+		catch (RejectedExecutionException e)
+		{
+			refilling.set(false);
+		}
+	}
+
+	/**
+	 * Tops the pool up to the high watermark in batches when its depth is below the low watermark and no refill is
+	 * queued or running.
+	 */
+	void refillIfBelowLowWatermark()
+	{
+		if (pool.size() < properties.lowWatermark() && refilling.compareAndSet(false, true))
+		{
+			refill();
+		}
+	}
+
+	/**
+	 * Tops the pool up to the high watermark in batches whose fetches run in parallel, then releases the claimed refill.
+	 * A fact that is already pooled or repeats one of the same batch, e.g. shared by coalesced fetches, is dropped, so
+	 * that no two callers are handed the same fact. A batch of nothing but such repeats ends the cycle rather than
+	 * fetching on until the upstream comes up with new facts.
+	 * Upstream failures abort the current cycle; the next scheduled check retries.
+	 */
+	private void refill()
+	{
+		try
+		{
+			int missing;
+			while ((missing = properties.highWatermark() - pool.size()) > 0)
+			{
+				int batch = Math.min(missing, properties.batchSize());
+				List<CompletableFuture<UselessFact>> fetches = new ArrayList<>(batch);
+				for (int i = 0; i < batch; i++)
+				{
+					fetches.add(uselessFactsAPIClient.fetchUselessFactInBackground());
+				}
+				CompletableFuture.allOf(fetches.toArray(CompletableFuture[]::new)).join();
+
+				int pooled = 0;
+				for (CompletableFuture<UselessFact> fetch : fetches)
+				{
+					UselessFact uselessFact = fetch.join();
+					if (!pooledPermalinks.add(uselessFact.permalink()))
+					{
+						continue;
+					}
+					if (!pool.offer(uselessFact))
+					{
+						pooledPermalinks.remove(uselessFact.permalink());
+						return;
+					}
+					pooled++;
+					refilledCounter.increment();
+				}
+				if (pooled == 0)
+				{
+					return;
+				}
+			}
+		}
+		catch (RuntimeException e)
+		{
+			Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+			refillFailureCounter.increment();
+			logger.warn("Prefetch refill aborted: %s".formatted(cause.getMessage()));
+		}
+		finally
+		{
+			refilling.set(false);
+		}
+	}
+}
@@ -1,16 +1,33 @@
 package com.somecompany.factservice.service;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import com.somecompany.factservice.access.AccessChangeLog;
+import com.somecompany.factservice.access.AccessEventPipeline;
+import com.somecompany.factservice.access.AccessWindow;
+import com.somecompany.factservice.access.TopAccessStatistics;
+import com.somecompany.factservice.access.WindowedAccessStatistics;
 import com.somecompany.factservice.cache.FactCacheDTO;
 import com.somecompany.factservice.cache.FactCacheService;
 import com.somecompany.factservice.client.UselessFactsAPIClient;
+import com.somecompany.factservice.config.BatchProperties;
+import com.somecompany.factservice.expiry.FactExpiryService;
 import com.somecompany.factservice.model.AccessStat;
+import com.somecompany.factservice.model.AccessStatChanges;
 import com.somecompany.factservice.model.FactResponse;
+import com.somecompany.factservice.model.TopAccessStat;
 import com.somecompany.factservice.model.UselessFact;
+import com.somecompany.factservice.persistence.WriteAheadLog;
 import com.somecompany.factservice.service.urlshortener.URLShortenerService;
 
 /**
@@ -20,63 +37,245 @@ import com.somecompany.factservice.service.urlshortener.URLShortenerService;
 @Service
 public class FactService
 {
+	private static final Logger logger = LoggerFactory.getLogger(FactService.class);
+
 	private final UselessFactsAPIClient uselessFactAPIClient;
 	private final URLShortenerService urlShortenerService;
 	private final FactCacheService factCacheService;
+	private final FactPrefetchPool factPrefetchPool;
+	private final WriteAheadLog writeAheadLog;
+	private final FactExpiryService factExpiryService;
+	private final AccessEventPipeline accessEventPipeline;
+	private final WindowedAccessStatistics windowedAccessStatistics;
+	private final TopAccessStatistics topAccessStatistics;
+	private final AccessChangeLog accessChangeLog;
+	private final BatchProperties batchProperties;
+
+	/**
+	 * Durability futures of the mappings inserted but not yet committed to the write-ahead log, by short url.
+	 */
+	private final ConcurrentMap<String, CompletableFuture<Void>> pendingMappings = new ConcurrentHashMap<>();
 
 	/**
-	 * Constructs FactService using provided {@link UselessFactsAPIClient}, {@link URLShortenerService} and {@link FactCacheService}
+	 * Constructs FactService using provided {@link UselessFactsAPIClient}, {@link URLShortenerService}, {@link FactCacheService}
+	 * {@link FactPrefetchPool}, {@link WriteAheadLog}, {@link FactExpiryService}, {@link AccessEventPipeline},
+	 * {@link WindowedAccessStatistics}, {@link TopAccessStatistics}, {@link AccessChangeLog} and {@link BatchProperties}
 	 *
-	 * @param uselessFactAPIClient client api for fetching random fact data from Useless Fact API
-	 * @param urlShortener         the URLShortenerService to transform long url into shorter version
-	 * @param factCacheService     the FactCacheService instance to hold {@link FactCacheDTO}
+	 * @param uselessFactAPIClient     client api for fetching random fact data from Useless Fact API
+	 * @param urlShortener             the URLShortenerService to transform long url into shorter version
+	 * @param factCacheService         the FactCacheService instance to hold {@link FactCacheDTO}
+	 * @param factPrefetchPool         pool of facts fetched and shortened ahead of time
+	 * @param writeAheadLog            log persisting new mappings and accesses
+	 * @param factExpiryService        service expiring short urls after their ttl
+	 * @param accessEventPipeline      pipeline counting accesses off the request path when enabled
+	 * @param windowedAccessStatistics rolling minute, hour and day access counts of recently accessed short urls
+	 * @param topAccessStatistics      most accessed short urls since startup
+	 * @param accessChangeLog          log of short urls whose access statistics changed
+	 * @param batchProperties          batch settings holding the parallelism of upstream fetches
 	 */
-	public FactService(UselessFactsAPIClient uselessFactAPIClient, URLShortenerService urlShortener, FactCacheService factCacheService)
+	public FactService(UselessFactsAPIClient uselessFactAPIClient, URLShortenerService urlShortener, FactCacheService factCacheService,
+		FactPrefetchPool factPrefetchPool, WriteAheadLog writeAheadLog, FactExpiryService factExpiryService,
+		AccessEventPipeline accessEventPipeline, WindowedAccessStatistics windowedAccessStatistics,
+		TopAccessStatistics topAccessStatistics, AccessChangeLog accessChangeLog, BatchProperties batchProperties)
 	{
 		this.uselessFactAPIClient = uselessFactAPIClient;
 		this.urlShortenerService = urlShortener;
 		this.factCacheService = factCacheService;
+		this.factPrefetchPool = factPrefetchPool;
+		this.writeAheadLog = writeAheadLog;
+		this.factExpiryService = factExpiryService;
+		this.accessEventPipeline = accessEventPipeline;
+		this.windowedAccessStatistics = windowedAccessStatistics;
+		this.topAccessStatistics = topAccessStatistics;
+		this.accessChangeLog = accessChangeLog;
+		this.batchProperties = batchProperties;
 	}
 
 	/**
 	 * Fetches a random fact and generates a shortened URL for it.
-	 * Only new facts trigger computation of the short url, otherwise existing mapping is used.
+	 * A prefetched fact is served when the pool has one, otherwise the fact is fetched synchronously.
+	 * Either way the short url is issued right before the fact is cached. Facts seen before keep their short url.
 	 *
 	 * @return a FactResponse object containing fact text and shortened url
 	 */
 	public FactResponse fetchAndProcessUselessFact()
 	{
-		UselessFact uselessFact = uselessFactAPIClient.fetchUselessFact();
+		UselessFact prefetchedFact = factPrefetchPool.poll();
+		UselessFact uselessFact = prefetchedFact != null ? prefetchedFact : uselessFactAPIClient.fetchUselessFact();
 
 		String shortUrl = urlShortenerService.getOrCreateShortUrl(uselessFact.permalink());
 
-		cacheFactData(uselessFact, shortUrl);
+		cacheFactData(uselessFact, shortUrl).join();
 		return new FactResponse(uselessFact.text(), shortUrl);
 	}
 
+	/**
+	 * Non-blocking variant of {@link #fetchAndProcessUselessFact()}.
+	 * A prefetched fact completes immediately, otherwise the request thread is not held while the upstream fetch and its
+	 * retries are in progress.
+	 *
+	 * @return future of a FactResponse object containing fact text and shortened url
+	 */
+	public CompletableFuture<FactResponse> fetchAndProcessUselessFactAsync()
+	{
+		UselessFact prefetchedFact = factPrefetchPool.poll();
+		if (prefetchedFact != null)
+		{
+			return shortenAndCache(prefetchedFact);
+		}
+
+		return uselessFactAPIClient.fetchUselessFactAsync().thenCompose(this::shortenAndCache);
+	}
+
+	/**
+	 * Fetches the given number of distinct facts, shortens and caches each of them, and passes it on as soon as its
+	 * mapping is durable.
+	 * Prefetched facts are taken from the pool in one pass. The others are fetched with at most
+	 * {@code factservice.batch.parallelism} upstream fetches in flight, each started on the upstream executor so that
+	 * they run in parallel in the blocking retry mode too.
+	 *
+	 * @param count    number of facts
+	 * @param consumer receives the FactResponses one at a time, in the order they complete
+	 * @return future completed once the facts were passed on, or fewer when the upstream kept repeating facts, or
+	 * exceptionally with the first failure
+	 */
+	public CompletableFuture<Void> fetchAndProcessUselessFacts(int count, Consumer<FactResponse> consumer)
+	{
+		var factBatch = new FactBatch(count, batchProperties.parallelism(), this::fetchAndProcessOnUpstreamExecutor, consumer);
+		for (UselessFact prefetchedFact : factPrefetchPool.poll(count))
+		{
+			factBatch.add(shortenAndCache(prefetchedFact));
+		}
+		return factBatch.start();
+	}
+
+	/**
+	 * Fetches, shortens and caches one fact of a batch, starting the fetch on the upstream executor.
+	 *
+	 * @return future of a FactResponse object containing fact text and shortened url
+	 */
+	private CompletableFuture<FactResponse> fetchAndProcessOnUpstreamExecutor()
+	{
+		return uselessFactAPIClient.fetchUselessFactInBackground().thenCompose(this::shortenAndCache);
+	}
+
+	/**
+	 * Shortens a fetched fact and caches it, issuing its short url right before it is cached.
+	 *
+	 * @param uselessFact response object from the Useless Fact API holding fact metadata
+	 * @return future of a FactResponse object containing fact text and shortened url, completed once the mapping is durable
+	 */
+	private CompletableFuture<FactResponse> shortenAndCache(UselessFact uselessFact)
+	{
+		String shortUrl = urlShortenerService.getOrCreateShortUrl(uselessFact.permalink());
+		return cacheFactData(uselessFact, shortUrl).thenApply(committed -> new FactResponse(uselessFact.text(), shortUrl));
+	}
+
 	/**
 	 * Constructs and inserts FactCacheDTO into the FactCacheService instance cache.
-	 * Only the first insert is persisted for a given short url.
+	 * Already cached short urls, i.e. facts seen before, take a fast path that allocates no FactCacheDTO and shares the
+	 * durability future of the mapping while it is still being committed.
+	 * A new short url is recorded as a change of the access statistics, which list it with no accesses.
+	 * Only the first insert is persisted and scheduled to expire for a given short url, and the short url is handed out
+	 * only once its mapping has been committed to the write-ahead log, by every caller. A mapping that cannot be committed
+	 * is rolled back before its future fails, so no later caller is handed a short url that would not survive a restart.
 	 *
 	 * @param uselessFact response object from the Useless Fact API holding fact metadata
 	 * @param shortUrl    constructed short url that maps to cached fact data
+	 * @return future completed once the mapping is durable
 	 */
-	private void cacheFactData(UselessFact uselessFact, String shortUrl)
+	private CompletableFuture<Void> cacheFactData(UselessFact uselessFact, String shortUrl)
 	{
+		if (factCacheService.find(shortUrl) != null)
+		{
+			// registered before the insert and removed only once complete, so an uncommitted mapping is never missed
+			CompletableFuture<Void> pending = pendingMappings.get(shortUrl);
+			return pending != null ? pending : CompletableFuture.completedFuture(null);
+		}
+		var committed = new CompletableFuture<Void>();
+		CompletableFuture<Void> pending = pendingMappings.putIfAbsent(shortUrl, committed);
+		if (pending != null)
+		{
+			return pending;
+		}
+		if (factCacheService.find(shortUrl) != null)
+		{
+			// committed by a concurrent caller in the meantime
+			pendingMappings.remove(shortUrl, committed);
+			return CompletableFuture.completedFuture(null);
+		}
+
 		FactCacheDTO factCacheDTO = new FactCacheDTO(uselessFact.text(), uselessFact.permalink(), shortUrl);
 		factCacheService.insertIfMissing(factCacheDTO);
+		accessChangeLog.recordChange(shortUrl);
+		factExpiryService.schedule(shortUrl);
+		writeAheadLog.appendMapping(factCacheDTO).whenComplete((value, throwable) -> {
+			if (throwable == null)
+			{
+				committed.complete(null);
+			}
+			else
+			{
+				rollBack(factCacheDTO);
+				committed.completeExceptionally(throwable);
+			}
+			pendingMappings.remove(shortUrl, committed);
+		});
+		return committed;
+	}
+
+	/**
+	 * Undoes the insert of a fact whose mapping could not be committed, removing it from the cache, the shortener, the
+	 * access statistics and the expiry schedule.
+	 *
+	 * @param factCacheDTO the fact inserted
+	 */
+	private void rollBack(FactCacheDTO factCacheDTO)
+	{
+		String shortUrl = factCacheDTO.shortUrl();
+		logger.warn("Could not persist the mapping of short url %s, rolling it back".formatted(shortUrl));
+		factCacheService.remove(shortUrl);
+		urlShortenerService.remove(factCacheDTO.originalUrl(), shortUrl);
+		factExpiryService.cancel(shortUrl);
+		windowedAccessStatistics.release(shortUrl);
+		topAccessStatistics.release(shortUrl);
+		accessChangeLog.recordChange(shortUrl);
 	}
 
 	/**
-	 * Increments the access count for short urls held in the cache and returns original long url.
+	 * Increments the access count for short urls held in the cache, extends their lifetime when expiry is sliding and
+	 * returns original long url.
+	 * The short url is resolved and counted in a single cache lookup, and a short url that is not cached is reported by
+	 * the result rather than by an exception, so that requests for unknown short urls cost as much as hits.
+	 * With the access event pipeline enabled, only the long url is resolved here and the access is published to be
+	 * counted in the background, the most accessed short urls included.
 	 *
 	 * @param shortUrl short url mapped to a cached fact data
-	 * @return a String object referring to the original long url pointing to the Useless Fact API
+	 * @return a String object referring to the original long url pointing to the Useless Fact API, or null when the
+	 * short url is not cached
 	 */
 	public String incrementAccessAndGetLongUrl(String shortUrl)
 	{
-		factCacheService.incrementAccessCount(shortUrl);
-		return factCacheService.getLongUrl(shortUrl);
+		if (accessEventPipeline.isEnabled())
+		{
+			String longUrl = factCacheService.resolveAndRecord(shortUrl, 0);
+			if (longUrl != null)
+			{
+				accessEventPipeline.publish(shortUrl);
+			}
+			return longUrl;
+		}
+		String longUrl = factCacheService.resolveAndRecord(shortUrl, 1);
+		if (longUrl == null)
+		{
+			return null;
+		}
+		windowedAccessStatistics.record(shortUrl, 1);
+		topAccessStatistics.record(shortUrl, 1);
+		accessChangeLog.recordChange(shortUrl);
+		writeAheadLog.appendAccess(shortUrl);
+		factExpiryService.touch(shortUrl);
+		return longUrl;
 	}
 
 	/**
@@ -87,11 +286,82 @@ public class FactService
 	public List<AccessStat> getAllAccessStatistics()
 	{
 		List<AccessStat> accessStats = new ArrayList<>();
-		for (final FactCacheDTO cacheDTO : factCacheService.getAll())
-		{
-			int accessCount = cacheDTO.accessCount().get();
-			accessStats.add(new AccessStat(cacheDTO.shortUrl(), accessCount));
-		}
+		factCacheService.forEachAccessCount((shortUrl, accessCount) -> accessStats.add(new AccessStat(shortUrl, accessCount)));
 		return accessStats;
 	}
+
+	/**
+	 * Collects the access counts within a rolling window of the short urls accessed in it, most accessed first.
+	 *
+	 * @param window the window
+	 * @return list of AccessStat instances holding the access count within the window of each recently accessed short url
+	 */
+	public List<AccessStat> getAccessStatistics(AccessWindow window)
+	{
+		List<AccessStat> accessStats = new ArrayList<>();
+		windowedAccessStatistics.forEach(window, (shortUrl, accessCount) -> accessStats.add(new AccessStat(shortUrl, accessCount)));
+		accessStats.sort(Comparator.comparing(AccessStat::accessCount).reversed());
+		return accessStats;
+	}
+
+	/**
+	 * Returns whether the most accessed short urls are tracked.
+	 *
+	 * @return true when {@code factservice.statistics.top-enabled} is set
+	 */
+	public boolean isTopAccessStatisticsEnabled()
+	{
+		return topAccessStatistics.isEnabled();
+	}
+
+	/**
+	 * Collects the most accessed short urls since startup without visiting the cache.
+	 *
+	 * @param k maximum number of short urls
+	 * @return list of TopAccessStat instances holding the estimated access count and its max error, most accessed first
+	 */
+	public List<TopAccessStat> getTopAccessStatistics(int k)
+	{
+		return topAccessStatistics.top(k);
+	}
+
+	/**
+	 * Returns the version to poll changed access statistics since, taken before the statistics are read.
+	 *
+	 * @return the statistics version
+	 */
+	public long getAccessStatisticsVersion()
+	{
+		return accessChangeLog.currentVersion();
+	}
+
+	/**
+	 * Returns the strong entity tag of the lifetime or top access statistics at a version. Unchanged statistics keep
+	 * their version, so a matching tag is answered without reading the statistics.
+	 *
+	 * @param representation the endpoint and parameters the statistics are read with, so that each gets its own tag
+	 * @param version        version from {@link #getAccessStatisticsVersion()}
+	 * @return quoted entity tag
+	 */
+	public String getAccessStatisticsETag(String representation, long version)
+	{
+		return accessChangeLog.entityTag(representation, version);
+	}
+
+	/**
+	 * Collects the access counts of the short urls changed after a version, without visiting unchanged short urls.
+	 *
+	 * @param since version returned by an earlier poll or along with the full statistics
+	 * @return the changed access counts, a null count for removed short urls, and the version to poll next, or null
+	 * when changes since that version are no longer known
+	 */
+	public AccessStatChanges getAccessStatisticsSince(long since)
+	{
+		List<AccessStat> changes = new ArrayList<>();
+		long version = accessChangeLog.changesSince(since, shortUrl -> {
+			long accessCount = factCacheService.findAccessCount(shortUrl);
+			changes.add(new AccessStat(shortUrl, accessCount < 0 ? null : accessCount));
+		});
+		return version < 0 ? null : new AccessStatChanges(version, changes);
+	}
 }
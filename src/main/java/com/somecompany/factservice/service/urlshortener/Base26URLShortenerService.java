@@ -1,30 +1,79 @@
 package com.somecompany.factservice.service.urlshortener;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongPredicate;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import com.somecompany.factservice.cache.FactCacheService;
+
 /**
- * Base26 based URLShortenerService implementation.
+ * Counter based URLShortenerService implementation.
+ * Each new long url is assigned the next value of a 64-bit counter, encoded with the configured {@link ShortCodeCodec}
+ * (base26 by default).
+ * <p>
+ * Already shortened long urls are deduplicated through a {@link LongUrlIndex} that keeps only url hashes and ids. A hash
+ * match is verified against the original url cached for the candidate id, or, while the fact of a fresh short url is not
+ * cached yet, against the long url remembered for the most recently issued ids. Any other candidate, e.g. one whose fact
+ * was evicted, never matches, so a hash collision can at worst issue a second short url for a long url but never hand out
+ * the short url of another one. Long urls shortened before a restart can be served from a read-only index
+ * restored from a snapshot, which is consulted after the in-memory index.
+ * </p>
  */
 @Service
 public class Base26URLShortenerService implements URLShortenerService
 {
 	private static final Logger logger = LoggerFactory.getLogger(Base26URLShortenerService.class);
 
+	/**
+	 * Number of most recently issued ids whose long urls are remembered, a power of two.
+	 */
+	private static final int RECENTLY_ISSUED = 1024;
+
 	/**
 	 * Atomic counter to be used for encoding process for each new url to be encoded.
 	 */
-	private final AtomicInteger uniqueUrlCounter = new AtomicInteger(1);
+	private final AtomicLong uniqueUrlCounter = new AtomicLong(1);
+
+	/**
+	 * Codec translating counter values into short urls.
+	 */
+	private final ShortCodeCodec shortCodeCodec;
+
+	/**
+	 * Cache holding the original urls that hash matches are verified against.
+	 */
+	private final FactCacheService factCacheService;
 
 	/**
-	 * A map holding already computed longUrl to shortUrl relationships, in order to avoid redundant mappings and computations.
+	 * Index of already computed longUrl to id relationships, in order to avoid redundant mappings and computations.
 	 */
-	final Map<String, String> longUrlToShortUrl = new ConcurrentHashMap<>();
+	private final LongUrlIndex longUrlIndex = new LongUrlIndex();
+
+	/**
+	 * Long urls of the most recently issued ids, slotted by id, to verify hash matches before their facts are cached.
+	 */
+	private final AtomicReferenceArray<IssuedUrl> recentlyIssued = new AtomicReferenceArray<>(RECENTLY_ISSUED);
+
+	/**
+	 * Read-only index of long urls shortened before a restart, empty unless restored.
+	 */
+	private volatile LongUrlLookup restoredIndex = (hash, matches) -> LongUrlLookup.NOT_FOUND;
+
+	/**
+	 * Constructs the shortener with the given codec.
+	 *
+	 * @param shortCodeCodec   codec translating counter values into short urls
+	 * @param factCacheService cache holding the original urls of issued short urls
+	 */
+	public Base26URLShortenerService(ShortCodeCodec shortCodeCodec, FactCacheService factCacheService)
+	{
+		this.shortCodeCodec = shortCodeCodec;
+		this.factCacheService = factCacheService;
+	}
 
 	/**
 	 * Implementation of the interface method to shorten a given long url.
@@ -39,11 +88,146 @@ public class Base26URLShortenerService implements URLShortenerService
 	public String getOrCreateShortUrl(String longUrl)
 	{
 		validateLongUrl(longUrl);
-		return longUrlToShortUrl.computeIfAbsent(longUrl, k -> {
-			String encodedUrl = UrlShortenerUtil.encodeBase26(uniqueUrlCounter.getAndIncrement());
-			logger.info("Computed shortUrl to longUrl mapping: [%s -> %s]".formatted(encodedUrl, longUrl));
-			return encodedUrl;
-		});
+		long hash = LongUrlLookup.hash(longUrl);
+		LongPredicate matches = candidateId -> isShortUrlOf(candidateId, longUrl);
+		long id = longUrlIndex.find(hash, matches);
+		if (id == LongUrlLookup.NOT_FOUND)
+		{
+			id = restoredIndex.find(hash, matches);
+		}
+		if (id == LongUrlLookup.NOT_FOUND)
+		{
+			id = longUrlIndex.findOrInsert(hash, matches, () -> {
+				long newId = uniqueUrlCounter.getAndIncrement();
+				recentlyIssued.set(recentlyIssuedSlot(newId), new IssuedUrl(newId, longUrl));
+				logger.info("Computed shortUrl to longUrl mapping: [%s -> %s]".formatted(shortCodeCodec.encode(newId), longUrl));
+				return newId;
+			});
+		}
+		return shortCodeCodec.encode(id);
+	}
+
+	/**
+	 * Indexes the long url under the id of the restored short url and moves the counter past that id.
+	 *
+	 * @param longUrl  the long url
+	 * @param shortUrl the short url previously issued for it
+	 * @throws IllegalArgumentException when the long url or the short url is invalid
+	 */
+	@Override
+	public void restore(String longUrl, String shortUrl)
+	{
+		validateLongUrl(longUrl);
+		long id = shortCodeCodec.decode(shortUrl);
+		if (id == ShortCodeCodec.INVALID)
+		{
+			throw new IllegalArgumentException("Invalid shortUrl.");
+		}
+		longUrlIndex.findOrInsert(LongUrlLookup.hash(longUrl), candidateId -> isShortUrlOf(candidateId, longUrl), () -> id);
+		uniqueUrlCounter.accumulateAndGet(id + 1, Math::max);
+	}
+
+	/**
+	 * Replaces the read-only index of restored long urls and moves the counter past its last id.
+	 *
+	 * @param restoredIndex index of the long urls shortened before a restart
+	 * @param lastId        highest id in the index
+	 */
+	@Override
+	public void restore(LongUrlLookup restoredIndex, long lastId)
+	{
+		this.restoredIndex = restoredIndex;
+		uniqueUrlCounter.accumulateAndGet(lastId + 1, Math::max);
+	}
+
+	/**
+	 * Removes the long url from the in-memory index. A long url only held by the restored index stays there, but as its
+	 * fact is no longer cached it no longer matches, so shortening it again issues a new short url.
+	 *
+	 * @param longUrl  the long url
+	 * @param shortUrl the short url issued for it
+	 * @return true when the in-memory index held the mapping
+	 */
+	@Override
+	public boolean remove(String longUrl, String shortUrl)
+	{
+		long id = shortCodeCodec.decode(shortUrl);
+		return longUrl != null && id != ShortCodeCodec.INVALID && longUrlIndex.remove(LongUrlLookup.hash(longUrl), id);
+	}
+
+	/**
+	 * Returns the counter value of the last issued or restored short url.
+	 *
+	 * @return highest issued id, or 0 when none was issued
+	 */
+	@Override
+	public long lastIssuedId()
+	{
+		return uniqueUrlCounter.get() - 1;
+	}
+
+	/**
+	 * Returns whether the short url decodes to an id the counter has passed. Ids are issued in counter order, so this is
+	 * exact for every short url ever issued or restored, including removed ones, and costs no memory.
+	 *
+	 * @param shortUrl the short url
+	 * @return true when the short url decodes to an id up to the last issued one
+	 */
+	@Override
+	public boolean isIssued(String shortUrl)
+	{
+		long id = shortCodeCodec.decode(shortUrl);
+		return id != ShortCodeCodec.INVALID && id < uniqueUrlCounter.get();
+	}
+
+	/**
+	 * Returns the number of distinct long urls shortened so far.
+	 *
+	 * @return number of indexed long urls
+	 */
+	long size()
+	{
+		return longUrlIndex.size();
+	}
+
+	/**
+	 * Verifies a hash match against the original url cached for the candidate id, or the long url it was recently issued
+	 * for while its fact is not cached yet. The cached url is read without counting an access of the fact.
+	 *
+	 * @param candidateId id indexed under the same hash as the long url
+	 * @param longUrl     the long url being shortened
+	 * @return true when the cached or recently issued url equals the long url, false when neither is known
+	 */
+	private boolean isShortUrlOf(long candidateId, String longUrl)
+	{
+		String cachedUrl = factCacheService.findOriginalUrl(shortCodeCodec.encode(candidateId));
+		if (cachedUrl != null)
+		{
+			return longUrl.equals(cachedUrl);
+		}
+		IssuedUrl issued = recentlyIssued.get(recentlyIssuedSlot(candidateId));
+		return issued != null && issued.id() == candidateId && longUrl.equals(issued.longUrl());
+	}
+
+	/**
+	 * Returns the slot of an id among the recently issued ones.
+	 *
+	 * @param id the id
+	 * @return slot index
+	 */
+	private static int recentlyIssuedSlot(long id)
+	{
+		return (int) (id & (RECENTLY_ISSUED - 1));
+	}
+
+	/**
+	 * An issued id and the long url it was issued for.
+	 *
+	 * @param id      the id
+	 * @param longUrl the long url
+	 */
+	private record IssuedUrl(long id, String longUrl)
+	{
 	}
 
 	/**
@@ -0,0 +1,280 @@
+package com.somecompany.factservice.service.urlshortener;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.LongPredicate;
+import java.util.function.LongSupplier;
+
+/**
+ * Dedupe index from long urls to ids, kept in a primitive open-addressing table.
+ * <p>
+ * Each slot holds the 64-bit hash of a long url and its id in two parallel {@code long} arrays, so the index neither
+ * keeps the url strings nor allocates an entry object per url. Collisions are resolved by linear probing, and removals
+ * shift later entries back instead of leaving tombstones. Because only hashes are stored, the caller verifies every hash
+ * match against the url it stored for the candidate id. Lookups run under an optimistic read stamp and fall back to a
+ * read lock when they raced with a write; inserts, removals and resizing hold the write lock.
+ * </p>
+ */
+class LongUrlIndex implements LongUrlLookup
+{
+	/**
+	 * Id marking an empty slot. Ids handed out by the shortener start at 1.
+	 */
+	private static final long EMPTY = 0;
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private final StampedLock lock = new StampedLock();
+
+	/**
+	 * Hashes and ids of one table generation, replaced as a whole on resize.
+	 */
+	private volatile Table table = new Table(INITIAL_CAPACITY);
+
+	/**
+	 * Number of indexed urls.
+	 */
+	private long size;
+
+	/**
+	 * Looks up the id of a url.
+	 *
+	 * @param hash    hash of the url
+	 * @param matches verifies that a candidate id with the same hash belongs to the url
+	 * @return the id, or {@link #NOT_FOUND}
+	 */
+	@Override
+	public long find(long hash, LongPredicate matches)
+	{
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0)
+		{
+			long id = probe(table, hash, matches);
+			if (lock.validate(stamp))
+			{
+				return id;
+			}
+		}
+
+		stamp = lock.readLock();
+		try
+		{
+			return probe(table, hash, matches);
+		}
+		finally
+		{
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Looks up the id of a url, indexing it under a new id when it is missing.
+	 *
+	 * @param hash       hash of the url
+	 * @param matches    verifies that a candidate id with the same hash belongs to the url
+	 * @param idSupplier supplies the id of a new url, called at most once and under the write lock
+	 * @return the existing or new id
+	 */
+	long findOrInsert(long hash, LongPredicate matches, LongSupplier idSupplier)
+	{
+		long id = find(hash, matches);
+		if (id != NOT_FOUND)
+		{
+			return id;
+		}
+
+		long stamp = lock.writeLock();
+		try
+		{
+			Table current = table;
+			id = probe(current, hash, matches);
+			if (id != NOT_FOUND)
+			{
+				return id;
+			}
+			if ((size + 1) * 4 > current.capacity() * 3L)
+			{
+				current = resize(current);
+			}
+			id = idSupplier.getAsLong();
+			current.put(hash, id);
+			size++;
+			return id;
+		}
+		finally
+		{
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Removes the entry of a url, shifting later entries of its probe sequence back so that no tombstone is left.
+	 *
+	 * @param hash hash of the url
+	 * @param id   id the url is indexed under
+	 * @return true when the entry was indexed
+	 */
+	boolean remove(long hash, long id)
+	{
+		long stamp = lock.writeLock();
+		try
+		{
+			if (!table.remove(hash, id))
+			{
+				return false;
+			}
+			size--;
+			return true;
+		}
+		finally
+		{
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Returns the number of indexed urls.
+	 *
+	 * @return number of entries
+	 */
+	long size()
+	{
+		long stamp = lock.readLock();
+		try
+		{
+			return size;
+		}
+		finally
+		{
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Probes the table for a verified id with the given hash.
+	 *
+	 * @param table   table to probe
+	 * @param hash    hash of the url
+	 * @param matches verifies candidate ids
+	 * @return the id, or {@link #NOT_FOUND}
+	 */
+	private static long probe(Table table, long hash, LongPredicate matches)
+	{
+		int mask = table.hashes.length - 1;
+		for (int slot = (int) hash & mask, probes = 0; probes <= mask; slot = (slot + 1) & mask, probes++)
+		{
+			long id = table.ids[slot];
+			if (id == EMPTY)
+			{
+				return NOT_FOUND;
+			}
+			if (table.hashes[slot] == hash && matches.test(id))
+			{
+				return id;
+			}
+		}
+		return NOT_FOUND;
+	}
+
+	/**
+	 * Rehashes all entries into a table of twice the capacity and publishes it. Called under the write lock.
+	 *
+	 * @param current table to grow
+	 * @return the grown table
+	 */
+	private Table resize(Table current)
+	{
+		var grown = new Table(current.capacity() * 2);
+		for (int slot = 0; slot < current.capacity(); slot++)
+		{
+			if (current.ids[slot] != EMPTY)
+			{
+				grown.put(current.hashes[slot], current.ids[slot]);
+			}
+		}
+		table = grown;
+		return grown;
+	}
+
+	/**
+	 * One generation of the open-addressing table.
+	 *
+	 * @param hashes url hash per slot
+	 * @param ids    id per slot, {@link #EMPTY} for free slots
+	 */
+	private record Table(long[] hashes, long[] ids)
+	{
+		/**
+		 * Constructs an empty table.
+		 *
+		 * @param capacity number of slots, a power of two
+		 */
+		Table(int capacity)
+		{
+			this(new long[capacity], new long[capacity]);
+		}
+
+		/**
+		 * Returns the number of slots.
+		 *
+		 * @return capacity
+		 */
+		int capacity()
+		{
+			return ids.length;
+		}
+
+		/**
+		 * Stores an entry in the first free slot of its probe sequence.
+		 *
+		 * @param hash url hash
+		 * @param id   url id
+		 */
+		void put(long hash, long id)
+		{
+			int mask = ids.length - 1;
+			int slot = (int) hash & mask;
+			while (ids[slot] != EMPTY)
+			{
+				slot = (slot + 1) & mask;
+			}
+			hashes[slot] = hash;
+			ids[slot] = id;
+		}
+
+		/**
+		 * Clears the slot of an entry and moves each following entry of the cluster into the freed slot when its home
+		 * slot does not lie between the freed slot and its current one.
+		 *
+		 * @param hash url hash
+		 * @param id   url id
+		 * @return true when the entry was found
+		 */
+		boolean remove(long hash, long id)
+		{
+			int mask = ids.length - 1;
+			int slot = (int) hash & mask;
+			while (ids[slot] != id || hashes[slot] != hash)
+			{
+				if (ids[slot] == EMPTY)
+				{
+					return false;
+				}
+				slot = (slot + 1) & mask;
+			}
+			int free = slot;
+			for (int next = (slot + 1) & mask; ids[next] != EMPTY; next = (next + 1) & mask)
+			{
+				int home = (int) hashes[next] & mask;
+				if (((next - home) & mask) >= ((next - free) & mask))
+				{
+					hashes[free] = hashes[next];
+					ids[free] = ids[next];
+					free = next;
+				}
+			}
+			hashes[free] = 0;
+			ids[free] = EMPTY;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package com.somecompany.factservice.service.urlshortener;
+
+import java.util.function.LongPredicate;
+
+/**
+ * Read access to an index from long url hashes to ids.
+ * Implemented by the shortener's own dedupe index and by indexes restored from persisted snapshots.
+ */
+@FunctionalInterface
+public interface LongUrlLookup
+{
+	/**
+	 * Value returned for urls that are not indexed.
+	 */
+	long NOT_FOUND = -1;
+
+	/**
+	 * Looks up the id of a url.
+	 *
+	 * @param hash    hash of the url, see {@link #hash(String)}
+	 * @param matches verifies that a candidate id with the same hash belongs to the url
+	 * @return the id, or {@link #NOT_FOUND}
+	 */
+	long find(long hash, LongPredicate matches);
+
+	/**
+	 * Returns the 64-bit FNV-1a hash of the url, finalized with the MurmurHash3 mixer to spread the low bits used for
+	 * slot selection.
+	 *
+	 * @param url url to hash
+	 * @return 64-bit hash
+	 */
+	static long hash(String url)
+	{
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < url.length(); i++)
+		{
+			hash = (hash ^ url.charAt(i)) * 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
@@ -0,0 +1,247 @@
+package com.somecompany.factservice.service.urlshortener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Bijective codec between positive numeric ids and short codes over a configurable alphabet.
+ * <p>
+ * The first character of the alphabet is the zero digit, so codes never start with it and every positive id has exactly
+ * one code. Encoding computes the code length up front and writes the digits straight into a pre-sized buffer, without
+ * intermediate builders or reversal. Decoding is a single pass over the code and rejects anything that is not the
+ * canonical encoding of a positive {@code long}.
+ * </p>
+ * <p>
+ * Instances are immutable and thread-safe.
+ * </p>
+ */
+public final class ShortCodeCodec
+{
+	/**
+	 * Lowercase latin alphabet, compatible with the codes issued so far.
+	 */
+	public static final ShortCodeCodec BASE26 = new ShortCodeCodec("abcdefghijklmnopqrstuvwxyz");
+
+	/**
+	 * Digits, uppercase and lowercase latin letters.
+	 */
+	public static final ShortCodeCodec BASE62 = new ShortCodeCodec("0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz");
+
+	/**
+	 * Value returned by {@link #decode(CharSequence)} for codes that do not correspond to an id.
+	 */
+	public static final long INVALID = -1;
+
+	private static final int ASCII = 128;
+
+	private final byte[] alphabet;
+	private final int base;
+
+	/**
+	 * {@code ceil(2^64 / base)}, turning division of non-negative ints by the base into a high multiplication. Zero for
+	 * base 2, where the value does not fit into a signed {@code long}.
+	 */
+	private final long reciprocal;
+
+	/**
+	 * Digit value per ASCII character, -1 for characters outside the alphabet.
+	 */
+	private final byte[] digits = new byte[ASCII];
+
+	/**
+	 * {@code thresholds[i]} is the smallest id whose code has {@code i + 1} characters.
+	 */
+	private final long[] thresholds;
+
+	/**
+	 * Constructs a codec over the given alphabet.
+	 *
+	 * @param alphabet distinct ASCII characters, the first one being the zero digit
+	 */
+	private ShortCodeCodec(String alphabet)
+	{
+		this.alphabet = alphabet.getBytes(StandardCharsets.US_ASCII);
+		this.base = alphabet.length();
+		this.reciprocal = base > 2 ? Long.divideUnsigned(-1L, base) + 1 : 0;
+		Arrays.fill(digits, (byte) -1);
+		for (int i = 0; i < base; i++)
+		{
+			digits[alphabet.charAt(i)] = (byte) i;
+		}
+
+		long[] powers = new long[64];
+		int count = 0;
+		long threshold = 1;
+		while (true)
+		{
+			powers[count++] = threshold;
+			if (threshold > Long.MAX_VALUE / base)
+			{
+				break;
+			}
+			threshold *= base;
+		}
+		this.thresholds = Arrays.copyOf(powers, count);
+	}
+
+	/**
+	 * Returns a codec over the given alphabet, or one of the predefined codecs for {@code base26} and {@code base62}.
+	 *
+	 * @param alphabet {@code base26}, {@code base62} or a custom alphabet of at least two distinct ASCII characters
+	 * @return the codec
+	 * @throws IllegalArgumentException when the alphabet is invalid
+	 */
+	public static ShortCodeCodec of(String alphabet)
+	{
+		if (alphabet == null || alphabet.length() < 2)
+		{
+			throw new IllegalArgumentException("Alphabet must contain at least two characters.");
+		}
+		if ("base26".equalsIgnoreCase(alphabet))
+		{
+			return BASE26;
+		}
+		if ("base62".equalsIgnoreCase(alphabet))
+		{
+			return BASE62;
+		}
+		if (alphabet.chars().anyMatch(c -> c >= ASCII || c <= ' ' || c == '/') || alphabet.chars().distinct().count() != alphabet.length())
+		{
+			throw new IllegalArgumentException("Alphabet must consist of distinct, printable, url path safe ASCII characters.");
+		}
+		return new ShortCodeCodec(alphabet);
+	}
+
+	/**
+	 * Returns the number of characters in the code of the given id.
+	 *
+	 * @param id non-negative id
+	 * @return code length, 0 for id 0
+	 */
+	public int encodedLength(long id)
+	{
+		int length = 0;
+		while (length < thresholds.length && id >= thresholds[length])
+		{
+			length++;
+		}
+		return length;
+	}
+
+	/**
+	 * Encodes the id into a new String.
+	 *
+	 * @param id non-negative id
+	 * @return the code, empty for id 0
+	 * @throws IllegalArgumentException when the id is negative
+	 */
+	public String encode(long id)
+	{
+		int length = checkedLength(id);
+		byte[] buffer = new byte[length];
+		writeDigits(id, buffer, 0, length);
+		return new String(buffer, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Encodes the id as ASCII bytes into the given buffer.
+	 *
+	 * @param id     non-negative id
+	 * @param dst    destination buffer
+	 * @param offset position of the first character in the buffer
+	 * @return number of bytes written
+	 * @throws IllegalArgumentException  when the id is negative
+	 * @throws IndexOutOfBoundsException when the buffer is too small
+	 */
+	public int encodeTo(long id, byte[] dst, int offset)
+	{
+		int length = checkedLength(id);
+		if (offset < 0 || offset + length > dst.length)
+		{
+			throw new IndexOutOfBoundsException("Buffer too small for code of length " + length);
+		}
+		writeDigits(id, dst, offset, length);
+		return length;
+	}
+
+	/**
+	 * Decodes a code back to its id.
+	 *
+	 * @param code the code
+	 * @return the id, or {@link #INVALID} when the code is null, empty, contains characters outside the alphabet,
+	 * starts with the zero digit or exceeds the {@code long} range
+	 */
+	public long decode(CharSequence code)
+	{
+		if (code == null || code.isEmpty() || code.length() > thresholds.length)
+		{
+			return INVALID;
+		}
+
+		// only codes of the maximum length can exceed the long range
+		boolean mayOverflow = code.length() == thresholds.length;
+		long id = 0;
+		for (int i = 0; i < code.length(); i++)
+		{
+			char c = code.charAt(i);
+			int digit = c < ASCII ? digits[c] : -1;
+			if (digit < 0 || (i == 0 && digit == 0) || (mayOverflow && id > (Long.MAX_VALUE - digit) / base))
+			{
+				return INVALID;
+			}
+			id = id * base + digit;
+		}
+		return id;
+	}
+
+	/**
+	 * Returns the number of symbols in the alphabet.
+	 *
+	 * @return base of the codec
+	 */
+	public int base()
+	{
+		return base;
+	}
+
+	/**
+	 * Returns the code length after validating the id.
+	 *
+	 * @param id id to encode
+	 * @return code length
+	 */
+	private int checkedLength(long id)
+	{
+		if (id < 0)
+		{
+			throw new IllegalArgumentException("Only non-negative ids can be encoded.");
+		}
+		return encodedLength(id);
+	}
+
+	/**
+	 * Writes the digits of the id from the last position backwards.
+	 *
+	 * @param id     id to encode
+	 * @param dst    destination buffer
+	 * @param offset position of the first character
+	 * @param length code length
+	 */
+	private void writeDigits(long id, byte[] dst, int offset, int length)
+	{
+		int i = offset + length - 1;
+		// 64-bit division is several times slower than 32-bit division, so switch to int arithmetic as soon as possible
+		for (; id > Integer.MAX_VALUE; i--)
+		{
+			dst[i] = alphabet[(int) (id % base)];
+			id /= base;
+		}
+		for (int remaining = (int) id; i >= offset; i--)
+		{
+			// division by a field is not strength-reduced by the JIT, so multiply by the precomputed reciprocal instead
+			int quotient = reciprocal != 0 ? (int) Math.multiplyHigh(remaining, reciprocal) : remaining >>> 1;
+			dst[i] = alphabet[remaining - quotient * base];
+			remaining = quotient;
+		}
+	}
+}
@@ -12,4 +12,49 @@ public interface URLShortenerService
 	 * @return shorter representation of the longUrl
 	 */
 	String getOrCreateShortUrl(String longUrl);
+
+	/**
+	 * Re-registers a mapping issued before a restart, so that the long url keeps its short url and no new short url
+	 * collides with it.
+	 *
+	 * @param longUrl  the long url
+	 * @param shortUrl the short url previously issued for it
+	 * @throws IllegalArgumentException when the long url or the short url is invalid
+	 */
+	void restore(String longUrl, String shortUrl);
+
+	/**
+	 * Attaches a read-only index of the mappings issued before a restart, replacing a previously attached one, so that
+	 * those long urls keep their short urls without being re-inserted one by one.
+	 *
+	 * @param restoredIndex index from long url hashes to the ids of their short urls
+	 * @param lastId        highest id in the index; new short urls are issued after it
+	 */
+	void restore(LongUrlLookup restoredIndex, long lastId);
+
+	/**
+	 * Forgets the mapping of a long url to a short url, so that the long url is shortened anew next time. The short url
+	 * itself is never issued again.
+	 *
+	 * @param longUrl  the long url
+	 * @param shortUrl the short url issued for it
+	 * @return true when the mapping was known
+	 */
+	boolean remove(String longUrl, String shortUrl);
+
+	/**
+	 * Returns the highest id a short url was issued for, restored ones included.
+	 *
+	 * @return highest issued id, or 0 when none was issued
+	 */
+	long lastIssuedId();
+
+	/**
+	 * Returns whether a short url may have been issued. A short url that was not issued cannot be cached, so a request for
+	 * it can be answered as not found without looking it up.
+	 *
+	 * @param shortUrl the short url
+	 * @return false when the short url was certainly never issued
+	 */
+	boolean isIssued(String shortUrl);
 }
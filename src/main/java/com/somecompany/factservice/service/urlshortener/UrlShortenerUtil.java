@@ -5,9 +5,6 @@ package com.somecompany.factservice.service.urlshortener;
  */
 public class UrlShortenerUtil
 {
-	private static final String BASE26_CHARACTERS = "abcdefghijklmnopqrstuvwxyz";
-	private static final int BASE = BASE26_CHARACTERS.length();
-
 	/**
 	 * Private constructor safeguarding instantiation of this utility class.
 	 */
@@ -19,18 +16,22 @@ public class UrlShortenerUtil
 	/**
 	 * Encodes a given number into a base26 String
 	 *
-	 * @param num integer value to be encoded
-	 * @return a base26 encoded string for the given integer
+	 * @param num non-negative value to be encoded
+	 * @return a base26 encoded string for the given number
+	 */
+	public static String encodeBase26(long num)
+	{
+		return ShortCodeCodec.BASE26.encode(num);
+	}
+
+	/**
+	 * Decodes a base26 String back into the number it was encoded from.
+	 *
+	 * @param encoded base26 encoded string
+	 * @return the decoded number or {@link ShortCodeCodec#INVALID} when the string is not a valid base26 code
 	 */
-	public static String encodeBase26(int num)
+	public static long decodeBase26(String encoded)
 	{
-		var encoded = new StringBuilder();
-		while (num > 0)
-		{
-			int remainder = num % BASE;
-			num /= BASE;
-			encoded.append(BASE26_CHARACTERS.charAt(remainder));
-		}
-		return encoded.reverse().toString();
+		return ShortCodeCodec.BASE26.decode(encoded);
 	}
 }
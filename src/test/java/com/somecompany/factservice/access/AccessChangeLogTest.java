@@ -0,0 +1,99 @@
+package com.somecompany.factservice.access;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.somecompany.factservice.config.StatisticsProperties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for AccessChangeLog handing out versions and the short urls changed after them.
+ */
+class AccessChangeLogTest
+{
+	@Test
+	@DisplayName("Each poll returns the short urls changed since the previous one, each once")
+	void changesSince()
+	{
+		// given
+		AccessChangeLog accessChangeLog = newAccessChangeLog(100);
+		long initial = accessChangeLog.currentVersion();
+		accessChangeLog.recordChange("b");
+		accessChangeLog.recordChange("c");
+		accessChangeLog.recordChange("b");
+
+		// when
+		List<String> firstPoll = new ArrayList<>();
+		long firstVersion = accessChangeLog.changesSince(initial, firstPoll::add);
+		accessChangeLog.recordChange("c");
+		accessChangeLog.recordChange("c");
+		List<String> secondPoll = new ArrayList<>();
+		long secondVersion = accessChangeLog.changesSince(firstVersion, secondPoll::add);
+		List<String> thirdPoll = new ArrayList<>();
+		long thirdVersion = accessChangeLog.changesSince(secondVersion, thirdPoll::add);
+
+		// then
+		assertThat(firstPoll).containsExactlyInAnyOrder("b", "c");
+		assertThat(secondPoll).containsExactly("c");
+		assertThat(thirdPoll).isEmpty();
+		assertThat(thirdVersion).isEqualTo(secondVersion).isGreaterThan(firstVersion);
+	}
+
+	@Test
+	@DisplayName("Entity tags differ per representation and version")
+	void entityTag()
+	{
+		// given
+		AccessChangeLog accessChangeLog = newAccessChangeLog(100);
+		long version = accessChangeLog.currentVersion();
+
+		// when
+		String statistics = accessChangeLog.entityTag("statistics", version);
+
+		// then
+		assertThat(statistics).startsWith("\"").endsWith("\"").isEqualTo(accessChangeLog.entityTag("statistics", version));
+		assertThat(accessChangeLog.entityTag("top-10", version)).isNotEqualTo(statistics)
+			.isNotEqualTo(accessChangeLog.entityTag("top-20", version));
+		accessChangeLog.recordChange("b");
+		assertThat(accessChangeLog.entityTag("statistics", accessChangeLog.currentVersion())).isNotEqualTo(statistics);
+	}
+
+	@Test
+	@DisplayName("Polls from before forgotten changes or from a future version have to reload")
+	void forgotten()
+	{
+		// given
+		AccessChangeLog accessChangeLog = newAccessChangeLog(2);
+		long initial = accessChangeLog.currentVersion();
+		accessChangeLog.recordChange("b");
+		long afterFirst = accessChangeLog.currentVersion();
+
+		// when
+		accessChangeLog.recordChange("c");
+		accessChangeLog.recordChange("d");
+		List<String> changes = new ArrayList<>();
+		long version = accessChangeLog.changesSince(afterFirst, changes::add);
+
+		// then
+		assertThat(accessChangeLog.changesSince(initial, (shortUrl) -> { })).isEqualTo(-1);
+		assertThat(accessChangeLog.changesSince(version + 1, (shortUrl) -> { })).isEqualTo(-1);
+		assertThat(version).isPositive();
+		assertThat(changes).containsExactly("c", "d");
+	}
+
+	/**
+	 * Creates a log remembering the given number of changes.
+	 *
+	 * @param maxChanges number of remembered changes
+	 * @return the log
+	 */
+	private static AccessChangeLog newAccessChangeLog(int maxChanges)
+	{
+		return new AccessChangeLog(new StatisticsProperties(false, 1, Duration.ofDays(1), false, 1, maxChanges, 1));
+	}
+}
@@ -0,0 +1,130 @@
+package com.somecompany.factservice.access;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.somecompany.factservice.cache.FactCacheDTO;
+import com.somecompany.factservice.cache.FactCacheService;
+import com.somecompany.factservice.cache.InMemoryFactCacheService;
+import com.somecompany.factservice.config.AccessPipelineProperties;
+import com.somecompany.factservice.expiry.FactExpiryService;
+import com.somecompany.factservice.persistence.WriteAheadLog;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for AccessEventPipeline aggregating published accesses and applying them in batches.
+ */
+class AccessEventPipelineTest
+{
+	AtomicLong nanos = new AtomicLong();
+	FactCacheService factCacheService = new InMemoryFactCacheService();
+	WriteAheadLog writeAheadLog = mock(WriteAheadLog.class);
+	FactExpiryService factExpiryService = mock(FactExpiryService.class);
+	WindowedAccessStatistics windowedAccessStatistics = mock(WindowedAccessStatistics.class);
+	TopAccessStatistics topAccessStatistics = mock(TopAccessStatistics.class);
+	AccessChangeLog accessChangeLog = mock(AccessChangeLog.class);
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	@DisplayName("Accesses are aggregated per short url and applied with one call each")
+	void drain()
+	{
+		// given
+		AccessEventPipeline accessEventPipeline = newAccessEventPipeline(AccessPipelineProperties.BackPressure.DROP, 16);
+		factCacheService.insertIfMissing(new FactCacheDTO("Bananas are berries.", "www.factbase.com/1", "b"));
+		factCacheService.insertIfMissing(new FactCacheDTO("Honey never spoils.", "www.factbase.com/2", "c"));
+		IntStream.range(0, 3).forEach((ignore) -> accessEventPipeline.publish("b"));
+		accessEventPipeline.publish("c");
+
+		// when
+		nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(5));
+		int drained = accessEventPipeline.drain();
+
+		// then
+		assertThat(drained).isEqualTo(4);
+		assertThat(factCacheService.find("b").accessCount().get()).isEqualTo(3);
+		assertThat(factCacheService.find("c").accessCount().get()).isEqualTo(1);
+		verify(writeAheadLog, times(1)).appendAccess("b", 3);
+		verify(factExpiryService, times(1)).touch("b");
+		verify(windowedAccessStatistics, times(1)).record("b", 3);
+		verify(topAccessStatistics, times(1)).record("b", 3);
+		verify(accessChangeLog, times(1)).recordChange("b");
+		assertThat(meterRegistry.get("factservice.access.lag").timer().max(TimeUnit.MILLISECONDS)).isEqualTo(5);
+		assertThat(meterRegistry.get("factservice.access.pending").gauge().value()).isZero();
+		assertThat(accessEventPipeline.drain()).isZero();
+	}
+
+	@Test
+	@DisplayName("Full ring drops and counts accesses and removed facts are skipped")
+	void drop()
+	{
+		// given
+		AccessEventPipeline accessEventPipeline = newAccessEventPipeline(AccessPipelineProperties.BackPressure.DROP, 4);
+		factCacheService.insertIfMissing(new FactCacheDTO("Bananas are berries.", "www.factbase.com/1", "b"));
+		IntStream.range(0, 5).forEach((ignore) -> accessEventPipeline.publish("b"));
+		accessEventPipeline.publish("c");
+
+		// when
+		int drained = accessEventPipeline.drain();
+
+		// then
+		assertThat(drained).isEqualTo(4);
+		assertThat(meterRegistry.get("factservice.access.dropped").counter().count()).isEqualTo(2);
+		assertThat(factCacheService.find("b").accessCount().get()).isEqualTo(4);
+		verify(writeAheadLog, never()).appendAccess("c", 1);
+	}
+
+	@Test
+	@DisplayName("Blocking back-pressure loses no access from concurrent redirects")
+	void block() throws InterruptedException
+	{
+		// given
+		AccessEventPipeline accessEventPipeline = newAccessEventPipeline(AccessPipelineProperties.BackPressure.BLOCK, 8);
+		factCacheService.insertIfMissing(new FactCacheDTO("Bananas are berries.", "www.factbase.com/1", "b"));
+		accessEventPipeline.start();
+
+		// when
+		Thread[] redirects = new Thread[4];
+		for (int i = 0; i < redirects.length; i++)
+		{
+			redirects[i] = new Thread(() -> IntStream.range(0, 1000).forEach((ignore) -> accessEventPipeline.publish("b")));
+			redirects[i].start();
+		}
+		for (Thread redirect : redirects)
+		{
+			redirect.join();
+		}
+		accessEventPipeline.stop();
+
+		// then
+		assertThat(factCacheService.find("b").accessCount().get()).isEqualTo(4000);
+		assertThat(meterRegistry.get("factservice.access.dropped").counter().count()).isZero();
+		assertThat(meterRegistry.get("factservice.access.applied").counter().count()).isEqualTo(4000);
+	}
+
+	/**
+	 * Creates an enabled pipeline on the fake clock.
+	 *
+	 * @param backPressure behaviour on a full ring
+	 * @param ringCapacity slots of the ring
+	 * @return the pipeline
+	 */
+	private AccessEventPipeline newAccessEventPipeline(AccessPipelineProperties.BackPressure backPressure, int ringCapacity)
+	{
+		var properties = new AccessPipelineProperties(true, ringCapacity, backPressure, 1024, Duration.ofMillis(1));
+		return new AccessEventPipeline(properties, factCacheService, writeAheadLog, factExpiryService, windowedAccessStatistics,
+			topAccessStatistics, accessChangeLog, meterRegistry, nanos::get);
+	}
+}
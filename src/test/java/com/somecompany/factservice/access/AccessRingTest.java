@@ -0,0 +1,88 @@
+package com.somecompany.factservice.access;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for AccessRing's ordering, capacity and concurrent producers.
+ */
+class AccessRingTest
+{
+	@Test
+	@DisplayName("Events are taken in order and a full ring rejects offers until drained")
+	void offerAndDrain()
+	{
+		// given
+		var ring = new AccessRing(4);
+		List<String> taken = new ArrayList<>();
+
+		// when
+		for (int i = 0; i < 4; i++)
+		{
+			assertThat(ring.offer("code" + i, i)).isTrue();
+		}
+		boolean offeredWhenFull = ring.offer("code4", 4);
+		int drained = ring.drain(3, (shortUrl, nanos) -> taken.add(shortUrl));
+
+		// then
+		assertThat(offeredWhenFull).isFalse();
+		assertThat(drained).isEqualTo(3);
+		assertThat(taken).containsExactly("code0", "code1", "code2");
+		assertThat(ring.size()).isEqualTo(1);
+		assertThat(ring.offer("code4", 4)).isTrue();
+	}
+
+	@Test
+	@DisplayName("Every event of concurrent producers is taken exactly once")
+	void concurrentProducers() throws InterruptedException
+	{
+		// given
+		var ring = new AccessRing(64);
+		Map<String, Integer> taken = new HashMap<>();
+		Thread[] producers = new Thread[4];
+		for (int i = 0; i < producers.length; i++)
+		{
+			String shortUrl = "code" + i;
+			producers[i] = new Thread(() -> {
+				for (int j = 0; j < 20_000; j++)
+				{
+					while (!ring.offer(shortUrl, j))
+					{
+						Thread.yield();
+					}
+				}
+			});
+		}
+
+		// when
+		for (Thread producer : producers)
+		{
+			producer.start();
+		}
+		int total = 0;
+		while (total < 80_000)
+		{
+			int drained = ring.drain(16, (shortUrl, nanos) -> taken.merge(shortUrl, 1, Integer::sum));
+			if (drained == 0)
+			{
+				Thread.yield();
+			}
+			total += drained;
+		}
+		for (Thread producer : producers)
+		{
+			producer.join();
+		}
+
+		// then
+		assertThat(taken).containsOnlyKeys("code0", "code1", "code2", "code3").allSatisfy((shortUrl, count) -> assertThat(count).isEqualTo(20_000));
+		assertThat(ring.size()).isZero();
+	}
+}
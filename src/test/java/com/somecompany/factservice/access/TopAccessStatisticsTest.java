@@ -0,0 +1,115 @@
+package com.somecompany.factservice.access;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.somecompany.factservice.config.StatisticsProperties;
+import com.somecompany.factservice.model.TopAccessStat;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Unit tests for TopAccessStatistics finding the most accessed short urls within the Space-Saving error bounds.
+ */
+class TopAccessStatisticsTest
+{
+	@Test
+	@DisplayName("Heavy hitters are reported first within the error bound among many rare short urls")
+	void top()
+	{
+		// given
+		TopAccessStatistics topAccessStatistics = newTopAccessStatistics(50);
+		Random random = new Random(42);
+		long total = 0;
+		for (int i = 0; i < 20_000; i++)
+		{
+			topAccessStatistics.record("rare" + random.nextInt(5_000), 1);
+			total++;
+			if (i % 10 == 0)
+			{
+				topAccessStatistics.record("b", 3);
+				topAccessStatistics.record("c", 2);
+				total += 5;
+			}
+		}
+
+		// when
+		List<TopAccessStat> top = topAccessStatistics.top(2);
+
+		// then
+		assertThat(top).extracting(TopAccessStat::shortenedUrl).containsExactly("b", "c");
+		long bound = total / 50;
+		assertThat(top.get(0).maxError()).isLessThanOrEqualTo(bound);
+		assertThat(top.get(0).accessCount()).isBetween(6_000L, 6_000L + top.get(0).maxError());
+		assertThat(top.get(1).accessCount()).isBetween(4_000L, 4_000L + top.get(1).maxError());
+	}
+
+	@Test
+	@DisplayName("Counts are exact while every short url holds a counter and released short urls are hidden")
+	void exact()
+	{
+		// given
+		TopAccessStatistics topAccessStatistics = newTopAccessStatistics(10);
+		topAccessStatistics.record("b", 5);
+		topAccessStatistics.record("c", 7);
+		topAccessStatistics.record("d", 1);
+		topAccessStatistics.record("b", 4);
+
+		// when
+		topAccessStatistics.release("c");
+
+		// then
+		assertThat(topAccessStatistics.top(5)).extracting(TopAccessStat::shortenedUrl, TopAccessStat::accessCount, TopAccessStat::maxError)
+			.containsExactly(tuple("b", 9L, 0L), tuple("d", 1L, 0L));
+		assertThat(topAccessStatistics.top(1)).hasSize(1);
+	}
+
+	@Test
+	@DisplayName("A released short url keeps its counter, so a new short url takes over its count as error")
+	void release_keepsBounds()
+	{
+		// given
+		TopAccessStatistics topAccessStatistics = newTopAccessStatistics(2);
+		topAccessStatistics.record("b", 5);
+		topAccessStatistics.record("c", 3);
+		topAccessStatistics.release("c");
+
+		// when
+		topAccessStatistics.record("d", 1);
+
+		// then
+		assertThat(topAccessStatistics.top(5)).extracting(TopAccessStat::shortenedUrl, TopAccessStat::accessCount, TopAccessStat::maxError)
+			.containsExactly(tuple("b", 5L, 0L), tuple("d", 4L, 3L));
+	}
+
+	@Test
+	@DisplayName("Nothing is counted when disabled")
+	void disabled()
+	{
+		// given
+		var topAccessStatistics = new TopAccessStatistics(new StatisticsProperties(false, 1, Duration.ofDays(1), false, 10, 1, 1));
+
+		// when
+		topAccessStatistics.record("b", 5);
+
+		// then
+		assertThat(topAccessStatistics.isEnabled()).isFalse();
+		assertThat(topAccessStatistics.top(5)).isEmpty();
+	}
+
+	/**
+	 * Creates enabled statistics.
+	 *
+	 * @param topCapacity number of counters
+	 * @return the statistics
+	 */
+	private static TopAccessStatistics newTopAccessStatistics(int topCapacity)
+	{
+		return new TopAccessStatistics(new StatisticsProperties(false, 1, Duration.ofDays(1), true, topCapacity, 1, 1));
+	}
+}
@@ -0,0 +1,156 @@
+package com.somecompany.factservice.access;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.somecompany.factservice.config.StatisticsProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for WindowedAccessStatistics rotating bucket rings and bounding the tracked short urls.
+ */
+class WindowedAccessStatisticsTest
+{
+	AtomicLong nanos = new AtomicLong(TimeUnit.DAYS.toNanos(365));
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	@DisplayName("Accesses leave each window once it rotated past them")
+	void windows()
+	{
+		// given
+		WindowedAccessStatistics windowedAccessStatistics = newWindowedAccessStatistics(10, Duration.ofDays(1));
+		windowedAccessStatistics.record("b", 3);
+		advance(TimeUnit.SECONDS, 30);
+		windowedAccessStatistics.record("b", 2);
+
+		// when
+		advance(TimeUnit.SECONDS, 40);
+		Map<String, Long> lastMinute = counts(windowedAccessStatistics, AccessWindow.MINUTE);
+		Map<String, Long> lastHour = counts(windowedAccessStatistics, AccessWindow.HOUR);
+		advance(TimeUnit.HOURS, 2);
+		Map<String, Long> lastHourLater = counts(windowedAccessStatistics, AccessWindow.HOUR);
+		Map<String, Long> lastDayLater = counts(windowedAccessStatistics, AccessWindow.DAY);
+
+		// then
+		assertThat(lastMinute).containsExactly(Map.entry("b", 2L));
+		assertThat(lastHour).containsExactly(Map.entry("b", 5L));
+		assertThat(lastHourLater).isEmpty();
+		assertThat(lastDayLater).containsExactly(Map.entry("b", 5L));
+	}
+
+	@Test
+	@DisplayName("A bucket reused a full rotation later starts again from the new accesses")
+	void rotate()
+	{
+		// given
+		WindowedAccessStatistics windowedAccessStatistics = newWindowedAccessStatistics(10, Duration.ofDays(1));
+		windowedAccessStatistics.record("b", 7);
+
+		// when
+		advance(TimeUnit.SECONDS, 60);
+		windowedAccessStatistics.record("b", 1);
+
+		// then
+		assertThat(counts(windowedAccessStatistics, AccessWindow.MINUTE)).containsExactly(Map.entry("b", 1L));
+		assertThat(counts(windowedAccessStatistics, AccessWindow.HOUR)).containsExactly(Map.entry("b", 8L));
+	}
+
+	@Test
+	@DisplayName("Short urls beyond the bound are untracked until an idle short url is released")
+	void bound()
+	{
+		// given
+		WindowedAccessStatistics windowedAccessStatistics = newWindowedAccessStatistics(2, Duration.ofMinutes(5));
+		windowedAccessStatistics.record("b", 1);
+		advance(TimeUnit.MINUTES, 3);
+		windowedAccessStatistics.record("c", 1);
+
+		// when
+		windowedAccessStatistics.record("d", 4);
+		advance(TimeUnit.MINUTES, 3);
+		windowedAccessStatistics.record("d", 1);
+
+		// then
+		assertThat(meterRegistry.get("factservice.statistics.untracked").counter().count()).isEqualTo(4);
+		assertThat(windowedAccessStatistics.trackedCount()).isEqualTo(2);
+		assertThat(counts(windowedAccessStatistics, AccessWindow.HOUR)).containsOnly(Map.entry("c", 1L), Map.entry("d", 1L));
+		windowedAccessStatistics.release("c");
+		assertThat(meterRegistry.get("factservice.statistics.tracked").gauge().value()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("Concurrent accesses of one short url are all counted")
+	void concurrent() throws InterruptedException
+	{
+		// given
+		WindowedAccessStatistics windowedAccessStatistics = newWindowedAccessStatistics(10, Duration.ofDays(1));
+
+		// when
+		Thread[] redirects = new Thread[4];
+		for (int i = 0; i < redirects.length; i++)
+		{
+			redirects[i] = new Thread(() -> {
+				for (int j = 0; j < 10_000; j++)
+				{
+					windowedAccessStatistics.record("b", 1);
+				}
+			});
+			redirects[i].start();
+		}
+		for (Thread redirect : redirects)
+		{
+			redirect.join();
+		}
+
+		// then
+		assertThat(counts(windowedAccessStatistics, AccessWindow.MINUTE)).containsExactly(Map.entry("b", 40_000L));
+		assertThat(counts(windowedAccessStatistics, AccessWindow.DAY)).containsExactly(Map.entry("b", 40_000L));
+	}
+
+	/**
+	 * Creates enabled statistics on the fake clock.
+	 *
+	 * @param maxTrackedUrls bound of tracked short urls
+	 * @param idleAfter      idle time after which short urls are released
+	 * @return the statistics
+	 */
+	private WindowedAccessStatistics newWindowedAccessStatistics(int maxTrackedUrls, Duration idleAfter)
+	{
+		return new WindowedAccessStatistics(new StatisticsProperties(true, maxTrackedUrls, idleAfter, false, 1, 1, 1), meterRegistry, nanos::get);
+	}
+
+	/**
+	 * Collects the counts of a window.
+	 *
+	 * @param windowedAccessStatistics the statistics
+	 * @param window                   the window
+	 * @return access count per short url
+	 */
+	private static Map<String, Long> counts(WindowedAccessStatistics windowedAccessStatistics, AccessWindow window)
+	{
+		Map<String, Long> counts = new HashMap<>();
+		windowedAccessStatistics.forEach(window, counts::put);
+		return counts;
+	}
+
+	/**
+	 * Advances the fake clock.
+	 *
+	 * @param unit   time unit
+	 * @param amount amount of time
+	 */
+	private void advance(TimeUnit unit, long amount)
+	{
+		nanos.addAndGet(unit.toNanos(amount));
+	}
+}
@@ -0,0 +1,54 @@
+package com.somecompany.factservice.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.somecompany.factservice.cache.AccessCounter;
+
+/**
+ * JMH benchmark of 32 threads incrementing the access count of a single hot short url.
+ * Compares the former {@link AtomicInteger} with {@link AccessCounter} and, as the upper bound, {@link LongAdder}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(32)
+@Fork(1)
+public class AccessCounterBenchmark
+{
+	final AtomicInteger atomicInteger = new AtomicInteger();
+	final AccessCounter accessCounter = new AccessCounter();
+	final LongAdder longAdder = new LongAdder();
+
+	@Benchmark
+	public int atomicInteger()
+	{
+		return atomicInteger.incrementAndGet();
+	}
+
+	@Benchmark
+	public boolean accessCounter()
+	{
+		return accessCounter.increment();
+	}
+
+	@Benchmark
+	public void longAdder()
+	{
+		longAdder.increment();
+	}
+}
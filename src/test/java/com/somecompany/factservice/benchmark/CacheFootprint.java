@@ -0,0 +1,95 @@
+package com.somecompany.factservice.benchmark;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+
+import org.springframework.util.unit.DataSize;
+
+import com.somecompany.factservice.cache.BoundedFactCacheService;
+import com.somecompany.factservice.cache.DenseFactCacheService;
+import com.somecompany.factservice.cache.FactCacheDTO;
+import com.somecompany.factservice.cache.FactCacheService;
+import com.somecompany.factservice.cache.InMemoryFactCacheService;
+import com.somecompany.factservice.cache.OffHeapFactCacheService;
+import com.somecompany.factservice.config.CacheProperties;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Measures heap and direct memory retained by a cache storage filled with facts of realistic size, and the time spent
+ * in a full collection afterwards.
+ * <p>
+ * Usage: {@code CacheFootprint <hash|dense|off_heap|bounded> <facts>}. Run with a fixed heap, e.g. {@code -Xmx4g -Xms4g}.
+ * </p>
+ */
+public class CacheFootprint
+{
+	/**
+	 * Fills the cache and prints the footprint.
+	 *
+	 * @param args storage and number of facts
+	 * @throws IOException when the cold tier directory cannot be created
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		var cacheProperties = new CacheProperties(CacheProperties.Storage.valueOf(args[0].toUpperCase()), 1024, DataSize.ofMegabytes(64),
+			1000000, DataSize.ofBytes(0), Files.createTempDirectory("cold-facts"));
+		long facts = Long.parseLong(args[1]);
+		FactCacheService factCacheService = switch (cacheProperties.storage())
+		{
+			case HASH -> new InMemoryFactCacheService();
+			case DENSE -> new DenseFactCacheService(ShortCodeCodec.BASE26, cacheProperties);
+			case OFF_HEAP -> new OffHeapFactCacheService(ShortCodeCodec.BASE26, cacheProperties, new SimpleMeterRegistry());
+			case BOUNDED -> new BoundedFactCacheService(ShortCodeCodec.BASE26, cacheProperties, new SimpleMeterRegistry());
+		};
+
+		long baseline = usedHeapAfterGc();
+		for (long id = 1; id <= facts; id++)
+		{
+			// about the size of an upstream fact: ~120 characters of text and a 74 character permalink
+			String text = "Useless fact number %d: the average person spends six months of their lifetime waiting for red lights to turn green.".formatted(id);
+			String permalink = "https://uselessfacts.jsph.pl/api/v2/facts/%032x".formatted(id);
+			factCacheService.insertIfMissing(new FactCacheDTO(text, permalink, ShortCodeCodec.BASE26.encode(id)));
+		}
+
+		long gcMillisBefore = gcMillis();
+		long retained = usedHeapAfterGc() - baseline;
+		long fullGcMillis = gcMillis() - gcMillisBefore;
+		long direct = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+			.filter(pool -> pool.getName().equals("direct"))
+			.mapToLong(BufferPoolMXBean::getMemoryUsed)
+			.sum();
+		System.out.printf("%s facts=%d heap=%d MB (%d B/fact) direct=%d MB full-gc=%d ms%n", args[0], facts, retained >> 20,
+			retained / facts, direct >> 20, fullGcMillis);
+		System.out.println(factCacheService.getLongUrl(ShortCodeCodec.BASE26.encode(facts)));
+	}
+
+	/**
+	 * Runs a full collection and returns the heap occupied right after it, as reported by the heap pools.
+	 *
+	 * @return occupied heap bytes
+	 */
+	private static long usedHeapAfterGc()
+	{
+		System.gc();
+		return ManagementFactory.getMemoryPoolMXBeans().stream()
+			.filter(pool -> pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null)
+			.mapToLong(pool -> pool.getCollectionUsage().getUsed())
+			.sum();
+	}
+
+	/**
+	 * Returns the total collection time of all collectors.
+	 *
+	 * @return collection time in milliseconds
+	 */
+	private static long gcMillis()
+	{
+		return ManagementFactory.getGarbageCollectorMXBeans().stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+	}
+}
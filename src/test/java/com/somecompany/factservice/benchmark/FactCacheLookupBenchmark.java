@@ -0,0 +1,84 @@
+package com.somecompany.factservice.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+
+import com.somecompany.factservice.cache.BoundedFactCacheService;
+import com.somecompany.factservice.cache.DenseFactCacheService;
+import com.somecompany.factservice.cache.FactCacheDTO;
+import com.somecompany.factservice.cache.FactCacheService;
+import com.somecompany.factservice.cache.InMemoryFactCacheService;
+import com.somecompany.factservice.cache.OffHeapFactCacheService;
+import com.somecompany.factservice.config.CacheProperties;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * JMH benchmark of a redirect lookup (access count increment plus long url read) against the cache storages.
+ * Every lookup decodes the short url from bytes, like a request path, so its hash code is not cached.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FactCacheLookupBenchmark
+{
+	@Param({"hash", "dense", "off_heap", "bounded"})
+	String storage;
+
+	@Param({"1000000"})
+	int entries;
+
+	FactCacheService factCacheService;
+	byte[][] codes;
+	int next;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		var cacheProperties = new CacheProperties(CacheProperties.Storage.valueOf(storage.toUpperCase()), 1024, DataSize.ofMegabytes(64),
+			1000000, DataSize.ofBytes(0), Files.createTempDirectory("cold-facts"));
+		factCacheService = switch (cacheProperties.storage())
+		{
+			case HASH -> new InMemoryFactCacheService();
+			case DENSE -> new DenseFactCacheService(ShortCodeCodec.BASE26, cacheProperties);
+			case OFF_HEAP -> new OffHeapFactCacheService(ShortCodeCodec.BASE26, cacheProperties, new SimpleMeterRegistry());
+			case BOUNDED -> new BoundedFactCacheService(ShortCodeCodec.BASE26, cacheProperties, new SimpleMeterRegistry());
+		};
+		codes = new byte[entries][];
+		for (int id = 1; id <= entries; id++)
+		{
+			String code = ShortCodeCodec.BASE26.encode(id);
+			codes[id - 1] = code.getBytes(StandardCharsets.ISO_8859_1);
+			factCacheService.insertIfMissing(new FactCacheDTO("fact", "https://uselessfacts.jsph.pl/api/v2/facts/" + id, code));
+		}
+	}
+
+	@Benchmark
+	public String redirectLookup()
+	{
+		// stride through the ids so consecutive lookups do not hit the same cache lines
+		next = (next + 7919) % entries;
+		String shortUrl = new String(codes[next], StandardCharsets.ISO_8859_1);
+		factCacheService.incrementAccessCount(shortUrl);
+		return factCacheService.getLongUrl(shortUrl);
+	}
+}
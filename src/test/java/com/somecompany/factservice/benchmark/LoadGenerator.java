@@ -0,0 +1,128 @@
+package com.somecompany.factservice.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed-loop HTTP load generator used to compare the service's threading modes.
+ * Keeps {@code concurrency} requests in flight for the given duration and reports throughput and latency percentiles.
+ * Requests are sent asynchronously, so the generator itself needs only a handful of threads.
+ * <p>
+ * Usage: {@code LoadGenerator <url> <concurrency> <durationSeconds> [warmupSeconds]}.
+ * </p>
+ */
+public class LoadGenerator
+{
+	private static final int MAX_SAMPLES = 5_000_000;
+
+	/**
+	 * Runs the load test and prints a one line summary.
+	 *
+	 * @param args url, concurrency, duration and optional warmup in seconds
+	 * @throws InterruptedException when interrupted while waiting for completion
+	 */
+	public static void main(String[] args) throws InterruptedException
+	{
+		URI uri = URI.create(args[0]);
+		int concurrency = Integer.parseInt(args[1]);
+		long durationNanos = Duration.ofSeconds(Long.parseLong(args[2])).toNanos();
+		long warmupNanos = Duration.ofSeconds(args.length > 3 ? Long.parseLong(args[3]) : 5).toNanos();
+
+		HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(30)).build();
+		HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).POST(HttpRequest.BodyPublishers.noBody()).build();
+
+		long start = System.nanoTime();
+		long measureFrom = start + warmupNanos;
+		long end = measureFrom + durationNanos;
+		var run = new Run(request, client, measureFrom, end, new CountDownLatch(concurrency));
+		for (int i = 0; i < concurrency; i++)
+		{
+			run.next();
+		}
+		run.done.await();
+
+		long[] latencies = Arrays.copyOf(run.latencies, Math.min(run.samples.get(), MAX_SAMPLES));
+		Arrays.sort(latencies);
+		double seconds = durationNanos / 1e9;
+		System.out.printf("concurrency=%d ok=%d errors=%d throughput=%.1f req/s p50=%.1f ms p99=%.1f ms%n", concurrency, run.ok.get(),
+			run.errors.get(), run.ok.get() / seconds, percentile(latencies, 0.50), percentile(latencies, 0.99));
+	}
+
+	/**
+	 * Returns the given percentile in milliseconds.
+	 *
+	 * @param sorted     sorted latencies in nanoseconds
+	 * @param percentile percentile between 0 and 1
+	 * @return latency in milliseconds
+	 */
+	private static double percentile(long[] sorted, double percentile)
+	{
+		if (sorted.length == 0)
+		{
+			return Double.NaN;
+		}
+		return sorted[(int) Math.min(sorted.length - 1, Math.floor(sorted.length * percentile))] / 1e6;
+	}
+
+	/**
+	 * State of a load test run; every completed request immediately issues the next one until the end time.
+	 */
+	private static final class Run
+	{
+		final HttpRequest request;
+		final HttpClient client;
+		final long measureFrom;
+		final long end;
+		final CountDownLatch done;
+		final long[] latencies = new long[MAX_SAMPLES];
+		final AtomicInteger samples = new AtomicInteger();
+		final AtomicLong ok = new AtomicLong();
+		final AtomicLong errors = new AtomicLong();
+
+		Run(HttpRequest request, HttpClient client, long measureFrom, long end, CountDownLatch done)
+		{
+			this.request = request;
+			this.client = client;
+			this.measureFrom = measureFrom;
+			this.end = end;
+			this.done = done;
+		}
+
+		void next()
+		{
+			long sent = System.nanoTime();
+			if (sent >= end)
+			{
+				done.countDown();
+				return;
+			}
+			client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, throwable) -> {
+				long now = System.nanoTime();
+				if (sent >= measureFrom && now < end)
+				{
+					if (throwable == null && response.statusCode() == 200)
+					{
+						ok.incrementAndGet();
+						int index = samples.getAndIncrement();
+						if (index < MAX_SAMPLES)
+						{
+							latencies[index] = now - sent;
+						}
+					}
+					else
+					{
+						errors.incrementAndGet();
+					}
+				}
+				next();
+			});
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package com.somecompany.factservice.benchmark;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import com.somecompany.factservice.FactServiceApplication;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+
+/**
+ * JMH benchmark of the per-request cost of the Spring Security filter chains, without the servlet container and MVC.
+ * Starts the application once and passes mock requests through its security filter to a chain end doing nothing:
+ * a public redirect, and an admin statistics poll with Basic credentials stored with {@code noop} or {@code bcrypt}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityFilterChainBenchmark
+{
+	private static final FilterChain END = (request, response) -> {
+	};
+
+	@Param({"noop", "bcrypt"})
+	String passwordEncoding;
+
+	@Param({"5m", "0s"})
+	String credentialCacheTtl;
+
+	ConfigurableApplicationContext context;
+	Filter springSecurityFilterChain;
+	String authorization;
+
+	@Setup
+	public void setUp()
+	{
+		String password = passwordEncoding.equals("bcrypt") ? "{bcrypt}" + new BCryptPasswordEncoder().encode("admin") : "{noop}admin";
+		// arguments, unlike default properties, override application.properties
+		context = new SpringApplicationBuilder(FactServiceApplication.class).run("--server.port=0", "--spring.security.user.password=" + password,
+			"--factservice.admin.credential-cache-ttl=" + credentialCacheTtl);
+		springSecurityFilterChain = context.getBean("springSecurityFilterChain", Filter.class);
+		authorization = "Basic " + Base64.getEncoder().encodeToString("admin:admin".getBytes(StandardCharsets.UTF_8));
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		context.close();
+	}
+
+	@Benchmark
+	public MockHttpServletResponse publicRedirect() throws ServletException, IOException
+	{
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/facts/b");
+		request.setServletPath("/facts/b");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		springSecurityFilterChain.doFilter(request, response, END);
+		return response;
+	}
+
+	@Benchmark
+	public MockHttpServletResponse adminStatistics() throws ServletException, IOException
+	{
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/admin/statistics");
+		request.setServletPath("/admin/statistics");
+		request.addHeader("Authorization", authorization);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		springSecurityFilterChain.doFilter(request, response, END);
+		return response;
+	}
+}
@@ -0,0 +1,87 @@
+package com.somecompany.factservice.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+
+/**
+ * JMH benchmark comparing the StringBuilder based base26 encoding the shortener used before with {@link ShortCodeCodec}.
+ * Run with {@code -prof gc} to compare allocation per operation, see docs/benchmarks.md.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShortCodeCodecBenchmark
+{
+	private static final String BASE26_CHARACTERS = "abcdefghijklmnopqrstuvwxyz";
+
+	@Param({"2000", "2147483647"})
+	long id;
+
+	String code;
+	byte[] buffer;
+
+	@Setup
+	public void setUp()
+	{
+		code = ShortCodeCodec.BASE26.encode(id);
+		buffer = new byte[16];
+	}
+
+	@Benchmark
+	public String legacyEncode()
+	{
+		return legacyEncodeBase26((int) id);
+	}
+
+	@Benchmark
+	public String codecEncode()
+	{
+		return ShortCodeCodec.BASE26.encode(id);
+	}
+
+	@Benchmark
+	public int codecEncodeToBuffer()
+	{
+		return ShortCodeCodec.BASE26.encodeTo(id, buffer, 0);
+	}
+
+	@Benchmark
+	public long codecDecode()
+	{
+		return ShortCodeCodec.BASE26.decode(code);
+	}
+
+	/**
+	 * The encoding as previously implemented in UrlShortenerUtil.
+	 *
+	 * @param num value to encode
+	 * @return base26 code
+	 */
+	private static String legacyEncodeBase26(int num)
+	{
+		var encoded = new StringBuilder();
+		while (num > 0)
+		{
+			int remainder = num % BASE26_CHARACTERS.length();
+			num /= BASE26_CHARACTERS.length();
+			encoded.append(BASE26_CHARACTERS.charAt(remainder));
+		}
+		return encoded.reverse().toString();
+	}
+}
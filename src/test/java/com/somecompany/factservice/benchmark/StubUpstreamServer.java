@@ -0,0 +1,69 @@
+package com.somecompany.factservice.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Stand-in for the Useless Facts API used by load tests.
+ * Answers every request with a unique fact after a fixed latency, so the service under test spends its time waiting on
+ * blocking upstream I/O like it does in production.
+ * <p>
+ * Usage: {@code StubUpstreamServer [port] [latencyMillis]}, defaults {@code 9090 200}.
+ * </p>
+ */
+public class StubUpstreamServer
+{
+	private static final AtomicLong ids = new AtomicLong();
+
+	/**
+	 * Starts the stub server.
+	 *
+	 * @param args optional port and latency in milliseconds
+	 * @throws IOException when the server socket cannot be bound
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 9090;
+		long latencyMillis = args.length > 1 ? Long.parseLong(args[1]) : 200;
+
+		ScheduledExecutorService responder = Executors.newScheduledThreadPool(4);
+		HttpServer server = HttpServer.create(new InetSocketAddress(port), 20_000);
+		server.createContext("/", exchange -> responder.schedule(() -> respond(exchange), latencyMillis, TimeUnit.MILLISECONDS));
+		server.setExecutor(Executors.newFixedThreadPool(4));
+		server.start();
+		System.out.printf("Stub upstream listening on %d with %d ms latency%n", port, latencyMillis);
+	}
+
+	/**
+	 * Writes a unique fact as the response.
+	 *
+	 * @param exchange the pending exchange
+	 */
+	private static void respond(HttpExchange exchange)
+	{
+		long id = ids.incrementAndGet();
+		byte[] body = """
+			{"id":"%d","text":"Stub fact number %d.","permalink":"https://stub.local/api/v2/facts/%d"}"""
+			.formatted(id, id, id)
+			.getBytes(StandardCharsets.UTF_8);
+		try (exchange; OutputStream out = exchange.getResponseBody())
+		{
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			out.write(body);
+		}
+		catch (IOException e)
+		{
+			// client went away, nothing to do
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package com.somecompany.factservice.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit test for AccessCounter's striping and retiring under concurrent increments.
+ */
+class AccessCounterTest
+{
+	@Test
+	@DisplayName("Counts beyond the int range and rejects negative initial counts")
+	void longRange()
+	{
+		// given
+		var accessCounter = new AccessCounter(Integer.MAX_VALUE);
+
+		// when
+		accessCounter.increment();
+
+		// then
+		assertThat(accessCounter.get()).isEqualTo(Integer.MAX_VALUE + 1L);
+		assertThrows(IllegalArgumentException.class, () -> new AccessCounter(-1));
+	}
+
+	@Test
+	@DisplayName("Concurrent increments on one counter are all counted")
+	void increment() throws InterruptedException
+	{
+		// given
+		var accessCounter = new AccessCounter();
+
+		// when
+		runConcurrently(8, 100_000, () -> assertThat(accessCounter.increment()).isTrue());
+
+		// then
+		assertThat(accessCounter.get()).isEqualTo(800_000);
+	}
+
+	@Test
+	@DisplayName("Retiring returns every increment before it and fails every increment after it")
+	void retire() throws InterruptedException
+	{
+		// given
+		var accessCounter = new AccessCounter(5);
+		var failed = new AtomicLong();
+		var retired = new AtomicLong(-1);
+		var increments = new AtomicLong();
+
+		// when
+		runConcurrently(8, 50_000, () -> {
+			if (increments.incrementAndGet() == 200_000)
+			{
+				retired.set(accessCounter.retire());
+			}
+			if (!accessCounter.increment())
+			{
+				failed.incrementAndGet();
+			}
+		});
+
+		// then
+		assertThat(accessCounter.isRetired()).isTrue();
+		assertThat(accessCounter.get()).isEqualTo(-1);
+		assertThat(accessCounter.increment()).isFalse();
+		assertThat(accessCounter.retire()).isEqualTo(-1);
+		assertThat(retired.get() - 5 + failed.get()).isEqualTo(400_000);
+	}
+
+	/**
+	 * Runs an action on several threads at once and waits for them.
+	 *
+	 * @param threads    number of threads
+	 * @param iterations runs of the action per thread
+	 * @param action     the action
+	 * @throws InterruptedException when interrupted while waiting
+	 */
+	private static void runConcurrently(int threads, int iterations, Runnable action) throws InterruptedException
+	{
+		var start = new CountDownLatch(1);
+		List<Thread> started = new ArrayList<>();
+		for (int i = 0; i < threads; i++)
+		{
+			Thread thread = new Thread(() -> {
+				try
+				{
+					start.await();
+				}
+				catch (InterruptedException e)
+				{
+					Thread.currentThread().interrupt();
+					return;
+				}
+				for (int j = 0; j < iterations; j++)
+				{
+					action.run();
+				}
+			});
+			thread.start();
+			started.add(thread);
+		}
+		start.countDown();
+		for (Thread thread : started)
+		{
+			thread.join();
+		}
+	}
+}
@@ -0,0 +1,228 @@
+package com.somecompany.factservice.cache;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import com.somecompany.factservice.config.CacheProperties;
+import com.somecompany.factservice.exception.ResourceNotFoundException;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit test for BoundedFactCacheService's admission, eviction and cold tier.
+ */
+class BoundedFactCacheServiceTest
+{
+	@TempDir
+	Path directory;
+
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	BoundedFactCacheService factCacheService;
+
+	@AfterEach
+	void tearDown() throws IOException
+	{
+		factCacheService.close();
+	}
+
+	@Test
+	@DisplayName("Insert missing does not override existing values and unknown short urls are not found")
+	void insertIfMissing()
+	{
+		// given
+		factCacheService = newFactCacheService(100, DataSize.ofBytes(0));
+
+		// when
+		factCacheService.insertIfMissing(new FactCacheDTO("Hot water will turn into ice faster than cold water.", "www.factbase.com", "bc"));
+		factCacheService.insertIfMissing(new FactCacheDTO("Some other fact.", "www.override.com", "bc"));
+
+		// then
+		assertThat(factCacheService.getLongUrl("bc")).isEqualTo("www.factbase.com");
+		assertThat(factCacheService.getAll()).hasSize(1);
+		assertThat(factCacheService.find("bd")).isNull();
+		assertThrows(ResourceNotFoundException.class, () -> factCacheService.getLongUrl("not-a-code"));
+		assertThrows(IllegalArgumentException.class, () -> factCacheService.incrementAccessCount(""));
+	}
+
+	@Test
+	@DisplayName("Evicted facts spill to the cold tier and still resolve with their access counts")
+	void coldTier()
+	{
+		// given
+		factCacheService = newFactCacheService(10, DataSize.ofBytes(0));
+		insert(1, 100);
+		IntStream.range(0, 3).forEach((ignore) -> factCacheService.incrementAccessCount(ShortCodeCodec.BASE26.encode(1)));
+
+		// when
+		insert(101, 200);
+		long coldAccessCount = factCacheService.findAccessCount(ShortCodeCodec.BASE26.encode(1));
+		String longUrl = factCacheService.getLongUrl(ShortCodeCodec.BASE26.encode(1));
+
+		// then
+		assertThat(coldAccessCount).isEqualTo(3);
+		assertThat(factCacheService.findAccessCount("zzzz")).isEqualTo(-1);
+		assertThat(longUrl).isEqualTo("www.factbase.com/1");
+		assertThat(meterRegistry.get("factservice.cache.size").gauge().value()).isEqualTo(10);
+		assertThat(meterRegistry.get("factservice.cache.evictions").counter().count()).isGreaterThanOrEqualTo(190);
+		assertThat(meterRegistry.get("factservice.cache.cold.hits").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("factservice.cache.cold.read").timer().count()).isEqualTo(1);
+		Map<String, Long> accessCounts = factCacheService.getAll().stream()
+			.collect(Collectors.toMap(FactCacheDTO::shortUrl, factCacheDTO -> factCacheDTO.accessCount().get()));
+		assertThat(accessCounts).hasSize(200).containsEntry(ShortCodeCodec.BASE26.encode(1), 3L);
+	}
+
+	@Test
+	@DisplayName("Resolving records accesses of cold facts and reports unknown short urls without exceptions")
+	void resolveAndRecord()
+	{
+		// given
+		factCacheService = newFactCacheService(10, DataSize.ofBytes(0));
+		insert(1, 100);
+
+		// when
+		String longUrl = factCacheService.resolveAndRecord(ShortCodeCodec.BASE26.encode(1), 2);
+
+		// then
+		assertThat(longUrl).isEqualTo("www.factbase.com/1");
+		assertThat(factCacheService.findAccessCount(ShortCodeCodec.BASE26.encode(1))).isEqualTo(2);
+		assertThat(factCacheService.resolveAndRecord("zzzz", 1)).isNull();
+		assertThat(factCacheService.resolveAndRecord("not-a-code", 1)).isNull();
+		assertThat(factCacheService.resolveAndRecord(null, 1)).isNull();
+	}
+
+	@Test
+	@DisplayName("Frequently accessed facts survive a scan of facts accessed once")
+	void frequencyAwareAdmission()
+	{
+		// given
+		factCacheService = newFactCacheService(100, DataSize.ofBytes(0));
+		insert(1, 50);
+		IntStream.range(0, 5).forEach((ignore) -> IntStream.rangeClosed(1, 50).forEach(id -> factCacheService.resolveAndRecord(ShortCodeCodec.BASE26.encode(id), 1)));
+
+		// when
+		insert(51, 1000);
+		double hitsBefore = meterRegistry.get("factservice.cache.hits").counter().count();
+		IntStream.rangeClosed(1, 50).forEach(id -> factCacheService.resolveAndRecord(ShortCodeCodec.BASE26.encode(id), 1));
+
+		// then
+		assertThat(meterRegistry.get("factservice.cache.hits").counter().count() - hitsBefore).isEqualTo(50);
+		assertThat(meterRegistry.get("factservice.cache.cold.hits").counter().count()).isZero();
+	}
+
+	@Test
+	@DisplayName("Only redirect lookups count towards the hit ratio, and reading the original url leaves a cold fact cold")
+	void hitRatio_redirectLookupsOnly()
+	{
+		// given
+		factCacheService = newFactCacheService(10, DataSize.ofBytes(0));
+		insert(1, 100);
+		String cold = ShortCodeCodec.BASE26.encode(1);
+		String hot = ShortCodeCodec.BASE26.encode(100);
+
+		// when
+		factCacheService.find(hot);
+		assertThat(factCacheService.findOriginalUrl(cold)).isEqualTo("www.factbase.com/1");
+		assertThat(factCacheService.recordAccesses(cold, 3)).isTrue();
+		assertThat(factCacheService.recordAccesses("zzzz", 3)).isFalse();
+		factCacheService.resolveAndRecord(hot, 1);
+		factCacheService.resolveAndRecord("zzzz", 1);
+
+		// then
+		assertThat(meterRegistry.get("factservice.cache.hits").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("factservice.cache.misses").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("factservice.cache.cold.hits").counter().count()).isZero();
+		assertThat(factCacheService.findAccessCount(cold)).isEqualTo(3);
+	}
+
+	@Test
+	@DisplayName("Weight of a fact counts two bytes per character only for strings holding characters beyond Latin-1")
+	void maximumWeight_bytesPerCharacter()
+	{
+		// given
+		factCacheService = newFactCacheService(1_000_000, DataSize.ofKilobytes(10));
+
+		// when
+		factCacheService.insertIfMissing(new FactCacheDTO("caf\u00e9", "T\u014dky\u014d", "b"));
+
+		// then
+		assertThat(factCacheService.weight()).isEqualTo(BoundedFactCacheService.ENTRY_OVERHEAD_BYTES + 4 + 10 + 1);
+	}
+
+	@Test
+	@DisplayName("Weight bound limits the estimated bytes of the hot tier")
+	void maximumWeight()
+	{
+		// given
+		factCacheService = newFactCacheService(1_000_000, DataSize.ofKilobytes(10));
+
+		// when
+		insert(1, 1000);
+
+		// then
+		assertThat(factCacheService.weight()).isLessThanOrEqualTo(DataSize.ofKilobytes(10).toBytes());
+		assertThat(meterRegistry.get("factservice.cache.size").gauge().value()).isBetween(30.0, 40.0);
+		assertThat(factCacheService.getAll()).hasSize(1000);
+	}
+
+	@Test
+	@DisplayName("Removed facts are no longer found in either tier")
+	void remove()
+	{
+		// given
+		factCacheService = newFactCacheService(10, DataSize.ofBytes(0));
+		insert(1, 100);
+		String cold = ShortCodeCodec.BASE26.encode(1);
+		String hot = ShortCodeCodec.BASE26.encode(100);
+
+		// when
+		FactCacheDTO removedCold = factCacheService.remove(cold);
+		FactCacheDTO removedHot = factCacheService.remove(hot);
+
+		// then
+		assertThat(removedCold.originalUrl()).isEqualTo("www.factbase.com/1");
+		assertThat(removedHot.originalUrl()).isEqualTo("www.factbase.com/100");
+		assertThat(factCacheService.find(cold)).isNull();
+		assertThat(factCacheService.find(hot)).isNull();
+		assertThat(factCacheService.remove(hot)).isNull();
+		assertThat(factCacheService.getAll()).hasSize(98);
+	}
+
+	/**
+	 * Creates the cache under test with its cold tier in the temporary directory.
+	 *
+	 * @param maximumEntries maximum number of hot facts
+	 * @param maximumWeight  maximum weight of the hot facts, 0 to bound by entries
+	 * @return the cache
+	 */
+	private BoundedFactCacheService newFactCacheService(long maximumEntries, DataSize maximumWeight)
+	{
+		return new BoundedFactCacheService(ShortCodeCodec.BASE26,
+			new CacheProperties(CacheProperties.Storage.BOUNDED, 4, DataSize.ofMegabytes(64), maximumEntries, maximumWeight, directory),
+			meterRegistry);
+	}
+
+	/**
+	 * Inserts facts with the ids of a range.
+	 *
+	 * @param from first id
+	 * @param to   last id, inclusive
+	 */
+	private void insert(int from, int to)
+	{
+		IntStream.rangeClosed(from, to).forEach(id -> factCacheService.insertIfMissing(
+			new FactCacheDTO("Fact number " + id, "www.factbase.com/" + id, ShortCodeCodec.BASE26.encode(id))));
+	}
+}
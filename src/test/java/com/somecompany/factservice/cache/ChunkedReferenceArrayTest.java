@@ -0,0 +1,68 @@
+package com.somecompany.factservice.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for ChunkedReferenceArray growth and concurrent writes.
+ */
+class ChunkedReferenceArrayTest
+{
+	@Test
+	@DisplayName("Concurrent writers growing the directory lose no elements")
+	void putIfAbsent_concurrentGrowth() throws Exception
+	{
+		// given
+		var array = new ChunkedReferenceArray<Long>(2);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+
+		// when
+		try
+		{
+			List<CompletableFuture<Void>> writers = IntStream.range(0, 4)
+				.mapToObj(writer -> CompletableFuture.runAsync(() -> {
+					for (long index = writer; index < 20_000; index += 4)
+					{
+						array.putIfAbsent(index, index);
+					}
+				}, executor))
+				.toList();
+			CompletableFuture.allOf(writers.toArray(CompletableFuture[]::new)).get();
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+
+		// then
+		assertThat(array.size()).isEqualTo(20_000);
+		List<Long> elements = new ArrayList<>();
+		array.forEach(elements::add);
+		assertThat(elements).hasSize(20_000).isSorted();
+		assertThat(array.get(19_999)).isEqualTo(19_999L);
+	}
+
+	@Test
+	@DisplayName("Taken slots are kept and out of range indexes read as empty")
+	void putIfAbsent_existing()
+	{
+		var array = new ChunkedReferenceArray<String>(4);
+
+		assertThat(array.putIfAbsent(5, "first")).isNull();
+		assertThat(array.putIfAbsent(5, "second")).isEqualTo("first");
+		assertThat(array.get(5)).isEqualTo("first");
+		assertThat(array.get(-1)).isNull();
+		assertThat(array.get(Long.MAX_VALUE)).isNull();
+		assertThrows(IllegalArgumentException.class, () -> array.putIfAbsent(-1, "negative"));
+	}
+}
@@ -0,0 +1,105 @@
+package com.somecompany.factservice.cache;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import com.somecompany.factservice.config.CacheProperties;
+import com.somecompany.factservice.exception.ResourceNotFoundException;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit test for DenseFactCacheService's id indexed handling of in-memory cached data.
+ */
+class DenseFactCacheServiceTest
+{
+	FactCacheService factCacheService = new DenseFactCacheService(ShortCodeCodec.BASE26, new CacheProperties(CacheProperties.Storage.DENSE, 4, DataSize.ofMegabytes(64),
+		1000000, DataSize.ofBytes(0), Path.of("data/cold")));
+
+	@Test
+	@DisplayName("Insert missing does not override existing values")
+	void insertIfMissing()
+	{
+		// given
+		var factCacheDTO = new FactCacheDTO("Hot water will turn into ice faster than cold water.", "www.factbase.com", "bc");
+		var factCacheDTO2 = new FactCacheDTO("Some other fact.", "www.override.com", "bc");
+
+		// when
+		factCacheService.insertIfMissing(factCacheDTO);
+		factCacheService.insertIfMissing(factCacheDTO2);
+
+		// then
+		List<FactCacheDTO> stored = new ArrayList<>(factCacheService.getAll());
+		assertThat(stored).containsExactly(factCacheDTO);
+		assertThrows(IllegalArgumentException.class, () -> factCacheService.insertIfMissing(new FactCacheDTO("Fact.", "www.factbase.com", "abc")));
+	}
+
+	@Test
+	@DisplayName("Existing long url is fetched or thrown exception")
+	void getLongUrl()
+	{
+		// given
+		var factCacheDTO = new FactCacheDTO("Hot water will turn into ice faster than cold water.", "www.factbase.com", "bc");
+
+		// when
+		factCacheService.insertIfMissing(factCacheDTO);
+
+		// then
+		assertThat(factCacheService.getLongUrl("bc")).isEqualTo("www.factbase.com");
+		assertThrows(ResourceNotFoundException.class, () -> factCacheService.getLongUrl("bd"));
+		assertThrows(ResourceNotFoundException.class, () -> factCacheService.getLongUrl("not-a-code"));
+		assertThrows(ResourceNotFoundException.class, () -> factCacheService.getLongUrl("zzzzzzz"));
+		assertThrows(IllegalArgumentException.class, () -> factCacheService.getLongUrl(""));
+	}
+
+	@Test
+	@DisplayName("Access statistics is updated according to usage across chunks, in id order.")
+	void getAll()
+	{
+		// given
+		IntStream.rangeClosed(1, 50)
+			.mapToObj(id -> ShortCodeCodec.BASE26.encode(id))
+			.forEach(code -> factCacheService.insertIfMissing(new FactCacheDTO("Fact " + code, "www.factbase.com/" + code, code)));
+
+		// when
+		IntStream.range(0, 10).forEach((ignore) -> factCacheService.incrementAccessCount("b"));
+		factCacheService.incrementAccessCount("bx");
+
+		// then
+		Map<String, AccessCounter> statMap = factCacheService.getAll()
+			.stream()
+			.collect(Collectors.toMap(FactCacheDTO::shortUrl, FactCacheDTO::accessCount));
+		assertThat(statMap).hasSize(50);
+		assertThat(statMap.get("b").get()).isEqualTo(10);
+		assertThat(statMap.get("bx").get()).isEqualTo(1);
+		assertThat(factCacheService.getAll()).extracting(FactCacheDTO::shortUrl).startsWith("b", "c", "d");
+	}
+
+	@Test
+	@DisplayName("Removed facts are no longer found")
+	void remove()
+	{
+		// given
+		factCacheService.insertIfMissing(new FactCacheDTO("Hot water will turn into ice faster than cold water.", "www.factbase.com", "bc"));
+		factCacheService.insertIfMissing(new FactCacheDTO("A cloud weighs around a million tonnes.", "www.factapi.com", "bd"));
+
+		// when
+		FactCacheDTO removed = factCacheService.remove("bc");
+
+		// then
+		assertThat(removed.originalUrl()).isEqualTo("www.factbase.com");
+		assertThat(factCacheService.find("bc")).isNull();
+		assertThat(factCacheService.remove("bc")).isNull();
+		assertThat(factCacheService.getAll()).extracting(FactCacheDTO::shortUrl).containsExactly("bd");
+	}
+}
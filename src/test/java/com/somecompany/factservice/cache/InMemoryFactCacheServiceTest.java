@@ -3,7 +3,6 @@ package com.somecompany.factservice.cache;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -59,6 +58,26 @@ class InMemoryFactCacheServiceTest
 		assertThrows(IllegalArgumentException.class, () -> factCacheService.getLongUrl(""));
 	}
 
+	@Test
+	@DisplayName("Resolving records accesses and reports unknown short urls without exceptions")
+	void resolveAndRecord()
+	{
+		// given
+		factCacheService.insertIfMissing(new FactCacheDTO("Hot water will turn into ice faster than cold water.", "www.factbase.com", "abc"));
+
+		// when
+		String longUrl = factCacheService.resolveAndRecord("abc", 2);
+		String resolvedUrl = factCacheService.resolveAndRecord("abc", 0);
+
+		// then
+		assertThat(longUrl).isEqualTo("www.factbase.com");
+		assertThat(resolvedUrl).isEqualTo("www.factbase.com");
+		assertThat(factCacheService.findAccessCount("abc")).isEqualTo(2);
+		assertThat(factCacheService.resolveAndRecord("nonexistent", 1)).isNull();
+		assertThat(factCacheService.resolveAndRecord("", 1)).isNull();
+		assertThat(factCacheService.resolveAndRecord(null, 1)).isNull();
+	}
+
 	@Test
 	@DisplayName("Access statistics is updated according to usage.")
 	void getAll()
@@ -74,10 +93,28 @@ class InMemoryFactCacheServiceTest
 		factCacheService.incrementAccessCount("def");
 
 		//then
-		Map<String, AtomicInteger> statMap = factCacheService.getAll()
+		Map<String, AccessCounter> statMap = factCacheService.getAll()
 			.stream()
 			.collect(Collectors.toMap(FactCacheDTO::shortUrl, FactCacheDTO::accessCount));
 		assertThat(statMap.get("abc").get()).isEqualTo(10);
 		assertThat(statMap.get("def").get()).isEqualTo(1);
 	}
-}
\ No newline at end of file
+
+	@Test
+	@DisplayName("Removed facts are no longer found")
+	void remove()
+	{
+		// given
+		factCacheService.insertIfMissing(new FactCacheDTO("Hot water will turn into ice faster than cold water.", "www.factbase.com", "abc"));
+		factCacheService.insertIfMissing(new FactCacheDTO("A cloud weighs around a million tonnes.", "www.factapi.com", "def"));
+
+		// when
+		FactCacheDTO removed = factCacheService.remove("abc");
+
+		// then
+		assertThat(removed.originalUrl()).isEqualTo("www.factbase.com");
+		assertThat(factCacheService.find("abc")).isNull();
+		assertThat(factCacheService.remove("abc")).isNull();
+		assertThat(factCacheService.getAll()).extracting(FactCacheDTO::shortUrl).containsExactly("def");
+	}
+}
@@ -0,0 +1,165 @@
+package com.somecompany.factservice.cache;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import com.somecompany.factservice.config.CacheProperties;
+import com.somecompany.factservice.exception.ResourceNotFoundException;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit test for OffHeapFactCacheService's handling of fact data kept in direct memory slabs.
+ */
+class OffHeapFactCacheServiceTest
+{
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	FactCacheService factCacheService = new OffHeapFactCacheService(ShortCodeCodec.BASE26,
+		new CacheProperties(CacheProperties.Storage.OFF_HEAP, 4, DataSize.ofKilobytes(1), 1000000, DataSize.ofBytes(0),
+			Path.of("data/cold")), meterRegistry);
+
+	@Test
+	@DisplayName("Insert missing does not override existing values and strings round trip")
+	void insertIfMissing()
+	{
+		// given
+		var factCacheDTO = new FactCacheDTO("Die Erdbeere ist keine Beere – 草莓不是浆果.", "www.factbase.com/ü", "bc");
+		var factCacheDTO2 = new FactCacheDTO("Some other fact.", "www.override.com", "bc");
+
+		// when
+		factCacheService.insertIfMissing(factCacheDTO);
+		factCacheService.insertIfMissing(factCacheDTO2);
+
+		// then
+		FactCacheDTO stored = factCacheService.find("bc");
+		assertThat(stored.fact()).isEqualTo("Die Erdbeere ist keine Beere – 草莓不是浆果.");
+		assertThat(stored.originalUrl()).isEqualTo("www.factbase.com/ü");
+		assertThat(stored.shortUrl()).isEqualTo("bc");
+		assertThat(factCacheService.getAll()).hasSize(1);
+		assertThrows(IllegalArgumentException.class, () -> factCacheService.insertIfMissing(new FactCacheDTO("x".repeat(2000), "www.factbase.com", "bd")));
+	}
+
+	@Test
+	@DisplayName("Concurrent inserts of the same fact append a single record")
+	void insertIfMissing_concurrent() throws Exception
+	{
+		// given
+		var factCacheDTO = new FactCacheDTO("Hot water will turn into ice faster than cold water.", "www.factbase.com", "bc");
+		var start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+
+		// when
+		try
+		{
+			List<Future<?>> inserts = IntStream.range(0, 8).<Future<?>>mapToObj(i -> executor.submit(() -> {
+				start.await();
+				factCacheService.insertIfMissing(factCacheDTO);
+				return null;
+			})).toList();
+			start.countDown();
+			for (Future<?> insert : inserts)
+			{
+				insert.get(5, TimeUnit.SECONDS);
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		// then
+		assertThat(factCacheService.find("bc").fact()).isEqualTo(factCacheDTO.fact());
+		assertThat(meterRegistry.get("factservice.cache.offheap.used").gauge().value())
+			.isEqualTo((16 + factCacheDTO.fact().length() + factCacheDTO.originalUrl().length() + 7) & -8);
+	}
+
+	@Test
+	@DisplayName("Existing long url is fetched or thrown exception")
+	void getLongUrl()
+	{
+		// given
+		factCacheService.insertIfMissing(new FactCacheDTO("Hot water will turn into ice faster than cold water.", "www.factbase.com", "bc"));
+
+		// when / then
+		assertThat(factCacheService.getLongUrl("bc")).isEqualTo("www.factbase.com");
+		assertThat(factCacheService.find("bd")).isNull();
+		assertThrows(ResourceNotFoundException.class, () -> factCacheService.getLongUrl("bd"));
+		assertThrows(ResourceNotFoundException.class, () -> factCacheService.getLongUrl("not-a-code"));
+		assertThrows(IllegalArgumentException.class, () -> factCacheService.getLongUrl(""));
+	}
+
+	@Test
+	@DisplayName("Resolving records accesses in place and reports unknown short urls without exceptions")
+	void resolveAndRecord()
+	{
+		// given
+		factCacheService.insertIfMissing(new FactCacheDTO("Hot water will turn into ice faster than cold water.", "www.factbase.com", "bc"));
+
+		// when
+		String longUrl = factCacheService.resolveAndRecord("bc", 2);
+		String resolvedUrl = factCacheService.resolveAndRecord("bc", 0);
+
+		// then
+		assertThat(longUrl).isEqualTo("www.factbase.com");
+		assertThat(resolvedUrl).isEqualTo("www.factbase.com");
+		assertThat(factCacheService.find("bc").accessCount().get()).isEqualTo(2);
+		assertThat(factCacheService.resolveAndRecord("bd", 1)).isNull();
+		assertThat(factCacheService.resolveAndRecord("not-a-code", 1)).isNull();
+		assertThat(factCacheService.resolveAndRecord("", 1)).isNull();
+	}
+
+	@Test
+	@DisplayName("Access counts are kept off-heap across several slabs")
+	void getAll()
+	{
+		// given: 1KB slabs hold only a few facts each
+		IntStream.rangeClosed(1, 100)
+			.mapToObj(id -> ShortCodeCodec.BASE26.encode(id))
+			.forEach(code -> factCacheService.insertIfMissing(new FactCacheDTO("Fact number " + code, "www.factbase.com/" + code, code)));
+
+		// when
+		IntStream.range(0, 10).forEach((ignore) -> factCacheService.incrementAccessCount("b"));
+		factCacheService.incrementAccessCount("dw");
+
+		// then
+		List<FactCacheDTO> all = List.copyOf(factCacheService.getAll());
+		assertThat(all).hasSize(100);
+		assertThat(all.get(0).shortUrl()).isEqualTo("b");
+		assertThat(all.get(0).accessCount().get()).isEqualTo(10);
+		assertThat(factCacheService.find("dw").accessCount().get()).isEqualTo(1);
+		assertThat(factCacheService.getLongUrl("dw")).isEqualTo("www.factbase.com/dw");
+		assertThat(meterRegistry.get("factservice.cache.offheap.allocated").gauge().value()).isGreaterThan(1024);
+	}
+
+	@Test
+	@DisplayName("Removed facts are no longer found")
+	void remove()
+	{
+		// given
+		factCacheService.insertIfMissing(new FactCacheDTO("Hot water will turn into ice faster than cold water.", "www.factbase.com", "bc"));
+		factCacheService.insertIfMissing(new FactCacheDTO("A cloud weighs around a million tonnes.", "www.factapi.com", "bd"));
+
+		// when
+		FactCacheDTO removed = factCacheService.remove("bc");
+
+		// then
+		assertThat(removed.originalUrl()).isEqualTo("www.factbase.com");
+		assertThat(factCacheService.find("bc")).isNull();
+		assertThat(factCacheService.remove("bc")).isNull();
+		assertThat(factCacheService.getAll()).extracting(FactCacheDTO::shortUrl).containsExactly("bd");
+	}
+}
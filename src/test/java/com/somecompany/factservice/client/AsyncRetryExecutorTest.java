@@ -0,0 +1,132 @@
+package com.somecompany.factservice.client;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import com.somecompany.factservice.exception.FactServiceServerException;
+
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.retry.RetryConfig;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for AsyncRetryExecutor retry and deadline behavior.
+ */
+class AsyncRetryExecutorTest
+{
+	ExecutorService upstreamExecutor = Executors.newFixedThreadPool(2);
+	ScheduledExecutorService backoffScheduler = Executors.newSingleThreadScheduledExecutor();
+
+	AsyncRetryExecutor asyncRetryExecutor = new AsyncRetryExecutor(upstreamExecutor, backoffScheduler);
+
+	@AfterEach
+	void tearDown()
+	{
+		upstreamExecutor.shutdownNow();
+		backoffScheduler.shutdownNow();
+	}
+
+	@Test
+	@DisplayName("Failed attempts are retried until the call succeeds")
+	void execute_retriesUntilSuccess() throws Exception
+	{
+		// given
+		var attempts = new AtomicInteger();
+		RetryConfig retryConfig = retryConfig(50);
+
+		// when
+		CompletableFuture<String> result = asyncRetryExecutor.execute(() -> {
+			if (attempts.incrementAndGet() < 3)
+			{
+				throw serverError();
+			}
+			return "fact";
+		}, retryConfig, Duration.ofSeconds(5), () -> true).result();
+
+		// then
+		assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("fact");
+		assertThat(attempts.get()).isEqualTo(3);
+	}
+
+	@Test
+	@DisplayName("Retries stop once the deadline cannot fit the next backoff")
+	void execute_deadlineCutsOffRetries()
+	{
+		// given
+		var attempts = new AtomicInteger();
+		RetryConfig retryConfig = retryConfig(2000);
+
+		// when
+		CompletableFuture<String> result = asyncRetryExecutor.<String>execute(() -> {
+			attempts.incrementAndGet();
+			throw serverError();
+		}, retryConfig, Duration.ofMillis(500), () -> true).result();
+
+		// then
+		ExecutionException exception = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+		assertThat(exception.getCause()).isInstanceOf(FactServiceServerException.class);
+		assertThat(attempts.get()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("An attempt running at the deadline answers the call with a timeout but finishes it only once it returned")
+	void execute_deadlinePassesDuringAttempt() throws Exception
+	{
+		// given
+		var attemptStarted = new CountDownLatch(1);
+		var attemptInterrupted = new CountDownLatch(1);
+		var releaseAttempt = new CountDownLatch(1);
+
+		// when
+		UpstreamCall<String> call = asyncRetryExecutor.execute(() -> {
+			attemptStarted.countDown();
+			while (true)
+			{
+				try
+				{
+					releaseAttempt.await();
+					return "late";
+				}
+				catch (InterruptedException e)
+				{
+					attemptInterrupted.countDown();
+				}
+			}
+		}, retryConfig(50), Duration.ofMillis(100), () -> true);
+
+		// then
+		assertThat(attemptStarted.await(5, TimeUnit.SECONDS)).isTrue();
+		ExecutionException exception = assertThrows(ExecutionException.class, () -> call.result().get(5, TimeUnit.SECONDS));
+		assertThat(exception.getCause()).isInstanceOf(TimeoutException.class);
+		assertThat(attemptInterrupted.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(call.finished()).isNotDone();
+
+		releaseAttempt.countDown();
+		call.finished().get(5, TimeUnit.SECONDS);
+	}
+
+	private static RetryConfig retryConfig(long backoffMillis)
+	{
+		return RetryConfig.custom().maxAttempts(5).intervalFunction(IntervalFunction.of(backoffMillis)).build();
+	}
+
+	private static FactServiceServerException serverError()
+	{
+		return new FactServiceServerException("server error", HttpStatus.SERVICE_UNAVAILABLE, null);
+	}
+}
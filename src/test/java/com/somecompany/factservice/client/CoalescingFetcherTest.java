@@ -0,0 +1,176 @@
+package com.somecompany.factservice.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for CoalescingFetcher, synchronized with latches on the leader and joiner callbacks.
+ */
+class CoalescingFetcherTest
+{
+	ExecutorService executor = Executors.newFixedThreadPool(8);
+
+	@AfterEach
+	void tearDown()
+	{
+		executor.shutdownNow();
+	}
+
+	@Test
+	@DisplayName("Concurrent callers beyond the outstanding limit share the in-flight fetch")
+	void fetch_coalesced() throws Exception
+	{
+		// given
+		var coalescingFetcher = new CoalescingFetcher<String>(1);
+		var arrived = new CountDownLatch(8);
+		var release = new CountDownLatch(1);
+		var leaders = new AtomicInteger();
+		var fetches = new AtomicInteger();
+
+		// when
+		List<Future<String>> results = new ArrayList<>();
+		for (int i = 0; i < 8; i++)
+		{
+			results.add(executor.submit(() -> coalescingFetcher.fetch(() -> {
+				fetches.incrementAndGet();
+				await(release);
+				return "fact";
+			}, () -> {
+				leaders.incrementAndGet();
+				arrived.countDown();
+			}, arrived::countDown)));
+		}
+		assertThat(arrived.await(5, TimeUnit.SECONDS)).isTrue();
+		release.countDown();
+
+		// then
+		for (Future<String> result : results)
+		{
+			assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("fact");
+		}
+		assertThat(leaders).hasValue(1);
+		assertThat(fetches).hasValue(1);
+	}
+
+	@Test
+	@DisplayName("With all slots taken callers join the most recently started fetch still in flight")
+	void fetch_joinsLatestInFlight() throws Exception
+	{
+		// given
+		var coalescingFetcher = new CoalescingFetcher<String>(2);
+		var releaseA = new CountDownLatch(1);
+		var releaseC = new CountDownLatch(1);
+		Future<String> a = lead(coalescingFetcher, "a", releaseA);
+		Future<String> b = lead(coalescingFetcher, "b", new CountDownLatch(0));
+		assertThat(b.get(5, TimeUnit.SECONDS)).isEqualTo("b");
+		Future<String> c = lead(coalescingFetcher, "c", releaseC);
+
+		// when
+		var joined = new CountDownLatch(1);
+		Future<String> d = executor.submit(() -> coalescingFetcher.fetch(() -> "d", () -> {
+		}, joined::countDown));
+
+		// then
+		assertThat(joined.await(5, TimeUnit.SECONDS)).isTrue();
+		releaseC.countDown();
+		assertThat(d.get(5, TimeUnit.SECONDS)).isEqualTo("c");
+		assertThat(c.get(5, TimeUnit.SECONDS)).isEqualTo("c");
+		assertThat(a).isNotDone();
+		releaseA.countDown();
+		assertThat(a.get(5, TimeUnit.SECONDS)).isEqualTo("a");
+	}
+
+	@Test
+	@DisplayName("An asynchronous fetch holds its slot until it completes")
+	void fetchAsync_holdsSlot() throws Exception
+	{
+		// given
+		var coalescingFetcher = new CoalescingFetcher<String>(1);
+		var call = new CompletableFuture<String>();
+		CompletableFuture<String> leader = coalescingFetcher.fetchAsync(() -> UpstreamCall.of(call), () -> {
+		}, () -> {
+		});
+
+		// when
+		var joined = new AtomicInteger();
+		CompletableFuture<String> joiner = coalescingFetcher.fetchAsync(() -> UpstreamCall.of(CompletableFuture.completedFuture("other")), () -> {
+		}, joined::incrementAndGet);
+		call.complete("fact");
+
+		// then
+		assertThat(joined).hasValue(1);
+		assertThat(joiner.get(5, TimeUnit.SECONDS)).isEqualTo("fact");
+		assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("fact");
+		assertThat(coalescingFetcher.fetchAsync(() -> UpstreamCall.of(CompletableFuture.completedFuture("next")), () -> {
+		}, () -> {
+		}).get(5, TimeUnit.SECONDS)).isEqualTo("next");
+	}
+
+	@Test
+	@DisplayName("A call answered before it finished keeps its slot until it finished")
+	void fetchAsync_holdsSlotUntilFinished() throws Exception
+	{
+		// given
+		var coalescingFetcher = new CoalescingFetcher<String>(1);
+		var finished = new CompletableFuture<Void>();
+		CompletableFuture<String> leader = coalescingFetcher.fetchAsync(() -> new UpstreamCall<>(CompletableFuture.failedFuture(new TimeoutException()), finished),
+			() -> {
+			}, () -> {
+			});
+
+		// when
+		var joined = new AtomicInteger();
+		CompletableFuture<String> joiner = coalescingFetcher.fetchAsync(() -> UpstreamCall.of(CompletableFuture.completedFuture("other")), () -> {
+		}, joined::incrementAndGet);
+		finished.complete(null);
+
+		// then
+		assertThat(leader).isCompletedExceptionally();
+		assertThat(joiner).isCompletedExceptionally();
+		assertThat(joined).hasValue(1);
+		assertThat(coalescingFetcher.fetchAsync(() -> UpstreamCall.of(CompletableFuture.completedFuture("next")), () -> {
+		}, () -> {
+		}).get(5, TimeUnit.SECONDS)).isEqualTo("next");
+	}
+
+	/**
+	 * Starts a fetch that is led by a new caller and returns the value once the latch is released.
+	 */
+	private Future<String> lead(CoalescingFetcher<String> coalescingFetcher, String value, CountDownLatch release) throws InterruptedException
+	{
+		var started = new CountDownLatch(1);
+		Future<String> result = executor.submit(() -> coalescingFetcher.fetch(() -> {
+			await(release);
+			return value;
+		}, started::countDown, () -> {
+		}));
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		return result;
+	}
+
+	private static void await(CountDownLatch latch)
+	{
+		try
+		{
+			latch.await(5, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package com.somecompany.factservice.client;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for RetryBudget accounting over its sliding window.
+ */
+class RetryBudgetTest
+{
+	AtomicLong clock = new AtomicLong(TimeUnit.SECONDS.toNanos(1000));
+
+	RetryBudget retryBudget = new RetryBudget(0.5, 0, Duration.ofSeconds(10), clock::get);
+
+	@Test
+	@DisplayName("Retries are capped at the ratio of recent successes")
+	void tryAcquireRetry()
+	{
+		// given
+		IntStream.range(0, 4).forEach(ignore -> retryBudget.recordSuccess());
+
+		// when / then
+		assertThat(retryBudget.tryAcquireRetry()).isTrue();
+		assertThat(retryBudget.tryAcquireRetry()).isTrue();
+		assertThat(retryBudget.tryAcquireRetry()).isFalse();
+	}
+
+	@Test
+	@DisplayName("Successes outside the window no longer earn retries")
+	void tryAcquireRetry_windowExpired()
+	{
+		// given
+		IntStream.range(0, 4).forEach(ignore -> retryBudget.recordSuccess());
+
+		// when
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(11));
+
+		// then
+		assertThat(retryBudget.available()).isZero();
+		assertThat(retryBudget.tryAcquireRetry()).isFalse();
+	}
+
+	@Test
+	@DisplayName("Concurrent retries never overdraw the budget")
+	void tryAcquireRetry_concurrent() throws InterruptedException
+	{
+		// given
+		var budget = new RetryBudget(0.5, 1, Duration.ofSeconds(10), clock::get);
+		IntStream.range(0, 180).forEach(ignore -> budget.recordSuccess());
+		var granted = new AtomicInteger();
+		var threads = new ArrayList<Thread>();
+
+		// when
+		for (int t = 0; t < 8; t++)
+		{
+			var thread = new Thread(() -> IntStream.range(0, 50).filter(ignore -> budget.tryAcquireRetry()).forEach(ignore -> granted.incrementAndGet()));
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		// then
+		// 0.5 * 180 successes plus 1 retry per second of the 10 second window
+		assertThat(granted.get()).isBetween(100 - 8, 100);
+		assertThat(budget.available()).isLessThan(8);
+	}
+
+	@Test
+	@DisplayName("A bucket left over from an older second is recycled")
+	void recordSuccess_recycledBucket()
+	{
+		// given
+		IntStream.range(0, 4).forEach(ignore -> retryBudget.recordSuccess());
+
+		// when
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+		retryBudget.recordSuccess();
+
+		// then
+		assertThat(retryBudget.available()).isEqualTo(0.5);
+	}
+}
@@ -0,0 +1,73 @@
+package com.somecompany.factservice.client;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Unit tests for the task bound UpstreamExecutors applies in virtual thread mode.
+ */
+class UpstreamExecutorsTest
+{
+	ExecutorService executor = Executors.newCachedThreadPool();
+
+	@AfterEach
+	void tearDown()
+	{
+		executor.shutdownNow();
+	}
+
+	@Test
+	@DisplayName("Tasks beyond the bound are rejected until a running task finished")
+	void boundedExecutor_rejectsBeyondBound() throws InterruptedException
+	{
+		// given
+		Executor boundedExecutor = UpstreamExecutors.boundedExecutor(executor, 2);
+		var release = new CountDownLatch(1);
+		var finished = new CountDownLatch(2);
+		for (int i = 0; i < 2; i++)
+		{
+			boundedExecutor.execute(() -> {
+				awaitQuietly(release);
+				finished.countDown();
+			});
+		}
+
+		// when / then
+		assertThatThrownBy(() -> boundedExecutor.execute(() -> {
+		})).isInstanceOf(RejectedExecutionException.class);
+
+		release.countDown();
+		assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+		var ran = new CountDownLatch(1);
+		await().atMost(Duration.ofSeconds(5)).ignoreException(RejectedExecutionException.class).until(() -> {
+			boundedExecutor.execute(ran::countDown);
+			return true;
+		});
+		assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+	}
+
+	private static void awaitQuietly(CountDownLatch latch)
+	{
+		try
+		{
+			latch.await();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -1,26 +1,40 @@
 package com.somecompany.factservice.client;
 
-import java.util.function.Supplier;
+import java.time.Duration;
 
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import com.somecompany.factservice.config.UpstreamProperties;
+import com.somecompany.factservice.exception.FactServiceClientException;
+import com.somecompany.factservice.exception.FactServiceServerException;
 import com.somecompany.factservice.model.UselessFact;
 
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
 import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
- * Unit test for UselessFactsAPIClient fetch method.
+ * Unit tests for UselessFactsAPIClient fetches and their use of the retry budget.
  */
 @ExtendWith(MockitoExtension.class)
 class UselessFactsAPIClientTest
@@ -28,22 +42,35 @@ class UselessFactsAPIClientTest
 	@Mock
 	RestTemplate restTemplate;
 
-	@Mock
-	Retry retry;
+	Retry retry = Retry.of("test", RetryConfig.custom()
+		.maxAttempts(3)
+		.waitDuration(Duration.ofMillis(1))
+		.retryOnException(throwable -> !(throwable instanceof FactServiceClientException))
+		.build());
+
+	RetryBudget retryBudget = new RetryBudget(0, 1, Duration.ofSeconds(10));
+
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
-	@InjectMocks
 	UselessFactsAPIClient uselessFactsAPIClient;
 
+	@BeforeEach
+	void setUp()
+	{
+		var upstreamProperties = new UpstreamProperties("https://www.factapi.com/random", 1, UpstreamProperties.RetryMode.BLOCKING, 100, Duration.ofSeconds(10),
+			new UpstreamProperties.CircuitBreakerSettings(50, 20, 10, Duration.ofSeconds(30), 3),
+			new UpstreamProperties.RetryBudgetSettings(0.2, 1, Duration.ofSeconds(10)));
+		uselessFactsAPIClient = new UselessFactsAPIClient(restTemplate, retry, CircuitBreaker.ofDefaults("test"),
+			retryBudget, upstreamProperties, new UpstreamExecutors(upstreamProperties, new MockEnvironment()),
+			meterRegistry);
+	}
+
 	@Test
 	void fetchUselessFact()
 	{
 		// given
 		var expectedFact = new UselessFact("123", "A random fact.", "www.factapi.com/123");
 		when(restTemplate.getForObject(anyString(), any(Class.class))).thenReturn(expectedFact);
-		when(retry.executeSupplier(any(Supplier.class))).thenAnswer(input -> {
-			Supplier<UselessFact> supplier = input.getArgument(0);
-			return supplier.get();
-		});
 
 		// when
 		UselessFact actualFact = uselessFactsAPIClient.fetchUselessFact();
@@ -52,4 +79,53 @@ class UselessFactsAPIClientTest
 		assertNotNull(actualFact);
 		assertThat(actualFact.text()).isEqualTo(expectedFact.text());
 	}
+
+	@Test
+	@DisplayName("Only retries that actually follow a failed attempt draw on the retry budget")
+	void fetchUselessFact_lastAttemptCostsNoBudget()
+	{
+		// given
+		when(restTemplate.getForObject(anyString(), any(Class.class))).thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+		// when
+		assertThatThrownBy(() -> uselessFactsAPIClient.fetchUselessFact()).isInstanceOf(FactServiceServerException.class);
+
+		// then
+		verify(restTemplate, times(3)).getForObject(anyString(), any(Class.class));
+		assertThat(retryBudget.available()).isEqualTo(8);
+	}
+
+	@Test
+	@DisplayName("A failure is not retried once the retry budget is exhausted")
+	void fetchUselessFact_budgetExhausted()
+	{
+		// given
+		while (retryBudget.tryAcquireRetry())
+		{
+			// drain the budget
+		}
+		when(restTemplate.getForObject(anyString(), any(Class.class))).thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+		// when
+		assertThatThrownBy(() -> uselessFactsAPIClient.fetchUselessFact()).isInstanceOf(FactServiceServerException.class);
+
+		// then
+		verify(restTemplate, times(1)).getForObject(anyString(), any(Class.class));
+		assertThat(meterRegistry.get("factservice.upstream.retry.budget.exhausted").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("Client errors are neither retried nor drawn from the retry budget")
+	void fetchUselessFact_clientErrorNotRetried()
+	{
+		// given
+		when(restTemplate.getForObject(anyString(), any(Class.class))).thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+
+		// when
+		assertThatThrownBy(() -> uselessFactsAPIClient.fetchUselessFact()).isInstanceOf(FactServiceClientException.class);
+
+		// then
+		verify(restTemplate, times(1)).getForObject(anyString(), any(Class.class));
+		assertThat(retryBudget.available()).isEqualTo(10);
+	}
 }
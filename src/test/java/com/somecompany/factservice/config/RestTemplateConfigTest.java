@@ -0,0 +1,326 @@
+package com.somecompany.factservice.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Unit tests for the outbound client settings, the RestTemplate built from them with its timeouts and limits, and TLS
+ * handshake counting, run against local servers.
+ */
+class RestTemplateConfigTest
+{
+	private static final char[] KEYSTORE_PASSWORD = "changeit".toCharArray();
+
+	RestTemplateConfig restTemplateConfig = new RestTemplateConfig();
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	ExecutorService serverExecutor = Executors.newCachedThreadPool();
+	CountDownLatch releaseResponses = new CountDownLatch(1);
+
+	HttpServer slowServer;
+
+	@BeforeEach
+	void setUp() throws IOException
+	{
+		slowServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		slowServer.createContext("/", exchange -> {
+			try
+			{
+				releaseResponses.await(10, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+			respond(exchange);
+		});
+		slowServer.setExecutor(serverExecutor);
+		slowServer.start();
+	}
+
+	@AfterEach
+	void tearDown()
+	{
+		releaseResponses.countDown();
+		slowServer.stop(0);
+		serverExecutor.shutdownNow();
+	}
+
+	@Test
+	@DisplayName("Outbound client settings bind from factservice.http-client.* and fall back to their defaults")
+	void properties_binding()
+	{
+		new ApplicationContextRunner()
+			.withUserConfiguration(PropertiesConfiguration.class)
+			.withPropertyValues("factservice.http-client.type=jdk", "factservice.http-client.max-connections=7", "factservice.http-client.read-timeout=250ms")
+			.run(context -> {
+				OutboundHttpProperties properties = context.getBean(OutboundHttpProperties.class);
+				assertThat(properties.type()).isEqualTo(OutboundHttpProperties.ClientType.JDK);
+				assertThat(properties.maxConnections()).isEqualTo(7);
+				assertThat(properties.readTimeout()).isEqualTo(Duration.ofMillis(250));
+				assertThat(properties.maxPerRoute()).isEqualTo(20);
+				assertThat(properties.totalTimeout()).isEqualTo(Duration.ofSeconds(8));
+			});
+	}
+
+	@Test
+	@DisplayName("The client type selects the request factory backing the RestTemplate, both exposing the client metrics")
+	void restTemplate_clientType()
+	{
+		// given
+		var jdkMeterRegistry = new SimpleMeterRegistry();
+
+		// when
+		RestTemplate apache = restTemplateConfig.restTemplate(properties(OutboundHttpProperties.ClientType.APACHE), meterRegistry);
+		RestTemplate jdk = restTemplateConfig.restTemplate(properties(OutboundHttpProperties.ClientType.JDK), jdkMeterRegistry);
+
+		// then
+		assertThat(apache.getRequestFactory()).isInstanceOf(HttpComponentsClientHttpRequestFactory.class);
+		assertThat(jdk.getRequestFactory()).isInstanceOf(JdkClientHttpRequestFactory.class);
+		for (SimpleMeterRegistry registry : List.of(meterRegistry, jdkMeterRegistry))
+		{
+			assertThat(registry.find("factservice.http.client.pool.connections").gauges()).hasSize(4);
+			assertThat(registry.get("factservice.http.client.pool.connections").tag("state", "max").gauge().value()).isEqualTo(4);
+			assertThat(registry.find("factservice.http.client.tls.handshakes").counter()).isNotNull();
+		}
+	}
+
+	@Test
+	@DisplayName("The apache client gives up on a server that does not answer within the read timeout")
+	void restTemplate_apacheReadTimeout()
+	{
+		// given
+		RestTemplate restTemplate = restTemplateConfig.restTemplate(
+			properties(OutboundHttpProperties.ClientType.APACHE, 4, Duration.ofMillis(200), Duration.ofSeconds(30)), meterRegistry);
+
+		// when / then
+		assertThatThrownBy(() -> restTemplate.getForObject(slowServerUrl(), String.class))
+			.isInstanceOf(ResourceAccessException.class)
+			.hasRootCauseInstanceOf(SocketTimeoutException.class);
+	}
+
+	@Test
+	@DisplayName("The apache client gives up on a server that does not answer within the total timeout, however long the read timeout")
+	void restTemplate_apacheTotalTimeout()
+	{
+		// given
+		RestTemplate restTemplate = restTemplateConfig.restTemplate(
+			properties(OutboundHttpProperties.ClientType.APACHE, 4, Duration.ofSeconds(30), Duration.ofMillis(200)), meterRegistry);
+
+		// when / then
+		long start = System.nanoTime();
+		assertThatThrownBy(() -> restTemplate.getForObject(slowServerUrl(), String.class))
+			.isInstanceOf(ResourceAccessException.class)
+			.hasCauseInstanceOf(HttpTimeoutException.class);
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+		assertThat(meterRegistry.get("factservice.http.client.pool.connections").tag("state", "leased").gauge().value()).isZero();
+	}
+
+	@Test
+	@DisplayName("The jdk client gives up on a server that does not answer within the total timeout")
+	void restTemplate_jdkTotalTimeout()
+	{
+		// given
+		RestTemplate restTemplate = restTemplateConfig.restTemplate(properties(OutboundHttpProperties.ClientType.JDK), meterRegistry);
+
+		// when / then
+		// the request timeout of the client and the wait of the request factory are both set to the total timeout
+		assertThatThrownBy(() -> restTemplate.getForObject(slowServerUrl(), String.class))
+			.isInstanceOf(ResourceAccessException.class)
+			.satisfies(e -> assertThat(NestedExceptionUtils.getRootCause(e)).isInstanceOfAny(TimeoutException.class, HttpTimeoutException.class));
+	}
+
+	@Test
+	@DisplayName("The jdk client lets max-connections requests in flight and fails one waiting longer than the acquire timeout")
+	void restTemplate_jdkRequestLimit()
+	{
+		// given
+		RestTemplate restTemplate = restTemplateConfig.restTemplate(
+			properties(OutboundHttpProperties.ClientType.JDK, 1, Duration.ofSeconds(5), Duration.ofSeconds(5)), meterRegistry);
+		CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> restTemplate.getForObject(slowServerUrl(), String.class));
+		await().atMost(Duration.ofSeconds(5)).until(() -> poolGauge("leased") == 1);
+
+		// when / then
+		assertThatThrownBy(() -> restTemplate.getForObject(slowServerUrl(), String.class))
+			.isInstanceOf(ResourceAccessException.class)
+			.hasCauseInstanceOf(ConnectionRequestTimeoutException.class);
+
+		releaseResponses.countDown();
+		assertThat(first.join()).isEqualTo("fact");
+		assertThat(poolGauge("leased")).isZero();
+		assertThat(poolGauge("available")).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("Only completed TLS handshakes of new apache connections are counted")
+	void handshakeCountingTlsStrategy_countsCompletedHandshakes() throws Exception
+	{
+		// given
+		KeyStore keyStore = keyStore();
+		HttpsServer tlsServer = tlsServer(keyStore);
+		String url = "https://localhost:%d/".formatted(tlsServer.getAddress().getPort());
+		Counter handshakeCounter = meterRegistry.counter("handshakes");
+
+		try (CloseableHttpClient untrusting = httpClient(SSLContexts.createSystemDefault(), handshakeCounter);
+			 CloseableHttpClient trusting = httpClient(SSLContexts.custom().loadTrustMaterial(keyStore, null).build(), handshakeCounter))
+		{
+			// when
+			assertThatThrownBy(() -> new RestTemplate(new HttpComponentsClientHttpRequestFactory(untrusting)).getForObject(url, String.class))
+				.isInstanceOf(ResourceAccessException.class);
+			var restTemplate = new RestTemplate(new HttpComponentsClientHttpRequestFactory(trusting));
+			assertThat(restTemplate.getForObject(url, String.class)).isEqualTo("fact");
+			assertThat(restTemplate.getForObject(url, String.class)).isEqualTo("fact");
+
+			// then
+			assertThat(handshakeCounter.count()).isEqualTo(1);
+		}
+		finally
+		{
+			tlsServer.stop(0);
+		}
+	}
+
+	@Test
+	@DisplayName("Only completed TLS handshakes of new jdk connections are counted")
+	void handshakeCountingSslContext_countsCompletedHandshakes() throws Exception
+	{
+		// given
+		KeyStore keyStore = keyStore();
+		HttpsServer tlsServer = tlsServer(keyStore);
+		String url = "https://localhost:%d/".formatted(tlsServer.getAddress().getPort());
+		Counter handshakeCounter = meterRegistry.counter("handshakes");
+		HttpClient untrusting = HttpClient.newBuilder()
+			.sslContext(new HandshakeCountingSslContext(SSLContexts.createSystemDefault(), handshakeCounter))
+			.build();
+		HttpClient trusting = HttpClient.newBuilder()
+			.sslContext(new HandshakeCountingSslContext(SSLContexts.custom().loadTrustMaterial(keyStore, null).build(), handshakeCounter))
+			.build();
+
+		try
+		{
+			// when
+			assertThatThrownBy(() -> new RestTemplate(new JdkClientHttpRequestFactory(untrusting)).getForObject(url, String.class))
+				.isInstanceOf(ResourceAccessException.class);
+			var restTemplate = new RestTemplate(new JdkClientHttpRequestFactory(trusting));
+			assertThat(restTemplate.getForObject(url, String.class)).isEqualTo("fact");
+			assertThat(restTemplate.getForObject(url, String.class)).isEqualTo("fact");
+
+			// then
+			assertThat(handshakeCounter.count()).isEqualTo(1);
+		}
+		finally
+		{
+			tlsServer.stop(0);
+		}
+	}
+
+	private double poolGauge(String state)
+	{
+		return meterRegistry.get("factservice.http.client.pool.connections").tag("state", state).gauge().value();
+	}
+
+	private KeyStore keyStore() throws Exception
+	{
+		KeyStore keyStore = KeyStore.getInstance("PKCS12");
+		try (InputStream inputStream = getClass().getResourceAsStream("/tls-test.p12"))
+		{
+			keyStore.load(inputStream, KEYSTORE_PASSWORD);
+		}
+		return keyStore;
+	}
+
+	private HttpsServer tlsServer(KeyStore keyStore) throws Exception
+	{
+		HttpsServer tlsServer = HttpsServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		tlsServer.setHttpsConfigurator(new HttpsConfigurator(SSLContexts.custom().loadKeyMaterial(keyStore, KEYSTORE_PASSWORD).build()));
+		tlsServer.createContext("/", RestTemplateConfigTest::respond);
+		tlsServer.setExecutor(serverExecutor);
+		tlsServer.start();
+		return tlsServer;
+	}
+
+	private String slowServerUrl()
+	{
+		return "http://127.0.0.1:%d/".formatted(slowServer.getAddress().getPort());
+	}
+
+	private static OutboundHttpProperties properties(OutboundHttpProperties.ClientType type)
+	{
+		return properties(type, 4, Duration.ofMillis(200), Duration.ofMillis(200));
+	}
+
+	private static OutboundHttpProperties properties(OutboundHttpProperties.ClientType type, int maxConnections, Duration readTimeout,
+		Duration totalTimeout)
+	{
+		return new OutboundHttpProperties(type, maxConnections, 4, Duration.ofSeconds(2), readTimeout, totalTimeout, Duration.ofMillis(200),
+			Duration.ofSeconds(30));
+	}
+
+	private static CloseableHttpClient httpClient(SSLContext sslContext, Counter handshakeCounter)
+	{
+		return HttpClients.custom()
+			.setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+				.setTlsSocketStrategy(new RestTemplateConfig.HandshakeCountingTlsStrategy(sslContext, handshakeCounter))
+				.build())
+			.build();
+	}
+
+	private static void respond(HttpExchange exchange) throws IOException
+	{
+		byte[] body = "fact".getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(200, body.length);
+		try (var outputStream = exchange.getResponseBody())
+		{
+			outputStream.write(body);
+		}
+	}
+
+	@EnableConfigurationProperties(OutboundHttpProperties.class)
+	static class PropertiesConfiguration
+	{
+	}
+}
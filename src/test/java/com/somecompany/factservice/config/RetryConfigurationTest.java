@@ -0,0 +1,147 @@
+package com.somecompany.factservice.config;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import com.somecompany.factservice.exception.FactServiceClientException;
+import com.somecompany.factservice.exception.FactServiceServerException;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.retry.RetryConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for the circuit breaker and retry classification configured by RetryConfiguration.
+ */
+class RetryConfigurationTest
+{
+	private static final Duration WAIT_IN_OPEN_STATE = Duration.ofMillis(100);
+
+	RetryConfiguration retryConfiguration = new RetryConfiguration();
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	CircuitBreaker circuitBreaker;
+
+	@BeforeEach
+	void setUp()
+	{
+		var upstreamProperties = new UpstreamProperties("http://localhost/random", 4, UpstreamProperties.RetryMode.ASYNC, 100, Duration.ofSeconds(10),
+			new UpstreamProperties.CircuitBreakerSettings(50, 4, 4, WAIT_IN_OPEN_STATE, 2),
+			new UpstreamProperties.RetryBudgetSettings(0.2, 1, Duration.ofSeconds(10)));
+		circuitBreaker = retryConfiguration.circuitBreaker(retryConfiguration.circuitBreakerRegistry(upstreamProperties, meterRegistry), meterRegistry);
+	}
+
+	@Test
+	@DisplayName("Upstream server errors crossing the failure rate open the circuit, which then rejects calls")
+	void circuitBreaker_opensAndRejects()
+	{
+		// given
+		failCalls(2);
+		succeedCalls(1);
+
+		// when
+		failCalls(1);
+
+		// then
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThatThrownBy(() -> circuitBreaker.executeSupplier(() -> "fact")).isInstanceOf(CallNotPermittedException.class);
+		assertThat(meterRegistry.get("factservice.upstream.circuitbreaker.rejected").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("factservice.upstream.circuitbreaker.transitions").tag("from", "CLOSED").tag("to", "OPEN").counter().count())
+			.isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("Client errors other than rate limiting do not count as failures")
+	void circuitBreaker_ignoresClientErrors()
+	{
+		// when
+		for (int i = 0; i < 4; i++)
+		{
+			assertThatThrownBy(() -> circuitBreaker.executeSupplier(() -> {
+				throw new FactServiceClientException("not found", HttpStatus.NOT_FOUND, null);
+			})).isInstanceOf(FactServiceClientException.class);
+		}
+
+		// then
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	@DisplayName("After the wait duration the circuit goes half-open and closes once the permitted probe calls succeed")
+	void circuitBreaker_halfOpenCloses() throws InterruptedException
+	{
+		// given
+		failCalls(4);
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		Thread.sleep(WAIT_IN_OPEN_STATE.toMillis() * 2);
+
+		// when
+		succeedCalls(1);
+
+		// then
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+		succeedCalls(1);
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+	}
+
+	@Test
+	@DisplayName("A failing probe call in half-open state opens the circuit again")
+	void circuitBreaker_halfOpenReopens() throws InterruptedException
+	{
+		// given
+		failCalls(4);
+		Thread.sleep(WAIT_IN_OPEN_STATE.toMillis() * 2);
+
+		// when
+		succeedCalls(1);
+		failCalls(1);
+
+		// then
+		assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+		assertThatThrownBy(() -> circuitBreaker.executeSupplier(() -> "fact")).isInstanceOf(CallNotPermittedException.class);
+	}
+
+	@Test
+	@DisplayName("Client errors and calls rejected by the open circuit are not retried")
+	void retryRegistry_classifiesFailures()
+	{
+		// given
+		RetryConfig retryConfig = retryConfiguration.retryRegistry().getDefaultConfig();
+
+		// when / then
+		assertThat(retryConfig.getExceptionPredicate().test(serverError())).isTrue();
+		assertThat(retryConfig.getExceptionPredicate().test(new FactServiceClientException("bad request", HttpStatus.BAD_REQUEST, null))).isFalse();
+		assertThat(retryConfig.getExceptionPredicate().test(CallNotPermittedException.createCallNotPermittedException(circuitBreaker))).isFalse();
+	}
+
+	private void failCalls(int calls)
+	{
+		for (int i = 0; i < calls; i++)
+		{
+			assertThatThrownBy(() -> circuitBreaker.executeSupplier(() -> {
+				throw serverError();
+			})).isInstanceOf(FactServiceServerException.class);
+		}
+	}
+
+	private void succeedCalls(int calls)
+	{
+		for (int i = 0; i < calls; i++)
+		{
+			assertThat(circuitBreaker.executeSupplier(() -> "fact")).isEqualTo("fact");
+		}
+	}
+
+	private static FactServiceServerException serverError()
+	{
+		return new FactServiceServerException("server error", HttpStatus.SERVICE_UNAVAILABLE, null);
+	}
+}
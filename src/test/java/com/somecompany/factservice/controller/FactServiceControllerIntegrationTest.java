@@ -8,6 +8,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -44,6 +47,17 @@ class FactServiceControllerIntegrationTest
 		assertThat(Objects.requireNonNull(response.getBody()).shortenedUrl()).isNotBlank();
 	}
 
+	/**
+	 * Tests the /facts POST endpoint with a count beyond the server-side cap to be rejected with BAD_REQUEST.
+	 */
+	@Test
+	@DisplayName("/facts post request with a count above the maximum is rejected")
+	void uselessFacts_countAboveMaximum()
+	{
+		ResponseEntity<String> response = restTemplate.postForEntity("/facts?count=101", null, String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
 	/**
 	 * Tests /facts/{shortUrl} GET endpoint and response of 404 when the mapping for the provided shortUrl does not exist.
 	 */
@@ -91,4 +105,45 @@ class FactServiceControllerIntegrationTest
 		ResponseEntity<List> response = restTemplate.withBasicAuth("admin", "admin").getForEntity("/admin/statistics", List.class);
 		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Tests /admin/statistics GET endpoint to answer a request repeating the ETag of unchanged statistics with NOT_MODIFIED.
+	 */
+	@Test
+	@DisplayName("Unchanged /admin/statistics are not modified for their ETag")
+	void adminStatistics_notModified()
+	{
+		TestRestTemplate admin = restTemplate.withBasicAuth("admin", "admin");
+		ResponseEntity<List> response = admin.getForEntity("/admin/statistics", List.class);
+		String eTag = response.getHeaders().getETag();
+		assertThat(eTag).isNotBlank();
+		assertThat(response.getHeaders().getCacheControl()).contains("no-cache");
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setIfNoneMatch(eTag);
+		ResponseEntity<List> revalidated = admin.exchange("/admin/statistics", HttpMethod.GET, new HttpEntity<>(headers), List.class);
+		assertThat(revalidated.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+		assertThat(revalidated.getBody()).isNull();
+	}
+
+	/**
+	 * Tests /admin/statistics/top GET endpoint to answer the ETag of other statistics or another k with OK.
+	 */
+	@Test
+	@DisplayName("The ETag of /admin/statistics/top differs per k and from that of /admin/statistics")
+	void adminTopStatistics_eTagPerK()
+	{
+		TestRestTemplate admin = restTemplate.withBasicAuth("admin", "admin");
+		String eTag = admin.getForEntity("/admin/statistics/top?k=10", List.class).getHeaders().getETag();
+		assertThat(eTag).isNotBlank();
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setIfNoneMatch(eTag);
+		assertThat(admin.exchange("/admin/statistics/top?k=10", HttpMethod.GET, new HttpEntity<>(headers), List.class).getStatusCode())
+			.isEqualTo(HttpStatus.NOT_MODIFIED);
+		assertThat(admin.exchange("/admin/statistics/top?k=20", HttpMethod.GET, new HttpEntity<>(headers), List.class).getStatusCode())
+			.isEqualTo(HttpStatus.OK);
+		assertThat(admin.exchange("/admin/statistics", HttpMethod.GET, new HttpEntity<>(headers), List.class).getStatusCode())
+			.isEqualTo(HttpStatus.OK);
+	}
+}
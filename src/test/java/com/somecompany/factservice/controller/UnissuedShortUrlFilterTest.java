@@ -0,0 +1,79 @@
+package com.somecompany.factservice.controller;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.somecompany.factservice.cache.InMemoryFactCacheService;
+import com.somecompany.factservice.service.urlshortener.Base26URLShortenerService;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+import com.somecompany.factservice.service.urlshortener.URLShortenerService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for UnissuedShortUrlFilter answering redirects of never issued short urls before the rest of the chain.
+ */
+class UnissuedShortUrlFilterTest
+{
+	URLShortenerService urlShortenerService = new Base26URLShortenerService(ShortCodeCodec.BASE26, new InMemoryFactCacheService());
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	UnissuedShortUrlFilter filter = new UnissuedShortUrlFilter(urlShortenerService, new ObjectMapper(), meterRegistry);
+
+	@Test
+	@DisplayName("Redirects of never issued short urls are answered with not found")
+	void rejected() throws ServletException, IOException
+	{
+		// given
+		urlShortenerService.getOrCreateShortUrl("www.factbase.com/1");
+		MockFilterChain filterChain = new MockFilterChain();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		// when
+		filter.doFilter(new MockHttpServletRequest("GET", "/facts/jibberish"), response, filterChain);
+
+		// then
+		assertThat(filterChain.getRequest()).isNull();
+		assertThat(response.getStatus()).isEqualTo(404);
+		assertThat(response.getContentAsString()).contains("Missing cached data for short url: jibberish", "uri=/facts/jibberish");
+		assertThat(meterRegistry.get("factservice.shortener.rejected").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("Issued short urls, encoded paths and other methods are passed on")
+	void passed() throws ServletException, IOException
+	{
+		// given
+		urlShortenerService.getOrCreateShortUrl("www.factbase.com/1");
+
+		// when / then
+		assertPassed(new MockHttpServletRequest("GET", "/facts/b"));
+		assertPassed(new MockHttpServletRequest("GET", "/facts/%6A"));
+		assertPassed(new MockHttpServletRequest("POST", "/facts/jibberish"));
+		assertThat(meterRegistry.get("factservice.shortener.rejected").counter().count()).isZero();
+	}
+
+	/**
+	 * Filters the request and asserts that it reached the rest of the chain untouched.
+	 *
+	 * @param request the request
+	 * @throws ServletException when the chain fails
+	 * @throws IOException      when writing the response fails
+	 */
+	private void assertPassed(MockHttpServletRequest request) throws ServletException, IOException
+	{
+		MockFilterChain filterChain = new MockFilterChain();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, filterChain);
+		assertThat(filterChain.getRequest()).isSameAs(request);
+		assertThat(response.getStatus()).isEqualTo(200);
+	}
+}
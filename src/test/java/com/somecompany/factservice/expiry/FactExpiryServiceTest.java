@@ -0,0 +1,161 @@
+package com.somecompany.factservice.expiry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.somecompany.factservice.access.AccessChangeLog;
+import com.somecompany.factservice.access.TopAccessStatistics;
+import com.somecompany.factservice.access.WindowedAccessStatistics;
+import com.somecompany.factservice.cache.FactCacheDTO;
+import com.somecompany.factservice.cache.FactCacheService;
+import com.somecompany.factservice.cache.InMemoryFactCacheService;
+import com.somecompany.factservice.config.ExpiryProperties;
+import com.somecompany.factservice.persistence.WriteAheadLog;
+import com.somecompany.factservice.service.urlshortener.Base26URLShortenerService;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+import com.somecompany.factservice.service.urlshortener.URLShortenerService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for FactExpiryService removing expired short urls from the cache and the shortener.
+ */
+class FactExpiryServiceTest
+{
+	AtomicLong nanos = new AtomicLong();
+	FactCacheService factCacheService = new InMemoryFactCacheService();
+	URLShortenerService urlShortenerService = new Base26URLShortenerService(ShortCodeCodec.BASE26, factCacheService);
+	WriteAheadLog writeAheadLog = mock(WriteAheadLog.class);
+	WindowedAccessStatistics windowedAccessStatistics = mock(WindowedAccessStatistics.class);
+	TopAccessStatistics topAccessStatistics = mock(TopAccessStatistics.class);
+	AccessChangeLog accessChangeLog = mock(AccessChangeLog.class);
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	@DisplayName("Issued short urls are removed from cache and shortener once their ttl passed")
+	void expire()
+	{
+		// given
+		FactExpiryService factExpiryService = newFactExpiryService(false, 100);
+		String shortUrl = shorten("www.factbase.com/1", factExpiryService);
+
+		// when
+		advanceSeconds(9);
+		int beforeTtl = factExpiryService.expire();
+		advanceSeconds(1);
+		int afterTtl = factExpiryService.expire();
+
+		// then
+		assertThat(beforeTtl).isZero();
+		assertThat(afterTtl).isEqualTo(1);
+		assertThat(factCacheService.find(shortUrl)).isNull();
+		assertThat(urlShortenerService.getOrCreateShortUrl("www.factbase.com/1")).isNotEqualTo(shortUrl);
+		assertThat(meterRegistry.get("factservice.expiry.expired").counter().count()).isEqualTo(1);
+		verify(writeAheadLog).appendRemoval(shortUrl);
+		verify(windowedAccessStatistics).release(shortUrl);
+		verify(topAccessStatistics).release(shortUrl);
+		verify(accessChangeLog).recordChange(shortUrl);
+	}
+
+	@Test
+	@DisplayName("Sliding expiry extends short urls on access")
+	void touch()
+	{
+		// given
+		FactExpiryService factExpiryService = newFactExpiryService(true, 100);
+		String shortUrl = shorten("www.factbase.com/1", factExpiryService);
+		advanceSeconds(8);
+		factExpiryService.touch(shortUrl);
+
+		// when
+		advanceSeconds(2);
+		int atFirstTtl = factExpiryService.expire();
+		advanceSeconds(8);
+		int atExtendedTtl = factExpiryService.expire();
+
+		// then
+		assertThat(atFirstTtl).isZero();
+		assertThat(atExtendedTtl).isEqualTo(1);
+		assertThat(factCacheService.find(shortUrl)).isNull();
+	}
+
+	@Test
+	@DisplayName("Recovered facts expire one ttl after startup in batches unless accessed")
+	void expire_recovered()
+	{
+		// given
+		for (long id = 1; id <= 5; id++)
+		{
+			String shortUrl = ShortCodeCodec.BASE26.encode(id);
+			factCacheService.insertIfMissing(new FactCacheDTO("Fact " + id, "www.factbase.com/" + id, shortUrl));
+			urlShortenerService.restore("www.factbase.com/" + id, shortUrl);
+		}
+		when(writeAheadLog.lastRecoveredId()).thenReturn(5L);
+		FactExpiryService factExpiryService = newFactExpiryService(true, 2);
+		factExpiryService.start();
+		factExpiryService.stop();
+		advanceSeconds(5);
+		factExpiryService.touch(ShortCodeCodec.BASE26.encode(3));
+
+		// when
+		advanceSeconds(5);
+		int first = factExpiryService.expire();
+		int second = factExpiryService.expire();
+		int third = factExpiryService.expire();
+
+		// then
+		assertThat(first + second + third).isEqualTo(4);
+		assertThat(first).isEqualTo(2);
+		assertThat(factCacheService.getAll()).extracting(FactCacheDTO::shortUrl).containsExactly(ShortCodeCodec.BASE26.encode(3));
+		advanceSeconds(5);
+		assertThat(factExpiryService.expire()).isEqualTo(1);
+	}
+
+	/**
+	 * Creates the service with a ttl of ten one-second ticks on the test clock.
+	 *
+	 * @param sliding          whether accesses extend the ttl
+	 * @param maxBatchRemovals removals per step
+	 * @return the service
+	 */
+	private FactExpiryService newFactExpiryService(boolean sliding, int maxBatchRemovals)
+	{
+		var properties = new ExpiryProperties(true, Duration.ofSeconds(10), sliding, Duration.ofSeconds(1), maxBatchRemovals);
+		return new FactExpiryService(properties, factCacheService, urlShortenerService, writeAheadLog, windowedAccessStatistics,
+			topAccessStatistics, accessChangeLog, ShortCodeCodec.BASE26, meterRegistry, nanos::get);
+	}
+
+	/**
+	 * Shortens and caches a fact the way FactService does and schedules it.
+	 *
+	 * @param longUrl           original url
+	 * @param factExpiryService service to schedule the short url with
+	 * @return the short url
+	 */
+	private String shorten(String longUrl, FactExpiryService factExpiryService)
+	{
+		String shortUrl = urlShortenerService.getOrCreateShortUrl(longUrl);
+		factCacheService.insertIfMissing(new FactCacheDTO("Bananas are berries.", longUrl, shortUrl));
+		factExpiryService.schedule(shortUrl);
+		return shortUrl;
+	}
+
+	/**
+	 * Advances the test clock.
+	 *
+	 * @param seconds seconds to advance by
+	 */
+	private void advanceSeconds(long seconds)
+	{
+		nanos.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+	}
+}
@@ -0,0 +1,104 @@
+package com.somecompany.factservice.expiry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for TimingWheel scheduling, cascading and batching.
+ */
+class TimingWheelTest
+{
+	TimingWheel wheel = new TimingWheel();
+	List<Long> expired = new ArrayList<>();
+
+	@Test
+	@DisplayName("Ids expire exactly at their deadline on every level")
+	void advance_levels()
+	{
+		// given
+		long[] deadlines = { 1, 63, 64, 65, 4095, 4096, 5000, 262_144, 300_000, 20_000_000 };
+		for (int i = 0; i < deadlines.length; i++)
+		{
+			wheel.schedule(i + 1, deadlines[i]);
+		}
+
+		// when / then
+		for (int i = 0; i < deadlines.length; i++)
+		{
+			wheel.advance(deadlines[i] - 1, Integer.MAX_VALUE, expired::add);
+			assertThat(expired).hasSize(i);
+			wheel.advance(deadlines[i], Integer.MAX_VALUE, expired::add);
+			assertThat(expired).hasSize(i + 1).last().isEqualTo(i + 1L);
+		}
+		assertThat(wheel.size()).isZero();
+	}
+
+	@Test
+	@DisplayName("Cancelled ids never expire and rescheduled ids expire at the new deadline")
+	void cancel()
+	{
+		// given
+		wheel.schedule(1, 10);
+		wheel.schedule(2, 10);
+		wheel.schedule(3, 10);
+		wheel.schedule(70_000, 10);
+
+		// when
+		assertThat(wheel.cancel(2)).isTrue();
+		assertThat(wheel.cancel(2)).isFalse();
+		wheel.schedule(3, 100);
+		wheel.advance(10, Integer.MAX_VALUE, expired::add);
+
+		// then
+		assertThat(expired).containsExactlyInAnyOrder(1L, 70_000L);
+		assertThat(wheel.isScheduled(3)).isTrue();
+		assertThat(wheel.size()).isEqualTo(1);
+		wheel.advance(100, Integer.MAX_VALUE, expired::add);
+		assertThat(expired).contains(3L);
+	}
+
+	@Test
+	@DisplayName("Extended ids stay in their bucket and expire at the extended deadline")
+	void extend()
+	{
+		// given
+		wheel.schedule(1, 10);
+
+		// when
+		assertThat(wheel.extend(1, 5000)).isTrue();
+		assertThat(wheel.extend(2, 5000)).isFalse();
+		wheel.advance(4999, Integer.MAX_VALUE, expired::add);
+
+		// then
+		assertThat(expired).isEmpty();
+		wheel.advance(5000, Integer.MAX_VALUE, expired::add);
+		assertThat(expired).containsExactly(1L);
+		assertThat(wheel.extend(1, 6000)).isFalse();
+	}
+
+	@Test
+	@DisplayName("Expiring stops at the limit and resumes within the same tick")
+	void advance_limit()
+	{
+		// given
+		for (long id = 1; id <= 25; id++)
+		{
+			wheel.schedule(id, 5);
+		}
+
+		// when
+		int first = wheel.advance(5, 10, expired::add);
+		int second = wheel.advance(5, 10, expired::add);
+		int third = wheel.advance(6, 10, expired::add);
+
+		// then
+		assertThat(List.of(first, second, third)).containsExactly(10, 10, 5);
+		assertThat(expired).hasSize(25).doesNotHaveDuplicates();
+		assertThat(wheel.currentTick()).isEqualTo(6);
+	}
+}
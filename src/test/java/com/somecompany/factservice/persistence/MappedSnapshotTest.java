@@ -0,0 +1,79 @@
+package com.somecompany.factservice.persistence;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.somecompany.factservice.service.urlshortener.LongUrlLookup;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit test for MappedSnapshot's file format and lookups.
+ */
+class MappedSnapshotTest
+{
+	@TempDir
+	Path directory;
+
+	@Test
+	@DisplayName("Entries round trip across region boundaries and are found by id and by url")
+	void writeAndOpen() throws IOException
+	{
+		// given
+		List<WalRecord.Entry> entries = LongStream.rangeClosed(1, 200)
+			.filter(id -> id % 3 != 0)
+			.mapToObj(id -> new WalRecord.Entry(id, "Fact Nº" + id + " – 事实", "www.factbase.com/" + id, (int) id * 2))
+			.toList();
+		Path file = directory.resolve("snapshot");
+
+		// when
+		MappedSnapshot.write(file, entries.size(), entries.iterator(), 8);
+		MappedSnapshot snapshot = MappedSnapshot.open(file);
+
+		// then
+		assertThat(snapshot.count()).isEqualTo(entries.size());
+		assertThat(snapshot.lastId()).isEqualTo(200);
+		for (WalRecord.Entry entry : entries)
+		{
+			assertThat(snapshot.entry(entry.id())).isEqualTo(entry);
+			assertThat(snapshot.find(LongUrlLookup.hash(entry.originalUrl()), id -> id == entry.id())).isEqualTo(entry.id());
+		}
+		assertThat(snapshot.position(3)).isEqualTo(MappedSnapshot.MISSING);
+		assertThat(snapshot.position(0)).isEqualTo(MappedSnapshot.MISSING);
+		assertThat(snapshot.position(201)).isEqualTo(MappedSnapshot.MISSING);
+		assertThat(snapshot.find(LongUrlLookup.hash("www.factbase.com/3"), id -> true)).isEqualTo(LongUrlLookup.NOT_FOUND);
+
+		List<WalRecord.Entry> read = new ArrayList<>();
+		snapshot.entries().forEachRemaining(read::add);
+		assertThat(read).isEqualTo(entries);
+	}
+
+	@Test
+	@DisplayName("Empty snapshot and invalid input are handled")
+	void edgeCases() throws IOException
+	{
+		// given
+		Path file = directory.resolve("snapshot");
+		var unordered = List.of(new WalRecord.Entry(2, "b", "www.b.com", 0), new WalRecord.Entry(1, "a", "www.a.com", 0));
+
+		// when
+		MappedSnapshot.write(file, 0, List.<WalRecord.Entry>of().iterator());
+
+		// then
+		MappedSnapshot snapshot = MappedSnapshot.open(file);
+		assertThat(snapshot.count()).isZero();
+		assertThat(snapshot.entry(1)).isNull();
+		assertThat(snapshot.entries().hasNext()).isFalse();
+		assertThrows(IllegalArgumentException.class, () -> MappedSnapshot.write(file, 2, unordered.iterator()));
+		assertThrows(IllegalArgumentException.class, () -> MappedSnapshot.write(file, 3, unordered.subList(1, 2).iterator()));
+		assertThrows(IOException.class, () -> MappedSnapshot.open(directory.resolve("missing")));
+	}
+}
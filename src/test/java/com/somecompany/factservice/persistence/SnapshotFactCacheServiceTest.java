@@ -0,0 +1,258 @@
+package com.somecompany.factservice.persistence;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import com.somecompany.factservice.cache.FactCacheDTO;
+import com.somecompany.factservice.cache.FactCacheService;
+import com.somecompany.factservice.cache.InMemoryFactCacheService;
+import com.somecompany.factservice.exception.ResourceNotFoundException;
+import com.somecompany.factservice.model.AccessStat;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit test for SnapshotFactCacheService's fallback to a memory-mapped snapshot.
+ */
+class SnapshotFactCacheServiceTest
+{
+	@TempDir
+	Path directory;
+
+	InMemoryFactCacheService storage = new InMemoryFactCacheService();
+	SnapshotFactCacheService factCacheService = new SnapshotFactCacheService(storage, ShortCodeCodec.BASE26);
+
+	MappedSnapshot attached;
+
+	@BeforeEach
+	void attachSnapshot() throws IOException
+	{
+		attached = snapshot("snapshot", new WalRecord.Entry(1, "Bananas are berries.", "www.factbase.com/1", 5),
+			new WalRecord.Entry(2, "Honey never spoils.", "www.factbase.com/2", 0));
+		factCacheService.attach(attached);
+	}
+
+	@Test
+	@DisplayName("The service replaces the storage as FactCacheService only when persistence is enabled")
+	void conditionalOnPersistence()
+	{
+		var contextRunner = new ApplicationContextRunner()
+			.withBean(ShortCodeCodec.class, () -> ShortCodeCodec.BASE26)
+			.withUserConfiguration(InMemoryFactCacheService.class, SnapshotFactCacheService.class);
+
+		contextRunner.run(context -> assertThat(context.getBean(FactCacheService.class)).isInstanceOf(InMemoryFactCacheService.class));
+		contextRunner.withPropertyValues("factservice.persistence.enabled=true")
+			.run(context -> assertThat(context.getBean(FactCacheService.class)).isInstanceOf(SnapshotFactCacheService.class));
+	}
+
+	@Test
+	@DisplayName("Snapshot facts are served without being promoted")
+	void find()
+	{
+		// when / then
+		assertThat(factCacheService.getLongUrl("b")).isEqualTo("www.factbase.com/1");
+		assertThat(factCacheService.find("b").fact()).isEqualTo("Bananas are berries.");
+		assertThat(factCacheService.find("b").accessCount().get()).isEqualTo(5);
+		assertThat(factCacheService.find("d")).isNull();
+		assertThrows(ResourceNotFoundException.class, () -> factCacheService.getLongUrl("d"));
+		assertThat(storage.getAll()).isEmpty();
+	}
+
+	@Test
+	@DisplayName("Counting promotes a snapshot fact into the storage")
+	void incrementAccessCount()
+	{
+		// when
+		factCacheService.incrementAccessCount("b");
+		factCacheService.incrementAccessCount("b");
+
+		// then
+		assertThat(storage.find("b").accessCount().get()).isEqualTo(7);
+		assertThat(factCacheService.find("b").accessCount().get()).isEqualTo(7);
+		assertThrows(ResourceNotFoundException.class, () -> factCacheService.incrementAccessCount("d"));
+	}
+
+	@Test
+	@DisplayName("Resolving promotes a snapshot fact only when recording accesses")
+	void resolveAndRecord()
+	{
+		// when
+		String resolvedUrl = factCacheService.resolveAndRecord("b", 0);
+		boolean promotedByResolving = storage.find("b") != null;
+		String longUrl = factCacheService.resolveAndRecord("b", 2);
+
+		// then
+		assertThat(resolvedUrl).isEqualTo("www.factbase.com/1");
+		assertThat(promotedByResolving).isFalse();
+		assertThat(longUrl).isEqualTo("www.factbase.com/1");
+		assertThat(storage.find("b").accessCount().get()).isEqualTo(7);
+		assertThat(factCacheService.resolveAndRecord("d", 1)).isNull();
+		assertThat(storage.find("d")).isNull();
+	}
+
+	@Test
+	@DisplayName("Inserts skip snapshot facts and listing merges storage and snapshot")
+	void insertIfMissingAndGetAll()
+	{
+		// when
+		factCacheService.insertIfMissing(new FactCacheDTO("Other fact.", "www.other.com", "b"));
+		factCacheService.insertIfMissing(new FactCacheDTO("Hot water freezes faster.", "www.factbase.com/3", "d"));
+		factCacheService.incrementAccessCount("c");
+
+		// then
+		assertThat(factCacheService.getLongUrl("b")).isEqualTo("www.factbase.com/1");
+		assertThat(factCacheService.getAll())
+			.extracting(FactCacheDTO::shortUrl, factCacheDTO -> factCacheDTO.accessCount().get())
+			.containsExactlyInAnyOrder(tuple("b", 5L), tuple("c", 1L), tuple("d", 0L));
+	}
+
+	@Test
+	@DisplayName("Access counts are listed from storage and snapshot without decoding snapshot facts")
+	void forEachAccessCount()
+	{
+		// given
+		factCacheService.incrementAccessCount("b");
+		factCacheService.insertIfMissing(new FactCacheDTO("Hot water freezes faster.", "www.factbase.com/3", "d"));
+		List<AccessStat> accessStats = new ArrayList<>();
+
+		// when
+		factCacheService.forEachAccessCount((shortUrl, accessCount) -> accessStats.add(new AccessStat(shortUrl, accessCount)));
+
+		// then
+		assertThat(accessStats).containsExactlyInAnyOrder(new AccessStat("b", 6L), new AccessStat("c", 0L), new AccessStat("d", 0L));
+		assertThat(factCacheService.getAll()).hasSize(3);
+	}
+
+	@Test
+	@DisplayName("Listing continues by id in a snapshot attached while iterating")
+	void getAll_attachWhileIterating() throws IOException
+	{
+		// given
+		Iterator<FactCacheDTO> all = factCacheService.getAll().iterator();
+		assertThat(all.next().shortUrl()).isEqualTo("b");
+
+		// when
+		factCacheService.attach(snapshot("next", new WalRecord.Entry(1, "Bananas are berries.", "www.factbase.com/1", 5),
+			new WalRecord.Entry(2, "Honey never spoils.", "www.factbase.com/2", 3), new WalRecord.Entry(3, "Hot water freezes faster.", "www.factbase.com/3", 0)));
+
+		// then
+		assertThat(all.next().accessCount().get()).isEqualTo(3);
+		assertThat(all.next().shortUrl()).isEqualTo("d");
+		assertThat(all.hasNext()).isFalse();
+	}
+
+	@Test
+	@DisplayName("A replaced snapshot cannot be retained once the last lookup reading it released it")
+	void attach_releasesPrevious() throws IOException
+	{
+		// given
+		assertThat(attached.retain()).isTrue();
+
+		// when
+		factCacheService.attach(snapshot("next", new WalRecord.Entry(1, "Bananas are berries.", "www.factbase.com/1", 8)));
+
+		// then
+		assertThat(attached.accessCount(attached.position(1))).isEqualTo(5);
+		attached.release();
+		assertThat(attached.retain()).isFalse();
+		assertThat(factCacheService.find("b").accessCount().get()).isEqualTo(8);
+		assertThat(factCacheService.find("c")).isNull();
+	}
+
+	@Test
+	@DisplayName("Inserts racing with attaches read only retained snapshots, and every replaced snapshot is released")
+	void insertIfMissing_attachConcurrently() throws Exception
+	{
+		// given
+		List<MappedSnapshot> snapshots = new ArrayList<>();
+		for (int i = 0; i < 50; i++)
+		{
+			snapshots.add(snapshot("snapshot-" + i, new WalRecord.Entry(1, "Bananas are berries.", "www.factbase.com/1", i)));
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<?>> inserts = new ArrayList<>();
+
+		// when
+		try
+		{
+			for (int thread = 0; thread < 3; thread++)
+			{
+				int first = 10 + thread * 10_000;
+				inserts.add(executor.submit(() -> {
+					for (int id = first; id < first + 10_000; id++)
+					{
+						String shortUrl = ShortCodeCodec.BASE26.encode(id);
+						factCacheService.insertIfMissing(new FactCacheDTO("Fact " + id, "www.factbase.com/" + id, shortUrl));
+					}
+				}));
+			}
+			executor.submit(() -> snapshots.forEach(factCacheService::attach)).get(10, TimeUnit.SECONDS);
+			for (Future<?> insert : inserts)
+			{
+				insert.get(10, TimeUnit.SECONDS);
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		// then
+		assertThat(storage.getAll()).hasSize(30_000);
+		assertThat(attached.retain()).isFalse();
+		assertThat(snapshots.subList(0, snapshots.size() - 1)).noneMatch(MappedSnapshot::retain);
+		assertThat(factCacheService.find("b").accessCount().get()).isEqualTo(49);
+	}
+
+	@Test
+	@DisplayName("Removed snapshot facts are hidden until inserted again")
+	void remove()
+	{
+		// when
+		FactCacheDTO removed = factCacheService.remove("b");
+
+		// then
+		assertThat(removed.originalUrl()).isEqualTo("www.factbase.com/1");
+		assertThat(factCacheService.find("b")).isNull();
+		assertThat(factCacheService.remove("b")).isNull();
+		assertThrows(ResourceNotFoundException.class, () -> factCacheService.getLongUrl("b"));
+		assertThat(factCacheService.getAll()).extracting(FactCacheDTO::shortUrl).containsExactly("c");
+
+		// when
+		factCacheService.insertIfMissing(new FactCacheDTO("Other fact.", "www.other.com", "b"));
+
+		// then
+		assertThat(factCacheService.getLongUrl("b")).isEqualTo("www.other.com");
+	}
+
+	/**
+	 * Writes and maps a snapshot.
+	 *
+	 * @param name    file name
+	 * @param entries entries in ascending id order
+	 * @return the mapped snapshot
+	 * @throws IOException when writing or mapping fails
+	 */
+	private MappedSnapshot snapshot(String name, WalRecord.Entry... entries) throws IOException
+	{
+		Path file = directory.resolve(name);
+		MappedSnapshot.write(file, entries.length, List.of(entries).iterator());
+		return MappedSnapshot.open(file);
+	}
+}
@@ -0,0 +1,144 @@
+package com.somecompany.factservice.persistence;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.somecompany.factservice.cache.InMemoryFactCacheService;
+import com.somecompany.factservice.config.PersistenceProperties;
+import com.somecompany.factservice.service.urlshortener.Base26URLShortenerService;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Measures the time from starting the write-ahead log to the first served redirect.
+ * <p>
+ * Usage: {@code SnapshotStartup generate <log|snapshot> <directory> <facts>} writes a data set either as one log segment,
+ * which is replayed fact by fact, or as one memory-mapped snapshot. {@code SnapshotStartup start <directory>} then
+ * recovers it into hash storage in a fresh JVM and redirects a random fact. Kept next to the format classes because it
+ * writes the files directly; run from {@code target/test-classes} like the benchmarks.
+ * </p>
+ */
+public class SnapshotStartup
+{
+	/**
+	 * Generates a data set or measures its startup.
+	 *
+	 * @param args command and its arguments
+	 * @throws IOException when reading or writing the data set fails
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		Path directory = Path.of(args[args[0].equals("generate") ? 2 : 1]);
+		if (args[0].equals("generate"))
+		{
+			generate(args[1], directory, Long.parseLong(args[3]));
+			return;
+		}
+
+		long start = System.nanoTime();
+		var factCacheService = new SnapshotFactCacheService(new InMemoryFactCacheService(), ShortCodeCodec.BASE26);
+		var urlShortenerService = new Base26URLShortenerService(ShortCodeCodec.BASE26, factCacheService);
+		var properties = new PersistenceProperties(true, directory, PersistenceProperties.Fsync.BATCH, Duration.ofSeconds(1), 1024, 65536,
+			Duration.ofDays(1));
+		var writeAheadLog = new WriteAheadLog(properties, Optional.of(factCacheService), urlShortenerService, ShortCodeCodec.BASE26, new SimpleMeterRegistry());
+		writeAheadLog.start();
+		long recovered = System.nanoTime();
+
+		long facts = Long.parseLong(Files.readString(directory.resolve("facts")).trim());
+		String shortUrl = ShortCodeCodec.BASE26.encode(ThreadLocalRandom.current().nextLong(1, facts + 1));
+		factCacheService.incrementAccessCount(shortUrl);
+		String longUrl = factCacheService.getLongUrl(shortUrl);
+		long redirected = System.nanoTime();
+		writeAheadLog.stop();
+
+		Runtime runtime = Runtime.getRuntime();
+		System.out.printf("facts=%d recovery=%d ms first-redirect=%d ms heap=%d MB (%s -> %s)%n", facts, (recovered - start) / 1_000_000,
+			(redirected - start) / 1_000_000, (runtime.totalMemory() - runtime.freeMemory()) >> 20, shortUrl, longUrl);
+	}
+
+	/**
+	 * Writes a data set of facts of realistic size.
+	 *
+	 * @param format    {@code log} or {@code snapshot}
+	 * @param directory empty directory to write to
+	 * @param facts     number of facts
+	 * @throws IOException when writing fails
+	 */
+	private static void generate(String format, Path directory, long facts) throws IOException
+	{
+		Files.createDirectories(directory);
+		Files.writeString(directory.resolve("facts"), Long.toString(facts));
+		if (format.equals("snapshot"))
+		{
+			MappedSnapshot.write(directory.resolve("snapshot-%020d.dat".formatted(1)), facts, new Iterator<>()
+			{
+				private long id = 1;
+
+				@Override
+				public boolean hasNext()
+				{
+					return id <= facts;
+				}
+
+				@Override
+				public WalRecord.Entry next()
+				{
+					long next = id++;
+					return new WalRecord.Entry(next, text(next), permalink(next), 0);
+				}
+			});
+			return;
+		}
+
+		try (FileChannel channel = FileChannel.open(directory.resolve("wal-%020d.log".formatted(1)), StandardOpenOption.CREATE_NEW,
+			StandardOpenOption.WRITE))
+		{
+			List<WalRecord> batch = new ArrayList<>(1024);
+			for (long id = 1; id <= facts; id++)
+			{
+				batch.add(new WalRecord.Mapping(id, text(id), permalink(id)));
+				if (batch.size() == 1024 || id == facts)
+				{
+					var buffer = LogFormat.encodeBatch(batch);
+					while (buffer.hasRemaining())
+					{
+						channel.write(buffer);
+					}
+					batch.clear();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns a fact text of about the size of an upstream fact.
+	 *
+	 * @param id fact id
+	 * @return ~120 characters of text
+	 */
+	private static String text(long id)
+	{
+		return "Useless fact number %d: the average person spends six months of their lifetime waiting for red lights to turn green.".formatted(id);
+	}
+
+	/**
+	 * Returns a permalink of the size of an upstream permalink.
+	 *
+	 * @param id fact id
+	 * @return 74 character url
+	 */
+	private static String permalink(long id)
+	{
+		return "https://uselessfacts.jsph.pl/api/v2/facts/%032x".formatted(id);
+	}
+}
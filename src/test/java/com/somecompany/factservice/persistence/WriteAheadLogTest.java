@@ -0,0 +1,231 @@
+package com.somecompany.factservice.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.somecompany.factservice.cache.FactCacheDTO;
+import com.somecompany.factservice.cache.InMemoryFactCacheService;
+import com.somecompany.factservice.config.PersistenceProperties;
+import com.somecompany.factservice.service.urlshortener.Base26URLShortenerService;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+import com.somecompany.factservice.service.urlshortener.URLShortenerService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit test for WriteAheadLog's recovery of mappings and access counts across restarts.
+ */
+class WriteAheadLogTest
+{
+	@TempDir
+	Path directory;
+
+	SnapshotFactCacheService factCacheService = newFactCacheService();
+	URLShortenerService urlShortenerService = new Base26URLShortenerService(ShortCodeCodec.BASE26, factCacheService);
+
+	@Test
+	@DisplayName("Mappings, access counts and the shortener counter survive a restart")
+	void recover()
+	{
+		// given
+		WriteAheadLog writeAheadLog = start();
+		String shortUrl = shorten("Bananas are berries.", "www.factbase.com/1", writeAheadLog);
+		writeAheadLog.appendAccess(shortUrl);
+		writeAheadLog.appendAccess(shortUrl);
+		writeAheadLog.appendAccess("not-a-code");
+		writeAheadLog.stop();
+
+		// when
+		factCacheService = newFactCacheService();
+		urlShortenerService = new Base26URLShortenerService(ShortCodeCodec.BASE26, factCacheService);
+		start().stop();
+
+		// then
+		FactCacheDTO recovered = factCacheService.find(shortUrl);
+		assertThat(recovered.fact()).isEqualTo("Bananas are berries.");
+		assertThat(recovered.originalUrl()).isEqualTo("www.factbase.com/1");
+		assertThat(recovered.accessCount().get()).isEqualTo(2);
+		assertThat(urlShortenerService.getOrCreateShortUrl("www.factbase.com/1")).isEqualTo(shortUrl);
+		assertThat(urlShortenerService.getOrCreateShortUrl("www.factbase.com/2")).isEqualTo(ShortCodeCodec.BASE26.encode(2));
+	}
+
+	@Test
+	@DisplayName("Snapshot replaces compacted segments without counting accesses twice")
+	void snapshot() throws IOException
+	{
+		// given
+		WriteAheadLog writeAheadLog = start();
+		String shortUrl = shorten("Bananas are berries.", "www.factbase.com/1", writeAheadLog);
+		writeAheadLog.appendAccess(shortUrl);
+		shorten("Honey never spoils.", "www.factbase.com/2", writeAheadLog);
+
+		// when
+		writeAheadLog.snapshot();
+		writeAheadLog.appendAccess(shortUrl);
+		writeAheadLog.stop();
+
+		// then
+		assertThat(files("snapshot-")).hasSize(1);
+		assertThat(files("wal-")).hasSize(1);
+
+		factCacheService = newFactCacheService();
+		urlShortenerService = new Base26URLShortenerService(ShortCodeCodec.BASE26, factCacheService);
+		start().stop();
+		assertThat(factCacheService.getAll()).hasSize(2);
+		assertThat(factCacheService.find(shortUrl).accessCount().get()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("Removals survive a restart and the next snapshot")
+	void recover_removals() throws IOException
+	{
+		// given
+		WriteAheadLog writeAheadLog = start();
+		String snapshotted = shorten("Bananas are berries.", "www.factbase.com/1", writeAheadLog);
+		String kept = shorten("Honey never spoils.", "www.factbase.com/2", writeAheadLog);
+		writeAheadLog.snapshot();
+		String logged = shorten("Octopuses have three hearts.", "www.factbase.com/3", writeAheadLog);
+		factCacheService.remove(snapshotted);
+		writeAheadLog.appendRemoval(snapshotted);
+		factCacheService.remove(logged);
+		writeAheadLog.appendRemoval(logged);
+		writeAheadLog.stop();
+
+		// when
+		factCacheService = newFactCacheService();
+		urlShortenerService = new Base26URLShortenerService(ShortCodeCodec.BASE26, factCacheService);
+		writeAheadLog = start();
+		writeAheadLog.stop();
+
+		// then
+		assertThat(factCacheService.getAll()).extracting(FactCacheDTO::shortUrl).containsExactly(kept);
+		assertThat(writeAheadLog.lastRecoveredId()).isEqualTo(3);
+
+		// when
+		writeAheadLog = start();
+		writeAheadLog.snapshot();
+		writeAheadLog.stop();
+		factCacheService = newFactCacheService();
+		urlShortenerService = new Base26URLShortenerService(ShortCodeCodec.BASE26, factCacheService);
+		start().stop();
+
+		// then
+		assertThat(factCacheService.getAll()).extracting(FactCacheDTO::shortUrl).containsExactly(kept);
+		assertThat(factCacheService.find(snapshotted)).isNull();
+		assertThat(urlShortenerService.getOrCreateShortUrl("www.factbase.com/4")).isEqualTo(ShortCodeCodec.BASE26.encode(4));
+	}
+
+	@Test
+	@DisplayName("Torn batch at the end of a segment is ignored")
+	void recover_tornTail() throws IOException
+	{
+		// given
+		WriteAheadLog writeAheadLog = start();
+		String shortUrl = shorten("Bananas are berries.", "www.factbase.com/1", writeAheadLog);
+		writeAheadLog.stop();
+		Path segment = files("wal-").get(0);
+		Files.write(segment, new byte[] { 0, 0, 0, 42, 1, 2, 3 }, StandardOpenOption.APPEND);
+
+		// when
+		factCacheService = newFactCacheService();
+		urlShortenerService = new Base26URLShortenerService(ShortCodeCodec.BASE26, factCacheService);
+		start().stop();
+
+		// then
+		assertThat(factCacheService.getAll()).hasSize(1);
+		assertThat(factCacheService.find(shortUrl).fact()).isEqualTo("Bananas are berries.");
+	}
+
+	@Test
+	@DisplayName("Intact batch with an unknown record type ends the segment like a torn batch instead of failing startup")
+	void recover_unknownRecordType() throws IOException
+	{
+		// given
+		WriteAheadLog writeAheadLog = start();
+		String shortUrl = shorten("Bananas are berries.", "www.factbase.com/1", writeAheadLog);
+		writeAheadLog.stop();
+		var crc = new CRC32C();
+		crc.update(new byte[] { 99 });
+		ByteBuffer batch = ByteBuffer.allocate(9).putInt(1).putInt((int) crc.getValue()).put((byte) 99);
+		Files.write(files("wal-").get(0), batch.array(), StandardOpenOption.APPEND);
+
+		// when
+		factCacheService = newFactCacheService();
+		urlShortenerService = new Base26URLShortenerService(ShortCodeCodec.BASE26, factCacheService);
+		start().stop();
+
+		// then
+		assertThat(factCacheService.getAll()).hasSize(1);
+		assertThat(factCacheService.find(shortUrl).fact()).isEqualTo("Bananas are berries.");
+	}
+
+	/**
+	 * Creates an empty cache over hash storage.
+	 *
+	 * @return the cache
+	 */
+	private static SnapshotFactCacheService newFactCacheService()
+	{
+		return new SnapshotFactCacheService(new InMemoryFactCacheService(), ShortCodeCodec.BASE26);
+	}
+
+	/**
+	 * Starts a log over the temporary directory, recovering into the current cache and shortener.
+	 *
+	 * @return the started log
+	 */
+	private WriteAheadLog start()
+	{
+		var properties = new PersistenceProperties(true, directory, PersistenceProperties.Fsync.BATCH, Duration.ofSeconds(1), 1024, 1024,
+			Duration.ofHours(1));
+		var writeAheadLog = new WriteAheadLog(properties, Optional.of(factCacheService), urlShortenerService, ShortCodeCodec.BASE26, new SimpleMeterRegistry());
+		writeAheadLog.start();
+		return writeAheadLog;
+	}
+
+	/**
+	 * Shortens and caches a fact the way FactService does and waits for its mapping to be committed.
+	 *
+	 * @param fact          fact text
+	 * @param longUrl       original url
+	 * @param writeAheadLog log to commit the mapping to
+	 * @return the short url
+	 */
+	private String shorten(String fact, String longUrl, WriteAheadLog writeAheadLog)
+	{
+		String shortUrl = urlShortenerService.getOrCreateShortUrl(longUrl);
+		var factCacheDTO = new FactCacheDTO(fact, longUrl, shortUrl);
+		factCacheService.insertIfMissing(factCacheDTO);
+		writeAheadLog.appendMapping(factCacheDTO).join();
+		return shortUrl;
+	}
+
+	/**
+	 * Lists the files of the log directory with the given prefix.
+	 *
+	 * @param prefix file name prefix
+	 * @return matching files
+	 * @throws IOException when the directory cannot be listed
+	 */
+	private List<Path> files(String prefix) throws IOException
+	{
+		try (Stream<Path> files = Files.list(directory))
+		{
+			return files.filter(file -> file.getFileName().toString().startsWith(prefix)).toList();
+		}
+	}
+}
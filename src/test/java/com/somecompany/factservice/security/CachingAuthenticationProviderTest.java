@@ -0,0 +1,107 @@
+package com.somecompany.factservice.security;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Unit tests for CachingAuthenticationProvider skipping password verification of recently verified credentials.
+ */
+class CachingAuthenticationProviderTest
+{
+	AtomicLong nanos = new AtomicLong();
+	UserDetailsService userDetailsService = spy(new InMemoryUserDetailsManager(User.withUsername("admin").password("{noop}admin").roles("user").build()));
+	CachingAuthenticationProvider authenticationProvider = newAuthenticationProvider(Duration.ofMinutes(5));
+
+	@Test
+	@DisplayName("Verified credentials are accepted again without verification until the ttl passes")
+	void cached()
+	{
+		// given
+		Authentication authenticated = authenticationProvider.authenticate(token("admin", "admin"));
+
+		// when
+		nanos.addAndGet(Duration.ofMinutes(4).toNanos());
+		Authentication cached = authenticationProvider.authenticate(token("admin", "admin"));
+		nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+		Authentication expired = authenticationProvider.authenticate(token("admin", "admin"));
+
+		// then
+		assertThat(authenticated.isAuthenticated()).isTrue();
+		assertThat(cached).isSameAs(authenticated);
+		assertThat(expired).isNotSameAs(authenticated);
+		assertThat(expired.isAuthenticated()).isTrue();
+		verify(userDetailsService, times(2)).loadUserByUsername(anyString());
+	}
+
+	@Test
+	@DisplayName("Other passwords are verified and failures are not cached")
+	void rejected()
+	{
+		// given
+		authenticationProvider.authenticate(token("admin", "admin"));
+
+		// when / then
+		assertThrows(BadCredentialsException.class, () -> authenticationProvider.authenticate(token("admin", "guess")));
+		assertThrows(BadCredentialsException.class, () -> authenticationProvider.authenticate(token("admin", "guess")));
+		assertThrows(BadCredentialsException.class, () -> authenticationProvider.authenticate(token("root", "admin")));
+		assertThat(authenticationProvider.authenticate(token("admin", "admin")).isAuthenticated()).isTrue();
+		verify(userDetailsService, times(4)).loadUserByUsername(anyString());
+	}
+
+	@Test
+	@DisplayName("A zero ttl verifies every request")
+	void disabled()
+	{
+		// given
+		CachingAuthenticationProvider uncached = newAuthenticationProvider(Duration.ZERO);
+
+		// when
+		uncached.authenticate(token("admin", "admin"));
+		uncached.authenticate(token("admin", "admin"));
+
+		// then
+		verify(userDetailsService, times(2)).loadUserByUsername(anyString());
+	}
+
+	/**
+	 * Creates a provider verifying against the test user with the test clock.
+	 *
+	 * @param ttl time verified credentials are accepted again
+	 * @return the provider
+	 */
+	private CachingAuthenticationProvider newAuthenticationProvider(Duration ttl)
+	{
+		var daoAuthenticationProvider = new DaoAuthenticationProvider();
+		daoAuthenticationProvider.setUserDetailsService(userDetailsService);
+		return new CachingAuthenticationProvider(daoAuthenticationProvider, ttl, nanos::get);
+	}
+
+	/**
+	 * Creates an unauthenticated username and password request, as Basic authentication does.
+	 *
+	 * @param username the username
+	 * @param password the password
+	 * @return the authentication request
+	 */
+	private static UsernamePasswordAuthenticationToken token(String username, String password)
+	{
+		return UsernamePasswordAuthenticationToken.unauthenticated(username, password);
+	}
+}
@@ -0,0 +1,141 @@
+package com.somecompany.factservice.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.somecompany.factservice.cache.FactCacheDTO;
+import com.somecompany.factservice.cache.FactCacheService;
+import com.somecompany.factservice.cache.InMemoryFactCacheService;
+import com.somecompany.factservice.config.StatisticsProperties;
+import com.somecompany.factservice.model.AccessStat;
+import com.somecompany.factservice.service.urlshortener.Base26URLShortenerService;
+import com.somecompany.factservice.service.urlshortener.ShortCodeCodec;
+import com.somecompany.factservice.service.urlshortener.URLShortenerService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for AccessStatisticsExporter streaming pages of access statistics as newline-delimited JSON.
+ */
+class AccessStatisticsExporterTest
+{
+	FactCacheService factCacheService = new InMemoryFactCacheService();
+	URLShortenerService urlShortenerService = new Base26URLShortenerService(ShortCodeCodec.BASE26, factCacheService);
+	ObjectMapper objectMapper = new ObjectMapper();
+	AccessStatisticsExporter accessStatisticsExporter = new AccessStatisticsExporter(factCacheService, urlShortenerService,
+		ShortCodeCodec.BASE26, objectMapper, new StatisticsProperties(false, 1, Duration.ofDays(1), false, 1, 1, 3));
+
+	@Test
+	@DisplayName("Pages follow the ids of the short urls and skip removed facts")
+	void read() throws IOException
+	{
+		// given
+		insert(5);
+		factCacheService.remove(ShortCodeCodec.BASE26.encode(2));
+
+		// when
+		AccessStatisticsExporter.Page firstPage = accessStatisticsExporter.read(0, 2);
+		AccessStatisticsExporter.Page lastPage = accessStatisticsExporter.read(accessStatisticsExporter.afterId(firstPage.nextCursor()), 0);
+
+		// then
+		assertThat(write(firstPage).lines().map(this::parse)).containsExactly(new AccessStat(ShortCodeCodec.BASE26.encode(1), 1L),
+			new AccessStat(ShortCodeCodec.BASE26.encode(3), 3L));
+		assertThat(write(firstPage)).endsWith("\n");
+		assertThat(firstPage.nextCursor()).isEqualTo(ShortCodeCodec.BASE26.encode(3));
+		assertThat(write(lastPage).lines().map(this::parse)).containsExactly(new AccessStat(ShortCodeCodec.BASE26.encode(4), 4L),
+			new AccessStat(ShortCodeCodec.BASE26.encode(5), 5L));
+		assertThat(lastPage.nextCursor()).isNull();
+		assertThat(write(accessStatisticsExporter.read(5, 10))).isEmpty();
+	}
+
+	@Test
+	@DisplayName("A page visits at most the scan limit of ids and continues after the last one visited")
+	void read_scanLimit() throws IOException
+	{
+		// given
+		insert(7);
+		for (int id = 1; id <= 5; id++)
+		{
+			factCacheService.remove(ShortCodeCodec.BASE26.encode(id));
+		}
+
+		// when
+		AccessStatisticsExporter.Page firstPage = accessStatisticsExporter.read(0, 10);
+		AccessStatisticsExporter.Page secondPage = accessStatisticsExporter.read(accessStatisticsExporter.afterId(firstPage.nextCursor()), 10);
+		AccessStatisticsExporter.Page lastPage = accessStatisticsExporter.read(accessStatisticsExporter.afterId(secondPage.nextCursor()), 10);
+
+		// then
+		assertThat(write(firstPage)).isEmpty();
+		assertThat(firstPage.nextCursor()).isEqualTo(ShortCodeCodec.BASE26.encode(3));
+		assertThat(write(secondPage).lines().map(this::parse)).containsExactly(new AccessStat(ShortCodeCodec.BASE26.encode(6), 6L));
+		assertThat(secondPage.nextCursor()).isEqualTo(ShortCodeCodec.BASE26.encode(6));
+		assertThat(write(lastPage).lines().map(this::parse)).containsExactly(new AccessStat(ShortCodeCodec.BASE26.encode(7), 7L));
+		assertThat(lastPage.nextCursor()).isNull();
+	}
+
+	@Test
+	@DisplayName("Cursors that are no short url are rejected")
+	void afterId()
+	{
+		// given
+		// when
+		// then
+		assertThat(accessStatisticsExporter.afterId(null)).isZero();
+		assertThat(accessStatisticsExporter.afterId(ShortCodeCodec.BASE26.encode(7))).isEqualTo(7);
+		assertThrows(IllegalArgumentException.class, () -> accessStatisticsExporter.afterId("B!"));
+	}
+
+	/**
+	 * Shortens, caches and counts facts, accessing the i-th one i times.
+	 *
+	 * @param count number of facts
+	 */
+	private void insert(int count)
+	{
+		for (int i = 1; i <= count; i++)
+		{
+			String shortUrl = urlShortenerService.getOrCreateShortUrl("www.factbase.com/" + i);
+			factCacheService.insertIfMissing(new FactCacheDTO("Fact " + i, "www.factbase.com/" + i, shortUrl));
+			factCacheService.incrementAccessCount(shortUrl, i);
+		}
+	}
+
+	/**
+	 * Writes one page into a string.
+	 *
+	 * @param page the page
+	 * @return the written lines
+	 * @throws IOException when writing fails
+	 */
+	private String write(AccessStatisticsExporter.Page page) throws IOException
+	{
+		var outputStream = new ByteArrayOutputStream();
+		page.write(outputStream);
+		return outputStream.toString(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Parses one line into an AccessStat.
+	 *
+	 * @param line the line
+	 * @return the access stat
+	 */
+	private AccessStat parse(String line)
+	{
+		try
+		{
+			return objectMapper.readValue(line, AccessStat.class);
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+}
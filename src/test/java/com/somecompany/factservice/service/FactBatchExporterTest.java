@@ -0,0 +1,112 @@
+package com.somecompany.factservice.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.somecompany.factservice.config.BatchProperties;
+import com.somecompany.factservice.exception.RateLimitedException;
+import com.somecompany.factservice.model.FactResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for FactBatchExporter writing batches that complete, fail or pass their deadline.
+ */
+@ExtendWith(MockitoExtension.class)
+class FactBatchExporterTest
+{
+	@Mock
+	FactService factService;
+
+	ObjectMapper objectMapper = new ObjectMapper();
+	FactBatchExporter factBatchExporter;
+
+	@Test
+	@DisplayName("A completed batch is written as an array of its facts")
+	void write_completed() throws IOException
+	{
+		// given
+		startBatch(consumer -> {
+			consumer.accept(new FactResponse("fact a", "a"));
+			consumer.accept(new FactResponse("fact b", "b"));
+			return CompletableFuture.completedFuture(null);
+		});
+
+		// when
+		var outputStream = new ByteArrayOutputStream();
+		long written = factBatchExporter.start(2).write(outputStream);
+
+		// then
+		assertThat(written).isEqualTo(2);
+		assertThat(outputStream.toString(StandardCharsets.UTF_8))
+			.isEqualTo("[{\"original_fact\":\"fact a\",\"shortened_url\":\"a\"},{\"original_fact\":\"fact b\",\"shortened_url\":\"b\"}]");
+	}
+
+	@Test
+	@DisplayName("A batch failing after its first fact ends the array with an error object")
+	void write_failed() throws IOException
+	{
+		// given
+		startBatch(consumer -> {
+			consumer.accept(new FactResponse("fact a", "a"));
+			return CompletableFuture.failedFuture(new RateLimitedException("limited", null));
+		});
+
+		// when
+		var outputStream = new ByteArrayOutputStream();
+		long written = factBatchExporter.start(3).write(outputStream);
+
+		// then
+		assertThat(written).isEqualTo(1);
+		assertThat(outputStream.toString(StandardCharsets.UTF_8))
+			.isEqualTo("[{\"original_fact\":\"fact a\",\"shortened_url\":\"a\"},{\"error\":\"Fact batch failed\",\"missing\":2}]");
+	}
+
+	@Test
+	@DisplayName("A batch still missing facts at its deadline ends the array with an error object and is stopped")
+	void write_timedOut() throws IOException
+	{
+		// given
+		var done = new CompletableFuture<Void>();
+		startBatch(consumer -> {
+			consumer.accept(new FactResponse("fact a", "a"));
+			return done;
+		});
+
+		// when
+		var outputStream = new ByteArrayOutputStream();
+		long written = factBatchExporter.start(3).write(outputStream);
+
+		// then
+		assertThat(written).isEqualTo(1);
+		assertThat(outputStream.toString(StandardCharsets.UTF_8))
+			.isEqualTo("[{\"original_fact\":\"fact a\",\"shortened_url\":\"a\"},{\"error\":\"Fact batch timed out after PT0.1S\",\"missing\":2}]");
+		assertThat(done).isCompletedExceptionally();
+	}
+
+	/**
+	 * Answers batch requests of the fact service mock.
+	 *
+	 * @param batch passes facts to the consumer and returns the future of the batch
+	 */
+	private void startBatch(Function<Consumer<FactResponse>, CompletableFuture<Void>> batch)
+	{
+		when(factService.fetchAndProcessUselessFacts(anyInt(), any())).thenAnswer(invocation -> batch.apply(invocation.getArgument(1)));
+		factBatchExporter = new FactBatchExporter(factService, objectMapper, new BatchProperties(100, 4, Duration.ofMillis(100)));
+	}
+}
@@ -0,0 +1,162 @@
+package com.somecompany.factservice.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.somecompany.factservice.exception.RateLimitedException;
+import com.somecompany.factservice.model.FactResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for FactBatch parallelism, repeated facts, completions and failures.
+ */
+class FactBatchTest
+{
+	@Test
+	@DisplayName("No more fetches than the parallelism are in flight and a completed fetch starts the next one")
+	void start_boundedParallelism()
+	{
+		// given
+		List<CompletableFuture<FactResponse>> fetches = new ArrayList<>();
+		List<FactResponse> passedOn = new ArrayList<>();
+		var factBatch = new FactBatch(5, 2, () -> {
+			var fetch = new CompletableFuture<FactResponse>();
+			fetches.add(fetch);
+			return fetch;
+		}, passedOn::add);
+
+		// when
+		CompletableFuture<Void> done = factBatch.start();
+
+		// then
+		assertThat(fetches).hasSize(2);
+		fetches.get(1).complete(fact("b"));
+		assertThat(fetches).hasSize(3);
+		assertThat(passedOn).extracting(FactResponse::shortenedUrl).containsExactly("b");
+
+		fetches.get(0).complete(fact("a"));
+		fetches.get(2).complete(fact("c"));
+		fetches.get(3).complete(fact("d"));
+		assertThat(fetches).hasSize(5);
+		assertThat(done).isNotDone();
+
+		fetches.get(4).complete(fact("e"));
+		assertThat(done).isCompleted();
+		assertThat(passedOn).extracting(FactResponse::shortenedUrl).containsExactly("b", "a", "c", "d", "e");
+	}
+
+	@Test
+	@DisplayName("Added facts take no fetch slot and repeated facts are fetched again")
+	void start_addedAndRepeated()
+	{
+		// given
+		var shortUrls = new ArrayList<>(List.of("a", "b", "b", "c"));
+		List<FactResponse> passedOn = new ArrayList<>();
+		var factBatch = new FactBatch(3, 1, () -> CompletableFuture.completedFuture(fact(shortUrls.remove(0))), passedOn::add);
+		factBatch.add(CompletableFuture.completedFuture(fact("a")));
+
+		// when
+		CompletableFuture<Void> done = factBatch.start();
+
+		// then
+		assertThat(done).isCompleted();
+		assertThat(passedOn).extracting(FactResponse::shortenedUrl).containsExactly("a", "b", "c");
+		assertThat(shortUrls).isEmpty();
+	}
+
+	@Test
+	@DisplayName("Fetching stops after twice the requested number of fetches when facts keep repeating")
+	void start_fetchLimit()
+	{
+		// given
+		var fetches = new int[1];
+		List<FactResponse> passedOn = new ArrayList<>();
+		var factBatch = new FactBatch(3, 2, () -> {
+			fetches[0]++;
+			return CompletableFuture.completedFuture(fact("a"));
+		}, passedOn::add);
+
+		// when
+		CompletableFuture<Void> done = factBatch.start();
+
+		// then
+		assertThat(done).isCompleted();
+		assertThat(fetches[0]).isEqualTo(6);
+		assertThat(passedOn).hasSize(1);
+	}
+
+	@Test
+	@DisplayName("Fetches completing right away are handled in a loop rather than by nested calls")
+	void start_completedFetches()
+	{
+		// given
+		var fetches = new int[1];
+		List<FactResponse> passedOn = new ArrayList<>();
+		var factBatch = new FactBatch(100_000, 1, () -> CompletableFuture.completedFuture(fact(String.valueOf(fetches[0]++))), passedOn::add);
+
+		// when
+		CompletableFuture<Void> done = factBatch.start();
+
+		// then
+		assertThat(done).isCompleted();
+		assertThat(passedOn).hasSize(100_000);
+	}
+
+	@Test
+	@DisplayName("Completing the batch from outside stops further fetches")
+	void start_completedFromOutside()
+	{
+		// given
+		List<CompletableFuture<FactResponse>> fetches = new ArrayList<>();
+		List<FactResponse> passedOn = new ArrayList<>();
+		var factBatch = new FactBatch(4, 1, () -> {
+			var fetch = new CompletableFuture<FactResponse>();
+			fetches.add(fetch);
+			return fetch;
+		}, passedOn::add);
+		CompletableFuture<Void> done = factBatch.start();
+
+		// when
+		done.cancel(false);
+		fetches.get(0).complete(fact("a"));
+
+		// then
+		assertThat(fetches).hasSize(1);
+		assertThat(passedOn).isEmpty();
+	}
+
+	@Test
+	@DisplayName("The first failure ends the batch and later facts are not passed on")
+	void start_failure()
+	{
+		// given
+		List<CompletableFuture<FactResponse>> fetches = new ArrayList<>();
+		List<FactResponse> passedOn = new ArrayList<>();
+		var factBatch = new FactBatch(4, 2, () -> {
+			var fetch = new CompletableFuture<FactResponse>();
+			fetches.add(fetch);
+			return fetch;
+		}, passedOn::add);
+		CompletableFuture<Void> done = factBatch.start();
+
+		// when
+		fetches.get(0).completeExceptionally(new RateLimitedException("limited", null));
+		fetches.get(1).complete(fact("b"));
+
+		// then
+		assertThatThrownBy(done::join).hasCauseInstanceOf(RateLimitedException.class);
+		assertThat(fetches).hasSize(2);
+		assertThat(passedOn).isEmpty();
+	}
+
+	private static FactResponse fact(String shortUrl)
+	{
+		return new FactResponse("fact " + shortUrl, shortUrl);
+	}
+}
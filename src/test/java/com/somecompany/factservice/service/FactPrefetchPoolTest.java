@@ -0,0 +1,199 @@
+package com.somecompany.factservice.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.somecompany.factservice.client.UselessFactsAPIClient;
+import com.somecompany.factservice.config.PrefetchProperties;
+import com.somecompany.factservice.exception.RateLimitedException;
+import com.somecompany.factservice.model.UselessFact;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for FactPrefetchPool watermark handling and metrics.
+ */
+@ExtendWith(MockitoExtension.class)
+class FactPrefetchPoolTest
+{
+	@Mock
+	UselessFactsAPIClient uselessFactsAPIClient;
+
+	SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	@DisplayName("Refill tops the pool up to the high watermark")
+	void refillIfBelowLowWatermark()
+	{
+		// given
+		var counter = new AtomicInteger();
+		when(uselessFactsAPIClient.fetchUselessFactInBackground()).thenAnswer(ignore -> CompletableFuture.completedFuture(fact(counter.incrementAndGet())));
+		var pool = new FactPrefetchPool(uselessFactsAPIClient, properties(), meterRegistry);
+
+		// when
+		pool.refillIfBelowLowWatermark();
+
+		// then
+		assertThat(pool.depth()).isEqualTo(6);
+		assertThat(meterRegistry.counter("factservice.prefetch.refilled").count()).isEqualTo(6);
+		assertThat(meterRegistry.get("factservice.prefetch.depth").gauge().value()).isEqualTo(6);
+	}
+
+	@Test
+	@DisplayName("All fetches of a batch are started before the refill waits for them")
+	void refillIfBelowLowWatermark_parallelBatch()
+	{
+		// given
+		List<CompletableFuture<UselessFact>> fetches = new ArrayList<>();
+		when(uselessFactsAPIClient.fetchUselessFactInBackground()).thenAnswer(ignore -> {
+			var fetch = new CompletableFuture<UselessFact>();
+			fetches.add(fetch);
+			// completes a batch of 4, then a batch of 2, only once all of its fetches were started
+			if (fetches.size() == 4 || fetches.size() == 6)
+			{
+				for (int i = fetches.size() == 4 ? 0 : 4; i < fetches.size(); i++)
+				{
+					fetches.get(i).complete(fact(i + 1));
+				}
+			}
+			return fetch;
+		});
+		var pool = new FactPrefetchPool(uselessFactsAPIClient, properties(), meterRegistry);
+
+		// when
+		pool.refillIfBelowLowWatermark();
+
+		// then
+		assertThat(pool.depth()).isEqualTo(6);
+		assertThat(pool.poll(6)).extracting(UselessFact::id).containsExactly("1", "2", "3", "4", "5", "6");
+	}
+
+	@Test
+	@DisplayName("A fact repeated within a batch is pooled once")
+	void refillIfBelowLowWatermark_repeatedFact()
+	{
+		// given
+		var counter = new AtomicInteger();
+		when(uselessFactsAPIClient.fetchUselessFactInBackground()).thenAnswer(ignore -> {
+			int id = counter.incrementAndGet();
+			return CompletableFuture.completedFuture(fact(id == 2 ? 1 : id));
+		});
+		var pool = new FactPrefetchPool(uselessFactsAPIClient, properties(), meterRegistry);
+
+		// when
+		pool.refillIfBelowLowWatermark();
+
+		// then
+		assertThat(pool.depth()).isEqualTo(6);
+		assertThat(pool.poll(6)).extracting(UselessFact::id).containsExactly("1", "3", "4", "5", "6", "7");
+		assertThat(meterRegistry.counter("factservice.prefetch.refilled").count()).isEqualTo(6);
+	}
+
+	@Test
+	@DisplayName("A fact repeated in a later batch while it is still pooled is pooled once")
+	void refillIfBelowLowWatermark_factRepeatedAcrossBatches()
+	{
+		// given
+		var counter = new AtomicInteger();
+		when(uselessFactsAPIClient.fetchUselessFactInBackground()).thenAnswer(ignore -> {
+			int id = counter.incrementAndGet();
+			return CompletableFuture.completedFuture(fact(id == 5 ? 1 : id));
+		});
+		var pool = new FactPrefetchPool(uselessFactsAPIClient, properties(), meterRegistry);
+
+		// when
+		pool.refillIfBelowLowWatermark();
+
+		// then
+		assertThat(pool.poll(6)).extracting(UselessFact::id).containsExactly("1", "2", "3", "4", "6", "7");
+		assertThat(meterRegistry.counter("factservice.prefetch.refilled").count()).isEqualTo(6);
+	}
+
+	@Test
+	@DisplayName("A fact handed out is pooled again when it is fetched again, and a batch of only pooled facts ends the refill")
+	void refillIfBelowLowWatermark_factHandedOut()
+	{
+		// given
+		when(uselessFactsAPIClient.fetchUselessFactInBackground()).thenAnswer(ignore -> CompletableFuture.completedFuture(fact(1)));
+		var pool = new FactPrefetchPool(uselessFactsAPIClient, properties(), meterRegistry);
+		pool.refillIfBelowLowWatermark();
+		assertThat(pool.depth()).isEqualTo(1);
+
+		// when
+		UselessFact handedOut = pool.poll();
+		pool.refillIfBelowLowWatermark();
+
+		// then
+		assertThat(handedOut.id()).isEqualTo("1");
+		assertThat(pool.poll(6)).extracting(UselessFact::id).containsExactly("1");
+		assertThat(meterRegistry.counter("factservice.prefetch.refilled").count()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("Upstream failure aborts the refill cycle and is counted")
+	void refillIfBelowLowWatermark_failure()
+	{
+		// given
+		when(uselessFactsAPIClient.fetchUselessFactInBackground()).thenReturn(CompletableFuture.failedFuture(new RateLimitedException("limited", null)));
+		var pool = new FactPrefetchPool(uselessFactsAPIClient, properties(), meterRegistry);
+
+		// when
+		pool.refillIfBelowLowWatermark();
+
+		// then
+		assertThat(pool.depth()).isZero();
+		assertThat(meterRegistry.counter("factservice.prefetch.refill.failures").count()).isEqualTo(1);
+	}
+
+	@Test
+	@DisplayName("Facts of a batch are drained from the pool in one pass")
+	void poll_batch()
+	{
+		// given
+		var counter = new AtomicInteger();
+		when(uselessFactsAPIClient.fetchUselessFactInBackground()).thenAnswer(ignore -> CompletableFuture.completedFuture(fact(counter.incrementAndGet())));
+		var pool = new FactPrefetchPool(uselessFactsAPIClient, properties(), meterRegistry);
+		pool.refillIfBelowLowWatermark();
+
+		// when
+		List<UselessFact> prefetchedFacts = pool.poll(4);
+
+		// then
+		assertThat(prefetchedFacts).extracting(UselessFact::id).containsExactly("1", "2", "3", "4");
+		assertThat(pool.depth()).isEqualTo(2);
+		assertThat(meterRegistry.counter("factservice.prefetch.fallback").count()).isZero();
+	}
+
+	@Test
+	@DisplayName("Disabled pool never hands out facts nor counts fallbacks")
+	void poll_disabled()
+	{
+		var pool = new FactPrefetchPool(uselessFactsAPIClient, new PrefetchProperties(false, 8, 2, 6, 4, Duration.ofSeconds(1)), meterRegistry);
+
+		assertThat(pool.poll()).isNull();
+		assertThat(pool.poll(4)).isEmpty();
+		assertThat(meterRegistry.counter("factservice.prefetch.fallback").count()).isZero();
+	}
+
+	private static UselessFact fact(int id)
+	{
+		return new UselessFact(String.valueOf(id), "fact " + id, "https://www.factapi/api/facts/" + id);
+	}
+
+	private static PrefetchProperties properties()
+	{
+		return new PrefetchProperties(true, 8, 2, 6, 4, Duration.ofSeconds(1));
+	}
+}
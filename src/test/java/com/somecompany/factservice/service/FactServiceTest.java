@@ -1,5 +1,13 @@
 package com.somecompany.factservice.service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -7,16 +15,30 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.somecompany.factservice.access.AccessChangeLog;
+import com.somecompany.factservice.access.AccessEventPipeline;
+import com.somecompany.factservice.access.AccessWindow;
+import com.somecompany.factservice.access.TopAccessStatistics;
+import com.somecompany.factservice.access.WindowedAccessStatistics;
 import com.somecompany.factservice.cache.FactCacheDTO;
 import com.somecompany.factservice.cache.FactCacheService;
 import com.somecompany.factservice.client.UselessFactsAPIClient;
+import com.somecompany.factservice.config.BatchProperties;
+import com.somecompany.factservice.expiry.FactExpiryService;
+import com.somecompany.factservice.model.AccessStat;
+import com.somecompany.factservice.model.AccessStatChanges;
 import com.somecompany.factservice.model.FactResponse;
 import com.somecompany.factservice.model.UselessFact;
+import com.somecompany.factservice.persistence.WriteAheadLog;
 import com.somecompany.factservice.service.urlshortener.URLShortenerService;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -34,6 +56,22 @@ class FactServiceTest
 	URLShortenerService urlShortenerService;
 	@Mock
 	FactCacheService factCacheService;
+	@Mock
+	FactPrefetchPool factPrefetchPool;
+	@Mock
+	WriteAheadLog writeAheadLog;
+	@Mock
+	FactExpiryService factExpiryService;
+	@Mock
+	AccessEventPipeline accessEventPipeline;
+	@Mock
+	WindowedAccessStatistics windowedAccessStatistics;
+	@Mock
+	TopAccessStatistics topAccessStatistics;
+	@Mock
+	AccessChangeLog accessChangeLog;
+	@Mock
+	BatchProperties batchProperties;
 
 	@InjectMocks
 	FactService factService;
@@ -47,6 +85,7 @@ class FactServiceTest
 		var uselessFact = new UselessFact("1", fact, "https://www.factapi/api/facts/1");
 		when(uselessFactAPIClient.fetchUselessFact()).thenReturn(uselessFact);
 		when(urlShortenerService.getOrCreateShortUrl("https://www.factapi/api/facts/1")).thenReturn("xyz");
+		when(writeAheadLog.appendMapping(any(FactCacheDTO.class))).thenReturn(CompletableFuture.completedFuture(null));
 
 		// when
 		FactResponse uselessFactResponse = factService.fetchAndProcessUselessFact();
@@ -56,6 +95,122 @@ class FactServiceTest
 		assertThat(uselessFactResponse.shortenedUrl()).isEqualTo("xyz");
 
 		verify(factCacheService, times(1)).insertIfMissing(any(FactCacheDTO.class));
+		verify(writeAheadLog, times(1)).appendMapping(any(FactCacheDTO.class));
+		verify(factExpiryService, times(1)).schedule("xyz");
+		verify(accessChangeLog, times(1)).recordChange("xyz");
+	}
+
+	@Test
+	@DisplayName("Already seen fact is served without caching it again")
+	void acquireAndProcessUselessFact_seen()
+	{
+		// given
+		var uselessFact = new UselessFact("1", "Your hair collects space dust from comets", "https://www.factapi/api/facts/1");
+		when(uselessFactAPIClient.fetchUselessFact()).thenReturn(uselessFact);
+		when(urlShortenerService.getOrCreateShortUrl("https://www.factapi/api/facts/1")).thenReturn("xyz");
+		when(factCacheService.find("xyz")).thenReturn(new FactCacheDTO(uselessFact.text(), uselessFact.permalink(), "xyz"));
+
+		// when
+		FactResponse uselessFactResponse = factService.fetchAndProcessUselessFact();
+
+		// then
+		assertThat(uselessFactResponse.shortenedUrl()).isEqualTo("xyz");
+		verify(factCacheService, never()).insertIfMissing(any(FactCacheDTO.class));
+		verify(writeAheadLog, never()).appendMapping(any(FactCacheDTO.class));
+		verify(factExpiryService, never()).schedule(anyString());
+	}
+
+	@Test
+	@DisplayName("Already seen fact whose mapping is not committed yet is served only once it is committed")
+	void acquireAndProcessUselessFact_seenUncommitted()
+	{
+		// given
+		var uselessFact = new UselessFact("1", "Your hair collects space dust from comets", "https://www.factapi/api/facts/1");
+		var mappingCommitted = new CompletableFuture<Void>();
+		when(factPrefetchPool.poll()).thenReturn(uselessFact);
+		when(urlShortenerService.getOrCreateShortUrl("https://www.factapi/api/facts/1")).thenReturn("xyz");
+		when(factCacheService.find("xyz")).thenReturn(null, null, new FactCacheDTO(uselessFact.text(), uselessFact.permalink(), "xyz"));
+		when(writeAheadLog.appendMapping(any(FactCacheDTO.class))).thenReturn(mappingCommitted);
+
+		// when
+		CompletableFuture<FactResponse> first = factService.fetchAndProcessUselessFactAsync();
+		CompletableFuture<FactResponse> second = factService.fetchAndProcessUselessFactAsync();
+
+		// then
+		assertThat(first).isNotDone();
+		assertThat(second).isNotDone();
+		mappingCommitted.complete(null);
+		assertThat(second.join().shortenedUrl()).isEqualTo("xyz");
+		assertThat(first.join().shortenedUrl()).isEqualTo("xyz");
+		verify(writeAheadLog, times(1)).appendMapping(any(FactCacheDTO.class));
+	}
+
+	@Test
+	@DisplayName("A fact whose mapping cannot be committed is rolled back and fails every caller")
+	void acquireAndProcessUselessFact_commitFailed()
+	{
+		// given
+		var uselessFact = new UselessFact("1", "Your hair collects space dust from comets", "https://www.factapi/api/facts/1");
+		var mappingCommitted = new CompletableFuture<Void>();
+		when(factPrefetchPool.poll()).thenReturn(uselessFact);
+		when(urlShortenerService.getOrCreateShortUrl("https://www.factapi/api/facts/1")).thenReturn("xyz");
+		when(factCacheService.find("xyz")).thenReturn(null, null, new FactCacheDTO(uselessFact.text(), uselessFact.permalink(), "xyz"));
+		when(writeAheadLog.appendMapping(any(FactCacheDTO.class))).thenReturn(mappingCommitted);
+		CompletableFuture<FactResponse> first = factService.fetchAndProcessUselessFactAsync();
+		CompletableFuture<FactResponse> second = factService.fetchAndProcessUselessFactAsync();
+
+		// when
+		mappingCommitted.completeExceptionally(new UncheckedIOException(new IOException("disk full")));
+
+		// then
+		assertThat(first).isCompletedExceptionally();
+		assertThat(second).isCompletedExceptionally();
+		verify(factCacheService, times(1)).remove("xyz");
+		verify(urlShortenerService, times(1)).remove("https://www.factapi/api/facts/1", "xyz");
+		verify(factExpiryService, times(1)).cancel("xyz");
+		verify(topAccessStatistics, times(1)).release("xyz");
+	}
+
+	@Test
+	@DisplayName("Prefetched fact is shortened when served, without calling the upstream API")
+	void acquireAndProcessUselessFact_prefetched()
+	{
+		// given
+		var uselessFact = new UselessFact("1", "Your hair collects space dust from comets", "https://www.factapi/api/facts/1");
+		when(factPrefetchPool.poll()).thenReturn(uselessFact);
+		when(urlShortenerService.getOrCreateShortUrl("https://www.factapi/api/facts/1")).thenReturn("xyz");
+		when(writeAheadLog.appendMapping(any(FactCacheDTO.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+		// when
+		FactResponse uselessFactResponse = factService.fetchAndProcessUselessFact();
+
+		// then
+		assertThat(uselessFactResponse.shortenedUrl()).isEqualTo("xyz");
+		verify(uselessFactAPIClient, never()).fetchUselessFact();
+		verify(factCacheService, times(1)).insertIfMissing(any(FactCacheDTO.class));
+	}
+
+	@Test
+	@DisplayName("Batch is served from prefetched facts without calling the upstream API")
+	void fetchAndProcessUselessFacts_prefetched()
+	{
+		// given
+		var first = new UselessFact("1", "Your hair collects space dust from comets", "https://www.factapi/api/facts/1");
+		var second = new UselessFact("2", "Honey never spoils", "https://www.factapi/api/facts/2");
+		when(batchProperties.parallelism()).thenReturn(2);
+		when(factPrefetchPool.poll(2)).thenReturn(List.of(first, second));
+		when(urlShortenerService.getOrCreateShortUrl(first.permalink())).thenReturn("b");
+		when(urlShortenerService.getOrCreateShortUrl(second.permalink())).thenReturn("c");
+		when(writeAheadLog.appendMapping(any(FactCacheDTO.class))).thenReturn(CompletableFuture.completedFuture(null));
+		List<FactResponse> factResponses = new ArrayList<>();
+
+		// when
+		factService.fetchAndProcessUselessFacts(2, factResponses::add).join();
+
+		// then
+		assertThat(factResponses).containsExactly(new FactResponse(first.text(), "b"), new FactResponse(second.text(), "c"));
+		verify(uselessFactAPIClient, never()).fetchUselessFactInBackground();
+		verify(factCacheService, times(2)).insertIfMissing(any(FactCacheDTO.class));
 	}
 
 	@Test
@@ -63,12 +218,57 @@ class FactServiceTest
 	void incrementAccessAndGetLongUrl_2()
 	{
 		// given
+		when(factCacheService.resolveAndRecord("xyz", 1)).thenReturn("https://www.factapi/api/facts/1");
+
+		// when
+		String longUrl = factService.incrementAccessAndGetLongUrl("xyz");
+
+		// then
+		assertThat(longUrl).isEqualTo("https://www.factapi/api/facts/1");
+		verify(factCacheService, times(1)).resolveAndRecord("xyz", 1);
+		verify(writeAheadLog, times(1)).appendAccess("xyz");
+		verify(factExpiryService, times(1)).touch("xyz");
+		verify(windowedAccessStatistics, times(1)).record("xyz", 1);
+		verify(topAccessStatistics, times(1)).record("xyz", 1);
+		verify(accessChangeLog, times(1)).recordChange("xyz");
+	}
+
+	@Test
+	@DisplayName("Unknown short url resolved to null without recording an access")
+	void incrementAccessAndGetLongUrl_notFound()
+	{
+		// given
+		// when
+		String longUrl = factService.incrementAccessAndGetLongUrl("jibberish");
+
+		// then
+		assertThat(longUrl).isNull();
+		verify(writeAheadLog, never()).appendAccess(anyString());
+		verify(factExpiryService, never()).touch(anyString());
+		verify(windowedAccessStatistics, never()).record(anyString(), anyLong());
+		verify(topAccessStatistics, never()).record(anyString(), anyLong());
+		verify(accessChangeLog, never()).recordChange(anyString());
+	}
+
+	@Test
+	@DisplayName("Access is published instead of counted when the access event pipeline is enabled")
+	void incrementAccessAndGetLongUrl_pipeline()
+	{
+		// given
+		when(accessEventPipeline.isEnabled()).thenReturn(true);
+		when(factCacheService.resolveAndRecord("xyz", 0)).thenReturn("https://www.factapi/api/facts/1");
+
 		// when
-		factService.incrementAccessAndGetLongUrl("xyz");
+		String longUrl = factService.incrementAccessAndGetLongUrl("xyz");
+		String unknownLongUrl = factService.incrementAccessAndGetLongUrl("jibberish");
 
 		// then
-		verify(factCacheService, times(1)).incrementAccessCount(anyString());
-		verify(factCacheService, times(1)).getLongUrl(anyString());
+		assertThat(longUrl).isEqualTo("https://www.factapi/api/facts/1");
+		assertThat(unknownLongUrl).isNull();
+		verify(accessEventPipeline, times(1)).publish("xyz");
+		verify(accessEventPipeline, never()).publish("jibberish");
+		verify(factCacheService, never()).resolveAndRecord(anyString(), eq(1L));
+		verify(writeAheadLog, never()).appendAccess(anyString());
 	}
 
 	@Test
@@ -80,6 +280,49 @@ class FactServiceTest
 		factService.getAllAccessStatistics();
 
 		// then
-		verify(factCacheService, times(1)).getAll();
+		verify(factCacheService, times(1)).forEachAccessCount(any());
+	}
+
+	@Test
+	@DisplayName("Windowed access stats are sorted by access count")
+	void getAccessStatistics()
+	{
+		// given
+		doAnswer(invocation -> {
+			ObjLongConsumer<String> consumer = invocation.getArgument(1);
+			consumer.accept("b", 2);
+			consumer.accept("c", 9);
+			return null;
+		}).when(windowedAccessStatistics).forEach(eq(AccessWindow.HOUR), any());
+
+		// when
+		var accessStats = factService.getAccessStatistics(AccessWindow.HOUR);
+
+		// then
+		assertThat(accessStats).containsExactly(new AccessStat("c", 9L), new AccessStat("b", 2L));
+	}
+
+	@Test
+	@DisplayName("Changed access stats are read for the changed short urls only and removed ones have no count")
+	void getAccessStatisticsSince()
+	{
+		// given
+		when(accessChangeLog.changesSince(eq(3L), any())).thenAnswer(invocation -> {
+			Consumer<String> consumer = invocation.getArgument(1);
+			consumer.accept("b");
+			consumer.accept("c");
+			return 7L;
+		});
+		when(factCacheService.findAccessCount("b")).thenReturn(4L);
+		when(factCacheService.findAccessCount("c")).thenReturn(-1L);
+		when(accessChangeLog.changesSince(eq(1L), any())).thenReturn(-1L);
+
+		// when
+		AccessStatChanges accessStatChanges = factService.getAccessStatisticsSince(3);
+
+		// then
+		assertThat(accessStatChanges).isEqualTo(new AccessStatChanges(7, List.of(new AccessStat("b", 4L), new AccessStat("c", null))));
+		assertThat(factService.getAccessStatisticsSince(1)).isNull();
+		verify(factCacheService, never()).getAll();
 	}
 }
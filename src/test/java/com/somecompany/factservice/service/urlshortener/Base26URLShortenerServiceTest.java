@@ -5,6 +5,10 @@ import java.util.stream.IntStream;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
+import com.somecompany.factservice.cache.FactCacheDTO;
+import com.somecompany.factservice.cache.FactCacheService;
+import com.somecompany.factservice.cache.InMemoryFactCacheService;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -15,7 +19,8 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
  */
 class Base26URLShortenerServiceTest
 {
-	URLShortenerService urlShortenerService = new Base26URLShortenerService();
+	FactCacheService factCacheService = new InMemoryFactCacheService();
+	URLShortenerService urlShortenerService = new Base26URLShortenerService(ShortCodeCodec.BASE26, factCacheService);
 
 	/**
 	 * Verifies correct encoding of initial long url
@@ -43,7 +48,7 @@ class Base26URLShortenerServiceTest
 		urlShortenerService.getOrCreateShortUrl("https://uselessfacts.jsph.pl/api/v2/facts/3");
 
 		IntStream.range(1, 100).forEach((ignore) -> urlShortenerService.getOrCreateShortUrl("https://uselessfacts.jsph.pl/api/v2/facts/2"));
-		assertThat(((Base26URLShortenerService) urlShortenerService).longUrlToShortUrl).hasSize(3);
+		assertThat(((Base26URLShortenerService) urlShortenerService).size()).isEqualTo(3);
 	}
 
 	/**
@@ -54,7 +59,40 @@ class Base26URLShortenerServiceTest
 	void shortenUrl_4()
 	{
 		IntStream.range(1, 100).forEach((i) -> urlShortenerService.getOrCreateShortUrl("https://uselessfacts.jsph.pl/api/v2/facts/" + i));
-		assertThat(((Base26URLShortenerService) urlShortenerService).longUrlToShortUrl).hasSize(99);
+		assertThat(((Base26URLShortenerService) urlShortenerService).size()).isEqualTo(99);
+	}
+
+	/**
+	 * Verifies cached urls are reused and that a cached url different from the shortened one is not mistaken for it.
+	 */
+	@Test
+	@DisplayName("Cached urls are verified on lookup")
+	void shortenUrl_cached()
+	{
+		String shortUrl = urlShortenerService.getOrCreateShortUrl("https://uselessfacts.jsph.pl/api/v2/facts/1");
+		factCacheService.insertIfMissing(new FactCacheDTO("fact", "https://uselessfacts.jsph.pl/api/v2/facts/1", shortUrl));
+
+		assertThat(urlShortenerService.getOrCreateShortUrl("https://uselessfacts.jsph.pl/api/v2/facts/1")).isEqualTo(shortUrl);
+		assertThat(urlShortenerService.getOrCreateShortUrl("https://uselessfacts.jsph.pl/api/v2/facts/2")).isNotEqualTo(shortUrl);
+		assertThat(((Base26URLShortenerService) urlShortenerService).size()).isEqualTo(2);
+	}
+
+	/**
+	 * Verifies that an indexed short url whose fact is neither cached nor recently issued is not handed out again.
+	 */
+	@Test
+	@DisplayName("A short url with no cached or recently issued url is not reused")
+	void shortenUrl_uncachedNotReused()
+	{
+		// given
+		urlShortenerService.restore("www.factbase.com/5", "f");
+
+		// when
+		String shortUrl = urlShortenerService.getOrCreateShortUrl("www.factbase.com/5");
+
+		// then
+		assertThat(shortUrl).isNotEqualTo("f");
+		assertThat(urlShortenerService.getOrCreateShortUrl("www.factbase.com/5")).isEqualTo(shortUrl);
 	}
 
 	/**
@@ -67,4 +105,45 @@ class Base26URLShortenerServiceTest
 		assertThrows(IllegalArgumentException.class, () -> urlShortenerService.getOrCreateShortUrl(null));
 		assertThrows(IllegalArgumentException.class, () -> urlShortenerService.getOrCreateShortUrl("   "));
 	}
+
+	/**
+	 * Verifies that long urls of a restored index keep their short urls and new ids follow the restored ones.
+	 */
+	@Test
+	@DisplayName("Restored index is used and the counter continues after it")
+	void shortenUrl_restored()
+	{
+		// given
+		factCacheService.insertIfMissing(new FactCacheDTO("Honey never spoils.", "www.factbase.com/7", "h"));
+		urlShortenerService.restore((hash, matches) -> hash == LongUrlLookup.hash("www.factbase.com/7") && matches.test(7) ? 7 : LongUrlLookup.NOT_FOUND, 9);
+
+		// when / then
+		assertThat(urlShortenerService.getOrCreateShortUrl("www.factbase.com/7")).isEqualTo("h");
+		assertThat(urlShortenerService.getOrCreateShortUrl("www.factbase.com/8")).isEqualTo("k");
+	}
+
+	/**
+	 * Verifies that only short urls up to the last issued or restored one are reported as issued.
+	 */
+	@Test
+	@DisplayName("Issued short urls are recognized without a lookup")
+	void isIssued()
+	{
+		// given
+		urlShortenerService.getOrCreateShortUrl("www.factbase.com/1");
+		urlShortenerService.getOrCreateShortUrl("www.factbase.com/2");
+
+		// when
+		urlShortenerService.remove("www.factbase.com/1", "b");
+		urlShortenerService.restore("www.factbase.com/5", "f");
+
+		// then
+		assertThat(urlShortenerService.isIssued("b")).isTrue();
+		assertThat(urlShortenerService.isIssued("f")).isTrue();
+		assertThat(urlShortenerService.isIssued("g")).isFalse();
+		assertThat(urlShortenerService.isIssued("jibberish")).isFalse();
+		assertThat(urlShortenerService.isIssued("ab")).isFalse();
+		assertThat(urlShortenerService.isIssued("B")).isFalse();
+		assertThat(urlShortenerService.isIssued(null)).isFalse();
+	}
 }
@@ -0,0 +1,98 @@
+package com.somecompany.factservice.service.urlshortener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for LongUrlIndex probing, collision handling and growth.
+ */
+class LongUrlIndexTest
+{
+	LongUrlIndex longUrlIndex = new LongUrlIndex();
+	Map<Long, String> urlsById = new HashMap<>();
+	AtomicLong nextId = new AtomicLong(1);
+
+	@Test
+	@DisplayName("Colliding hashes are told apart by verification")
+	void findOrInsert_collisions()
+	{
+		// given: every url hashes to the same value
+		long id1 = insert("https://uselessfacts.jsph.pl/api/v2/facts/1", 42);
+		long id2 = insert("https://uselessfacts.jsph.pl/api/v2/facts/2", 42);
+
+		// when
+		long found = longUrlIndex.find(42, id -> "https://uselessfacts.jsph.pl/api/v2/facts/2".equals(urlsById.get(id)));
+
+		// then
+		assertThat(id1).isNotEqualTo(id2);
+		assertThat(found).isEqualTo(id2);
+		assertThat(insert("https://uselessfacts.jsph.pl/api/v2/facts/1", 42)).isEqualTo(id1);
+		assertThat(longUrlIndex.find(42, id -> false)).isEqualTo(LongUrlIndex.NOT_FOUND);
+		assertThat(longUrlIndex.size()).isEqualTo(2);
+	}
+
+	@Test
+	@DisplayName("Entries survive growing the table")
+	void findOrInsert_growth()
+	{
+		// given
+		for (int i = 0; i < 10_000; i++)
+		{
+			String url = "https://uselessfacts.jsph.pl/api/v2/facts/" + i;
+			insert(url, LongUrlLookup.hash(url));
+		}
+
+		// when / then
+		for (int i = 0; i < 10_000; i++)
+		{
+			String url = "https://uselessfacts.jsph.pl/api/v2/facts/" + i;
+			assertThat(longUrlIndex.find(LongUrlLookup.hash(url), id -> url.equals(urlsById.get(id)))).isEqualTo(i + 1L);
+		}
+		assertThat(longUrlIndex.size()).isEqualTo(10_000);
+	}
+
+	@Test
+	@DisplayName("Removing an entry keeps the rest of its probe sequence reachable")
+	void remove()
+	{
+		// given: three colliding urls and one probing into the same cluster from the next slot
+		long id1 = insert("https://uselessfacts.jsph.pl/api/v2/facts/1", 42);
+		long id2 = insert("https://uselessfacts.jsph.pl/api/v2/facts/2", 42);
+		long id3 = insert("https://uselessfacts.jsph.pl/api/v2/facts/3", 42);
+		long id4 = insert("https://uselessfacts.jsph.pl/api/v2/facts/4", 43);
+
+		// when
+		boolean removed = longUrlIndex.remove(42, id1);
+
+		// then
+		assertThat(removed).isTrue();
+		assertThat(longUrlIndex.remove(42, id1)).isFalse();
+		assertThat(longUrlIndex.find(42, id -> id == id1)).isEqualTo(LongUrlIndex.NOT_FOUND);
+		assertThat(longUrlIndex.find(42, id -> id == id2)).isEqualTo(id2);
+		assertThat(longUrlIndex.find(42, id -> id == id3)).isEqualTo(id3);
+		assertThat(longUrlIndex.find(43, id -> id == id4)).isEqualTo(id4);
+		assertThat(longUrlIndex.size()).isEqualTo(3);
+	}
+
+	/**
+	 * Indexes the url under the given hash, recording the id to url relationship used for verification.
+	 *
+	 * @param url  url to index
+	 * @param hash hash to index the url under
+	 * @return existing or new id of the url
+	 */
+	private long insert(String url, long hash)
+	{
+		return longUrlIndex.findOrInsert(hash, id -> url.equals(urlsById.get(id)), () -> {
+			long id = nextId.getAndIncrement();
+			urlsById.put(id, url);
+			return id;
+		});
+	}
+}
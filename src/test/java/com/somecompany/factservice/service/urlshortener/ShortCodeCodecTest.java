@@ -0,0 +1,95 @@
+package com.somecompany.factservice.service.urlshortener;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Unit tests for ShortCodeCodec encoding and decoding.
+ */
+class ShortCodeCodecTest
+{
+	@Test
+	@DisplayName("Codes round trip over the whole long range")
+	void encodeDecode_roundTrip()
+	{
+		LongStream.concat(LongStream.rangeClosed(1, 100_000), ThreadLocalRandom.current().longs(100_000, 1, Long.MAX_VALUE))
+			.forEach(id -> {
+				assertThat(ShortCodeCodec.BASE26.decode(ShortCodeCodec.BASE26.encode(id))).isEqualTo(id);
+				assertThat(ShortCodeCodec.BASE62.decode(ShortCodeCodec.BASE62.encode(id))).isEqualTo(id);
+			});
+		assertThat(ShortCodeCodec.BASE26.decode(ShortCodeCodec.BASE26.encode(Long.MAX_VALUE))).isEqualTo(Long.MAX_VALUE);
+	}
+
+	@Test
+	@DisplayName("Codes match positional notation for every alphabet size")
+	void encode_everyBase()
+	{
+		String printable = IntStream.rangeClosed('!', '~').filter(c -> c != '/').collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append).toString();
+		for (int base = 2; base <= printable.length(); base++)
+		{
+			ShortCodeCodec codec = ShortCodeCodec.of(printable.substring(0, base));
+			for (long id : ThreadLocalRandom.current().longs(1_000, 1, Integer.MAX_VALUE + 2L).toArray())
+			{
+				StringBuilder expected = new StringBuilder();
+				for (long remaining = id; remaining > 0; remaining /= base)
+				{
+					expected.insert(0, printable.charAt((int) (remaining % base)));
+				}
+				assertThat(codec.encode(id)).isEqualTo(expected.toString());
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Ids beyond the int range are encoded")
+	void encode_beyondIntRange()
+	{
+		long id = Integer.MAX_VALUE + 1L;
+		assertThat(ShortCodeCodec.BASE26.encode(id)).isEqualTo("gytisyy");
+		assertThat(ShortCodeCodec.BASE62.encode(id)).isEqualTo("2LKcb2");
+		assertThat(ShortCodeCodec.BASE26.encodedLength(Long.MAX_VALUE)).isEqualTo(14);
+	}
+
+	@Test
+	@DisplayName("Encoding into a buffer writes ASCII at the given offset")
+	void encodeTo()
+	{
+		byte[] buffer = new byte[8];
+
+		int length = ShortCodeCodec.BASE26.encodeTo(2000, buffer, 2);
+
+		assertThat(length).isEqualTo(3);
+		assertThat(new String(buffer, 2, length)).isEqualTo("cyy");
+		assertThrows(IndexOutOfBoundsException.class, () -> ShortCodeCodec.BASE26.encodeTo(Long.MAX_VALUE, buffer, 0));
+	}
+
+	@Test
+	@DisplayName("Non-canonical, foreign and overflowing codes are rejected")
+	void decode_invalid()
+	{
+		assertThat(ShortCodeCodec.BASE26.decode(null)).isEqualTo(ShortCodeCodec.INVALID);
+		assertThat(ShortCodeCodec.BASE26.decode("")).isEqualTo(ShortCodeCodec.INVALID);
+		assertThat(ShortCodeCodec.BASE26.decode("ab")).isEqualTo(ShortCodeCodec.INVALID);
+		assertThat(ShortCodeCodec.BASE26.decode("aB")).isEqualTo(ShortCodeCodec.INVALID);
+		assertThat(ShortCodeCodec.BASE26.decode("zzzzzzzzzzzzzz")).isEqualTo(ShortCodeCodec.INVALID);
+		assertThat(ShortCodeCodec.BASE62.decode("é")).isEqualTo(ShortCodeCodec.INVALID);
+	}
+
+	@Test
+	@DisplayName("Custom alphabets are validated")
+	void of()
+	{
+		assertThat(ShortCodeCodec.of("base62")).isSameAs(ShortCodeCodec.BASE62);
+		assertThat(ShortCodeCodec.of("01").encode(5)).isEqualTo("101");
+		assertThrows(IllegalArgumentException.class, () -> ShortCodeCodec.of("aa"));
+		assertThrows(IllegalArgumentException.class, () -> ShortCodeCodec.of("a/"));
+		assertThrows(IllegalArgumentException.class, () -> ShortCodeCodec.BASE26.encode(-1));
+	}
+}
@@ -18,4 +18,13 @@ class UrlShortenerUtilTest
 		assertThat(UrlShortenerUtil.encodeBase26(2000)).isEqualTo("cyy");
 		assertThat(UrlShortenerUtil.encodeBase26(20678)).isEqualTo("bepi");
 	}
+
+	@Test
+	void decodeBase26()
+	{
+		assertThat(UrlShortenerUtil.decodeBase26("b")).isEqualTo(1);
+		assertThat(UrlShortenerUtil.decodeBase26("cyy")).isEqualTo(2000);
+		assertThat(UrlShortenerUtil.decodeBase26("bepi")).isEqualTo(20678);
+		assertThat(UrlShortenerUtil.decodeBase26("not-a-code")).isEqualTo(ShortCodeCodec.INVALID);
+	}
 }
\ No newline at end of file